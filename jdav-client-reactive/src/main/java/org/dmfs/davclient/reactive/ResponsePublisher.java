@@ -0,0 +1,331 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient.reactive;
+
+import org.dmfs.dav.rfc4918.Response;
+import org.dmfs.davclient.MultistatusResponseReader;
+import org.dmfs.httpessentials.client.HttpRequest;
+import org.dmfs.httpessentials.client.HttpRequestExecutor;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * A Reactive Streams {@link Publisher} of the {@link Response}s of a multistatus request.
+ * <p>
+ * Every {@link Subscriber} gets a {@link Subscription} of its own, which executes the request when the first {@link Response} is requested. The request is
+ * executed and the response is parsed on the given {@link Executor}, so the blocking I/O never runs on the thread of the {@link Subscriber}. Only as many
+ * {@link Response}s are parsed as have been requested, the remainder of the response stays in the stream until more are requested.
+ * </p>
+ * <p>
+ * When the {@link Subscription} is cancelled, the remainder of the response is drained up to the given drain limit, so the connection can be reused, see
+ * {@link MultistatusResponseReader#close(long)}. With a drain limit of <code>0</code> a cancellation aborts the response right away, even if a read is blocked.
+ * </p>
+ * <p>
+ * If the {@link Subscriber} doesn't keep any reference to a {@link Response} after {@link Subscriber#onNext(Object)} has returned, the publisher can be told
+ * to recycle {@link Response}s, which saves an allocation per {@link Response}.
+ * </p>
+ * <p>
+ * This class is part of the jdav-client-reactive module, which depends on the Reactive Streams API, so jdav-client itself doesn't. Users of
+ * <code>java.util.concurrent.Flow</code> can adapt this publisher with <code>org.reactivestreams.FlowAdapters</code>.
+ * </p>
+ */
+public final class ResponsePublisher implements Publisher<Response>
+{
+    private final HttpRequestExecutor mExecutor;
+    private final URI mUri;
+    private final HttpRequest<MultistatusResponseReader> mRequest;
+    private final Executor mThreads;
+    private final long mDrainLimit;
+    private final boolean mRecycle;
+
+
+    /**
+     * Creates a {@link ResponsePublisher} that drains up to {@link MultistatusResponseReader#DEFAULT_DRAIN_LIMIT} bytes on cancellation and doesn't recycle
+     * {@link Response}s.
+     *
+     * @param executor
+     *     The {@link HttpRequestExecutor} to execute the request, must be thread-safe if there are multiple {@link Subscriber}s.
+     * @param uri
+     *     The {@link URI} to send the request to.
+     * @param request
+     *     The {@link HttpRequest} to execute.
+     * @param threads
+     *     The {@link Executor} to execute the request and parse the response on.
+     */
+    public ResponsePublisher(HttpRequestExecutor executor, URI uri, HttpRequest<MultistatusResponseReader> request, Executor threads)
+    {
+        this(executor, uri, request, threads, MultistatusResponseReader.DEFAULT_DRAIN_LIMIT, false);
+    }
+
+
+    /**
+     * Creates a {@link ResponsePublisher}.
+     *
+     * @param executor
+     *     The {@link HttpRequestExecutor} to execute the request, must be thread-safe if there are multiple {@link Subscriber}s.
+     * @param uri
+     *     The {@link URI} to send the request to.
+     * @param request
+     *     The {@link HttpRequest} to execute.
+     * @param threads
+     *     The {@link Executor} to execute the request and parse the response on.
+     * @param drainLimit
+     *     The maximum number of bytes to drain when a {@link Subscription} is cancelled, <code>0</code> to abort the response right away.
+     * @param recycle
+     *     Whether to recycle {@link Response}s. Only pass <code>true</code> if the {@link Subscriber}s don't use a {@link Response} after {@link
+     *     Subscriber#onNext(Object)} has returned.
+     */
+    public ResponsePublisher(HttpRequestExecutor executor, URI uri, HttpRequest<MultistatusResponseReader> request, Executor threads, long drainLimit,
+                             boolean recycle)
+    {
+        if (drainLimit < 0)
+        {
+            throw new IllegalArgumentException("Drain limit must not be negative");
+        }
+        mExecutor = executor;
+        mUri = uri;
+        mRequest = request;
+        mThreads = threads;
+        mDrainLimit = drainLimit;
+        mRecycle = recycle;
+    }
+
+
+    @Override
+    public void subscribe(Subscriber<? super Response> subscriber)
+    {
+        if (subscriber == null)
+        {
+            throw new NullPointerException("Subscriber must not be null");
+        }
+        ResponseSubscription subscription = new ResponseSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+
+    /**
+     * A {@link Subscription} that pulls {@link Response}s from a {@link MultistatusResponseReader} on demand.
+     * <p>
+     * All signals to the {@link Subscriber} are sent by {@link #pull()}, which is never run concurrently. Every call to {@link #request(long)} and {@link
+     * #cancel()} increments a work counter and only the caller that increments it from zero schedules {@link #pull()}, which keeps running until it has
+     * processed all the work.
+     * </p>
+     */
+    private final class ResponseSubscription implements Subscription
+    {
+        private final Subscriber<? super Response> mSubscriber;
+        private final AtomicLong mDemand = new AtomicLong();
+        private final AtomicInteger mWork = new AtomicInteger();
+
+        private volatile boolean mCancelled;
+        private volatile MultistatusResponseReader mReader;
+        private volatile Throwable mInvalidRequest;
+
+        // only accessed by pull()
+        private boolean mDone;
+        private Response mPrevious;
+
+
+        ResponseSubscription(Subscriber<? super Response> subscriber)
+        {
+            mSubscriber = subscriber;
+        }
+
+
+        @Override
+        public void request(long n)
+        {
+            if (n <= 0)
+            {
+                // rule 3.9
+                mInvalidRequest = new IllegalArgumentException("Requested " + n + " responses, but demand must be positive");
+            }
+            else
+            {
+                long demand;
+                do
+                {
+                    demand = mDemand.get();
+                }
+                while (demand != Long.MAX_VALUE && !mDemand.compareAndSet(demand, Long.MAX_VALUE - demand > n ? demand + n : Long.MAX_VALUE));
+            }
+            schedule();
+        }
+
+
+        @Override
+        public void cancel()
+        {
+            mCancelled = true;
+            MultistatusResponseReader reader = mReader;
+            if (reader != null && mDrainLimit == 0)
+            {
+                // abort a read that might be blocked
+                reader.cancel();
+            }
+            schedule();
+        }
+
+
+        private void schedule()
+        {
+            if (mWork.getAndIncrement() == 0)
+            {
+                try
+                {
+                    mThreads.execute(this::pull);
+                }
+                catch (RejectedExecutionException e)
+                {
+                    // no pull() is running, so it's safe to signal the subscriber here
+                    mWork.set(0);
+                    finish(e);
+                }
+            }
+        }
+
+
+        private void pull()
+        {
+            int work = 1;
+            do
+            {
+                if (!mDone)
+                {
+                    try
+                    {
+                        pullResponses();
+                    }
+                    catch (Throwable e)
+                    {
+                        finish(e);
+                    }
+                }
+                work = mWork.addAndGet(-work);
+            }
+            while (work != 0);
+        }
+
+
+        private void pullResponses() throws Exception
+        {
+            while (!mDone)
+            {
+                if (mCancelled)
+                {
+                    mDone = true;
+                    release();
+                    return;
+                }
+                if (mInvalidRequest != null)
+                {
+                    finish(mInvalidRequest);
+                    return;
+                }
+                if (mDemand.get() == 0)
+                {
+                    return;
+                }
+
+                MultistatusResponseReader reader = mReader;
+                if (reader == null)
+                {
+                    reader = mExecutor.execute(mUri, mRequest);
+                    mReader = reader;
+                    if (mCancelled && mDrainLimit == 0)
+                    {
+                        // cancelled while the request was being executed
+                        reader.cancel();
+                    }
+                    continue;
+                }
+
+                if (!reader.hasNextResponse())
+                {
+                    mDone = true;
+                    release();
+                    mSubscriber.onComplete();
+                    return;
+                }
+                Response response = reader.getNextResponse(mRecycle ? mPrevious : null);
+                mPrevious = response;
+                if (mDemand.get() != Long.MAX_VALUE)
+                {
+                    mDemand.decrementAndGet();
+                }
+                try
+                {
+                    mSubscriber.onNext(response);
+                }
+                catch (Throwable e)
+                {
+                    // rule 2.13, the subscription is considered cancelled
+                    mCancelled = true;
+                    mDone = true;
+                    release();
+                    return;
+                }
+            }
+        }
+
+
+        private void finish(Throwable error)
+        {
+            if (mDone)
+            {
+                return;
+            }
+            mDone = true;
+            release();
+            if (!mCancelled)
+            {
+                mSubscriber.onError(error);
+            }
+        }
+
+
+        private void release()
+        {
+            MultistatusResponseReader reader = mReader;
+            mPrevious = null;
+            if (reader != null)
+            {
+                mReader = null;
+                try
+                {
+                    reader.close(mDrainLimit);
+                }
+                catch (IOException e)
+                {
+                    // the subscriber either got all responses or doesn't want any more
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package org.dmfs.davclient.reactive;
+
+import org.dmfs.dav.rfc4918.Depth;
+import org.dmfs.dav.rfc4918.Response;
+import org.dmfs.davclient.DavContext;
+import org.dmfs.davclient.FakeExecutor;
+import org.dmfs.davclient.FakeResponse;
+import org.dmfs.davclient.MultistatusResponseReader;
+import org.dmfs.davclient.rfc4918.PropFind;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.saynotobugs.confidence.Quality;
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.allOf;
+import static org.saynotobugs.confidence.quality.Core.emptyIterable;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+import static org.saynotobugs.confidence.quality.Core.greaterThan;
+import static org.saynotobugs.confidence.quality.Core.has;
+import static org.saynotobugs.confidence.quality.Core.instanceOf;
+import static org.saynotobugs.confidence.quality.Core.iterates;
+import static org.saynotobugs.confidence.quality.Core.nullValue;
+
+
+@Confidence
+class ResponsePublisherTest
+{
+    private final static URI COLLECTION = URI.create("https://example.com/cal/");
+
+    /**
+     * The size of a comment between the first and the second response, large enough to exceed the buffer of any parser.
+     */
+    private final static int PADDING = 128 * 1024;
+
+    Verifiable nothingIsRequestedWithoutDemand = assertThat(subscribedOnly(), has("requests", FakeExecutor::requests, emptyIterable()));
+
+    Verifiable responsesAreDeliveredOnDemand = assertThat(demanded(),
+        allOf(
+            has("responses", RecordingSubscriber::hrefs, iterates("/cal/a.ics", "/cal/b.ics", "/cal/c.ics")),
+            has("responses after each request", RecordingSubscriber::deliveredPerRequest, iterates(1, 2, 3)),
+            has("complete", RecordingSubscriber::complete, equalTo(true)),
+            has("error", RecordingSubscriber::error, nullValue())));
+
+    Verifiable cancelledSubscriptionDrainsResponse = assertThat(cancelledAfterFirst(16, 1024),
+        allOf(
+            has("responses", Cancelled::hrefs, iterates("/cal/a.ics")),
+            has("complete", Cancelled::complete, equalTo(false)),
+            has("response", Cancelled::response,
+                allOf(has("remaining bytes", FakeResponse::remaining, equalTo(0)), has("closed", FakeResponse::closed, equalTo(true))))));
+
+    Verifiable cancelledSubscriptionAbortsLargeResponse = assertThat(cancelledAfterFirst(PADDING, 0),
+        allOf(
+            has("responses", Cancelled::hrefs, iterates("/cal/a.ics")),
+            has("complete", Cancelled::complete, equalTo(false)),
+            has("response", Cancelled::response,
+                allOf(has("remaining bytes", FakeResponse::remaining, greaterThan(0)), has("closed", FakeResponse::closed, equalTo(true))))));
+
+    Verifiable invalidDemandIsAnError = assertThat(invalidDemand(),
+        failedWith(instanceOf(IllegalArgumentException.class)));
+
+    Verifiable requestErrorsArePassedOn = assertThat(failed(),
+        failedWith(allOf(instanceOf(IOException.class), has("message", Throwable::getMessage, equalTo("server down")))));
+
+
+    private static FakeExecutor subscribedOnly()
+    {
+        FakeExecutor executor = new FakeExecutor((uri, method, body) -> new FakeResponse(uri, multistatus(16)));
+        publisher(executor, MultistatusResponseReader.DEFAULT_DRAIN_LIMIT).subscribe(new RecordingSubscriber());
+        return executor;
+    }
+
+
+    /**
+     * Requests the responses one by one and then some more.
+     */
+    private static RecordingSubscriber demanded()
+    {
+        FakeExecutor executor = new FakeExecutor((uri, method, body) -> new FakeResponse(uri, multistatus(16)));
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher(executor, MultistatusResponseReader.DEFAULT_DRAIN_LIMIT).subscribe(subscriber);
+        subscriber.request(1);
+        subscriber.request(1);
+        subscriber.request(5);
+        return subscriber;
+    }
+
+
+    /**
+     * Cancels the subscription after the first response and requests more afterwards, which must not result in any signals.
+     */
+    private static Cancelled cancelledAfterFirst(int padding, long drainLimit)
+    {
+        FakeExecutor executor = new FakeExecutor((uri, method, body) -> new FakeResponse(uri, multistatus(padding)));
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher(executor, drainLimit).subscribe(subscriber);
+        subscriber.request(1);
+        subscriber.mSubscription.cancel();
+        subscriber.request(5);
+        return new Cancelled(subscriber, executor.responses().get(0));
+    }
+
+
+    private static RecordingSubscriber invalidDemand()
+    {
+        FakeExecutor executor = new FakeExecutor((uri, method, body) -> new FakeResponse(uri, multistatus(16)));
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher(executor, MultistatusResponseReader.DEFAULT_DRAIN_LIMIT).subscribe(subscriber);
+        subscriber.request(0);
+        return subscriber;
+    }
+
+
+    private static RecordingSubscriber failed()
+    {
+        FakeExecutor executor = new FakeExecutor((uri, method, body) ->
+        {
+            throw new IOException("server down");
+        });
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher(executor, MultistatusResponseReader.DEFAULT_DRAIN_LIMIT).subscribe(subscriber);
+        subscriber.request(1);
+        return subscriber;
+    }
+
+
+    private static Quality<RecordingSubscriber> failedWith(Quality<? super Throwable> error)
+    {
+        return allOf(
+            has("responses", RecordingSubscriber::hrefs, emptyIterable()),
+            has("complete", RecordingSubscriber::complete, equalTo(false)),
+            has("error", RecordingSubscriber::error, error));
+    }
+
+
+    /**
+     * Returns a publisher that runs all work on the calling thread, which makes the order of the signals deterministic.
+     */
+    private static ResponsePublisher publisher(FakeExecutor executor, long drainLimit)
+    {
+        return new ResponsePublisher(executor, COLLECTION, PropFind.PropFindAllProp(new DavContext(), Depth.one), Runnable::run, drainLimit, false);
+    }
+
+
+    private static String multistatus(int padding)
+    {
+        char[] comment = new char[padding];
+        Arrays.fill(comment, 'x');
+        return "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+            + "<d:multistatus xmlns:d=\"DAV:\">\n"
+            + response("a")
+            + "<!--" + new String(comment) + "-->\n"
+            + response("b")
+            + response("c")
+            + "</d:multistatus>\n";
+    }
+
+
+    private static String response(String name)
+    {
+        return "<d:response><d:href>/cal/" + name + ".ics</d:href><d:propstat><d:prop><d:getetag>\"" + name
+            + "\"</d:getetag></d:prop><d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>\n";
+    }
+
+
+    /**
+     * A {@link Subscriber} that records all signals.
+     */
+    private final static class RecordingSubscriber implements Subscriber<Response>
+    {
+        private final List<String> mHrefs = new ArrayList<>();
+        private final List<Integer> mDeliveredPerRequest = new ArrayList<>();
+        private Subscription mSubscription;
+        private Throwable mError;
+        private boolean mComplete;
+
+
+        @Override
+        public void onSubscribe(Subscription subscription)
+        {
+            mSubscription = subscription;
+        }
+
+
+        @Override
+        public void onNext(Response response)
+        {
+            mHrefs.add(response.getHref().getPath());
+        }
+
+
+        @Override
+        public void onError(Throwable error)
+        {
+            mError = error;
+        }
+
+
+        @Override
+        public void onComplete()
+        {
+            mComplete = true;
+        }
+
+
+        /**
+         * Requests the given number of {@link Response}s and records how many have been delivered when the request returns.
+         */
+        void request(long n)
+        {
+            mSubscription.request(n);
+            mDeliveredPerRequest.add(mHrefs.size());
+        }
+
+
+        /**
+         * Returns the paths of the delivered {@link Response}s.
+         */
+        List<String> hrefs()
+        {
+            return mHrefs;
+        }
+
+
+        /**
+         * Returns the total number of delivered {@link Response}s after each call to {@link #request(long)}.
+         */
+        List<Integer> deliveredPerRequest()
+        {
+            return mDeliveredPerRequest;
+        }
+
+
+        Throwable error()
+        {
+            return mError;
+        }
+
+
+        boolean complete()
+        {
+            return mComplete;
+        }
+    }
+
+
+    /**
+     * The outcome of a cancelled subscription.
+     */
+    private final static class Cancelled
+    {
+        private final RecordingSubscriber mSubscriber;
+        private final FakeResponse mResponse;
+
+
+        private Cancelled(RecordingSubscriber subscriber, FakeResponse response)
+        {
+            mSubscriber = subscriber;
+            mResponse = response;
+        }
+
+
+        List<String> hrefs()
+        {
+            return mSubscriber.hrefs();
+        }
+
+
+        boolean complete()
+        {
+            return mSubscriber.complete();
+        }
+
+
+        FakeResponse response()
+        {
+            return mResponse;
+        }
+    }
+}
@@ -20,6 +20,10 @@
 package org.dmfs.davclient;
 
 import org.dmfs.httpessentials.client.HttpRequest;
+import org.dmfs.httpessentials.headers.BasicSingletonHeaderType;
+import org.dmfs.httpessentials.headers.HeaderType;
+import org.dmfs.httpessentials.headers.Headers;
+import org.dmfs.httpessentials.typedentity.EntityConverter;
 
 
 /**
@@ -30,14 +34,72 @@ import org.dmfs.httpessentials.client.HttpRequest;
  */
 public abstract class BaseDavRequest<T> implements HttpRequest<T>
 {
+    private final static EntityConverter<String> STRING_CONVERTER = new EntityConverter<String>()
+    {
+        @Override
+        public String value(String valueString)
+        {
+            return valueString;
+        }
+
+
+        @Override
+        public String valueString(String value)
+        {
+            return value;
+        }
+    };
+
+    private final static HeaderType<String> PREFER = new BasicSingletonHeaderType<>(Constants.HEADER_PREFER, STRING_CONVERTER);
+
+    private final static HeaderType<String> BRIEF = new BasicSingletonHeaderType<>(Constants.HEADER_BRIEF, STRING_CONVERTER);
+
     /**
      * The {@link DavContext} to use for the request.
      */
     protected final DavContext mDavContext;
 
+    /**
+     * Whether to ask for a minimal response or <code>null</code> to use the setting of the {@link DavContext}.
+     */
+    private Boolean mPreferMinimal;
+
 
     public BaseDavRequest(DavContext davContext)
     {
         mDavContext = davContext;
     }
+
+
+    /**
+     * Sets whether this request asks for a minimal response by sending <code>Prefer: return=minimal</code> as defined in
+     * <a href="https://tools.ietf.org/html/rfc8144">RFC 8144</a> and the older <code>Brief: t</code>. Servers that support either of them omit the
+     * <code>404</code> propstats of multistatus responses. By default the setting of the {@link DavContext} is used.
+     *
+     * @param preferMinimal
+     *     <code>true</code> to ask for a minimal response.
+     */
+    public void setPreferMinimal(boolean preferMinimal)
+    {
+        mPreferMinimal = preferMinimal;
+    }
+
+
+    /**
+     * Adds the headers that ask for a minimal response to the given {@link Headers}, if minimal responses are preferred.
+     *
+     * @param headers
+     *     The other {@link Headers} of the request.
+     *
+     * @return The {@link Headers} to send.
+     */
+    protected final Headers withPreferences(Headers headers)
+    {
+        boolean preferMinimal = mPreferMinimal != null ? mPreferMinimal : mDavContext != null && mDavContext.getPreferMinimal();
+        if (!preferMinimal)
+        {
+            return headers;
+        }
+        return headers.withHeader(PREFER.entity(Constants.PREFER_RETURN_MINIMAL)).withHeader(BRIEF.entity(Constants.BRIEF_TRUE));
+    }
 }
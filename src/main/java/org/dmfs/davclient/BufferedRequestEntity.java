@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient;
+
+import org.dmfs.httpessentials.client.HttpRequestEntity;
+import org.dmfs.httpessentials.types.MediaType;
+import org.dmfs.jems.optional.Optional;
+import org.dmfs.jems.optional.elementary.Present;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+
+/**
+ * An {@link HttpRequestEntity} decorator that renders the decorated entity only once into a buffer. This way the content length is known in advance and
+ * subsequent calls to {@link #writeContent(OutputStream)}, e.g. when a request is retried or redirected, don't render the entity again.
+ * <p>
+ * The entity is rendered on the first call to {@link #contentLength()} or {@link #writeContent(OutputStream)}. Only use this for entities of moderate size,
+ * like XML request bodies.
+ * </p>
+ */
+public final class BufferedRequestEntity implements HttpRequestEntity
+{
+    private final HttpRequestEntity mDelegate;
+    private byte[] mContent;
+
+
+    /**
+     * Creates a {@link BufferedRequestEntity} of the given {@link HttpRequestEntity}.
+     *
+     * @param delegate
+     *     The {@link HttpRequestEntity} to buffer.
+     */
+    public BufferedRequestEntity(HttpRequestEntity delegate)
+    {
+        mDelegate = delegate;
+    }
+
+
+    @Override
+    public Optional<MediaType> contentType()
+    {
+        return mDelegate.contentType();
+    }
+
+
+    @Override
+    public Optional<Long> contentLength()
+    {
+        try
+        {
+            return new Present<>((long) content().length);
+        }
+        catch (IOException e)
+        {
+            // we can't render the content, fall back to the length of the delegate, writeContent will throw anyway
+            return mDelegate.contentLength();
+        }
+    }
+
+
+    @Override
+    public void writeContent(OutputStream out) throws IOException
+    {
+        out.write(content());
+        out.flush();
+    }
+
+
+    private byte[] content() throws IOException
+    {
+        byte[] content = mContent;
+        if (content == null)
+        {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+            mDelegate.writeContent(buffer);
+            content = buffer.toByteArray();
+            mContent = content;
+        }
+        return content;
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient;
+
+import org.dmfs.davclient.rfc7231.HttpOptions;
+import org.dmfs.davclient.rfc7231.Options;
+import org.dmfs.httpessentials.client.HttpRequestExecutor;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.httpessentials.exceptions.ProtocolException;
+import org.dmfs.httpessentials.exceptions.RedirectionException;
+import org.dmfs.httpessentials.exceptions.UnexpectedStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * A thread-safe cache of the {@link HttpOptions} of servers, by origin.
+ * <p>
+ * Entries expire after a configurable time. The cache can be written to and restored from a text stream to keep the results across restarts.
+ * </p>
+ */
+public final class CapabilityCache
+{
+    /**
+     * The default time in milliseconds after which an entry expires.
+     */
+    public final static long DEFAULT_TTL_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+    private final long mTtlMillis;
+    private final ConcurrentMap<String, Entry> mEntries = new ConcurrentHashMap<>();
+    private final SingleFlight<String, HttpOptions> mInFlight = new SingleFlight<>();
+
+
+    /**
+     * Creates a {@link CapabilityCache} with entries that expire after {@link #DEFAULT_TTL_MILLIS} milliseconds.
+     */
+    public CapabilityCache()
+    {
+        this(DEFAULT_TTL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+
+    /**
+     * Creates a {@link CapabilityCache} with entries that expire after the given time.
+     *
+     * @param ttl
+     *     The time to live of an entry.
+     * @param unit
+     *     The {@link TimeUnit} of the time to live.
+     */
+    public CapabilityCache(long ttl, TimeUnit unit)
+    {
+        if (ttl < 0)
+        {
+            throw new IllegalArgumentException("TTL must not be negative");
+        }
+        mTtlMillis = unit.toMillis(ttl);
+    }
+
+
+    /**
+     * Returns the cached {@link HttpOptions} of the origin of the given {@link URI}.
+     *
+     * @param uri
+     *     Any {@link URI} on the server.
+     *
+     * @return The {@link HttpOptions} or <code>null</code> if there is no valid entry.
+     */
+    public HttpOptions get(URI uri)
+    {
+        String origin = origin(uri);
+        Entry entry = mEntries.get(origin);
+        if (entry == null)
+        {
+            return null;
+        }
+        if (entry.mExpires <= System.currentTimeMillis())
+        {
+            mEntries.remove(origin, entry);
+            return null;
+        }
+        return entry.mOptions;
+    }
+
+
+    /**
+     * Stores the {@link HttpOptions} of the origin of the given {@link URI}.
+     *
+     * @param uri
+     *     Any {@link URI} on the server.
+     * @param options
+     *     The {@link HttpOptions} of the server.
+     */
+    public void put(URI uri, HttpOptions options)
+    {
+        mEntries.put(origin(uri), new Entry(options, System.currentTimeMillis() + mTtlMillis));
+    }
+
+
+    /**
+     * Removes the entry of the origin of the given {@link URI}, e.g. after the server has been upgraded.
+     *
+     * @param uri
+     *     Any {@link URI} on the server.
+     */
+    public void invalidate(URI uri)
+    {
+        mEntries.remove(origin(uri));
+    }
+
+
+    /**
+     * Returns the {@link HttpOptions} of the origin of the given {@link URI}, sending an OPTIONS request to the given {@link URI} if there is no valid entry.
+     * <p>
+     * Note that servers may return different options for different resources. The result of the first resource requested is used for the entire origin.
+     * </p>
+     * <p>
+     * Only one OPTIONS request per origin is sent at a time. Concurrent callers wait for its result, or its error.
+     * </p>
+     *
+     * @param executor
+     *     The {@link HttpRequestExecutor} to send the OPTIONS request.
+     * @param uri
+     *     The {@link URI} to send the OPTIONS request to.
+     *
+     * @return The {@link HttpOptions} of the server.
+     */
+    public HttpOptions options(HttpRequestExecutor executor, URI uri)
+        throws IOException, ProtocolError, ProtocolException, RedirectionException, UnexpectedStatusException
+    {
+        HttpOptions result = get(uri);
+        if (result != null)
+        {
+            return result;
+        }
+
+        return mInFlight.value(origin(uri), () ->
+        {
+            // another request may have completed in the meantime
+            HttpOptions options = get(uri);
+            if (options == null)
+            {
+                options = executor.execute(uri, new Options());
+                put(uri, options);
+            }
+            return options;
+        });
+    }
+
+
+    /**
+     * Writes all valid entries to the given {@link Writer}, one line per origin. The {@link Writer} is not closed.
+     *
+     * @param writer
+     *     The {@link Writer} to write to.
+     */
+    public void store(Writer writer) throws IOException
+    {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Entry> entry : mEntries.entrySet())
+        {
+            Entry value = entry.getValue();
+            if (value.mExpires <= now)
+            {
+                continue;
+            }
+            writer.write(entry.getKey());
+            writer.write('\t');
+            writer.write(Long.toString(value.mExpires));
+            writer.write('\t');
+            writer.write(String.join(",", value.mOptions.davClasses()));
+            writer.write('\t');
+            writer.write(String.join(",", value.mOptions.allowedMethods()));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+
+    /**
+     * Adds the valid entries written by {@link #store(Writer)} to this cache. Entries keep their original expiry time. Malformed lines are ignored. The
+     * {@link Reader} is not closed.
+     *
+     * @param reader
+     *     The {@link Reader} to read from.
+     */
+    public void load(Reader reader) throws IOException
+    {
+        BufferedReader lines = new BufferedReader(reader);
+        long now = System.currentTimeMillis();
+        String line;
+        while ((line = lines.readLine()) != null)
+        {
+            String[] fields = line.split("\t", -1);
+            if (fields.length != 4)
+            {
+                continue;
+            }
+            long expires;
+            try
+            {
+                expires = Long.parseLong(fields[1]);
+            }
+            catch (NumberFormatException e)
+            {
+                continue;
+            }
+            if (expires > now)
+            {
+                mEntries.putIfAbsent(fields[0], new Entry(new HttpOptions(split(fields[2]), split(fields[3])), expires));
+            }
+        }
+    }
+
+
+    private static List<String> split(String tokens)
+    {
+        return tokens.isEmpty() ? Collections.<String>emptyList() : Arrays.asList(tokens.split(","));
+    }
+
+
+    private static String origin(URI uri)
+    {
+        String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase(Locale.ENGLISH);
+        String host = uri.getHost() == null ? "" : uri.getHost().toLowerCase(Locale.ENGLISH);
+        int port = uri.getPort();
+        if (port < 0)
+        {
+            port = "https".equals(scheme) ? 443 : "http".equals(scheme) ? 80 : -1;
+        }
+        return scheme + "://" + host + ":" + port;
+    }
+
+
+    private final static class Entry
+    {
+        private final HttpOptions mOptions;
+        private final long mExpires;
+
+
+        Entry(HttpOptions options, long expires)
+        {
+            mOptions = options;
+            mExpires = expires;
+        }
+    }
+}
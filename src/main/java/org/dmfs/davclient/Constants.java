@@ -38,6 +38,21 @@ public final class Constants
      */
     public final static String HEADER_PREFER = "Prefer";
 
+    /**
+     * The name of the brief header.
+     */
+    public final static String HEADER_BRIEF = "Brief";
+
+    /**
+     * The preference for minimal responses as defined in <a href="https://tools.ietf.org/html/rfc8144#section-2.1">RFC 8144, section 2.1</a>.
+     */
+    public final static String PREFER_RETURN_MINIMAL = "return=minimal";
+
+    /**
+     * The value of the brief header to request minimal responses.
+     */
+    public final static String BRIEF_TRUE = "t";
+
     /**
      * The preferred content type for DAV XML responses and requests.
      */
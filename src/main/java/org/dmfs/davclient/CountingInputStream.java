@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * An {@link InputStream} that counts the bytes read from another {@link InputStream}.
+ */
+final class CountingInputStream extends FilterInputStream
+{
+    private long mCount;
+
+
+    CountingInputStream(InputStream delegate)
+    {
+        super(delegate);
+    }
+
+
+    @Override
+    public int read() throws IOException
+    {
+        int result = super.read();
+        if (result >= 0)
+        {
+            mCount += 1;
+        }
+        return result;
+    }
+
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        int result = in.read(b, off, len);
+        if (result > 0)
+        {
+            mCount += result;
+        }
+        return result;
+    }
+
+
+    @Override
+    public long skip(long n) throws IOException
+    {
+        long result = super.skip(n);
+        mCount += result;
+        return result;
+    }
+
+
+    @Override
+    public boolean markSupported()
+    {
+        // a reset would spoil the count
+        return false;
+    }
+
+
+    /**
+     * Returns the number of bytes read so far.
+     */
+    long count()
+    {
+        return mCount;
+    }
+}
@@ -21,39 +21,111 @@ package org.dmfs.davclient;
 
 import org.dmfs.dav.DavParserContext;
 import org.dmfs.httpessentials.HttpStatus;
+import org.dmfs.jems2.Generator;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 
 /**
  * Stores all kind of information and helpers a DAV client needs.
+ * <p>
+ * A {@link DavContext} that has been created with {@link #DavContext()} or {@link #DavContext(Generator)} can be shared by any number of threads. Each
+ * response is read with a {@link DavParserContext} of its own, which is returned to the context when the reader is closed. A {@link DavContext} that has been
+ * created with {@link #DavContext(DavParserContext)} uses the given {@link DavParserContext} for every response, so requests using it must be executed
+ * consecutively.
+ * </p>
  */
 public class DavContext
 {
-    DavParserContext parserContext;
-    private MultiStatusResponseHandler mMultistatusResponseHandler;
+    /**
+     * The shared {@link DavParserContext} or <code>null</code> if this context hands out a {@link DavParserContext} per response.
+     */
+    final DavParserContext parserContext;
+    private final Generator<DavParserContext> mParserContextGenerator;
+    private final BlockingQueue<DavParserContext> mParserContexts;
+    private final XmlPullParserPool mParserPool;
+    private final MultiStatusResponseHandler mMultistatusResponseHandler;
+    private final TextCache mTextCache = new TextCache(1024);
+    private final RequestBodyCache mRequestBodyCache = new RequestBodyCache();
+    private final HostConcurrencyLimit mHostConcurrencyLimit = new HostConcurrencyLimit(HostConcurrencyLimit.DEFAULT_PERMITS);
+    private final CapabilityCache mCapabilityCache = new CapabilityCache();
+    private volatile boolean mPreferMinimal;
 
 
     /**
      * Creates a new {@link DavContext} with default parser settings. The parser will be set to be strict and it won't keep properties with status {@link
      * HttpStatus#NOT_FOUND}.
+     * <p>
+     * The result can be shared by multiple threads.
+     * </p>
      */
     public DavContext()
     {
-        this.parserContext = new DavParserContext();
-        this.parserContext.setStrict(true);
-        this.parserContext.setKeepNotFoundProperties(false);
+        this(() ->
+        {
+            DavParserContext parserContext = new DavParserContext();
+            parserContext.setStrict(true);
+            parserContext.setKeepNotFoundProperties(false);
+            return parserContext;
+        });
+    }
+
+
+    /**
+     * Creates a new {@link DavContext} that takes the {@link DavParserContext} for each response from the given {@link Generator}.
+     * <p>
+     * {@link DavParserContext}s are reused once a response has been read, so the {@link Generator} is only called if all existing {@link DavParserContext}s are
+     * in use. The result can be shared by multiple threads.
+     * </p>
+     *
+     * @param parserContextGenerator
+     *     A {@link Generator} of identically configured {@link DavParserContext}s.
+     */
+    public DavContext(Generator<DavParserContext> parserContextGenerator)
+    {
+        if (parserContextGenerator == null)
+        {
+            throw new IllegalArgumentException("Generator must not be null");
+        }
+        this.parserContext = null;
+        mParserContextGenerator = parserContextGenerator;
+        mParserContexts = new ArrayBlockingQueue<>(XmlPullParserPool.DEFAULT_CAPACITY);
+        mParserPool = new XmlPullParserPool();
+        mMultistatusResponseHandler = new MultiStatusResponseHandler(this);
     }
 
 
     /**
      * Creates a new {@link DavContext} using the given {@link DavParserContext} context.
+     * <p>
+     * Since all responses are read using the same {@link DavParserContext}, requests using this context must be executed consecutively.
+     * </p>
      */
     public DavContext(DavParserContext parserContext)
+    {
+        this(parserContext, new XmlPullParserPool());
+    }
+
+
+    /**
+     * Creates a new {@link DavContext} using the given {@link DavParserContext} and {@link XmlPullParserPool}.
+     */
+    DavContext(DavParserContext parserContext, XmlPullParserPool parserPool)
     {
         if (parserContext == null)
         {
             throw new IllegalArgumentException("DavParserContext must not be null");
         }
+        if (parserPool == null)
+        {
+            throw new IllegalArgumentException("XmlPullParserPool must not be null");
+        }
         this.parserContext = parserContext;
+        mParserContextGenerator = null;
+        mParserContexts = null;
+        mParserPool = parserPool;
+        mMultistatusResponseHandler = new MultiStatusResponseHandler(this);
     }
 
 
@@ -67,11 +139,118 @@ public class DavContext
         /*
          * MultistatusResponseHandlers are stateless and can be used multiple times, so we return the same instance on every call.
          */
-        if (mMultistatusResponseHandler == null)
+        return mMultistatusResponseHandler;
+    }
+
+
+    /**
+     * Returns the {@link XmlPullParserPool} of this context. Readers created by this context take their parsers from this pool and return them when they are
+     * closed.
+     *
+     * @return The {@link XmlPullParserPool} of this context.
+     */
+    public XmlPullParserPool getParserPool()
+    {
+        return mParserPool;
+    }
+
+
+    /**
+     * Returns the {@link RequestBodyCache} of this context. Requests that use this context cache their rendered bodies here.
+     *
+     * @return The {@link RequestBodyCache} of this context.
+     */
+    public RequestBodyCache getRequestBodyCache()
+    {
+        return mRequestBodyCache;
+    }
+
+
+    /**
+     * Returns the {@link HostConcurrencyLimit} of this context. Components that are created with this context and no explicit limit share it, so together
+     * they don't send more than {@link HostConcurrencyLimit#DEFAULT_PERMITS} concurrent requests to the same host.
+     *
+     * @return The {@link HostConcurrencyLimit} of this context.
+     */
+    public HostConcurrencyLimit getHostConcurrencyLimit()
+    {
+        return mHostConcurrencyLimit;
+    }
+
+
+    /**
+     * Returns the {@link CapabilityCache} of this context.
+     *
+     * @return The {@link CapabilityCache} of this context.
+     */
+    public CapabilityCache getCapabilityCache()
+    {
+        return mCapabilityCache;
+    }
+
+
+    /**
+     * Sets whether requests that use this context ask for minimal responses by default. See {@link BaseDavRequest#setPreferMinimal(boolean)}.
+     *
+     * @param preferMinimal
+     *     <code>true</code> to ask for minimal responses.
+     */
+    public void setPreferMinimal(boolean preferMinimal)
+    {
+        mPreferMinimal = preferMinimal;
+    }
+
+
+    /**
+     * Returns whether requests that use this context ask for minimal responses by default.
+     *
+     * @return <code>true</code> if requests ask for minimal responses.
+     */
+    public boolean getPreferMinimal()
+    {
+        return mPreferMinimal;
+    }
+
+
+    /**
+     * Returns the {@link TextCache} that is shared by all readers of this context.
+     *
+     * @return A {@link TextCache}.
+     */
+    TextCache getTextCache()
+    {
+        return mTextCache;
+    }
+
+
+    /**
+     * Returns a {@link DavParserContext} to read a single response. The caller must return it by calling {@link #releaseParserContext(DavParserContext)} once
+     * the response has been read.
+     *
+     * @return A {@link DavParserContext}.
+     */
+    DavParserContext acquireParserContext()
+    {
+        if (parserContext != null)
         {
-            mMultistatusResponseHandler = new MultiStatusResponseHandler(parserContext);
+            return parserContext;
         }
-        return mMultistatusResponseHandler;
+        DavParserContext context = mParserContexts.poll();
+        return context == null ? mParserContextGenerator.next() : context;
     }
 
+
+    /**
+     * Returns a {@link DavParserContext} that has been acquired with {@link #acquireParserContext()}.
+     *
+     * @param context
+     *     The {@link DavParserContext} to return, may be <code>null</code>.
+     */
+    void releaseParserContext(DavParserContext context)
+    {
+        if (context != null && mParserContexts != null)
+        {
+            mParserContexts.offer(context);
+        }
+    }
 }
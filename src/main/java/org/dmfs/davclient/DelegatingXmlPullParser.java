@@ -0,0 +1,301 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+
+/**
+ * An abstract {@link XmlPullParser} decorator that delegates all calls to another {@link XmlPullParser}.
+ */
+abstract class DelegatingXmlPullParser implements XmlPullParser
+{
+    protected final XmlPullParser mDelegate;
+
+
+    protected DelegatingXmlPullParser(XmlPullParser delegate)
+    {
+        mDelegate = delegate;
+    }
+
+
+    @Override
+    public void setFeature(String name, boolean state) throws XmlPullParserException
+    {
+        mDelegate.setFeature(name, state);
+    }
+
+
+    @Override
+    public boolean getFeature(String name)
+    {
+        return mDelegate.getFeature(name);
+    }
+
+
+    @Override
+    public void setProperty(String name, Object value) throws XmlPullParserException
+    {
+        mDelegate.setProperty(name, value);
+    }
+
+
+    @Override
+    public Object getProperty(String name)
+    {
+        return mDelegate.getProperty(name);
+    }
+
+
+    @Override
+    public void setInput(Reader in) throws XmlPullParserException
+    {
+        mDelegate.setInput(in);
+    }
+
+
+    @Override
+    public void setInput(InputStream inputStream, String inputEncoding) throws XmlPullParserException
+    {
+        mDelegate.setInput(inputStream, inputEncoding);
+    }
+
+
+    @Override
+    public String getInputEncoding()
+    {
+        return mDelegate.getInputEncoding();
+    }
+
+
+    @Override
+    public void defineEntityReplacementText(String entityName, String replacementText) throws XmlPullParserException
+    {
+        mDelegate.defineEntityReplacementText(entityName, replacementText);
+    }
+
+
+    @Override
+    public int getNamespaceCount(int depth) throws XmlPullParserException
+    {
+        return mDelegate.getNamespaceCount(depth);
+    }
+
+
+    @Override
+    public String getNamespacePrefix(int pos) throws XmlPullParserException
+    {
+        return mDelegate.getNamespacePrefix(pos);
+    }
+
+
+    @Override
+    public String getNamespaceUri(int pos) throws XmlPullParserException
+    {
+        return mDelegate.getNamespaceUri(pos);
+    }
+
+
+    @Override
+    public String getNamespace(String prefix)
+    {
+        return mDelegate.getNamespace(prefix);
+    }
+
+
+    @Override
+    public int getDepth()
+    {
+        return mDelegate.getDepth();
+    }
+
+
+    @Override
+    public String getPositionDescription()
+    {
+        return mDelegate.getPositionDescription();
+    }
+
+
+    @Override
+    public int getLineNumber()
+    {
+        return mDelegate.getLineNumber();
+    }
+
+
+    @Override
+    public int getColumnNumber()
+    {
+        return mDelegate.getColumnNumber();
+    }
+
+
+    @Override
+    public boolean isWhitespace() throws XmlPullParserException
+    {
+        return mDelegate.isWhitespace();
+    }
+
+
+    @Override
+    public String getText()
+    {
+        return mDelegate.getText();
+    }
+
+
+    @Override
+    public char[] getTextCharacters(int[] holderForStartAndLength)
+    {
+        return mDelegate.getTextCharacters(holderForStartAndLength);
+    }
+
+
+    @Override
+    public String getNamespace()
+    {
+        return mDelegate.getNamespace();
+    }
+
+
+    @Override
+    public String getName()
+    {
+        return mDelegate.getName();
+    }
+
+
+    @Override
+    public String getPrefix()
+    {
+        return mDelegate.getPrefix();
+    }
+
+
+    @Override
+    public boolean isEmptyElementTag() throws XmlPullParserException
+    {
+        return mDelegate.isEmptyElementTag();
+    }
+
+
+    @Override
+    public int getAttributeCount()
+    {
+        return mDelegate.getAttributeCount();
+    }
+
+
+    @Override
+    public String getAttributeNamespace(int index)
+    {
+        return mDelegate.getAttributeNamespace(index);
+    }
+
+
+    @Override
+    public String getAttributeName(int index)
+    {
+        return mDelegate.getAttributeName(index);
+    }
+
+
+    @Override
+    public String getAttributePrefix(int index)
+    {
+        return mDelegate.getAttributePrefix(index);
+    }
+
+
+    @Override
+    public String getAttributeType(int index)
+    {
+        return mDelegate.getAttributeType(index);
+    }
+
+
+    @Override
+    public boolean isAttributeDefault(int index)
+    {
+        return mDelegate.isAttributeDefault(index);
+    }
+
+
+    @Override
+    public String getAttributeValue(int index)
+    {
+        return mDelegate.getAttributeValue(index);
+    }
+
+
+    @Override
+    public String getAttributeValue(String namespace, String name)
+    {
+        return mDelegate.getAttributeValue(namespace, name);
+    }
+
+
+    @Override
+    public int getEventType() throws XmlPullParserException
+    {
+        return mDelegate.getEventType();
+    }
+
+
+    @Override
+    public int next() throws XmlPullParserException, IOException
+    {
+        return mDelegate.next();
+    }
+
+
+    @Override
+    public int nextToken() throws XmlPullParserException, IOException
+    {
+        return mDelegate.nextToken();
+    }
+
+
+    @Override
+    public void require(int type, String namespace, String name) throws XmlPullParserException, IOException
+    {
+        mDelegate.require(type, namespace, name);
+    }
+
+
+    @Override
+    public String nextText() throws XmlPullParserException, IOException
+    {
+        return mDelegate.nextText();
+    }
+
+
+    @Override
+    public int nextTag() throws XmlPullParserException, IOException
+    {
+        return mDelegate.nextTag();
+    }
+}
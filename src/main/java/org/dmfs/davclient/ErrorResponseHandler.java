@@ -21,7 +21,6 @@ package org.dmfs.davclient;
 
 import org.dmfs.dav.DavParserContext;
 import org.dmfs.dav.rfc4918.Error;
-import org.dmfs.dav.rfc4918.MultiStatus;
 import org.dmfs.dav.rfc4918.WebDav;
 import org.dmfs.httpessentials.client.HttpResponse;
 import org.dmfs.httpessentials.client.HttpResponseHandler;
@@ -44,10 +43,22 @@ public class ErrorResponseHandler extends XmlResponseReader<Error>
     }
 
 
+    public ErrorResponseHandler(HttpResponse response, DavParserContext context, XmlPullParserPool parserPool) throws IOException, ProtocolError
+    {
+        super(response, context, parserPool);
+    }
+
+
+    public ErrorResponseHandler(HttpResponse response, DavContext davContext) throws IOException, ProtocolError
+    {
+        super(response, davContext);
+    }
+
+
     /**
-     * Returns the error element.
+     * Returns the error element. The error element is the entire response, so this closes the response and returns the parser to its pool.
      *
-     * @return The {@link MultiStatus} object.
+     * @return The {@link Error} object.
      */
     public Error getError() throws IOException, ProtocolError
     {
@@ -59,5 +70,9 @@ public class ErrorResponseHandler extends XmlResponseReader<Error>
         {
             throw new ProtocolError("can not read error", e);
         }
+        finally
+        {
+            close();
+        }
     }
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+
+
+/**
+ * Limits the number of concurrent requests per host.
+ * <p>
+ * Share one instance among all components that talk to the same servers, so the limit applies to all of them. Each {@link DavContext} owns one, which is
+ * used by all components that are created with that context and no explicit limit. {@link URI}s without a port share the limit of the default port of
+ * their scheme.
+ * </p>
+ */
+public final class HostConcurrencyLimit
+{
+    /**
+     * The number of concurrent requests per host of the {@link HostConcurrencyLimit} of a {@link DavContext}.
+     */
+    public final static int DEFAULT_PERMITS = 4;
+
+    private final int mPermits;
+    private final ConcurrentMap<String, Semaphore> mHosts = new ConcurrentHashMap<>();
+
+
+    /**
+     * Creates a {@link HostConcurrencyLimit} that allows up to the given number of concurrent requests per host.
+     *
+     * @param permits
+     *     The maximum number of concurrent requests per host.
+     */
+    public HostConcurrencyLimit(int permits)
+    {
+        if (permits < 1)
+        {
+            throw new IllegalArgumentException("Number of permits must be positive");
+        }
+        mPermits = permits;
+    }
+
+
+    /**
+     * Blocks until a request to the host of the given {@link URI} can be made. Every successful call must be followed by a call to {@link #release(URI)}.
+     *
+     * @param uri
+     *     The {@link URI} to send a request to.
+     *
+     * @throws InterruptedIOException
+     *     If the thread was interrupted while waiting.
+     */
+    public void acquire(URI uri) throws IOException
+    {
+        try
+        {
+            semaphore(uri).acquire();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            InterruptedIOException exception = new InterruptedIOException("interrupted while waiting for a connection to " + uri.getHost());
+            exception.initCause(e);
+            throw exception;
+        }
+    }
+
+
+    /**
+     * Releases a permit taken with {@link #acquire(URI)}.
+     *
+     * @param uri
+     *     The {@link URI} that has been passed to {@link #acquire(URI)}.
+     */
+    public void release(URI uri)
+    {
+        semaphore(uri).release();
+    }
+
+
+    private Semaphore semaphore(URI uri)
+    {
+        String host = uri.getHost() == null ? "" : uri.getHost().toLowerCase(Locale.ENGLISH) + ":" + port(uri);
+        return mHosts.computeIfAbsent(host, key -> new Semaphore(mPermits));
+    }
+
+
+    private static int port(URI uri)
+    {
+        if (uri.getPort() != -1)
+        {
+            return uri.getPort();
+        }
+        if ("https".equalsIgnoreCase(uri.getScheme()))
+        {
+            return 443;
+        }
+        if ("http".equalsIgnoreCase(uri.getScheme()))
+        {
+            return 80;
+        }
+        return -1;
+    }
+}
@@ -28,8 +28,12 @@ import org.dmfs.httpessentials.exceptions.ProtocolError;
 import org.dmfs.httpessentials.exceptions.ProtocolException;
 import org.dmfs.jems.optional.decorators.Sieved;
 import org.dmfs.jems2.predicate.AnyOf;
+import org.dmfs.xmlobjects.ElementDescriptor;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 
 import static org.dmfs.davclient.Constants.CONTENT_TYPE_APPLICATION_XML;
 import static org.dmfs.davclient.Constants.CONTENT_TYPE_TEXT_XML;
@@ -44,22 +48,72 @@ import static org.dmfs.davclient.Constants.CONTENT_TYPE_TEXT_XML;
 public class MultiStatusResponseHandler implements HttpResponseHandler<MultistatusResponseReader>
 {
 
-    private final DavParserContext mParserContext;
+    private final DavContext mDavContext;
+
+    private final Collection<ElementDescriptor<?>> mProperties;
 
 
     /**
      * Create a new {@link MultiStatusResponseHandler} using the given {@link DavParserContext}.
+     * <p>
+     * Since all responses are read using the same {@link DavParserContext}, the readers returned by this handler must be used consecutively.
+     * </p>
      *
      * @param parserContext
      *     A {@link DavParserContext}.
      */
     public MultiStatusResponseHandler(DavParserContext parserContext)
     {
-        if (parserContext == null)
+        this(parserContext, new XmlPullParserPool());
+    }
+
+
+    /**
+     * Create a new {@link MultiStatusResponseHandler} using the given {@link DavParserContext} and {@link XmlPullParserPool}.
+     * <p>
+     * Since all responses are read using the same {@link DavParserContext}, the readers returned by this handler must be used consecutively.
+     * </p>
+     *
+     * @param parserContext
+     *     A {@link DavParserContext}.
+     * @param parserPool
+     *     The {@link XmlPullParserPool} to take parsers from.
+     */
+    public MultiStatusResponseHandler(DavParserContext parserContext, XmlPullParserPool parserPool)
+    {
+        this(new DavContext(parserContext, parserPool));
+    }
+
+
+    /**
+     * Create a new {@link MultiStatusResponseHandler} that reads responses using the parser state provided by the given {@link DavContext}.
+     *
+     * @param davContext
+     *     A {@link DavContext}.
+     */
+    public MultiStatusResponseHandler(DavContext davContext)
+    {
+        this(davContext, null);
+    }
+
+
+    /**
+     * Create a new {@link MultiStatusResponseHandler} that reads responses using the parser state provided by the given {@link DavContext}. The readers
+     * returned by this handler parse only the given properties and skip all others.
+     *
+     * @param davContext
+     *     A {@link DavContext}.
+     * @param properties
+     *     The {@link ElementDescriptor}s of the properties to parse or <code>null</code> to parse all properties.
+     */
+    public MultiStatusResponseHandler(DavContext davContext, Collection<ElementDescriptor<?>> properties)
+    {
+        if (davContext == null)
         {
-            throw new IllegalArgumentException("DavParserContext must not be null");
+            throw new IllegalArgumentException("DavContext must not be null");
         }
-        mParserContext = parserContext;
+        mDavContext = davContext;
+        mProperties = properties == null ? null : Collections.unmodifiableSet(new HashSet<>(properties));
     }
 
 
@@ -78,6 +132,8 @@ public class MultiStatusResponseHandler implements HttpResponseHandler<Multistat
             throw new ProtocolException("invalid content-type '" + entity.contentType() + "'");
         }
 
-        return new MultistatusResponseReader(response, mParserContext);
+        return mProperties == null
+            ? new MultistatusResponseReader(response, mDavContext)
+            : new MultistatusResponseReader(response, mDavContext, mProperties);
     }
 }
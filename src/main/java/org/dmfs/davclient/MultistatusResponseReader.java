@@ -26,20 +26,39 @@ import org.dmfs.dav.rfc4918.WebDav;
 import org.dmfs.httpessentials.client.HttpResponse;
 import org.dmfs.httpessentials.client.HttpResponseHandler;
 import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.xmlobjects.ElementDescriptor;
 import org.dmfs.xmlobjects.pull.XmlObjectPullParserException;
 import org.dmfs.xmlobjects.pull.XmlPath;
+import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
  * {@link HttpResponseHandler} for multistatus responses. This class provides methods to retrieve the individual response objects or the entire multistatus
  * response.
+ * <p>
+ * {@link #close()} consumes the rest of the response, so the connection can be reused. It reads the remaining bytes without parsing them, earlier versions
+ * parsed the remaining responses and threw them away. Callers that rather abort the connection than read a large remainder can use {@link #close(long)}.
+ * </p>
  */
 public class MultistatusResponseReader extends XmlResponseReader<MultiStatus>
 {
+    /**
+     * A drain limit for {@link #close(long)} that suits most connections. Reading a larger remainder usually takes longer than opening a new connection.
+     */
+    public final static long DEFAULT_DRAIN_LIMIT = 256 * 1024;
+
     private final static XmlPath MULTISTATUS_PATH = new XmlPath(WebDav.MULTISTATUS);
 
     /**
@@ -47,6 +66,8 @@ public class MultistatusResponseReader extends XmlResponseReader<MultiStatus>
      */
     private final URI mUri;
 
+    private volatile boolean mCancelled;
+
 
     /**
      * Creates a {@link MultistatusResponseReader} reading the given {@link HttpResponse} using the given {@link DavParserContext}.
@@ -63,6 +84,61 @@ public class MultistatusResponseReader extends XmlResponseReader<MultiStatus>
     }
 
 
+    /**
+     * Creates a {@link MultistatusResponseReader} reading the given {@link HttpResponse} using the given {@link DavParserContext} and a parser from the given
+     * {@link XmlPullParserPool}.
+     *
+     * @param response
+     *     The {@link HttpResponse} to read.
+     * @param context
+     *     A {@link DavParserContext}.
+     * @param parserPool
+     *     The {@link XmlPullParserPool} to take the parser from.
+     */
+    public MultistatusResponseReader(HttpResponse response, DavParserContext context, XmlPullParserPool parserPool) throws IOException, ProtocolError
+    {
+        super(response, context, parserPool);
+        mUri = response.responseUri();
+    }
+
+
+    /**
+     * Creates a {@link MultistatusResponseReader} reading the given {@link HttpResponse} using the parser state provided by the given {@link DavContext}.
+     *
+     * @param response
+     *     The {@link HttpResponse} to read.
+     * @param davContext
+     *     A {@link DavContext}.
+     */
+    public MultistatusResponseReader(HttpResponse response, DavContext davContext) throws IOException, ProtocolError
+    {
+        super(response, davContext, parser -> new MultistatusXmlPullParser(parser, davContext.getTextCache()));
+        mUri = response.responseUri();
+    }
+
+
+    /**
+     * Creates a {@link MultistatusResponseReader} reading the given {@link HttpResponse} using the parser state provided by the given {@link DavContext}.
+     * <p>
+     * Only the given properties are parsed, all other properties are skipped without being deserialized. They are treated as if the server didn't return
+     * them.
+     * </p>
+     *
+     * @param response
+     *     The {@link HttpResponse} to read.
+     * @param davContext
+     *     A {@link DavContext}.
+     * @param properties
+     *     The {@link ElementDescriptor}s of the properties to parse.
+     */
+    public MultistatusResponseReader(HttpResponse response, DavContext davContext, Collection<ElementDescriptor<?>> properties)
+        throws IOException, ProtocolError
+    {
+        super(response, davContext, parser -> new MultistatusXmlPullParser(parser, davContext.getTextCache(), properties));
+        mUri = response.responseUri();
+    }
+
+
     /**
      * Checks if there is another {@link Response} to read. If there are not other responses you should call {@link #close()} to make sure all resources are
      * released properly.
@@ -71,6 +147,7 @@ public class MultistatusResponseReader extends XmlResponseReader<MultiStatus>
      */
     public boolean hasNextResponse() throws IOException, ProtocolError
     {
+        checkCancelled();
         try
         {
             return mObjectPull.moveToNextSibling(WebDav.RESPONSE, MULTISTATUS_PATH);
@@ -92,6 +169,7 @@ public class MultistatusResponseReader extends XmlResponseReader<MultiStatus>
      */
     public Response getNextResponse(Response recycle) throws IOException, ProtocolError
     {
+        checkCancelled();
         try
         {
             Response response = mObjectPull.pull(WebDav.RESPONSE, recycle, MULTISTATUS_PATH);
@@ -106,6 +184,128 @@ public class MultistatusResponseReader extends XmlResponseReader<MultiStatus>
     }
 
 
+    /**
+     * Returns an {@link Iterator} of the remaining {@link Response}s. The {@link Iterator} reads the responses lazily, so it can't be used together with
+     * {@link #hasNextResponse()} and {@link #getNextResponse(Response)}.
+     *
+     * @param flyweight
+     *     <code>true</code> to recycle the same {@link Response} instance for every element, <code>false</code> to return a new instance for every element.
+     *
+     * @return An {@link Iterator} of {@link Response}s.
+     */
+    public Iterator<Response> responseIterator(boolean flyweight)
+    {
+        return new ResponseIterator(this, flyweight);
+    }
+
+
+    /**
+     * Returns an ordered {@link Spliterator} of the remaining {@link Response}s. See {@link #responseIterator(boolean)}.
+     *
+     * @param flyweight
+     *     <code>true</code> to recycle the same {@link Response} instance for every element, <code>false</code> to return a new instance for every element.
+     *
+     * @return A {@link Spliterator} of {@link Response}s.
+     */
+    public Spliterator<Response> responseSpliterator(boolean flyweight)
+    {
+        return Spliterators.spliteratorUnknownSize(responseIterator(flyweight), Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+
+    /**
+     * Returns a sequential {@link Stream} of the remaining {@link Response}s. Each element is a new {@link Response} instance. Closing the {@link Stream}
+     * closes this reader.
+     *
+     * @return A {@link Stream} of {@link Response}s.
+     */
+    public Stream<Response> responses()
+    {
+        return responses(false);
+    }
+
+
+    /**
+     * Returns a sequential {@link Stream} of the remaining {@link Response}s. Closing the {@link Stream} closes this reader.
+     * <p>
+     * In flyweight mode the same {@link Response} instance is recycled for every element, so the pipeline must not keep references to the elements, e.g. by
+     * collecting or sorting them. Map each element to the values you need instead.
+     * </p>
+     * <p>
+     * {@link IOException}s are rethrown as {@link UncheckedIOException}s and {@link ProtocolError}s as {@link UncheckedProtocolException}s.
+     * </p>
+     *
+     * @param flyweight
+     *     <code>true</code> to recycle the same {@link Response} instance for every element, <code>false</code> to return a new instance for every element.
+     *
+     * @return A {@link Stream} of {@link Response}s.
+     */
+    public Stream<Response> responses(boolean flyweight)
+    {
+        return StreamSupport.stream(responseSpliterator(flyweight), false).onClose(() ->
+        {
+            try
+            {
+                close();
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+
+    /**
+     * Returns whether the <code>DAV:resourcetype</code> of the {@link Response} that has been returned by the last call to {@link
+     * #getNextResponse(Response)} contains the given type. Call this before {@link #hasNextResponse()}, which moves on to the next {@link Response}.
+     * <p>
+     * The resource type is recorded while the response is parsed, so this works even if the <code>DAV:resourcetype</code> property is not parsed into the
+     * {@link Response}, but the request must ask for it. This is only supported by readers that have been created with a {@link DavContext}.
+     * </p>
+     *
+     * @param namespace
+     *     The namespace of the type.
+     * @param name
+     *     The local name of the type.
+     *
+     * @return <code>true</code> if the resource has the given type.
+     */
+    public boolean hasResourceType(String namespace, String name)
+    {
+        XmlPullParser parser = parser();
+        return parser instanceof MultistatusXmlPullParser && ((MultistatusXmlPullParser) parser).hasResourceType(namespace, name);
+    }
+
+
+    /**
+     * Returns whether the {@link Response} that has been returned by the last call to {@link #getNextResponse(Response)} is a collection, i.e. its
+     * <code>DAV:resourcetype</code> contains <code>DAV:collection</code>. See {@link #hasResourceType(String, String)}.
+     *
+     * @return <code>true</code> if the resource is a collection.
+     */
+    public boolean isCollection()
+    {
+        return hasResourceType("DAV:", "collection");
+    }
+
+
+    /**
+     * Returns the value of the <code>DAV:sync-token</code> element of a sync-collection response. The sync-token follows the last {@link Response}, so it's
+     * available once {@link #hasNextResponse()} returned <code>false</code> or {@link #getMultistatus()} has been called.
+     * <p>
+     * This is only supported by readers that have been created with a {@link DavContext}.
+     * </p>
+     *
+     * @return The sync-token or <code>null</code> if the parser didn't see one.
+     */
+    public String syncToken()
+    {
+        XmlPullParser parser = parser();
+        return parser instanceof MultistatusXmlPullParser ? ((MultistatusXmlPullParser) parser).syncToken() : null;
+    }
+
+
     /**
      * Parse the entire multistatus response and return it. All {@link Response}s that have not been pulled by {@link #getNextResponse(Response)} will be added
      * to the {@link MultiStatus} object.
@@ -117,6 +317,7 @@ public class MultistatusResponseReader extends XmlResponseReader<MultiStatus>
      */
     public MultiStatus getMultistatus() throws ProtocolError, IOException
     {
+        checkCancelled();
         try
         {
             MultiStatus result = mObjectPull.pull(WebDav.MULTISTATUS, null, EMPTY_PATH);
@@ -137,17 +338,68 @@ public class MultistatusResponseReader extends XmlResponseReader<MultiStatus>
     }
 
 
+    /**
+     * Cancels reading this response. This can be called from any thread. A read that's blocked on another thread is aborted by closing the input stream,
+     * subsequent calls to {@link #hasNextResponse()} and {@link #getNextResponse(Response)} throw an {@link InterruptedIOException}. The reading thread still
+     * has to call {@link #close()} to release the parser.
+     */
+    public void cancel()
+    {
+        mCancelled = true;
+        abort();
+    }
+
+
+    /**
+     * Returns whether this reader has been cancelled.
+     *
+     * @return <code>true</code> if {@link #cancel()} has been called.
+     */
+    public boolean isCancelled()
+    {
+        return mCancelled;
+    }
+
+
+    private void checkCancelled() throws InterruptedIOException
+    {
+        if (mCancelled)
+        {
+            throw new InterruptedIOException("reading the response has been cancelled");
+        }
+    }
+
+
+    /**
+     * Closes this reader. The remaining response is read and discarded without parsing it, regardless of its size. Use {@link #close(long)} to abort large
+     * responses.
+     */
     @Override
     public void close() throws IOException
     {
-        // make sure we've read the entire response before closing the stream, otherwise some implementations can reuse the connection.
+        close(Long.MAX_VALUE);
+    }
+
+
+    /**
+     * Closes this reader. The remaining bytes of the response are read and discarded without parsing them. This way the connection can be reused by HTTP
+     * client implementations that require the response to be consumed completely.
+     * <p>
+     * If more than <code>drainLimit</code> bytes are left, the stream is closed right away, which usually means the connection is aborted. Reading a large
+     * remainder often takes longer than opening a new connection.
+     * </p>
+     *
+     * @param drainLimit
+     *     The maximum number of bytes to skip, use {@link Long#MAX_VALUE} to always read the entire response and <code>0</code> to never drain the response.
+     */
+    public void close(long drainLimit) throws IOException
+    {
         try
         {
-            getMultistatus();
-        }
-        catch (ProtocolError e)
-        {
-            throw new IOException("can't read response", e);
+            if (!mCancelled)
+            {
+                drain(drainLimit);
+            }
         }
         finally
         {
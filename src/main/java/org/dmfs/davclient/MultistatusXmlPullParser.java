@@ -0,0 +1,500 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient;
+
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * An {@link XmlPullParser} decorator for multistatus responses.
+ * <p>
+ * It optionally skips all children of <code>DAV:prop</code> elements that are not in a given set of properties, so they are never seen by the object parser.
+ * Short text values are taken from a {@link TextCache}, so repeated values like status lines are not allocated again.
+ * </p>
+ * <p>
+ * Payload properties, like <code>calendar-data</code>, can be captured. Their text is written to a {@link Payload} as it's read and the property is
+ * skipped, so the object parser never creates a {@link String} of it.
+ * </p>
+ * <p>
+ * The value of the <code>DAV:sync-token</code> element of the multistatus and the children of the <code>DAV:resourcetype</code> property of the current
+ * response are recorded when the parser passes them, even if the object parser skips them.
+ * </p>
+ */
+final class MultistatusXmlPullParser extends DelegatingXmlPullParser
+{
+    private final static String NAMESPACE_DAV = "DAV:";
+    private final static String ELEMENT_PROP = "prop";
+    private final static String ELEMENT_SYNC_TOKEN = "sync-token";
+    private final static String ELEMENT_RESPONSE = "response";
+    private final static String ELEMENT_RESOURCETYPE = "resourcetype";
+
+    /**
+     * The depth of the <code>DAV:sync-token</code> element in a multistatus.
+     */
+    private final static int SYNC_TOKEN_DEPTH = 2;
+
+    /**
+     * The depth of the <code>DAV:response</code> elements in a multistatus.
+     */
+    private final static int RESPONSE_DEPTH = 2;
+
+    /**
+     * The depth of the <code>DAV:resourcetype</code> property in a multistatus (multistatus/response/propstat/prop/resourcetype).
+     */
+    private final static int RESOURCETYPE_DEPTH = 5;
+
+    /**
+     * The local names of the properties to keep, by namespace or <code>null</code> to keep all properties.
+     */
+    private final Map<String, Set<String>> mProperties;
+
+    private final TextCache mTextCache;
+
+    /**
+     * The properties to capture as {@link Payload}s or <code>null</code> to capture nothing.
+     */
+    private Collection<ElementDescriptor<?>> mCaptured;
+
+    private long mSpillThreshold;
+
+    private final List<CapturedPayload> mPayloads = new ArrayList<>();
+
+    private final int[] mTextHolder = new int[2];
+
+    /**
+     * The depth of the current outermost <code>DAV:prop</code> element or <code>-1</code> if we're not within a <code>DAV:prop</code> element.
+     */
+    private int mPropDepth = -1;
+
+    /**
+     * The text of the current <code>DAV:sync-token</code> element or <code>null</code> if we're not within a <code>DAV:sync-token</code> element.
+     */
+    private StringBuilder mSyncTokenText;
+
+    private String mSyncToken;
+
+    /**
+     * The resource types of the current response, in Clark notation.
+     */
+    private final Set<String> mResourceTypes = new HashSet<>();
+
+    private boolean mInResourceType;
+
+
+    /**
+     * Creates a {@link MultistatusXmlPullParser} that keeps all properties.
+     *
+     * @param delegate
+     *     The {@link XmlPullParser} to decorate.
+     * @param textCache
+     *     The {@link TextCache} to take short text values from.
+     */
+    MultistatusXmlPullParser(XmlPullParser delegate, TextCache textCache)
+    {
+        super(delegate);
+        mProperties = null;
+        mTextCache = textCache;
+    }
+
+
+    /**
+     * Creates a {@link MultistatusXmlPullParser} that keeps only the given properties.
+     *
+     * @param delegate
+     *     The {@link XmlPullParser} to decorate.
+     * @param textCache
+     *     The {@link TextCache} to take short text values from.
+     * @param properties
+     *     The {@link ElementDescriptor}s of the properties to keep.
+     */
+    MultistatusXmlPullParser(XmlPullParser delegate, TextCache textCache, Collection<ElementDescriptor<?>> properties)
+    {
+        super(delegate);
+        mTextCache = textCache;
+        Map<String, Set<String>> names = new HashMap<>();
+        for (ElementDescriptor<?> property : properties)
+        {
+            String namespace = property.qualifiedName.namespace == null ? "" : property.qualifiedName.namespace;
+            Set<String> localNames = names.get(namespace);
+            if (localNames == null)
+            {
+                localNames = new HashSet<>();
+                names.put(namespace, localNames);
+            }
+            localNames.add(property.qualifiedName.name);
+        }
+        mProperties = names;
+    }
+
+
+    /**
+     * Captures the given properties from now on. Their text is written to {@link Payload}s, which can be taken with {@link #takePayloads()}, and the
+     * properties are skipped. Empty properties, like the ones in a <code>404</code> propstat, are skipped without creating a {@link Payload}.
+     *
+     * @param properties
+     *     The {@link ElementDescriptor}s of the properties to capture.
+     * @param spillThreshold
+     *     The maximum number of characters of a {@link Payload} to keep in memory.
+     */
+    void capture(Collection<ElementDescriptor<?>> properties, long spillThreshold)
+    {
+        mCaptured = properties;
+        mSpillThreshold = spillThreshold;
+    }
+
+
+    /**
+     * Returns the {@link Payload}s that have been captured since the last call and forgets them. The caller is responsible for closing them.
+     */
+    List<CapturedPayload> takePayloads()
+    {
+        if (mPayloads.isEmpty())
+        {
+            return Collections.emptyList();
+        }
+        List<CapturedPayload> result = new ArrayList<>(mPayloads);
+        mPayloads.clear();
+        return result;
+    }
+
+
+    @Override
+    public int next() throws XmlPullParserException, IOException
+    {
+        return resourceType(syncToken(filtered(mDelegate.next(), false)));
+    }
+
+
+    @Override
+    public int nextToken() throws XmlPullParserException, IOException
+    {
+        return resourceType(syncToken(filtered(mDelegate.nextToken(), true)));
+    }
+
+
+    @Override
+    public int nextTag() throws XmlPullParserException, IOException
+    {
+        // can't delegate this, because the delegate would not skip any properties
+        int eventType = next();
+        if (eventType == TEXT && isWhitespace())
+        {
+            eventType = next();
+        }
+        if (eventType != START_TAG && eventType != END_TAG)
+        {
+            throw new XmlPullParserException("expected start or end tag", this, null);
+        }
+        return eventType;
+    }
+
+
+    @Override
+    public String nextText() throws XmlPullParserException, IOException
+    {
+        // implemented on top of next() and getText(), so the text is taken from the cache and the prop depth is tracked
+        if (getEventType() != START_TAG)
+        {
+            throw new XmlPullParserException("parser must be on START_TAG to read next text", this, null);
+        }
+        int eventType = next();
+        if (eventType == TEXT)
+        {
+            String result = getText();
+            if (next() != END_TAG)
+            {
+                throw new XmlPullParserException("event TEXT must be immediately followed by END_TAG", this, null);
+            }
+            return result;
+        }
+        if (eventType == END_TAG)
+        {
+            return "";
+        }
+        throw new XmlPullParserException("parser must be on START_TAG or TEXT to read text", this, null);
+    }
+
+
+    @Override
+    public String getText()
+    {
+        int[] holder = mTextHolder;
+        char[] chars = mDelegate.getTextCharacters(holder);
+        if (chars == null)
+        {
+            return mDelegate.getText();
+        }
+        return mTextCache.text(chars, holder[0], holder[1]);
+    }
+
+
+    /**
+     * Returns the value of the <code>DAV:sync-token</code> element of the multistatus or <code>null</code> if the parser didn't pass it (yet).
+     */
+    String syncToken()
+    {
+        return mSyncToken;
+    }
+
+
+    /**
+     * Returns whether the <code>DAV:resourcetype</code> of the current response contains the given type. The current response is the one the parser is in
+     * or, between two responses, the last one.
+     */
+    boolean hasResourceType(String namespace, String name)
+    {
+        return mResourceTypes.contains(clark(namespace, name));
+    }
+
+
+    private int resourceType(int eventType)
+    {
+        if (eventType == START_TAG)
+        {
+            int depth = mDelegate.getDepth();
+            if (depth == RESPONSE_DEPTH && isDav(ELEMENT_RESPONSE))
+            {
+                mResourceTypes.clear();
+                mInResourceType = false;
+            }
+            else if (depth == RESOURCETYPE_DEPTH)
+            {
+                mInResourceType = isDav(ELEMENT_RESOURCETYPE);
+            }
+            else if (depth == RESOURCETYPE_DEPTH + 1 && mInResourceType)
+            {
+                mResourceTypes.add(clark(mDelegate.getNamespace(), mDelegate.getName()));
+            }
+        }
+        else if (eventType == END_TAG && mDelegate.getDepth() == RESOURCETYPE_DEPTH)
+        {
+            mInResourceType = false;
+        }
+        return eventType;
+    }
+
+
+    private int syncToken(int eventType)
+    {
+        if (eventType == START_TAG)
+        {
+            if (mDelegate.getDepth() == SYNC_TOKEN_DEPTH && ELEMENT_SYNC_TOKEN.equals(mDelegate.getName()) && NAMESPACE_DAV.equals(mDelegate.getNamespace()))
+            {
+                mSyncTokenText = new StringBuilder(64);
+            }
+        }
+        else if (mSyncTokenText != null)
+        {
+            if (eventType == TEXT || eventType == CDSECT || eventType == ENTITY_REF)
+            {
+                mSyncTokenText.append(mDelegate.getText());
+            }
+            else if (eventType == END_TAG)
+            {
+                mSyncToken = mSyncTokenText.toString().trim();
+                mSyncTokenText = null;
+            }
+        }
+        return eventType;
+    }
+
+
+    private int filtered(int eventType, boolean tokens) throws XmlPullParserException, IOException
+    {
+        if (mProperties == null && mCaptured == null)
+        {
+            return eventType;
+        }
+
+        while (true)
+        {
+            if (eventType == START_TAG)
+            {
+                int depth = mDelegate.getDepth();
+                if (mPropDepth < 0)
+                {
+                    if (isProp())
+                    {
+                        mPropDepth = depth;
+                    }
+                }
+                else if (depth == mPropDepth + 1)
+                {
+                    ElementDescriptor<?> captured = captured();
+                    if (captured != null)
+                    {
+                        capture(captured, depth);
+                        eventType = tokens ? mDelegate.nextToken() : mDelegate.next();
+                        continue;
+                    }
+                    if (!isWanted())
+                    {
+                        skipElement(depth);
+                        eventType = tokens ? mDelegate.nextToken() : mDelegate.next();
+                        continue;
+                    }
+                }
+            }
+            else if (eventType == END_TAG && mDelegate.getDepth() == mPropDepth && isProp())
+            {
+                mPropDepth = -1;
+            }
+            return eventType;
+        }
+    }
+
+
+    /**
+     * Writes the text of the current element to a {@link Payload} and moves the delegate to the end tag of the element. Text of child elements is ignored.
+     */
+    private void capture(ElementDescriptor<?> property, int depth) throws XmlPullParserException, IOException
+    {
+        int[] holder = mTextHolder;
+        PayloadWriter writer = new PayloadWriter(mSpillThreshold);
+        try
+        {
+            int eventType;
+            while ((eventType = mDelegate.next()) != END_DOCUMENT && (eventType != END_TAG || mDelegate.getDepth() != depth))
+            {
+                if (eventType == TEXT && mDelegate.getDepth() == depth)
+                {
+                    // write the parser buffer directly, this doesn't create a String
+                    char[] chars = mDelegate.getTextCharacters(holder);
+                    if (chars != null)
+                    {
+                        writer.write(chars, holder[0], holder[1]);
+                    }
+                }
+            }
+            if (writer.length() == 0)
+            {
+                writer.discard();
+                return;
+            }
+            mPayloads.add(new CapturedPayload(property, writer.payload()));
+        }
+        catch (IOException | XmlPullParserException | RuntimeException e)
+        {
+            writer.discard();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Returns the {@link ElementDescriptor} of the current element if it's a property to capture, <code>null</code> otherwise.
+     */
+    private ElementDescriptor<?> captured()
+    {
+        if (mCaptured == null)
+        {
+            return null;
+        }
+        String namespace = mDelegate.getNamespace() == null ? "" : mDelegate.getNamespace();
+        for (ElementDescriptor<?> property : mCaptured)
+        {
+            String propertyNamespace = property.qualifiedName.namespace == null ? "" : property.qualifiedName.namespace;
+            if (propertyNamespace.equals(namespace) && property.qualifiedName.name.equals(mDelegate.getName()))
+            {
+                return property;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Moves the delegate to the end tag of the current element.
+     */
+    private void skipElement(int depth) throws XmlPullParserException, IOException
+    {
+        // the resource type is recorded even if the property is skipped
+        boolean resourceType = depth == RESOURCETYPE_DEPTH && isDav(ELEMENT_RESOURCETYPE);
+        int eventType;
+        do
+        {
+            eventType = mDelegate.next();
+            if (resourceType && eventType == START_TAG && mDelegate.getDepth() == depth + 1)
+            {
+                mResourceTypes.add(clark(mDelegate.getNamespace(), mDelegate.getName()));
+            }
+        }
+        while (eventType != END_DOCUMENT && (eventType != END_TAG || mDelegate.getDepth() != depth));
+    }
+
+
+    private boolean isProp()
+    {
+        return isDav(ELEMENT_PROP);
+    }
+
+
+    private boolean isDav(String name)
+    {
+        return name.equals(mDelegate.getName()) && NAMESPACE_DAV.equals(mDelegate.getNamespace());
+    }
+
+
+    private static String clark(String namespace, String name)
+    {
+        return namespace == null || namespace.isEmpty() ? name : "{" + namespace + "}" + name;
+    }
+
+
+    private boolean isWanted()
+    {
+        if (mProperties == null)
+        {
+            return true;
+        }
+        String namespace = mDelegate.getNamespace();
+        Set<String> localNames = mProperties.get(namespace == null ? "" : namespace);
+        return localNames != null && localNames.contains(mDelegate.getName());
+    }
+
+
+    /**
+     * A captured {@link Payload} and the property it has been taken from.
+     */
+    final static class CapturedPayload
+    {
+        final ElementDescriptor<?> property;
+        final Payload payload;
+
+
+        CapturedPayload(ElementDescriptor<?> property, Payload payload)
+        {
+            this.property = property;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+
+/**
+ * The text value of a (potentially large) property, like <code>calendar-data</code> or <code>address-data</code>.
+ * <p>
+ * A {@link Payload} may be backed by a temporary file, so it should be closed once it's no longer needed.
+ * </p>
+ */
+public interface Payload extends Closeable
+{
+    /**
+     * Returns the number of characters of this {@link Payload}.
+     *
+     * @return The length of this {@link Payload}.
+     */
+    long length();
+
+    /**
+     * Returns a new {@link Reader} of the content. Each call returns a new {@link Reader} that starts at the beginning of the content.
+     *
+     * @return A {@link Reader}.
+     */
+    Reader reader() throws IOException;
+
+    /**
+     * Returns the content as a {@link CharSequence}. If the content has been spilled to a file, this loads it into memory.
+     *
+     * @return The content.
+     */
+    CharSequence content() throws IOException;
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient;
+
+import org.dmfs.dav.rfc4918.Response;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.xmlobjects.ElementDescriptor;
+
+import java.io.IOException;
+
+
+/**
+ * A consumer of {@link Payload}s that are read by a {@link SpoolingResponseReader}.
+ */
+public interface PayloadConsumer
+{
+    /**
+     * Called for each payload property of a {@link Response}. The consumer is responsible for closing the {@link Payload}, which can be done after this
+     * returned.
+     *
+     * @param response
+     *     The {@link Response} that contains the property.
+     * @param property
+     *     The {@link ElementDescriptor} of the property.
+     * @param payload
+     *     The {@link Payload}.
+     */
+    void accept(Response response, ElementDescriptor<?> property, Payload payload) throws IOException, ProtocolError;
+}
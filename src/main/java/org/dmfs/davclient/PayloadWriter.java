@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+
+/**
+ * A {@link Writer} that collects a {@link Payload}. The content is kept in memory until it exceeds the spill threshold, then it's moved to a temporary file
+ * and all subsequent content is appended to that file.
+ * <p>
+ * Call {@link #payload()} to get the result or {@link #discard()} to delete it.
+ * </p>
+ */
+final class PayloadWriter extends Writer
+{
+    private final long mSpillThreshold;
+    private StringBuilder mBuffer = new StringBuilder(256);
+    private Path mFile;
+    private Writer mFileWriter;
+    private long mLength;
+
+
+    /**
+     * Creates a {@link PayloadWriter}.
+     *
+     * @param spillThreshold
+     *     The maximum number of characters to keep in memory.
+     */
+    PayloadWriter(long spillThreshold)
+    {
+        mSpillThreshold = spillThreshold;
+    }
+
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException
+    {
+        mLength += length;
+        if (mFileWriter != null)
+        {
+            mFileWriter.write(chars, offset, length);
+            return;
+        }
+        mBuffer.append(chars, offset, length);
+        if (mBuffer.length() > mSpillThreshold)
+        {
+            spill();
+        }
+    }
+
+
+    /**
+     * Returns the number of characters written so far.
+     */
+    long length()
+    {
+        return mLength;
+    }
+
+
+    /**
+     * Closes this writer and returns the {@link Payload}.
+     */
+    Payload payload() throws IOException
+    {
+        close();
+        if (mFile != null)
+        {
+            return new SpooledPayload(mFile, mLength);
+        }
+        return new SpooledPayload(mBuffer.toString(), Long.MAX_VALUE);
+    }
+
+
+    /**
+     * Closes this writer and deletes the content.
+     */
+    void discard()
+    {
+        mBuffer = null;
+        try
+        {
+            close();
+        }
+        catch (IOException e)
+        {
+            // we're deleting the file anyway
+        }
+        try
+        {
+            if (mFile != null)
+            {
+                Files.deleteIfExists(mFile);
+            }
+        }
+        catch (IOException e)
+        {
+            // nothing we can do about it
+        }
+    }
+
+
+    @Override
+    public void flush() throws IOException
+    {
+        if (mFileWriter != null)
+        {
+            mFileWriter.flush();
+        }
+    }
+
+
+    @Override
+    public void close() throws IOException
+    {
+        Writer writer = mFileWriter;
+        mFileWriter = null;
+        if (writer != null)
+        {
+            writer.close();
+        }
+    }
+
+
+    private void spill() throws IOException
+    {
+        Path file = Files.createTempFile("jdav-payload", ".tmp");
+        mFile = file;
+        mFileWriter = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        mFileWriter.append(mBuffer);
+        mBuffer = null;
+    }
+}
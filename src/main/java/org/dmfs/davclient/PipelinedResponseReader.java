@@ -0,0 +1,289 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+
+package org.dmfs.davclient;
+
+import org.dmfs.dav.rfc4918.Response;
+import org.dmfs.davclient.async.DavThreads;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Reads the {@link Response}s of a {@link MultistatusResponseReader} on another thread, so parsing and network I/O overlap with the work of the consumer.
+ * <p>
+ * Parsed {@link Response}s are handed to the consumer through a bounded queue. The parser stops reading when the queue is full until the consumer has taken
+ * more {@link Response}s. {@link Response}s passed to {@link #getNextResponse(Response)} for recycling are handed back to the parser.
+ * </p>
+ * <p>
+ * Errors of the parser are rethrown by {@link #hasNextResponse()} and {@link #getNextResponse(Response)} on the consumer thread. Unexpected exceptions of
+ * the parser are wrapped in a {@link ProtocolError}.
+ * </p>
+ * <p>
+ * Use this only from a single consumer thread and don't use the {@link MultistatusResponseReader} directly once it has been passed to this.
+ * </p>
+ */
+public final class PipelinedResponseReader
+{
+    /**
+     * The default number of parsed {@link Response}s to buffer.
+     */
+    public final static int DEFAULT_CAPACITY = 64;
+
+    private final static long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final static Element END = new Element(null, null, null);
+
+    private final MultistatusResponseReader mReader;
+    private final BlockingQueue<Element> mQueue;
+    private final BlockingQueue<Response> mRecycled;
+    private final CountDownLatch mDone = new CountDownLatch(1);
+
+    private volatile boolean mCancelled;
+    private volatile IOException mCloseException;
+
+    private Element mNext;
+
+
+    /**
+     * Creates a {@link PipelinedResponseReader} that buffers up to {@link #DEFAULT_CAPACITY} {@link Response}s and parses on one of the
+     * {@link DavThreads#sharedExecutor() shared threads}.
+     *
+     * @param reader
+     *     The {@link MultistatusResponseReader} to read.
+     */
+    public PipelinedResponseReader(MultistatusResponseReader reader)
+    {
+        this(reader, DEFAULT_CAPACITY, DavThreads.sharedExecutor());
+    }
+
+
+    /**
+     * Creates a {@link PipelinedResponseReader} that buffers up to the given number of {@link Response}s and parses on a thread of the given {@link Executor}.
+     * <p>
+     * The parser blocks a thread of the {@link Executor} until the response has been read completely or this has been closed.
+     * </p>
+     *
+     * @param reader
+     *     The {@link MultistatusResponseReader} to read.
+     * @param capacity
+     *     The maximum number of parsed {@link Response}s to buffer.
+     * @param executor
+     *     The {@link Executor} to run the parser on.
+     */
+    public PipelinedResponseReader(MultistatusResponseReader reader, int capacity, Executor executor)
+    {
+        if (capacity < 1)
+        {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        mReader = reader;
+        mQueue = new ArrayBlockingQueue<>(capacity);
+        // there are at most capacity responses in the queue plus one in use by each side
+        mRecycled = new ArrayBlockingQueue<>(capacity + 2);
+        executor.execute(this::parse);
+    }
+
+
+    /**
+     * Checks if there is another {@link Response} to read. This blocks until the next {@link Response} has been parsed.
+     *
+     * @return <code>true</code> if there is at least one more response, <code>false</code> otherwise.
+     */
+    public boolean hasNextResponse() throws IOException, ProtocolError
+    {
+        if (mNext == null)
+        {
+            try
+            {
+                mNext = mQueue.take();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while waiting for the next response", e);
+            }
+        }
+
+        if (mNext.mIoException != null)
+        {
+            // rethrow as is, callers may depend on the type, like InterruptedIOException or SocketTimeoutException
+            throw mNext.mIoException;
+        }
+        if (mNext.mProtocolError instanceof ProtocolError)
+        {
+            throw (ProtocolError) mNext.mProtocolError;
+        }
+        if (mNext.mProtocolError != null)
+        {
+            throw new ProtocolError("can not read response", mNext.mProtocolError);
+        }
+        return mNext != END;
+    }
+
+
+    /**
+     * Returns the next {@link Response}. This blocks until the next {@link Response} has been parsed.
+     *
+     * @param recycle
+     *     A {@link Response} that is no longer used and can be recycled by the parser or <code>null</code>.
+     *
+     * @return The next response or <code>null</code> if there is no other response.
+     */
+    public Response getNextResponse(Response recycle) throws IOException, ProtocolError
+    {
+        if (!hasNextResponse())
+        {
+            return null;
+        }
+
+        if (recycle != null)
+        {
+            mRecycled.offer(recycle);
+        }
+        Response response = mNext.mResponse;
+        mNext = null;
+        return response;
+    }
+
+
+    /**
+     * Stops the parser and closes the {@link MultistatusResponseReader}. This blocks until the parser has stopped. If the parser is still running the
+     * {@link MultistatusResponseReader} is cancelled, which aborts the response, even if the parser is blocked reading from the network.
+     */
+    public void close() throws IOException
+    {
+        mCancelled = true;
+        if (mDone.getCount() > 0)
+        {
+            // the parser may be blocked in a read, only cancelling the reader makes it return
+            mReader.cancel();
+        }
+        // make room for the parser, in case it's waiting for the queue
+        mQueue.clear();
+        try
+        {
+            mDone.await();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for the parser to stop", e);
+        }
+
+        if (mCloseException != null)
+        {
+            throw mCloseException;
+        }
+    }
+
+
+    private void parse()
+    {
+        Element last = END;
+        try
+        {
+            while (!mCancelled && mReader.hasNextResponse())
+            {
+                offer(new Element(mReader.getNextResponse(mRecycled.poll()), null, null));
+            }
+        }
+        catch (IOException e)
+        {
+            last = new Element(null, e, null);
+        }
+        catch (ProtocolError e)
+        {
+            last = new Element(null, null, e);
+        }
+        catch (RuntimeException e)
+        {
+            last = new Element(null, null, e);
+        }
+        finally
+        {
+            // close the reader first, so the response has been consumed when the consumer sees the end
+            try
+            {
+                mReader.close();
+            }
+            catch (IOException e)
+            {
+                if (!mCancelled)
+                {
+                    mCloseException = e;
+                }
+            }
+            offer(last);
+            mDone.countDown();
+        }
+    }
+
+
+    /**
+     * Puts the given {@link Element} into the queue, waiting for space unless this has been closed.
+     */
+    private void offer(Element element)
+    {
+        try
+        {
+            while (!mQueue.offer(element, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+            {
+                if (mCancelled)
+                {
+                    return;
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            mCancelled = true;
+            // make sure a waiting consumer doesn't block forever, the remaining responses are lost anyway
+            mQueue.clear();
+            mQueue.offer(new Element(null, new InterruptedIOException("parser has been interrupted"), null));
+        }
+    }
+
+
+    /**
+     * An element of the queue, carrying either a {@link Response} or the reason the parser stopped.
+     */
+    private final static class Element
+    {
+        private final Response mResponse;
+        private final IOException mIoException;
+        private final Exception mProtocolError;
+
+
+        private Element(Response response, IOException ioException, Exception protocolError)
+        {
+            mResponse = response;
+            mIoException = ioException;
+            mProtocolError = protocolError;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient;
+
+import org.dmfs.httpessentials.client.HttpRequestEntity;
+import org.dmfs.httpessentials.types.MediaType;
+import org.dmfs.jems.optional.Optional;
+import org.dmfs.jems.optional.elementary.Present;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * A thread-safe cache of rendered request bodies.
+ * <p>
+ * Requests that send the same body over and over again, like a PROPFIND of the same properties, can use this to render their body only once. Bodies that
+ * differ in a single value, like the sync-token of a sync-collection report, can be cached as a template with a placeholder that's replaced by the actual
+ * value when the entity is written.
+ * </p>
+ * <p>
+ * The cache is bounded. Once it holds the maximum number of entries, the least recently used entry is evicted to make room for a new one.
+ * </p>
+ */
+public final class RequestBodyCache
+{
+    /**
+     * The default maximum number of cached bodies.
+     */
+    public final static int DEFAULT_CAPACITY = 256;
+
+    private final Map<Object, byte[][]> mTemplates;
+    private final Lock mLock = new ReentrantLock();
+
+
+    /**
+     * Creates a {@link RequestBodyCache} with a capacity of {@link #DEFAULT_CAPACITY} entries.
+     */
+    public RequestBodyCache()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+
+    /**
+     * Creates a {@link RequestBodyCache} with the given capacity.
+     *
+     * @param capacity
+     *     The maximum number of cached bodies.
+     */
+    public RequestBodyCache(int capacity)
+    {
+        mTemplates = new LinkedHashMap<Object, byte[][]>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, byte[][]> eldest)
+            {
+                return size() > capacity;
+            }
+        };
+    }
+
+
+    /**
+     * Returns an {@link HttpRequestEntity} with the body cached under the given key. If there is no such body yet, the given entity is rendered and cached.
+     * <p>
+     * The caller must make sure that all entities with equal keys render the same body.
+     * </p>
+     *
+     * @param key
+     *     The key of the body.
+     * @param entity
+     *     The {@link HttpRequestEntity} to render if the body is not in the cache.
+     *
+     * @return An {@link HttpRequestEntity} with a known content length.
+     */
+    public HttpRequestEntity entity(Object key, HttpRequestEntity entity)
+    {
+        return new CachedEntity(key, entity, null, null);
+    }
+
+
+    /**
+     * Returns an {@link HttpRequestEntity} from the template cached under the given key, with the placeholder replaced by the given value. If there is no
+     * such template yet, the given entity is rendered and cached.
+     * <p>
+     * The caller must make sure that all templates with equal keys render the same body and that the placeholder text appears exactly once in that body.
+     * </p>
+     *
+     * @param key
+     *     The key of the template.
+     * @param template
+     *     The {@link HttpRequestEntity} to render if the template is not in the cache. It must contain the placeholder as XML text.
+     * @param placeholder
+     *     The placeholder to replace.
+     * @param value
+     *     The value to insert, it's escaped to be valid XML text, may be <code>null</code> to insert nothing.
+     *
+     * @return An {@link HttpRequestEntity} with a known content length.
+     */
+    public HttpRequestEntity entity(Object key, HttpRequestEntity template, String placeholder, String value)
+    {
+        return new CachedEntity(key, template, placeholder, value == null ? "" : value);
+    }
+
+
+    private byte[][] template(Object key, HttpRequestEntity entity, String placeholder) throws IOException
+    {
+        byte[][] template;
+        // the map is in access order, so even reading modifies it
+        mLock.lock();
+        try
+        {
+            template = mTemplates.get(key);
+        }
+        finally
+        {
+            mLock.unlock();
+        }
+
+        if (template == null)
+        {
+            // render without holding the lock, concurrent renderings of the same key produce the same result anyway
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+            entity.writeContent(buffer);
+            template = split(buffer.toByteArray(), placeholder);
+            mLock.lock();
+            try
+            {
+                mTemplates.put(key, template);
+            }
+            finally
+            {
+                mLock.unlock();
+            }
+        }
+        return template;
+    }
+
+
+    /**
+     * Splits the given body at the given placeholder.
+     */
+    private static byte[][] split(byte[] body, String placeholder) throws IOException
+    {
+        if (placeholder == null)
+        {
+            return new byte[][] { body };
+        }
+
+        byte[] marker = placeholder.getBytes(StandardCharsets.UTF_8);
+        outer:
+        for (int i = 0; i <= body.length - marker.length; ++i)
+        {
+            for (int j = 0; j < marker.length; ++j)
+            {
+                if (body[i + j] != marker[j])
+                {
+                    continue outer;
+                }
+            }
+            byte[] prefix = new byte[i];
+            byte[] suffix = new byte[body.length - i - marker.length];
+            System.arraycopy(body, 0, prefix, 0, prefix.length);
+            System.arraycopy(body, i + marker.length, suffix, 0, suffix.length);
+            return new byte[][] { prefix, suffix };
+        }
+        throw new IOException("placeholder not found in template");
+    }
+
+
+    private static String escaped(String value)
+    {
+        StringBuilder result = null;
+        for (int i = 0, len = value.length(); i < len; ++i)
+        {
+            char c = value.charAt(i);
+            String replacement = c == '&' ? "&amp;" : c == '<' ? "&lt;" : c == '>' ? "&gt;" : null;
+            if (replacement != null && result == null)
+            {
+                result = new StringBuilder(len + 16);
+                result.append(value, 0, i);
+            }
+            if (result != null)
+            {
+                if (replacement != null)
+                {
+                    result.append(replacement);
+                }
+                else
+                {
+                    result.append(c);
+                }
+            }
+        }
+        return result == null ? value : result.toString();
+    }
+
+
+    /**
+     * An {@link HttpRequestEntity} that takes its content from the cache.
+     */
+    private final class CachedEntity implements HttpRequestEntity
+    {
+        private final Object mKey;
+        private final HttpRequestEntity mEntity;
+        private final String mPlaceholder;
+        private final String mValue;
+        private byte[][] mContent;
+
+
+        private CachedEntity(Object key, HttpRequestEntity entity, String placeholder, String value)
+        {
+            mKey = key;
+            mEntity = entity;
+            mPlaceholder = placeholder;
+            mValue = value;
+        }
+
+
+        @Override
+        public Optional<MediaType> contentType()
+        {
+            return mEntity.contentType();
+        }
+
+
+        @Override
+        public Optional<Long> contentLength()
+        {
+            try
+            {
+                long length = 0;
+                for (byte[] part : content())
+                {
+                    length += part.length;
+                }
+                return new Present<>(length);
+            }
+            catch (IOException e)
+            {
+                // we can't render the content, writeContent will throw anyway
+                return mEntity.contentLength();
+            }
+        }
+
+
+        @Override
+        public void writeContent(OutputStream out) throws IOException
+        {
+            for (byte[] part : content())
+            {
+                out.write(part);
+            }
+            out.flush();
+        }
+
+
+        private byte[][] content() throws IOException
+        {
+            if (mContent == null)
+            {
+                byte[][] template = template(mKey, mEntity, mPlaceholder);
+                mContent = template.length == 1
+                    ? template
+                    : new byte[][] { template[0], escaped(mValue).getBytes(StandardCharsets.UTF_8), template[1] };
+            }
+            return mContent;
+        }
+    }
+}
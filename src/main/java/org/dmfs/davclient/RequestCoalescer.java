@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient;
+
+import org.dmfs.dav.rfc4918.MultiStatus;
+import org.dmfs.httpessentials.client.HttpRequest;
+import org.dmfs.httpessentials.client.HttpRequestExecutor;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.httpessentials.exceptions.ProtocolException;
+import org.dmfs.httpessentials.exceptions.RedirectionException;
+import org.dmfs.httpessentials.exceptions.UnexpectedStatusException;
+import org.dmfs.httpessentials.headers.Header;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+
+/**
+ * Coalesces identical multistatus requests that are executed at the same time, so only one of them is sent to the server.
+ * <p>
+ * Two requests are identical if they have the same {@link URI}, request class, method, headers and body. While a request is in flight, identical requests
+ * don't send a request of their own, but wait for the {@link MultiStatus} of the first one. Once it has been completed, the next request is sent again, so
+ * this is not a cache. Only requests with a safe method, like PROPFIND and REPORT, are coalesced, others are always executed.
+ * </p>
+ * <p>
+ * All callers of a coalesced request get the same {@link MultiStatus} instance, which must not be modified. Requests that only differ in the way they parse
+ * the response, like requests with different {@link org.dmfs.davclient.rfc4918.PropFind#parseOnly(org.dmfs.xmlobjects.ElementDescriptor[])} properties or
+ * {@link DavContext}s with different parser settings, should use separate {@link RequestCoalescer}s.
+ * </p>
+ * <p>
+ * Share one instance among all components that may send the same requests, like the principal and home-set lookups of a shared account.
+ * </p>
+ */
+public final class RequestCoalescer
+{
+    private final HttpRequestExecutor mExecutor;
+    private final SingleFlight<List<Object>, MultiStatus> mInFlight = new SingleFlight<>();
+
+
+    /**
+     * Creates a {@link RequestCoalescer} that executes requests with the given {@link HttpRequestExecutor}.
+     *
+     * @param executor
+     *     The {@link HttpRequestExecutor} to execute the requests, must be thread-safe.
+     */
+    public RequestCoalescer(HttpRequestExecutor executor)
+    {
+        mExecutor = executor;
+    }
+
+
+    /**
+     * Executes the given request, unless an identical request is already in flight, and returns the {@link MultiStatus} of the response.
+     *
+     * @param uri
+     *     The {@link URI} to send the request to.
+     * @param request
+     *     The request to execute.
+     *
+     * @return The {@link MultiStatus}, which is possibly shared with other callers and must not be modified.
+     */
+    public MultiStatus multistatus(URI uri, HttpRequest<MultistatusResponseReader> request)
+        throws IOException, ProtocolError, ProtocolException, RedirectionException, UnexpectedStatusException
+    {
+        if (!request.method().isSafe())
+        {
+            return read(uri, request);
+        }
+
+        return mInFlight.value(key(uri, request), () -> read(uri, request));
+    }
+
+
+    private MultiStatus read(URI uri, HttpRequest<MultistatusResponseReader> request)
+        throws IOException, ProtocolError, ProtocolException, RedirectionException, UnexpectedStatusException
+    {
+        MultistatusResponseReader reader = mExecutor.execute(uri, request);
+        try
+        {
+            return reader.getMultistatus();
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+
+    /**
+     * Returns the key of the given request. The body is rendered for this, which is cheap for bodies taken from the {@link RequestBodyCache}.
+     */
+    private static List<Object> key(URI uri, HttpRequest<?> request) throws IOException
+    {
+        List<String> headers = new ArrayList<>();
+        for (Header<?> header : request.headers())
+        {
+            headers.add(header.type().name().toLowerCase(Locale.ENGLISH));
+            headers.add(valueString(header));
+        }
+        // the content type is defined by the request class
+        ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+        request.requestEntity().writeContent(body);
+        return Arrays.asList(uri, request.getClass(), request.method().verb(), headers, ByteBuffer.wrap(body.toByteArray()));
+    }
+
+
+    private static <T> String valueString(Header<T> header)
+    {
+        return header.type().valueString(header.value());
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+
+package org.dmfs.davclient;
+
+import org.dmfs.dav.rfc4918.Response;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+/**
+ * An {@link Iterator} of the {@link Response}s of a {@link MultistatusResponseReader}.
+ * <p>
+ * In flyweight mode the same {@link Response} instance is recycled for every element, so callers must not keep references to elements after calling
+ * {@link #next()} again. Otherwise every element is a new instance.
+ * </p>
+ * <p>
+ * {@link IOException}s are rethrown as {@link UncheckedIOException}s and {@link ProtocolError}s as {@link UncheckedProtocolException}s.
+ * </p>
+ */
+public final class ResponseIterator implements Iterator<Response>
+{
+    private final MultistatusResponseReader mReader;
+    private final boolean mFlyweight;
+    private Response mRecycle;
+
+    /**
+     * Whether the reader has been moved to the next response element already. Calling {@link MultistatusResponseReader#hasNextResponse()} twice would skip a
+     * response.
+     */
+    private boolean mPositioned;
+    private boolean mHasNext;
+
+
+    /**
+     * Creates a {@link ResponseIterator} that returns a new {@link Response} instance for each element.
+     *
+     * @param reader
+     *     The {@link MultistatusResponseReader} to iterate.
+     */
+    public ResponseIterator(MultistatusResponseReader reader)
+    {
+        this(reader, false);
+    }
+
+
+    /**
+     * Creates a {@link ResponseIterator}.
+     *
+     * @param reader
+     *     The {@link MultistatusResponseReader} to iterate.
+     * @param flyweight
+     *     <code>true</code> to recycle the same {@link Response} instance for every element.
+     */
+    public ResponseIterator(MultistatusResponseReader reader, boolean flyweight)
+    {
+        mReader = reader;
+        mFlyweight = flyweight;
+    }
+
+
+    @Override
+    public boolean hasNext()
+    {
+        if (!mPositioned)
+        {
+            try
+            {
+                mHasNext = mReader.hasNextResponse();
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+            catch (ProtocolError e)
+            {
+                throw new UncheckedProtocolException(e);
+            }
+            mPositioned = true;
+        }
+        return mHasNext;
+    }
+
+
+    @Override
+    public Response next()
+    {
+        if (!hasNext())
+        {
+            throw new NoSuchElementException("No more responses");
+        }
+
+        mPositioned = false;
+        try
+        {
+            Response response = mReader.getNextResponse(mRecycle);
+            if (mFlyweight)
+            {
+                mRecycle = response;
+            }
+            return response;
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        catch (ProtocolError e)
+        {
+            throw new UncheckedProtocolException(e);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient;
+
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.httpessentials.exceptions.ProtocolException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+
+/**
+ * Makes sure only one call per key is running at a time. Callers that ask for a key while a call for that key is running wait for its result, or its error,
+ * instead of making the same call again.
+ * <p>
+ * Results are not kept once a call has completed, caching them is up to the caller.
+ * </p>
+ *
+ * @param <K>
+ *     The type of the keys.
+ * @param <V>
+ *     The type of the results.
+ */
+public final class SingleFlight<K, V>
+{
+    /**
+     * A call that returns a value.
+     *
+     * @param <V>
+     *     The type of the result.
+     */
+    public interface Call<V>
+    {
+        V value() throws IOException, ProtocolError, ProtocolException;
+    }
+
+
+    private final ConcurrentMap<K, CompletableFuture<V>> mInFlight = new ConcurrentHashMap<>();
+
+
+    /**
+     * Returns the result of the given {@link Call}, unless a call for the same key is running already, in which case this waits for the result of that call
+     * and returns it instead. If that call fails, all waiting callers get its exception.
+     *
+     * @param key
+     *     The key of the call.
+     * @param call
+     *     The {@link Call} to make if none is running for the given key.
+     *
+     * @return The result of the call.
+     *
+     * @throws InterruptedIOException
+     *     If the thread was interrupted while waiting for a running call.
+     * @throws UncheckedProtocolException
+     *     If the running call threw a checked exception other than the declared ones.
+     */
+    public V value(K key, Call<? extends V> call) throws IOException, ProtocolError, ProtocolException
+    {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = mInFlight.putIfAbsent(key, flight);
+        if (inFlight != null)
+        {
+            return await(key, inFlight);
+        }
+
+        V result;
+        try
+        {
+            result = call.value();
+        }
+        catch (Throwable e)
+        {
+            // complete the flight in any case, so waiting callers don't hang
+            mInFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        mInFlight.remove(key, flight);
+        flight.complete(result);
+        return result;
+    }
+
+
+    private V await(K key, CompletableFuture<V> flight) throws IOException, ProtocolError, ProtocolException
+    {
+        try
+        {
+            return flight.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            InterruptedIOException exception = new InterruptedIOException("interrupted while waiting for " + key);
+            exception.initCause(e);
+            throw exception;
+        }
+        catch (ExecutionException e)
+        {
+            // the caller gets the exception of the call it was waiting for
+            rethrow(e.getCause());
+            throw new IllegalStateException("call failed without a cause", e);
+        }
+    }
+
+
+    /**
+     * Throws the given error, the way it was thrown by another thread. {@link IOException}s, {@link ProtocolError}s, {@link ProtocolException}s and unchecked
+     * exceptions are thrown as they are, other checked exceptions are wrapped in an {@link UncheckedProtocolException}. This does nothing if the error is
+     * <code>null</code>.
+     *
+     * @param error
+     *     The error to throw or <code>null</code>.
+     *
+     * @throws UncheckedProtocolException
+     *     If the error is a checked exception other than the declared ones.
+     */
+    public static void rethrow(Throwable error) throws IOException, ProtocolError, ProtocolException
+    {
+        if (error instanceof IOException)
+        {
+            throw (IOException) error;
+        }
+        if (error instanceof ProtocolError)
+        {
+            throw (ProtocolError) error;
+        }
+        if (error instanceof ProtocolException)
+        {
+            throw (ProtocolException) error;
+        }
+        if (error instanceof RuntimeException)
+        {
+            throw (RuntimeException) error;
+        }
+        if (error instanceof Error)
+        {
+            throw (Error) error;
+        }
+        if (error != null)
+        {
+            throw new UncheckedProtocolException(error instanceof Exception ? (Exception) error : new Exception(error));
+        }
+    }
+}
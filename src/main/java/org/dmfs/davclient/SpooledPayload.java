@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+
+/**
+ * A {@link Payload} that keeps short content in memory and writes long content to a temporary file.
+ */
+public final class SpooledPayload implements Payload
+{
+    private final long mLength;
+    private CharSequence mContent;
+    private Path mFile;
+
+
+    /**
+     * Creates a {@link SpooledPayload} of the given content. If the content is longer than the given threshold it's written to a temporary file and no
+     * reference to the content is kept.
+     *
+     * @param content
+     *     The content.
+     * @param spillThreshold
+     *     The maximum number of characters to keep in memory.
+     */
+    public SpooledPayload(CharSequence content, long spillThreshold) throws IOException
+    {
+        mLength = content.length();
+        if (mLength > spillThreshold)
+        {
+            Path file = Files.createTempFile("jdav-payload", ".tmp");
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+            {
+                writer.append(content);
+            }
+            catch (IOException e)
+            {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+            mFile = file;
+        }
+        else
+        {
+            mContent = content;
+        }
+    }
+
+
+    /**
+     * Creates a {@link SpooledPayload} of a temporary file, which is deleted when the payload is closed.
+     *
+     * @param file
+     *     The file that contains the UTF-8 encoded content.
+     * @param length
+     *     The number of characters of the content.
+     */
+    SpooledPayload(Path file, long length)
+    {
+        mFile = file;
+        mLength = length;
+    }
+
+
+    @Override
+    public long length()
+    {
+        return mLength;
+    }
+
+
+    @Override
+    public Reader reader() throws IOException
+    {
+        if (mFile != null)
+        {
+            return Files.newBufferedReader(mFile, StandardCharsets.UTF_8);
+        }
+        if (mContent == null)
+        {
+            throw new IOException("payload has been closed");
+        }
+        return new StringReader(mContent.toString());
+    }
+
+
+    @Override
+    public CharSequence content() throws IOException
+    {
+        if (mFile != null)
+        {
+            return new String(Files.readAllBytes(mFile), StandardCharsets.UTF_8);
+        }
+        if (mContent == null)
+        {
+            throw new IOException("payload has been closed");
+        }
+        return mContent;
+    }
+
+
+    @Override
+    public void close() throws IOException
+    {
+        mContent = null;
+        Path file = mFile;
+        mFile = null;
+        if (file != null)
+        {
+            Files.deleteIfExists(file);
+        }
+    }
+}
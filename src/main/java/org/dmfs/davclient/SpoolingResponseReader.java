@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient;
+
+import org.dmfs.dav.rfc4918.Response;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.xmlpull.v1.XmlPullParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Reads the {@link Response}s of a {@link MultistatusResponseReader} and hands large text properties, like <code>calendar-data</code> or
+ * <code>address-data</code>, to a {@link PayloadConsumer} while the multistatus response is being parsed.
+ * <p>
+ * The text of a payload property is written to a {@link Payload} as it's read from the response and the property is not added to the {@link Response}, so
+ * <code>getPropertyValue</code> returns <code>null</code> for it. Payloads longer than the spill threshold are written to temporary
+ * files, so consumers can keep any number of them without holding them in memory. This works with readers that have been created with a {@link DavContext},
+ * readers created with a plain {@link org.dmfs.dav.DavParserContext} keep the payload on the {@link Response} and can't reduce the memory usage.
+ * </p>
+ */
+public final class SpoolingResponseReader
+{
+    private final MultistatusResponseReader mReader;
+    private final PayloadConsumer mConsumer;
+    private final long mSpillThreshold;
+    private final List<ElementDescriptor<? extends CharSequence>> mProperties;
+    private final MultistatusXmlPullParser mParser;
+
+
+    /**
+     * Creates a {@link SpoolingResponseReader} that hands the given properties to the given {@link PayloadConsumer} and never spills them to a file.
+     *
+     * @param reader
+     *     The {@link MultistatusResponseReader} to read.
+     * @param consumer
+     *     The {@link PayloadConsumer} to hand the payloads to.
+     * @param properties
+     *     The {@link ElementDescriptor}s of the payload properties.
+     */
+    @SafeVarargs
+    public SpoolingResponseReader(MultistatusResponseReader reader, PayloadConsumer consumer, ElementDescriptor<? extends CharSequence>... properties)
+    {
+        this(reader, consumer, Long.MAX_VALUE, properties);
+    }
+
+
+    /**
+     * Creates a {@link SpoolingResponseReader} that hands the given properties to the given {@link PayloadConsumer}, spilling payloads longer than the given
+     * threshold to temporary files.
+     *
+     * @param reader
+     *     The {@link MultistatusResponseReader} to read.
+     * @param consumer
+     *     The {@link PayloadConsumer} to hand the payloads to.
+     * @param spillThreshold
+     *     The maximum number of characters of a payload to keep in memory.
+     * @param properties
+     *     The {@link ElementDescriptor}s of the payload properties.
+     */
+    @SafeVarargs
+    public SpoolingResponseReader(MultistatusResponseReader reader, PayloadConsumer consumer, long spillThreshold,
+                                  ElementDescriptor<? extends CharSequence>... properties)
+    {
+        mReader = reader;
+        mConsumer = consumer;
+        mSpillThreshold = spillThreshold;
+        mProperties = Arrays.asList(properties);
+        XmlPullParser parser = reader.parser();
+        mParser = parser instanceof MultistatusXmlPullParser ? (MultistatusXmlPullParser) parser : null;
+        if (mParser != null)
+        {
+            mParser.capture(new ArrayList<ElementDescriptor<?>>(mProperties), spillThreshold);
+        }
+    }
+
+
+    /**
+     * Checks if there is another {@link Response} to read.
+     *
+     * @return <code>true</code> if there is at least one more response, <code>false</code> otherwise.
+     */
+    public boolean hasNextResponse() throws IOException, ProtocolError
+    {
+        return mReader.hasNextResponse();
+    }
+
+
+    /**
+     * Reads the next {@link Response} and hands its payload properties to the {@link PayloadConsumer}.
+     *
+     * @param recycle
+     *     A {@link Response} that can be recycled or <code>null</code>.
+     *
+     * @return The next response or <code>null</code> if there is no other response.
+     */
+    public Response getNextResponse(Response recycle) throws IOException, ProtocolError
+    {
+        Response response = mReader.getNextResponse(recycle);
+        if (mParser != null)
+        {
+            List<MultistatusXmlPullParser.CapturedPayload> payloads = mParser.takePayloads();
+            for (int i = 0, count = payloads.size(); i < count; ++i)
+            {
+                MultistatusXmlPullParser.CapturedPayload captured = payloads.get(i);
+                if (response == null)
+                {
+                    closeQuietly(captured.payload);
+                    continue;
+                }
+                try
+                {
+                    mConsumer.accept(response, captured.property, captured.payload);
+                }
+                catch (IOException | ProtocolError | RuntimeException e)
+                {
+                    // the consumer didn't take the remaining payloads
+                    for (int j = i + 1; j < count; ++j)
+                    {
+                        closeQuietly(payloads.get(j).payload);
+                    }
+                    throw e;
+                }
+            }
+        }
+        else if (response != null)
+        {
+            for (ElementDescriptor<? extends CharSequence> property : mProperties)
+            {
+                CharSequence value = response.getPropertyValue(property);
+                if (value != null)
+                {
+                    mConsumer.accept(response, property, new SpooledPayload(value, mSpillThreshold));
+                }
+            }
+        }
+        return response;
+    }
+
+
+    /**
+     * Closes the {@link MultistatusResponseReader}.
+     */
+    public void close() throws IOException
+    {
+        try
+        {
+            if (mParser != null)
+            {
+                // payloads of a response that has not been returned
+                for (MultistatusXmlPullParser.CapturedPayload captured : mParser.takePayloads())
+                {
+                    closeQuietly(captured.payload);
+                }
+            }
+        }
+        finally
+        {
+            mReader.close();
+        }
+    }
+
+
+    private static void closeQuietly(Payload payload)
+    {
+        try
+        {
+            payload.close();
+        }
+        catch (IOException e)
+        {
+            // nothing we can do about it
+        }
+    }
+}
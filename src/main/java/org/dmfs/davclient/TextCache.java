@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient;
+
+/**
+ * A small, lossy cache of short text values. It returns the same {@link String} instance for repeated text, like status lines, without allocating a new
+ * {@link String} on a cache hit.
+ * <p>
+ * This is safe to be shared by multiple threads without synchronization. {@link String}s are immutable, so the worst outcome of a race is a cache miss.
+ * </p>
+ */
+final class TextCache
+{
+    /**
+     * The maximum length of text to cache. Longer text is rarely repeated.
+     */
+    private final static int MAX_LENGTH = 64;
+
+    private final String[] mEntries;
+    private final int mMask;
+
+
+    /**
+     * Creates a {@link TextCache} with the given number of slots.
+     *
+     * @param size
+     *     The number of slots, must be a power of two.
+     */
+    TextCache(int size)
+    {
+        if (size < 1 || Integer.bitCount(size) != 1)
+        {
+            throw new IllegalArgumentException("Size must be a power of two");
+        }
+        mEntries = new String[size];
+        mMask = size - 1;
+    }
+
+
+    /**
+     * Returns a {@link String} with the given characters, which may be a cached instance.
+     */
+    String text(char[] chars, int start, int length)
+    {
+        if (length > MAX_LENGTH)
+        {
+            return new String(chars, start, length);
+        }
+
+        int hash = 0;
+        for (int i = start, end = start + length; i < end; ++i)
+        {
+            hash = 31 * hash + chars[i];
+        }
+        int index = (hash ^ (hash >>> 16)) & mMask;
+
+        String entry = mEntries[index];
+        if (entry != null && matches(entry, chars, start, length))
+        {
+            return entry;
+        }
+
+        String result = new String(chars, start, length);
+        mEntries[index] = result;
+        return result;
+    }
+
+
+    private static boolean matches(String entry, char[] chars, int start, int length)
+    {
+        if (entry.length() != length)
+        {
+            return false;
+        }
+        for (int i = 0; i < length; ++i)
+        {
+            if (entry.charAt(i) != chars[start + i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
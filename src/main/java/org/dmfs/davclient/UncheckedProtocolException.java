@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient;
+
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.httpessentials.exceptions.ProtocolException;
+
+
+/**
+ * Wraps a {@link ProtocolError}, a {@link ProtocolException} or another checked exception thrown when executing a request, like an unexpected status, in an
+ * unchecked exception. This is thrown by APIs that can't throw checked exceptions, like {@link java.util.Iterator}s and {@link java.util.stream.Stream}s.
+ */
+public final class UncheckedProtocolException extends RuntimeException
+{
+    public UncheckedProtocolException(Exception cause)
+    {
+        super(cause);
+    }
+
+
+    @Override
+    public Exception getCause()
+    {
+        return (Exception) super.getCause();
+    }
+}
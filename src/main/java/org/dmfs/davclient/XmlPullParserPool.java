@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.Reader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * A bounded, thread-safe pool of namespace aware {@link XmlPullParser}s.
+ * <p>
+ * The {@link XmlPullParserFactory} is resolved only once, when the first parser is needed. Parsers are reset before they are returned to the pool. If the pool
+ * is empty a new parser is created, if the pool is full a released parser is dropped.
+ * </p>
+ * <p>
+ * The pool doesn't hold any monitors, so it doesn't pin the carrier thread when used on a virtual thread.
+ * </p>
+ */
+public final class XmlPullParserPool
+{
+    /**
+     * The default number of parsers to keep.
+     */
+    public final static int DEFAULT_CAPACITY = 16;
+
+    private final BlockingQueue<XmlPullParser> mParsers;
+    private final Lock mFactoryLock = new ReentrantLock();
+    private volatile XmlPullParserFactory mFactory;
+
+
+    /**
+     * Creates an {@link XmlPullParserPool} that keeps up to {@link #DEFAULT_CAPACITY} parsers.
+     */
+    public XmlPullParserPool()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+
+    /**
+     * Creates an {@link XmlPullParserPool} that keeps up to the given number of parsers.
+     *
+     * @param capacity
+     *     The maximum number of idle parsers to keep, must be positive.
+     */
+    public XmlPullParserPool(int capacity)
+    {
+        if (capacity < 1)
+        {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        mParsers = new ArrayBlockingQueue<>(capacity);
+    }
+
+
+    /**
+     * Returns a pooled {@link XmlPullParser} or a new one if the pool is empty. The parser should be returned by calling {@link #release(XmlPullParser)} once
+     * it's no longer needed.
+     *
+     * @return An {@link XmlPullParser}.
+     */
+    public XmlPullParser acquire() throws XmlPullParserException
+    {
+        XmlPullParser parser = mParsers.poll();
+        return parser == null ? factory().newPullParser() : parser;
+    }
+
+
+    /**
+     * Resets the given {@link XmlPullParser} and returns it to the pool. Don't use the parser after calling this.
+     *
+     * @param parser
+     *     The {@link XmlPullParser} to return, may be <code>null</code>.
+     */
+    public void release(XmlPullParser parser)
+    {
+        if (parser == null)
+        {
+            return;
+        }
+
+        try
+        {
+            // drop all references to the input
+            parser.setInput((Reader) null);
+        }
+        catch (XmlPullParserException e)
+        {
+            // this parser can't be reset, don't keep it
+            return;
+        }
+        mParsers.offer(parser);
+    }
+
+
+    private XmlPullParserFactory factory() throws XmlPullParserException
+    {
+        XmlPullParserFactory factory = mFactory;
+        if (factory == null)
+        {
+            // resolving the factory may load classes and read service files, don't use a monitor for this
+            mFactoryLock.lock();
+            try
+            {
+                factory = mFactory;
+                if (factory == null)
+                {
+                    factory = XmlPullParserFactory.newInstance();
+                    factory.setNamespaceAware(true);
+                    mFactory = factory;
+                }
+            }
+            finally
+            {
+                mFactoryLock.unlock();
+            }
+        }
+        return factory;
+    }
+}
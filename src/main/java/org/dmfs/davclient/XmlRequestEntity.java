@@ -37,7 +37,7 @@ import static org.dmfs.optional.Absent.absent;
 
 /**
  * An XML request entity. <p> Note: The XML data is rendered on demand, which means that the content length is not known in advance and {@link #contentLength()}
- * will always return <code>-1</code>. </p>
+ * will always return <code>-1</code>. Decorate it with {@link BufferedRequestEntity} to render it only once and send it with a known content length. </p>
  *
  * @param <T>
  *     The type of the XML root element.
@@ -27,29 +27,48 @@ import org.dmfs.httpessentials.types.MediaType;
 import org.dmfs.jems.optional.Optional;
 import org.dmfs.jems.optional.decorators.Mapped;
 import org.dmfs.jems.single.combined.Backed;
+import org.dmfs.jems2.Function;
 import org.dmfs.xmlobjects.pull.XmlObjectPull;
 import org.dmfs.xmlobjects.pull.XmlPath;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
-import org.xmlpull.v1.XmlPullParserFactory;
 
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStream;
 
 
 /**
  * An abstract wrapper for XML responses.
  */
-public abstract class XmlResponseReader<T>
+public abstract class XmlResponseReader<T> implements Closeable
 {
     protected final static XmlPath EMPTY_PATH = new XmlPath();
 
+    /**
+     * The pool to take parsers from when no other pool has been provided.
+     */
+    private final static XmlPullParserPool DEFAULT_PARSER_POOL = new XmlPullParserPool();
+
+    private final static int DRAIN_BUFFER_SIZE = 8192;
+
     /**
      * The {@link XmlObjectPull} parser for the content.
      */
     protected final XmlObjectPull mObjectPull;
 
-    private final InputStream mInput;
+    private final CountingInputStream mInput;
+
+    private final XmlPullParserPool mParserPool;
+
+    private final DavContext mDavContext;
+
+    private XmlPullParser mParser;
+
+    private XmlPullParser mDecoratedParser;
+
+    private DavParserContext mParserContext;
+
+    private boolean mClosed;
 
 
     /**
@@ -62,6 +81,68 @@ public abstract class XmlResponseReader<T>
      */
     public XmlResponseReader(HttpResponse response, DavParserContext context) throws IOException, ProtocolError
     {
+        this(response, context, DEFAULT_PARSER_POOL);
+    }
+
+
+    /**
+     * Creates a handler for the given {@link HttpResponse} and {@link DavParserContext}, taking the {@link XmlPullParser} from the given
+     * {@link XmlPullParserPool}. The parser is returned to the pool when this is closed.
+     *
+     * @param response
+     *     The response to handle
+     * @param context
+     *     A {@link DavParserContext}.
+     * @param parserPool
+     *     The {@link XmlPullParserPool} to take the parser from.
+     */
+    public XmlResponseReader(HttpResponse response, DavParserContext context, XmlPullParserPool parserPool) throws IOException, ProtocolError
+    {
+        this(response, context, parserPool, null, parser -> parser);
+    }
+
+
+    /**
+     * Creates a handler for the given {@link HttpResponse} using a {@link DavParserContext} and an {@link XmlPullParser} provided by the given
+     * {@link DavContext}. Both are returned to the {@link DavContext} when this is closed.
+     *
+     * @param response
+     *     The response to handle
+     * @param davContext
+     *     A {@link DavContext}.
+     */
+    public XmlResponseReader(HttpResponse response, DavContext davContext) throws IOException, ProtocolError
+    {
+        this(response, davContext, parser -> parser);
+    }
+
+
+    /**
+     * Creates a handler for the given {@link HttpResponse} using a {@link DavParserContext} and an {@link XmlPullParser} provided by the given
+     * {@link DavContext}. The {@link XmlPullParser} is decorated by the given {@link Function} before it's used.
+     *
+     * @param response
+     *     The response to handle
+     * @param davContext
+     *     A {@link DavContext}.
+     * @param parserDecorator
+     *     A {@link Function} to decorate the {@link XmlPullParser}.
+     */
+    XmlResponseReader(HttpResponse response, DavContext davContext, Function<XmlPullParser, XmlPullParser> parserDecorator) throws IOException, ProtocolError
+    {
+        this(response, davContext.acquireParserContext(), davContext.getParserPool(), davContext, parserDecorator);
+    }
+
+
+    private XmlResponseReader(HttpResponse response,
+                              DavParserContext context,
+                              XmlPullParserPool parserPool,
+                              DavContext davContext,
+                              Function<XmlPullParser, XmlPullParser> parserDecorator) throws IOException, ProtocolError
+    {
+        mParserPool = parserPool;
+        mDavContext = davContext;
+        mParserContext = context;
         try
         {
             HttpResponseEntity content = response.responseEntity();
@@ -71,6 +152,7 @@ public abstract class XmlResponseReader<T>
                 // no content, nothing to do
                 mObjectPull = null;
                 mInput = null;
+                release();
                 return;
             }
 
@@ -78,21 +160,22 @@ public abstract class XmlResponseReader<T>
             Optional<MediaType> contentType = content.contentType();
 
             // get a pull parser
-            XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
-            factory.setNamespaceAware(true);
-            XmlPullParser parser = factory.newPullParser();
+            XmlPullParser parser = parserPool.acquire();
+            mParser = parser;
 
             // use the charset param of the response, if there is any
             String charset = new Backed<>(new Mapped<>(ct -> ct.charset("UTF-8"), contentType), () -> "UTF-8").value();
 
-            mInput = content.contentStream();
+            mInput = new CountingInputStream(content.contentStream());
 
             parser.setInput(mInput, charset);
 
-            mObjectPull = new XmlObjectPull(parser, context);
+            mDecoratedParser = parserDecorator.value(parser);
+            mObjectPull = new XmlObjectPull(mDecoratedParser, context);
         }
         catch (XmlPullParserException e)
         {
+            release();
             throw new ProtocolError("can not read multistatus response", e);
         }
     }
@@ -104,11 +187,114 @@ public abstract class XmlResponseReader<T>
      * Don't use this instance after closing the input stream.
      * </p>
      */
+    @Override
     public void close() throws IOException
+    {
+        if (mClosed)
+        {
+            return;
+        }
+        mClosed = true;
+        try
+        {
+            if (mInput != null)
+            {
+                mInput.close();
+            }
+        }
+        finally
+        {
+            release();
+        }
+    }
+
+
+    /**
+     * Returns the {@link XmlPullParser} that reads the response, after it has been decorated, or <code>null</code> if the response has no content.
+     *
+     * @return The {@link XmlPullParser} or <code>null</code>.
+     */
+    XmlPullParser parser()
+    {
+        return mDecoratedParser;
+    }
+
+
+    /**
+     * Closes the input stream to abort a read that may be blocked on another thread. The parser is not released, that's left to {@link #close()}, which must
+     * still be called by the thread that reads the response.
+     */
+    protected void abort()
     {
         if (mInput != null)
         {
-            mInput.close();
+            try
+            {
+                mInput.close();
+            }
+            catch (IOException e)
+            {
+                // we're aborting anyway
+            }
+        }
+    }
+
+
+    /**
+     * Returns the number of bytes of the response body that have been read so far. After the response has been read completely this is the size of the
+     * response body.
+     *
+     * @return The number of bytes read.
+     */
+    public long bytesRead()
+    {
+        return mInput == null ? 0 : mInput.count();
+    }
+
+
+    /**
+     * Reads and discards the remaining bytes of the response, without parsing them, until the end of the stream or the given limit is reached.
+     *
+     * @param limit
+     *     The maximum number of bytes to skip.
+     *
+     * @return <code>true</code> if the end of the stream has been reached, <code>false</code> if there are more than <code>limit</code> bytes left.
+     */
+    protected boolean drain(long limit) throws IOException
+    {
+        if (mInput == null || mClosed)
+        {
+            return true;
+        }
+
+        byte[] buffer = new byte[(int) Math.max(1, Math.min(DRAIN_BUFFER_SIZE, limit))];
+        long remaining = limit;
+        while (remaining >= 0)
+        {
+            // read one byte more than allowed to find out whether the limit has been exceeded
+            int read = mInput.read(buffer, 0, remaining >= buffer.length ? buffer.length : (int) remaining + 1);
+            if (read < 0)
+            {
+                return true;
+            }
+            remaining -= read;
+        }
+        return false;
+    }
+
+
+    private void release()
+    {
+        // return the parser state only once, closing twice must not put the same instances into the pools twice
+        XmlPullParser parser = mParser;
+        mParser = null;
+        mParserPool.release(parser);
+
+        DavParserContext parserContext = mParserContext;
+        mParserContext = null;
+        if (mDavContext != null)
+        {
+            mDavContext.releaseParserContext(parserContext);
         }
     }
 }
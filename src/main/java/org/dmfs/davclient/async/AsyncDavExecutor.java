@@ -0,0 +1,304 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient.async;
+
+import org.dmfs.davclient.MultistatusResponseReader;
+import org.dmfs.httpessentials.client.HttpRequest;
+import org.dmfs.httpessentials.client.HttpRequestExecutor;
+
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+
+/**
+ * Executes requests asynchronously on an {@link Executor} and returns the results as {@link CompletableFuture}s.
+ * <p>
+ * {@link #execute(URI, HttpRequest)} works with any request. {@link #read(URI, HttpRequest, ReaderFunction)} executes a request that returns a
+ * {@link MultistatusResponseReader} and also reads the response on the {@link Executor}. Cancelling the future returned by the latter or a timeout cancels
+ * the reader, which aborts a running parse.
+ * </p>
+ * <p>
+ * Cancellation of a future does not propagate to the futures it depends on, so cancel the future returned by this class rather than a composed one if the
+ * request should be aborted.
+ * </p>
+ */
+public final class AsyncDavExecutor
+{
+    private final static ScheduledExecutorService DEFAULT_TIMER = Executors.newSingleThreadScheduledExecutor(runnable ->
+    {
+        Thread thread = new Thread(runnable, "dav-timeouts");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final HttpRequestExecutor mExecutor;
+    private final Executor mThreads;
+    private final ScheduledExecutorService mTimer;
+
+
+    /**
+     * Creates an {@link AsyncDavExecutor} that executes each request with the given {@link HttpRequestExecutor} on a thread of its own. On Java 21 and newer
+     * these are virtual threads, see {@link DavThreads}.
+     *
+     * @param executor
+     *     The {@link HttpRequestExecutor} to execute the requests, must be thread-safe.
+     */
+    public AsyncDavExecutor(HttpRequestExecutor executor)
+    {
+        this(executor, DavThreads.sharedExecutor());
+    }
+
+
+    /**
+     * Creates an {@link AsyncDavExecutor} that executes requests with the given {@link HttpRequestExecutor} on the given {@link Executor}.
+     *
+     * @param executor
+     *     The {@link HttpRequestExecutor} to execute the requests, must be thread-safe.
+     * @param threads
+     *     The {@link Executor} to execute the requests on.
+     */
+    public AsyncDavExecutor(HttpRequestExecutor executor, Executor threads)
+    {
+        this(executor, threads, DEFAULT_TIMER);
+    }
+
+
+    /**
+     * Creates an {@link AsyncDavExecutor} that executes requests with the given {@link HttpRequestExecutor} on the given {@link Executor}.
+     *
+     * @param executor
+     *     The {@link HttpRequestExecutor} to execute the requests, must be thread-safe.
+     * @param threads
+     *     The {@link Executor} to execute the requests on.
+     * @param timer
+     *     The {@link ScheduledExecutorService} to schedule timeouts.
+     */
+    public AsyncDavExecutor(HttpRequestExecutor executor, Executor threads, ScheduledExecutorService timer)
+    {
+        mExecutor = executor;
+        mThreads = threads;
+        mTimer = timer;
+    }
+
+
+    /**
+     * Executes the given request.
+     * <p>
+     * Cancelling the result doesn't abort a request that's already running. If the result is a {@link MultistatusResponseReader} it's left to the caller to
+     * read and close it, use {@link #read(URI, HttpRequest, ReaderFunction)} to read it asynchronously as well. A result that is {@link AutoCloseable} is
+     * closed if it can't be delivered because the future has been completed in the meantime.
+     * </p>
+     *
+     * @param uri
+     *     The {@link URI} to send the request to.
+     * @param request
+     *     The {@link HttpRequest} to execute.
+     * @param <T>
+     *     The type of the result.
+     *
+     * @return A {@link CompletableFuture} of the result.
+     */
+    public <T> CompletableFuture<T> execute(URI uri, HttpRequest<T> request)
+    {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        submit(result, () ->
+        {
+            if (!result.isDone())
+            {
+                T value = mExecutor.execute(uri, request);
+                if (!result.complete(value) && value instanceof AutoCloseable)
+                {
+                    // cancelled or timed out while the request was running, nobody's going to close the result
+                    ((AutoCloseable) value).close();
+                }
+            }
+        });
+        return result;
+    }
+
+
+    /**
+     * Executes the given request and passes the {@link MultistatusResponseReader} to the given {@link ReaderFunction} on the same thread. The reader is
+     * closed afterwards.
+     * <p>
+     * Cancelling the result cancels the reader, so a running {@link ReaderFunction} fails with an {@link java.io.InterruptedIOException}.
+     * </p>
+     *
+     * @param uri
+     *     The {@link URI} to send the request to.
+     * @param request
+     *     The {@link HttpRequest} to execute.
+     * @param function
+     *     The {@link ReaderFunction} that reads the result.
+     * @param <R>
+     *     The type of the result.
+     *
+     * @return A {@link CompletableFuture} of the result of the {@link ReaderFunction}.
+     */
+    public <R> CompletableFuture<R> read(URI uri, HttpRequest<MultistatusResponseReader> request, ReaderFunction<R> function)
+    {
+        ReadTask<R> task = new ReadTask<>(uri, request, function);
+        submit(task.mFuture, task);
+        return task.mFuture;
+    }
+
+
+    /**
+     * Like {@link #read(URI, HttpRequest, ReaderFunction)}, but fails with a {@link TimeoutException} and cancels the reader if the result is not available
+     * within the given time.
+     *
+     * @param uri
+     *     The {@link URI} to send the request to.
+     * @param request
+     *     The {@link HttpRequest} to execute.
+     * @param function
+     *     The {@link ReaderFunction} that reads the result.
+     * @param timeout
+     *     The timeout, including the time waiting for a thread.
+     * @param unit
+     *     The {@link TimeUnit} of the timeout.
+     * @param <R>
+     *     The type of the result.
+     *
+     * @return A {@link CompletableFuture} of the result of the {@link ReaderFunction}.
+     */
+    public <R> CompletableFuture<R> read(URI uri, HttpRequest<MultistatusResponseReader> request, ReaderFunction<R> function, long timeout, TimeUnit unit)
+    {
+        ReadTask<R> task = new ReadTask<>(uri, request, function);
+        ScheduledFuture<?> timer = mTimer.schedule(() ->
+        {
+            if (task.mFuture.completeExceptionally(new TimeoutException("request to " + uri + " timed out")))
+            {
+                task.cancel();
+            }
+        }, timeout, unit);
+        task.mFuture.whenComplete((value, error) -> timer.cancel(false));
+        submit(task.mFuture, task);
+        return task.mFuture;
+    }
+
+
+    private void submit(CompletableFuture<?> future, Task task)
+    {
+        try
+        {
+            mThreads.execute(() ->
+            {
+                try
+                {
+                    task.run();
+                }
+                catch (Throwable e)
+                {
+                    future.completeExceptionally(e);
+                }
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            future.completeExceptionally(e);
+        }
+    }
+
+
+    /**
+     * A task that may throw any exception.
+     */
+    private interface Task
+    {
+        void run() throws Exception;
+    }
+
+
+    /**
+     * Executes a request and reads the result, can be cancelled at any time.
+     */
+    private final class ReadTask<R> implements Task
+    {
+        private final URI mUri;
+        private final HttpRequest<MultistatusResponseReader> mRequest;
+        private final ReaderFunction<R> mFunction;
+        private final CompletableFuture<R> mFuture = new CompletableFuture<R>()
+        {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning)
+            {
+                boolean result = super.cancel(mayInterruptIfRunning);
+                ReadTask.this.cancel();
+                return result;
+            }
+        };
+
+        private volatile boolean mCancelled;
+        private volatile MultistatusResponseReader mReader;
+
+
+        ReadTask(URI uri, HttpRequest<MultistatusResponseReader> request, ReaderFunction<R> function)
+        {
+            mUri = uri;
+            mRequest = request;
+            mFunction = function;
+        }
+
+
+        @Override
+        public void run() throws Exception
+        {
+            if (mFuture.isDone())
+            {
+                return;
+            }
+            MultistatusResponseReader reader = mExecutor.execute(mUri, mRequest);
+            mReader = reader;
+            try
+            {
+                if (mCancelled)
+                {
+                    // cancelled while the request was being executed
+                    reader.cancel();
+                }
+                mFuture.complete(mFunction.apply(reader));
+            }
+            finally
+            {
+                mReader = null;
+                reader.close();
+            }
+        }
+
+
+        void cancel()
+        {
+            mCancelled = true;
+            MultistatusResponseReader reader = mReader;
+            if (reader != null)
+            {
+                reader.cancel();
+            }
+        }
+    }
+}
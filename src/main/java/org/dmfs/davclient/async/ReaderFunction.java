@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient.async;
+
+import org.dmfs.davclient.MultistatusResponseReader;
+
+
+/**
+ * Reads the result of a {@link MultistatusResponseReader}.
+ *
+ * @param <R>
+ *     The type of the result.
+ */
+public interface ReaderFunction<R>
+{
+    /**
+     * Reads the given {@link MultistatusResponseReader}. The reader is closed when this returns.
+     *
+     * @param reader
+     *     The {@link MultistatusResponseReader} to read.
+     *
+     * @return The result.
+     */
+    R apply(MultistatusResponseReader reader) throws Exception;
+}
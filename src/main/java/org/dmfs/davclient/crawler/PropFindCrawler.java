@@ -0,0 +1,539 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient.crawler;
+
+import org.dmfs.dav.rfc4918.Depth;
+import org.dmfs.dav.rfc4918.Response;
+import org.dmfs.dav.rfc4918.WebDav;
+import org.dmfs.davclient.DavContext;
+import org.dmfs.davclient.HostConcurrencyLimit;
+import org.dmfs.davclient.MultistatusResponseReader;
+import org.dmfs.davclient.SingleFlight;
+import org.dmfs.davclient.UncheckedProtocolException;
+import org.dmfs.davclient.async.DavThreads;
+import org.dmfs.davclient.multiget.ResponseConsumer;
+import org.dmfs.davclient.rfc4918.PropFind;
+import org.dmfs.davclient.utils.SameResource;
+import org.dmfs.httpessentials.client.HttpRequestExecutor;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.httpessentials.exceptions.ProtocolException;
+import org.dmfs.jems2.Predicate;
+import org.dmfs.xmlobjects.ElementDescriptor;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * Walks a tree of collections breadth-first with <code>Depth: 1</code> PROPFINDs, for servers that don't support <code>Depth: infinity</code>.
+ * <p>
+ * Several collections are listed at the same time. Every resource is passed to the {@link ResponseConsumer} as soon as it has been discovered, once, even if
+ * it's reachable by multiple paths. The crawl can be limited to a maximum depth and a maximum number of resources.
+ * </p>
+ * <p>
+ * By default <code>DAV:resourcetype</code> is requested with the other properties and a resource is considered a collection if its resource type contains
+ * <code>DAV:collection</code>, see {@link MultistatusResponseReader#isCollection()}. Pass a {@link Predicate} to use other criteria.
+ * </p>
+ */
+public final class PropFindCrawler
+{
+    /**
+     * The default number of concurrent PROPFINDs.
+     */
+    public final static int DEFAULT_PARALLELISM = 4;
+
+    private final HttpRequestExecutor mExecutor;
+    private final DavContext mDavContext;
+    private final URI mRoot;
+    private final Predicate<Response> mIsCollection;
+    private final int mMaxDepth;
+    private final int mMaxResources;
+    private final int mParallelism;
+    private final HostConcurrencyLimit mHostLimit;
+    private final Executor mThreads;
+    private final ElementDescriptor<?>[] mProperties;
+
+
+    /**
+     * Creates a {@link PropFindCrawler} without depth and size limits, that runs up to {@link #DEFAULT_PARALLELISM} PROPFINDs at a time on the
+     * {@link DavThreads#sharedExecutor() shared threads}, limited by the {@link HostConcurrencyLimit} of the given {@link DavContext}.
+     *
+     * @param executor
+     *     The {@link HttpRequestExecutor} to execute the requests, must be thread-safe.
+     * @param davContext
+     *     A {@link DavContext}.
+     * @param root
+     *     The {@link URI} of the root collection.
+     * @param properties
+     *     The properties to request for each resource.
+     */
+    public PropFindCrawler(HttpRequestExecutor executor, DavContext davContext, URI root, ElementDescriptor<?>... properties)
+    {
+        this(executor, davContext, root, null, Integer.MAX_VALUE, Integer.MAX_VALUE, DEFAULT_PARALLELISM, davContext.getHostConcurrencyLimit(),
+            DavThreads.sharedExecutor(),
+            properties);
+    }
+
+
+    /**
+     * Creates a {@link PropFindCrawler}.
+     *
+     * @param executor
+     *     The {@link HttpRequestExecutor} to execute the requests, must be thread-safe.
+     * @param davContext
+     *     A {@link DavContext}.
+     * @param root
+     *     The {@link URI} of the root collection.
+     * @param isCollection
+     *     A {@link Predicate} that's satisfied by the {@link Response}s of collections or <code>null</code> to detect collections by their
+     *     <code>DAV:resourcetype</code>, which is requested in addition to the given properties.
+     * @param maxDepth
+     *     The maximum depth of the resources to report, the root has depth <code>0</code>, its members have depth <code>1</code>.
+     * @param maxResources
+     *     The maximum number of resources to report.
+     * @param parallelism
+     *     The maximum number of concurrent PROPFINDs.
+     * @param hostLimit
+     *     The {@link HostConcurrencyLimit} of the host of the root.
+     * @param threads
+     *     The {@link Executor} to run the PROPFINDs on. It must be able to run <code>parallelism</code> tasks at the same time.
+     * @param properties
+     *     The properties to request for each resource.
+     */
+    public PropFindCrawler(HttpRequestExecutor executor, DavContext davContext, URI root, Predicate<Response> isCollection, int maxDepth, int maxResources,
+                           int parallelism, HostConcurrencyLimit hostLimit, Executor threads, ElementDescriptor<?>... properties)
+    {
+        if (maxDepth < 0 || maxResources < 0)
+        {
+            throw new IllegalArgumentException("Limits must not be negative");
+        }
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        mExecutor = executor;
+        mDavContext = davContext;
+        mRoot = root;
+        mIsCollection = isCollection;
+        mMaxDepth = maxDepth;
+        mMaxResources = maxResources;
+        mParallelism = parallelism;
+        mHostLimit = hostLimit;
+        mThreads = threads;
+        if (isCollection == null)
+        {
+            mProperties = Arrays.copyOf(properties, properties.length + 1);
+            mProperties[properties.length] = WebDav.Properties.RESOURCETYPE;
+        }
+        else
+        {
+            mProperties = properties.clone();
+        }
+    }
+
+
+    /**
+     * Crawls the tree and passes the {@link Response} of every resource, including the root, to the given {@link ResponseConsumer}, which is never called
+     * concurrently. This blocks until the tree has been crawled, the limits have been reached or a request failed.
+     * <p>
+     * If the calling thread is interrupted, the running PROPFINDs are cancelled and an {@link InterruptedIOException} is thrown once all workers have
+     * stopped.
+     * </p>
+     *
+     * @param consumer
+     *     The {@link ResponseConsumer} to receive the {@link Response}s.
+     *
+     * @return <code>true</code> if the entire tree has been crawled, <code>false</code> if a limit has been reached.
+     *
+     * @throws UncheckedProtocolException
+     *     If the {@link HttpRequestExecutor} threw a checked exception other than the declared ones.
+     */
+    public boolean crawl(ResponseConsumer consumer) throws IOException, ProtocolError, ProtocolException
+    {
+        Crawl crawl = new Crawl(consumer);
+        CountDownLatch done = new CountDownLatch(mParallelism);
+        for (int i = 0; i < mParallelism; ++i)
+        {
+            mThreads.execute(() ->
+            {
+                try
+                {
+                    crawl.work();
+                }
+                finally
+                {
+                    done.countDown();
+                }
+            });
+        }
+
+        try
+        {
+            done.await();
+        }
+        catch (InterruptedException e)
+        {
+            crawl.fail(e);
+            crawl.cancel();
+            awaitUninterruptibly(done);
+            Thread.currentThread().interrupt();
+            InterruptedIOException exception = new InterruptedIOException("interrupted while waiting for the crawler to complete");
+            exception.initCause(e);
+            throw exception;
+        }
+
+        SingleFlight.rethrow(crawl.mError);
+        return !crawl.mTruncated;
+    }
+
+
+    private static void awaitUninterruptibly(CountDownLatch latch)
+    {
+        boolean interrupted = false;
+        while (true)
+        {
+            try
+            {
+                latch.await();
+                break;
+            }
+            catch (InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * A collection to list.
+     */
+    private final static class Node
+    {
+        private final URI mUri;
+        private final int mDepth;
+
+
+        Node(URI uri, int depth)
+        {
+            mUri = uri;
+            mDepth = depth;
+        }
+    }
+
+
+    /**
+     * The state of a single call to {@link #crawl(ResponseConsumer)}.
+     */
+    private final class Crawl
+    {
+        private final ResponseConsumer mConsumer;
+        private final Queue<Node> mQueue = new ArrayDeque<>();
+        private final Set<String> mVisited = new HashSet<>();
+        private final Set<MultistatusResponseReader> mReaders = new HashSet<>();
+        private final Lock mLock = new ReentrantLock();
+        private final Condition mChanged = mLock.newCondition();
+        private final Lock mConsumerLock = new ReentrantLock();
+
+        /**
+         * The number of collections that are being listed right now.
+         */
+        private int mActive;
+        private int mResources;
+        private volatile boolean mTruncated;
+        private volatile Exception mError;
+
+
+        Crawl(ResponseConsumer consumer)
+        {
+            mConsumer = consumer;
+            mQueue.add(new Node(mRoot, 0));
+            mVisited.add(key(mRoot));
+        }
+
+
+        void work()
+        {
+            try
+            {
+                Node node;
+                while ((node = take()) != null)
+                {
+                    List<Node> children = new ArrayList<>();
+                    try
+                    {
+                        list(node, children);
+                    }
+                    finally
+                    {
+                        completed(children);
+                    }
+                }
+            }
+            catch (Exception e)
+            {
+                fail(e);
+            }
+        }
+
+
+        /**
+         * Returns the next collection to list, waiting for running listings if the queue is empty, or <code>null</code> if the crawl is over.
+         */
+        private Node take() throws InterruptedException
+        {
+            mLock.lock();
+            try
+            {
+                while (mQueue.isEmpty() && mActive > 0 && mError == null)
+                {
+                    mChanged.await();
+                }
+                if (mQueue.isEmpty() || mError != null)
+                {
+                    mChanged.signalAll();
+                    return null;
+                }
+                mActive += 1;
+                return mQueue.poll();
+            }
+            finally
+            {
+                mLock.unlock();
+            }
+        }
+
+
+        private void completed(List<Node> children)
+        {
+            mLock.lock();
+            try
+            {
+                mQueue.addAll(children);
+                mActive -= 1;
+                mChanged.signalAll();
+            }
+            finally
+            {
+                mLock.unlock();
+            }
+        }
+
+
+        private void list(Node node, List<Node> children) throws Exception
+        {
+            Predicate<URI> isSelf = new SameResource(node.mUri);
+            mHostLimit.acquire(node.mUri);
+            try
+            {
+                MultistatusResponseReader reader = mExecutor.execute(node.mUri, new PropFind(mDavContext, Depth.one, mProperties));
+                try
+                {
+                    register(reader);
+                    while (mError == null && reader.hasNextResponse())
+                    {
+                        Response response = reader.getNextResponse(null);
+                        URI href = response.getHref();
+                        if (href == null)
+                        {
+                            continue;
+                        }
+                        // the resource type must be checked before the reader moves on
+                        boolean collection = mIsCollection == null ? reader.isCollection() : mIsCollection.satisfiedBy(response);
+                        boolean self = isSelf.satisfiedBy(href);
+                        if (self ? node.mDepth == 0 && visit(null) : node.mDepth < mMaxDepth && visit(href))
+                        {
+                            mConsumerLock.lock();
+                            try
+                            {
+                                mConsumer.accept(response);
+                            }
+                            finally
+                            {
+                                mConsumerLock.unlock();
+                            }
+                            if (!self && collection)
+                            {
+                                if (node.mDepth + 1 < mMaxDepth)
+                                {
+                                    children.add(new Node(href, node.mDepth + 1));
+                                }
+                                else
+                                {
+                                    mTruncated = true;
+                                }
+                            }
+                        }
+                    }
+                }
+                finally
+                {
+                    try
+                    {
+                        if (mError != null)
+                        {
+                            // don't drain the remainder of a listing after the crawl has failed
+                            reader.cancel();
+                        }
+                        reader.close();
+                    }
+                    finally
+                    {
+                        unregister(reader);
+                    }
+                }
+            }
+            finally
+            {
+                mHostLimit.release(node.mUri);
+            }
+        }
+
+
+        /**
+         * Marks the given href as visited and takes a resource from the budget. Returns <code>false</code> if the resource has been visited already or the
+         * budget is exhausted. Pass <code>null</code> to take a resource from the budget only.
+         */
+        private boolean visit(URI href)
+        {
+            mLock.lock();
+            try
+            {
+                if (href != null && mVisited.contains(key(href)))
+                {
+                    return false;
+                }
+                if (mResources >= mMaxResources)
+                {
+                    mTruncated = true;
+                    return false;
+                }
+                if (href != null)
+                {
+                    mVisited.add(key(href));
+                }
+                mResources += 1;
+                return true;
+            }
+            finally
+            {
+                mLock.unlock();
+            }
+        }
+
+
+        /**
+         * Registers a reader until it has been closed, so it can be cancelled. A reader that's registered after the crawl has failed is cancelled right
+         * away.
+         */
+        private void register(MultistatusResponseReader reader)
+        {
+            mLock.lock();
+            try
+            {
+                mReaders.add(reader);
+            }
+            finally
+            {
+                mLock.unlock();
+            }
+            if (mError != null)
+            {
+                reader.cancel();
+            }
+        }
+
+
+        private void unregister(MultistatusResponseReader reader)
+        {
+            mLock.lock();
+            try
+            {
+                mReaders.remove(reader);
+            }
+            finally
+            {
+                mLock.unlock();
+            }
+        }
+
+
+        /**
+         * Cancels all readers that are currently in use, which unblocks workers that wait for the server.
+         */
+        void cancel()
+        {
+            mLock.lock();
+            try
+            {
+                for (MultistatusResponseReader reader : mReaders)
+                {
+                    reader.cancel();
+                }
+            }
+            finally
+            {
+                mLock.unlock();
+            }
+        }
+
+
+        void fail(Exception e)
+        {
+            mLock.lock();
+            try
+            {
+                if (mError == null)
+                {
+                    mError = e;
+                }
+                mChanged.signalAll();
+            }
+            finally
+            {
+                mLock.unlock();
+            }
+        }
+
+
+        private String key(URI href)
+        {
+            String uri = mRoot.resolve(href).normalize().toString();
+            return uri.endsWith("/") ? uri.substring(0, uri.length() - 1) : uri;
+        }
+    }
+}
@@ -0,0 +1,429 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient.multiget;
+
+import org.dmfs.httpessentials.exceptions.UnexpectedStatusException;
+import org.dmfs.jems2.Generator;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * Adjusts the number of hrefs per multiget batch to the observed performance of the server.
+ * <p>
+ * The batch size is increased by a constant step after every batch that completed within the target latency. It's reduced to three quarters after a batch
+ * that took longer and it's halved when the server appears to be overloaded, i.e. the request timed out or the server responded with
+ * <code>413 Payload Too Large</code> or <code>507 Insufficient Storage</code>. The batch size never leaves the configured range.
+ * </p>
+ * <p>
+ * All changes are reported to an optional {@link Listener}, the counters can be read at any time to export them as metrics. Instances are thread-safe and can
+ * be shared by concurrent fetches from the same server.
+ * </p>
+ */
+public final class AdaptiveBatchSize implements Generator<Integer>
+{
+    /**
+     * The default minimum number of hrefs per batch.
+     */
+    public final static int DEFAULT_MIN_SIZE = 50;
+
+    /**
+     * The default maximum number of hrefs per batch.
+     */
+    public final static int DEFAULT_MAX_SIZE = 1000;
+
+    /**
+     * The default number of hrefs to add after a fast batch.
+     */
+    public final static int DEFAULT_INCREASE = 50;
+
+    /**
+     * The default target latency in milliseconds.
+     */
+    public final static long DEFAULT_TARGET_LATENCY_MILLIS = 2000;
+
+    private final static int STATUS_PAYLOAD_TOO_LARGE = 413;
+    private final static int STATUS_INSUFFICIENT_STORAGE = 507;
+
+
+    /**
+     * The reason of a change of the batch size.
+     */
+    public enum Reason
+    {
+        /**
+         * A batch completed within the target latency.
+         */
+        FAST,
+
+        /**
+         * A batch took longer than the target latency.
+         */
+        SLOW,
+
+        /**
+         * The server didn't handle a batch, because it's overloaded or the batch was too large.
+         */
+        OVERLOAD
+    }
+
+
+    /**
+     * Receives changes of the batch size.
+     */
+    public interface Listener
+    {
+        /**
+         * Called after the batch size has been changed.
+         *
+         * @param previous
+         *     The previous batch size.
+         * @param current
+         *     The new batch size.
+         * @param reason
+         *     The {@link Reason} of the change.
+         */
+        void onBatchSizeChanged(int previous, int current, Reason reason);
+    }
+
+
+    private final int mMinSize;
+    private final int mMaxSize;
+    private final int mIncrease;
+    private final long mTargetLatencyNanos;
+    private final Listener mListener;
+    private final Lock mLock = new ReentrantLock();
+
+    private int mSize;
+    private long mBatches;
+    private long mFailures;
+    private long mOverloads;
+    private long mHrefs;
+    private long mBytes;
+    private long mLatencyNanos;
+
+
+    /**
+     * Creates an {@link AdaptiveBatchSize} with the default settings, starting at {@link #DEFAULT_MIN_SIZE}.
+     */
+    public AdaptiveBatchSize()
+    {
+        this(DEFAULT_MIN_SIZE, DEFAULT_MAX_SIZE, DEFAULT_INCREASE, DEFAULT_TARGET_LATENCY_MILLIS, TimeUnit.MILLISECONDS, (previous, current, reason) ->
+        {
+        });
+    }
+
+
+    /**
+     * Creates an {@link AdaptiveBatchSize} that always returns the given size. The counters are still updated.
+     *
+     * @param size
+     *     The number of hrefs per batch.
+     */
+    public AdaptiveBatchSize(int size)
+    {
+        this(size, size, 0, Long.MAX_VALUE, TimeUnit.NANOSECONDS, (previous, current, reason) ->
+        {
+        });
+    }
+
+
+    /**
+     * Creates an {@link AdaptiveBatchSize}, starting at the minimum size.
+     *
+     * @param minSize
+     *     The minimum number of hrefs per batch.
+     * @param maxSize
+     *     The maximum number of hrefs per batch.
+     * @param increase
+     *     The number of hrefs to add after a batch that completed within the target latency.
+     * @param targetLatency
+     *     The target latency of a batch.
+     * @param unit
+     *     The {@link TimeUnit} of the target latency.
+     * @param listener
+     *     The {@link Listener} to notify of changes.
+     */
+    public AdaptiveBatchSize(int minSize, int maxSize, int increase, long targetLatency, TimeUnit unit, Listener listener)
+    {
+        if (minSize < 1 || maxSize < minSize)
+        {
+            throw new IllegalArgumentException("Invalid batch size range " + minSize + " - " + maxSize);
+        }
+        if (increase < 0)
+        {
+            throw new IllegalArgumentException("Increase must not be negative");
+        }
+        mMinSize = minSize;
+        mMaxSize = maxSize;
+        mIncrease = increase;
+        mTargetLatencyNanos = unit.toNanos(targetLatency);
+        mListener = listener;
+        mSize = minSize;
+    }
+
+
+    /**
+     * Returns the number of hrefs of the next batch.
+     */
+    @Override
+    public Integer next()
+    {
+        mLock.lock();
+        try
+        {
+            return mSize;
+        }
+        finally
+        {
+            mLock.unlock();
+        }
+    }
+
+
+    /**
+     * Records a successful batch.
+     *
+     * @param hrefs
+     *     The number of hrefs of the batch.
+     * @param latencyNanos
+     *     The time it took to execute the request in nanoseconds.
+     * @param bytes
+     *     The size of the response body.
+     */
+    public void succeeded(int hrefs, long latencyNanos, long bytes)
+    {
+        int previous;
+        int current;
+        mLock.lock();
+        try
+        {
+            mBatches += 1;
+            mHrefs += hrefs;
+            mBytes += bytes;
+            // exponentially weighted moving average
+            mLatencyNanos = mLatencyNanos == 0 ? latencyNanos : (mLatencyNanos * 7 + latencyNanos) / 8;
+
+            previous = mSize;
+            if (latencyNanos <= mTargetLatencyNanos)
+            {
+                // only grow if the batch was actually full
+                if (hrefs >= mSize)
+                {
+                    mSize = (int) Math.min(mMaxSize, (long) mSize + mIncrease);
+                }
+            }
+            else
+            {
+                mSize = Math.max(mMinSize, mSize * 3 / 4);
+            }
+            current = mSize;
+        }
+        finally
+        {
+            mLock.unlock();
+        }
+        report(previous, current, latencyNanos <= mTargetLatencyNanos ? Reason.FAST : Reason.SLOW);
+    }
+
+
+    /**
+     * Records a failed batch.
+     *
+     * @param hrefs
+     *     The number of hrefs of the batch.
+     * @param error
+     *     The error that has been thrown.
+     *
+     * @return <code>true</code> if the failure indicates an overloaded server and the batch size has been reduced, so the hrefs of the batch should be fetched
+     *     again in smaller batches, <code>false</code> if the error should be passed on.
+     */
+    public boolean failed(int hrefs, Exception error)
+    {
+        boolean overload = isOverload(error);
+        int previous;
+        int current;
+        mLock.lock();
+        try
+        {
+            mFailures += 1;
+            previous = mSize;
+            if (overload)
+            {
+                mOverloads += 1;
+                // base the new size on the failed batch, it may have been smaller than the current size
+                mSize = Math.max(mMinSize, Math.min(mSize, hrefs) / 2);
+            }
+            current = mSize;
+        }
+        finally
+        {
+            mLock.unlock();
+        }
+        report(previous, current, Reason.OVERLOAD);
+        return overload && hrefs > current;
+    }
+
+
+    /**
+     * Returns the current number of hrefs per batch.
+     */
+    public int batchSize()
+    {
+        mLock.lock();
+        try
+        {
+            return mSize;
+        }
+        finally
+        {
+            mLock.unlock();
+        }
+    }
+
+
+    /**
+     * Returns the number of successful batches.
+     */
+    public long batches()
+    {
+        mLock.lock();
+        try
+        {
+            return mBatches;
+        }
+        finally
+        {
+            mLock.unlock();
+        }
+    }
+
+
+    /**
+     * Returns the number of failed batches, including overloads.
+     */
+    public long failures()
+    {
+        mLock.lock();
+        try
+        {
+            return mFailures;
+        }
+        finally
+        {
+            mLock.unlock();
+        }
+    }
+
+
+    /**
+     * Returns the number of batches that failed because the server was overloaded.
+     */
+    public long overloads()
+    {
+        mLock.lock();
+        try
+        {
+            return mOverloads;
+        }
+        finally
+        {
+            mLock.unlock();
+        }
+    }
+
+
+    /**
+     * Returns the number of hrefs fetched in successful batches.
+     */
+    public long hrefs()
+    {
+        mLock.lock();
+        try
+        {
+            return mHrefs;
+        }
+        finally
+        {
+            mLock.unlock();
+        }
+    }
+
+
+    /**
+     * Returns the number of response bytes of successful batches.
+     */
+    public long bytes()
+    {
+        mLock.lock();
+        try
+        {
+            return mBytes;
+        }
+        finally
+        {
+            mLock.unlock();
+        }
+    }
+
+
+    /**
+     * Returns the moving average of the latency of successful batches in nanoseconds.
+     */
+    public long averageLatencyNanos()
+    {
+        mLock.lock();
+        try
+        {
+            return mLatencyNanos;
+        }
+        finally
+        {
+            mLock.unlock();
+        }
+    }
+
+
+    private void report(int previous, int current, Reason reason)
+    {
+        if (previous != current)
+        {
+            mListener.onBatchSizeChanged(previous, current, reason);
+        }
+    }
+
+
+    private static boolean isOverload(Exception error)
+    {
+        if (error instanceof SocketTimeoutException)
+        {
+            return true;
+        }
+        if (error instanceof UnexpectedStatusException)
+        {
+            int status = ((UnexpectedStatusException) error).status().statusCode();
+            return status == STATUS_PAYLOAD_TOO_LARGE || status == STATUS_INSUFFICIENT_STORAGE;
+        }
+        return false;
+    }
+}
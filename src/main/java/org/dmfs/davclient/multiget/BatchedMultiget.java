@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient.multiget;
+
+import org.dmfs.dav.rfc4918.Response;
+import org.dmfs.davclient.MultistatusResponseReader;
+import org.dmfs.davclient.ResponseIterator;
+import org.dmfs.davclient.UncheckedProtocolException;
+import org.dmfs.httpessentials.client.HttpRequestExecutor;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+
+/**
+ * Fetches any number of hrefs with multiget reports of a bounded size.
+ * <p>
+ * The hrefs are deduplicated and split into batches. Each batch is fetched with a separate multiget report when the {@link Response}s of the previous batch
+ * have been consumed, so there is only one request in flight at a time. The {@link Response}s of all batches are returned as one continuous sequence.
+ * </p>
+ * <p>
+ * {@link IOException}s are rethrown as {@link UncheckedIOException}s, {@link ProtocolError}s and all other checked exceptions of the
+ * {@link HttpRequestExecutor} as {@link UncheckedProtocolException}s.
+ * </p>
+ */
+public final class BatchedMultiget implements Iterable<Response>
+{
+    /**
+     * The default number of hrefs per multiget report.
+     */
+    public final static int DEFAULT_BATCH_SIZE = 100;
+
+    private final HttpRequestExecutor mExecutor;
+    private final URI mCollection;
+    private final MultigetBatch mBatch;
+    private final Iterable<URI> mHrefs;
+    private final AdaptiveBatchSize mBatchSize;
+
+
+    /**
+     * Creates a {@link BatchedMultiget} with batches of {@link #DEFAULT_BATCH_SIZE} hrefs.
+     *
+     * @param executor
+     *     The {@link HttpRequestExecutor} to execute the reports.
+     * @param collection
+     *     The {@link URI} of the collection to send the reports to.
+     * @param batch
+     *     The {@link MultigetBatch} that creates the report of each batch.
+     * @param hrefs
+     *     The hrefs to fetch.
+     */
+    public BatchedMultiget(HttpRequestExecutor executor, URI collection, MultigetBatch batch, Iterable<URI> hrefs)
+    {
+        this(executor, collection, batch, hrefs, DEFAULT_BATCH_SIZE);
+    }
+
+
+    /**
+     * Creates a {@link BatchedMultiget}.
+     *
+     * @param executor
+     *     The {@link HttpRequestExecutor} to execute the reports.
+     * @param collection
+     *     The {@link URI} of the collection to send the reports to.
+     * @param batch
+     *     The {@link MultigetBatch} that creates the report of each batch.
+     * @param hrefs
+     *     The hrefs to fetch.
+     * @param batchSize
+     *     The maximum number of hrefs per report.
+     */
+    public BatchedMultiget(HttpRequestExecutor executor, URI collection, MultigetBatch batch, Iterable<URI> hrefs, int batchSize)
+    {
+        this(executor, collection, batch, hrefs, new AdaptiveBatchSize(batchSize));
+    }
+
+
+    /**
+     * Creates a {@link BatchedMultiget} that takes the size of each batch from the given {@link AdaptiveBatchSize}.
+     * <p>
+     * Every batch is reported to the {@link AdaptiveBatchSize}. If a batch fails because the server is overloaded, its hrefs are fetched again in smaller
+     * batches, unless the minimum batch size has been reached already.
+     * </p>
+     *
+     * @param executor
+     *     The {@link HttpRequestExecutor} to execute the reports.
+     * @param collection
+     *     The {@link URI} of the collection to send the reports to.
+     * @param batch
+     *     The {@link MultigetBatch} that creates the report of each batch.
+     * @param hrefs
+     *     The hrefs to fetch.
+     * @param batchSize
+     *     The {@link AdaptiveBatchSize} that determines the number of hrefs per report.
+     */
+    public BatchedMultiget(HttpRequestExecutor executor, URI collection, MultigetBatch batch, Iterable<URI> hrefs, AdaptiveBatchSize batchSize)
+    {
+        mExecutor = executor;
+        mCollection = collection;
+        mBatch = batch;
+        mHrefs = hrefs;
+        mBatchSize = batchSize;
+    }
+
+
+    /**
+     * Returns an {@link Iterator} of the {@link Response}s of all batches. Iterating all elements closes all responses. Use {@link #responses()} if you may
+     * stop early.
+     *
+     * @return An {@link Iterator} of {@link Response}s.
+     */
+    @Override
+    public Iterator<Response> iterator()
+    {
+        return new BatchIterator();
+    }
+
+
+    /**
+     * Returns a sequential {@link Stream} of the {@link Response}s of all batches. Closing the {@link Stream} closes the current response.
+     *
+     * @return A {@link Stream} of {@link Response}s.
+     */
+    public Stream<Response> responses()
+    {
+        BatchIterator iterator = new BatchIterator();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(iterator::close);
+    }
+
+
+    private final class BatchIterator implements Iterator<Response>
+    {
+        private final HrefBatches mBatches = new HrefBatches(mHrefs.iterator(), mBatchSize);
+        private MultistatusResponseReader mReader;
+        private Iterator<Response> mResponses;
+        private int mBatchHrefs;
+        private long mLatencyNanos;
+
+
+        @Override
+        public boolean hasNext()
+        {
+            while (mResponses == null || !mResponses.hasNext())
+            {
+                if (mReader != null)
+                {
+                    // the current batch has been consumed completely
+                    MultistatusResponseReader reader = mReader;
+                    close();
+                    mBatchSize.succeeded(mBatchHrefs, mLatencyNanos, reader.bytesRead());
+                }
+                if (!mBatches.hasNext())
+                {
+                    return false;
+                }
+                List<URI> batch = mBatches.next();
+                long start = System.nanoTime();
+                MultistatusResponseReader reader = execute(batch);
+                if (reader != null)
+                {
+                    mLatencyNanos = System.nanoTime() - start;
+                    mBatchHrefs = batch.size();
+                    mReader = reader;
+                    mResponses = new ResponseIterator(reader);
+                }
+            }
+            return true;
+        }
+
+
+        @Override
+        public Response next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException("No more responses");
+            }
+            return mResponses.next();
+        }
+
+
+        /**
+         * Executes the report of the given batch. Returns <code>null</code> if the batch failed and will be retried.
+         */
+        private MultistatusResponseReader execute(List<URI> hrefs)
+        {
+            try
+            {
+                return mExecutor.execute(mCollection, mBatch.report(hrefs));
+            }
+            catch (Exception e)
+            {
+                if (mBatchSize.failed(hrefs.size(), e))
+                {
+                    mBatches.retry(hrefs);
+                    return null;
+                }
+                if (e instanceof IOException)
+                {
+                    throw new UncheckedIOException((IOException) e);
+                }
+                if (e instanceof RuntimeException)
+                {
+                    throw (RuntimeException) e;
+                }
+                throw new UncheckedProtocolException(e);
+            }
+        }
+
+
+        private void close()
+        {
+            MultistatusResponseReader reader = mReader;
+            mReader = null;
+            mResponses = null;
+            if (reader != null)
+            {
+                try
+                {
+                    reader.close();
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient.multiget;
+
+import org.dmfs.davclient.DavContext;
+import org.dmfs.davclient.rfc3253.MultiStatusReport;
+import org.dmfs.davclient.rfc4791.CalendarMultigetReport;
+import org.dmfs.xmlobjects.ElementDescriptor;
+
+import java.net.URI;
+import java.util.List;
+
+
+/**
+ * A {@link MultigetBatch} that creates {@link CalendarMultigetReport}s for the given properties.
+ */
+public final class CalendarMultigetBatch implements MultigetBatch
+{
+    private final DavContext mDavContext;
+    private final ElementDescriptor<?>[] mProperties;
+
+
+    /**
+     * Creates a {@link CalendarMultigetBatch}.
+     *
+     * @param davContext
+     *     A {@link DavContext}.
+     * @param properties
+     *     The {@link ElementDescriptor}s of the properties to request.
+     */
+    public CalendarMultigetBatch(DavContext davContext, ElementDescriptor<?>... properties)
+    {
+        mDavContext = davContext;
+        mProperties = properties.clone();
+    }
+
+
+    @Override
+    public MultiStatusReport report(List<URI> hrefs)
+    {
+        return new CalendarMultigetReport(mDavContext).addHrefs(hrefs.toArray(new URI[0])).addProperties(mProperties);
+    }
+}
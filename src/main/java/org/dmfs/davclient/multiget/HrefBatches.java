@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient.multiget;
+
+import org.dmfs.jems2.Generator;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+
+/**
+ * An {@link Iterator} of batches of hrefs. Each href is returned only once, duplicates are dropped.
+ * <p>
+ * The size of each batch is taken from a {@link Generator}, so it can change from batch to batch. Hrefs of a failed batch can be returned with {@link
+ * #retry(List)} to include them in the next batches.
+ * </p>
+ * <p>
+ * If the hrefs are {@link IncrementalHrefs}, a batch ends early when no further href is available at the moment.
+ * </p>
+ */
+public final class HrefBatches implements Iterator<List<URI>>
+{
+    private final Iterator<URI> mHrefs;
+    private final Generator<Integer> mBatchSize;
+    private final Set<URI> mSeen = new HashSet<>();
+    private final Deque<URI> mRetries = new ArrayDeque<>();
+    private List<URI> mNext;
+
+
+    /**
+     * Creates {@link HrefBatches} of the given hrefs with a fixed size.
+     *
+     * @param hrefs
+     *     The hrefs to split into batches.
+     * @param batchSize
+     *     The maximum number of hrefs per batch.
+     */
+    public HrefBatches(Iterator<URI> hrefs, int batchSize)
+    {
+        this(hrefs, new AdaptiveBatchSize(batchSize));
+    }
+
+
+    /**
+     * Creates {@link HrefBatches} of the given hrefs.
+     *
+     * @param hrefs
+     *     The hrefs to split into batches.
+     * @param batchSize
+     *     A {@link Generator} of the maximum number of hrefs of the next batch.
+     */
+    public HrefBatches(Iterator<URI> hrefs, Generator<Integer> batchSize)
+    {
+        mHrefs = hrefs;
+        mBatchSize = batchSize;
+    }
+
+
+    @Override
+    public boolean hasNext()
+    {
+        if (mNext == null)
+        {
+            int size = Math.max(1, mBatchSize.next());
+            List<URI> batch = new ArrayList<>(size);
+            while (batch.size() < size && !mRetries.isEmpty())
+            {
+                batch.add(mRetries.removeFirst());
+            }
+            while (batch.size() < size && (batch.isEmpty() || available()) && mHrefs.hasNext())
+            {
+                URI href = mHrefs.next();
+                if (mSeen.add(href))
+                {
+                    batch.add(href);
+                }
+            }
+            mNext = batch;
+        }
+        return !mNext.isEmpty();
+    }
+
+
+    @Override
+    public List<URI> next()
+    {
+        if (!hasNext())
+        {
+            throw new NoSuchElementException("No more batches");
+        }
+        List<URI> result = mNext;
+        mNext = null;
+        return result;
+    }
+
+
+    /**
+     * Returns whether the next href can be taken without waiting for it.
+     */
+    private boolean available()
+    {
+        return !(mHrefs instanceof IncrementalHrefs) || ((IncrementalHrefs) mHrefs).available();
+    }
+
+
+    /**
+     * Returns the hrefs of a batch that couldn't be fetched, so they are returned again before any other hrefs. The hrefs are not deduplicated again.
+     *
+     * @param hrefs
+     *     The hrefs of a batch returned by {@link #next()}.
+     */
+    public void retry(List<URI> hrefs)
+    {
+        if (mNext != null)
+        {
+            // the next batch has been pre-fetched already, put it back, so the retries come first
+            for (int i = mNext.size() - 1; i >= 0; --i)
+            {
+                mRetries.addFirst(mNext.get(i));
+            }
+            mNext = null;
+        }
+        for (int i = hrefs.size() - 1; i >= 0; --i)
+        {
+            mRetries.addFirst(hrefs.get(i));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient.multiget;
+
+import java.net.URI;
+import java.util.Iterator;
+
+
+/**
+ * An {@link Iterator} of hrefs that are still being produced while they are fetched, like the hrefs of a listing that's still being read. {@link #hasNext()}
+ * blocks until the next href or the end is known.
+ * <p>
+ * {@link HrefBatches} doesn't wait for such hrefs to fill a batch. A batch ends as soon as no further href is {@link #available()}, so the hrefs that are known
+ * are fetched right away.
+ * </p>
+ */
+public interface IncrementalHrefs extends Iterator<URI>
+{
+    /**
+     * Returns whether {@link #hasNext()} returns without blocking.
+     */
+    boolean available();
+}
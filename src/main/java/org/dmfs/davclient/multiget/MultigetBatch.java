@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient.multiget;
+
+import org.dmfs.davclient.rfc3253.MultiStatusReport;
+
+import java.net.URI;
+import java.util.List;
+
+
+/**
+ * Creates the multiget {@link MultiStatusReport} for a batch of hrefs.
+ */
+public interface MultigetBatch
+{
+    /**
+     * Returns a new {@link MultiStatusReport} that requests the given hrefs.
+     *
+     * @param hrefs
+     *     The hrefs of the batch.
+     *
+     * @return A {@link MultiStatusReport}.
+     */
+    MultiStatusReport report(List<URI> hrefs);
+}
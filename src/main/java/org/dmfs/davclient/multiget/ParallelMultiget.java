@@ -0,0 +1,528 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient.multiget;
+
+import org.dmfs.dav.rfc4918.Response;
+import org.dmfs.davclient.DavContext;
+import org.dmfs.davclient.HostConcurrencyLimit;
+import org.dmfs.davclient.MultistatusResponseReader;
+import org.dmfs.davclient.SingleFlight;
+import org.dmfs.davclient.UncheckedProtocolException;
+import org.dmfs.davclient.async.DavThreads;
+import org.dmfs.httpessentials.client.HttpRequestExecutor;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.httpessentials.exceptions.ProtocolException;
+import org.dmfs.jems2.Procedure;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * Fetches any number of hrefs with multiget reports of a bounded size, running several reports at the same time.
+ * <p>
+ * The hrefs are deduplicated and split into batches, just like {@link BatchedMultiget} does. Up to the given number of batches are fetched concurrently, in
+ * addition the number of concurrent requests to the host of the collection is limited by a {@link HostConcurrencyLimit}, which can be shared with other
+ * components.
+ * </p>
+ * <p>
+ * All {@link Response}s are passed to a single {@link ResponseConsumer}, which is never called concurrently. In unordered mode {@link Response}s are passed to
+ * the consumer as soon as they have been parsed. In ordered mode the {@link Response}s of a batch are passed to the consumer when all previous batches have
+ * been consumed, which requires to buffer the {@link Response}s of batches that arrive early. Hrefs of batches that are fetched again after an overload are
+ * delivered in the position of their new batch.
+ * </p>
+ */
+public final class ParallelMultiget
+{
+    /**
+     * The default number of concurrent reports.
+     */
+    public final static int DEFAULT_PARALLELISM = 4;
+
+    private final HttpRequestExecutor mExecutor;
+    private final URI mCollection;
+    private final MultigetBatch mBatch;
+    private final Iterable<URI> mHrefs;
+    private final AdaptiveBatchSize mBatchSize;
+    private final int mParallelism;
+    private final HostConcurrencyLimit mHostLimit;
+    private final Executor mThreads;
+
+
+    /**
+     * Creates a {@link ParallelMultiget} that runs up to {@link #DEFAULT_PARALLELISM} reports of {@link BatchedMultiget#DEFAULT_BATCH_SIZE} hrefs on the
+     * {@link DavThreads#sharedExecutor() shared threads}, limited by the {@link HostConcurrencyLimit} of the given {@link DavContext}.
+     *
+     * @param executor
+     *     The {@link HttpRequestExecutor} to execute the reports, must be thread-safe.
+     * @param davContext
+     *     The {@link DavContext} that provides the {@link HostConcurrencyLimit}.
+     * @param collection
+     *     The {@link URI} of the collection to send the reports to.
+     * @param batch
+     *     The {@link MultigetBatch} that creates the report of each batch.
+     * @param hrefs
+     *     The hrefs to fetch.
+     */
+    public ParallelMultiget(HttpRequestExecutor executor, DavContext davContext, URI collection, MultigetBatch batch, Iterable<URI> hrefs)
+    {
+        this(executor, collection, batch, hrefs, new AdaptiveBatchSize(BatchedMultiget.DEFAULT_BATCH_SIZE), DEFAULT_PARALLELISM,
+            davContext.getHostConcurrencyLimit(),
+            DavThreads.sharedExecutor());
+    }
+
+
+    /**
+     * Creates a {@link ParallelMultiget} with batches of a fixed size.
+     *
+     * @param executor
+     *     The {@link HttpRequestExecutor} to execute the reports, must be thread-safe.
+     * @param collection
+     *     The {@link URI} of the collection to send the reports to.
+     * @param batch
+     *     The {@link MultigetBatch} that creates the report of each batch.
+     * @param hrefs
+     *     The hrefs to fetch.
+     * @param batchSize
+     *     The maximum number of hrefs per report.
+     * @param parallelism
+     *     The maximum number of concurrent reports.
+     * @param hostLimit
+     *     The {@link HostConcurrencyLimit} of the host of the collection.
+     * @param threads
+     *     The {@link Executor} to run the reports on. It must be able to run <code>parallelism</code> tasks at the same time.
+     */
+    public ParallelMultiget(HttpRequestExecutor executor, URI collection, MultigetBatch batch, Iterable<URI> hrefs, int batchSize, int parallelism,
+                            HostConcurrencyLimit hostLimit, Executor threads)
+    {
+        this(executor, collection, batch, hrefs, new AdaptiveBatchSize(batchSize), parallelism, hostLimit, threads);
+    }
+
+
+    /**
+     * Creates a {@link ParallelMultiget}.
+     *
+     * @param executor
+     *     The {@link HttpRequestExecutor} to execute the reports, must be thread-safe.
+     * @param collection
+     *     The {@link URI} of the collection to send the reports to.
+     * @param batch
+     *     The {@link MultigetBatch} that creates the report of each batch.
+     * @param hrefs
+     *     The hrefs to fetch.
+     * @param batchSize
+     *     The {@link AdaptiveBatchSize} that determines the number of hrefs per report. Every batch is reported to it. If a batch fails because the server
+     *     is overloaded, its hrefs are fetched again in smaller batches, unless the minimum batch size has been reached already.
+     * @param parallelism
+     *     The maximum number of concurrent reports.
+     * @param hostLimit
+     *     The {@link HostConcurrencyLimit} of the host of the collection.
+     * @param threads
+     *     The {@link Executor} to run the reports on. It must be able to run <code>parallelism</code> tasks at the same time.
+     */
+    public ParallelMultiget(HttpRequestExecutor executor, URI collection, MultigetBatch batch, Iterable<URI> hrefs, AdaptiveBatchSize batchSize,
+                            int parallelism, HostConcurrencyLimit hostLimit, Executor threads)
+    {
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        mExecutor = executor;
+        mCollection = collection;
+        mBatch = batch;
+        mHrefs = hrefs;
+        mBatchSize = batchSize;
+        mParallelism = parallelism;
+        mHostLimit = hostLimit;
+        mThreads = threads;
+    }
+
+
+    /**
+     * Fetches all hrefs and passes the {@link Response}s to the given {@link ResponseConsumer}. This blocks until all batches have been consumed or one of them
+     * failed. If a batch fails no new batches are started and the error is thrown once the running batches have completed.
+     * <p>
+     * If the calling thread is interrupted, the running reports are cancelled and an {@link InterruptedIOException} is thrown once all workers have stopped.
+     * </p>
+     *
+     * @param consumer
+     *     The {@link ResponseConsumer} to receive the {@link Response}s.
+     * @param ordered
+     *     Whether the {@link Response}s must be passed to the consumer in the order of the hrefs.
+     *
+     * @throws UncheckedProtocolException
+     *     If the {@link HttpRequestExecutor} threw a checked exception other than the declared ones.
+     */
+    public void run(ResponseConsumer consumer, boolean ordered) throws IOException, ProtocolError, ProtocolException
+    {
+        run(consumer, ordered, error ->
+        {
+            // the error is thrown when the running batches have completed
+        });
+    }
+
+
+    /**
+     * Like {@link #run(ResponseConsumer, boolean)}, but also passes the first error to the given {@link Procedure} as soon as it occurs, before the running
+     * batches have completed. This allows a producer of hrefs to stop early, for instance by ending a blocking href {@link Iterable}.
+     *
+     * @param consumer
+     *     The {@link ResponseConsumer} to receive the {@link Response}s.
+     * @param ordered
+     *     Whether the {@link Response}s must be passed to the consumer in the order of the hrefs.
+     * @param onFailure
+     *     A {@link Procedure} that's called with the first error on the thread that failed.
+     *
+     * @throws UncheckedProtocolException
+     *     If the {@link HttpRequestExecutor} threw a checked exception other than the declared ones.
+     */
+    public void run(ResponseConsumer consumer, boolean ordered, Procedure<? super Exception> onFailure) throws IOException, ProtocolError, ProtocolException
+    {
+        Run run = new Run(consumer, ordered, onFailure);
+        CountDownLatch done = new CountDownLatch(mParallelism);
+        for (int i = 0; i < mParallelism; ++i)
+        {
+            mThreads.execute(() ->
+            {
+                try
+                {
+                    run.work();
+                }
+                finally
+                {
+                    done.countDown();
+                }
+            });
+        }
+
+        try
+        {
+            done.await();
+        }
+        catch (InterruptedException e)
+        {
+            run.fail(e);
+            run.cancel();
+            awaitUninterruptibly(done);
+            Thread.currentThread().interrupt();
+            InterruptedIOException exception = new InterruptedIOException("interrupted while waiting for the multiget to complete");
+            exception.initCause(e);
+            throw exception;
+        }
+
+        SingleFlight.rethrow(run.error());
+    }
+
+
+    private static void awaitUninterruptibly(CountDownLatch latch)
+    {
+        boolean interrupted = false;
+        while (true)
+        {
+            try
+            {
+                latch.await();
+                break;
+            }
+            catch (InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * The state of a single call to {@link #run(ResponseConsumer, boolean)}.
+     */
+    private final class Run
+    {
+        private final HrefBatches mBatches = new HrefBatches(mHrefs.iterator(), mBatchSize);
+        private final ResponseConsumer mConsumer;
+        private final boolean mOrdered;
+        private final Procedure<? super Exception> mOnFailure;
+        private final Lock mBatchLock = new ReentrantLock();
+        private final Lock mConsumerLock = new ReentrantLock();
+        private final Map<Integer, List<Response>> mPending = new HashMap<>();
+        private final Lock mReadersLock = new ReentrantLock();
+        private final Set<MultistatusResponseReader> mReaders = new HashSet<>();
+
+        private int mNextBatch;
+        private int mNextDelivery;
+        private volatile Exception mError;
+
+
+        Run(ResponseConsumer consumer, boolean ordered, Procedure<? super Exception> onFailure)
+        {
+            mConsumer = consumer;
+            mOrdered = ordered;
+            mOnFailure = onFailure;
+        }
+
+
+        void work()
+        {
+            try
+            {
+                while (mError == null)
+                {
+                    List<URI> batch;
+                    int index;
+                    // the hrefs may come from a blocking iterator, so don't use a monitor here
+                    mBatchLock.lock();
+                    try
+                    {
+                        if (!mBatches.hasNext())
+                        {
+                            return;
+                        }
+                        batch = mBatches.next();
+                        index = mNextBatch++;
+                    }
+                    finally
+                    {
+                        mBatchLock.unlock();
+                    }
+                    fetch(batch, index);
+                }
+            }
+            catch (Exception e)
+            {
+                fail(e);
+            }
+        }
+
+
+        private void fetch(List<URI> batch, int index) throws Exception
+        {
+            List<Response> responses = mOrdered ? new ArrayList<>(batch.size()) : null;
+            mHostLimit.acquire(mCollection);
+            try
+            {
+                long start = System.nanoTime();
+                MultistatusResponseReader reader;
+                try
+                {
+                    reader = mExecutor.execute(mCollection, mBatch.report(batch));
+                }
+                catch (Exception e)
+                {
+                    if (!mBatchSize.failed(batch.size(), e))
+                    {
+                        throw e;
+                    }
+                    mBatchLock.lock();
+                    try
+                    {
+                        mBatches.retry(batch);
+                    }
+                    finally
+                    {
+                        mBatchLock.unlock();
+                    }
+                    // the hrefs will be delivered with a later batch
+                    if (responses != null)
+                    {
+                        deliver(index, responses);
+                    }
+                    return;
+                }
+                long latency = System.nanoTime() - start;
+                try
+                {
+                    register(reader);
+                    while (mError == null && reader.hasNextResponse())
+                    {
+                        Response response = reader.getNextResponse(null);
+                        if (responses != null)
+                        {
+                            responses.add(response);
+                        }
+                        else
+                        {
+                            mConsumerLock.lock();
+                            try
+                            {
+                                mConsumer.accept(response);
+                            }
+                            finally
+                            {
+                                mConsumerLock.unlock();
+                            }
+                        }
+                    }
+                }
+                finally
+                {
+                    try
+                    {
+                        if (mError != null)
+                        {
+                            // don't drain the remainder of a run that has failed
+                            reader.cancel();
+                        }
+                        reader.close();
+                    }
+                    finally
+                    {
+                        unregister(reader);
+                    }
+                }
+                if (mError == null)
+                {
+                    mBatchSize.succeeded(batch.size(), latency, reader.bytesRead());
+                }
+            }
+            finally
+            {
+                mHostLimit.release(mCollection);
+            }
+
+            if (responses != null)
+            {
+                deliver(index, responses);
+            }
+        }
+
+
+        private void deliver(int index, List<Response> responses) throws IOException, ProtocolError
+        {
+            mConsumerLock.lock();
+            try
+            {
+                mPending.put(index, responses);
+                List<Response> next;
+                while (mError == null && (next = mPending.remove(mNextDelivery)) != null)
+                {
+                    mNextDelivery += 1;
+                    for (Response response : next)
+                    {
+                        mConsumer.accept(response);
+                    }
+                }
+            }
+            finally
+            {
+                mConsumerLock.unlock();
+            }
+        }
+
+
+        /**
+         * Registers a reader until it has been closed, so it can be cancelled. A reader that's registered after the run has failed is cancelled right away,
+         * so its remainder isn't drained.
+         */
+        private void register(MultistatusResponseReader reader)
+        {
+            mReadersLock.lock();
+            try
+            {
+                mReaders.add(reader);
+            }
+            finally
+            {
+                mReadersLock.unlock();
+            }
+            if (mError != null)
+            {
+                reader.cancel();
+            }
+        }
+
+
+        private void unregister(MultistatusResponseReader reader)
+        {
+            mReadersLock.lock();
+            try
+            {
+                mReaders.remove(reader);
+            }
+            finally
+            {
+                mReadersLock.unlock();
+            }
+        }
+
+
+        void fail(Exception e)
+        {
+            boolean first;
+            mConsumerLock.lock();
+            try
+            {
+                first = mError == null;
+                if (first)
+                {
+                    mError = e;
+                }
+                mPending.clear();
+            }
+            finally
+            {
+                mConsumerLock.unlock();
+            }
+            if (first)
+            {
+                mOnFailure.process(e);
+            }
+        }
+
+
+        /**
+         * Cancels all readers that are currently in use, which unblocks workers that wait for the server.
+         */
+        void cancel()
+        {
+            mReadersLock.lock();
+            try
+            {
+                for (MultistatusResponseReader reader : mReaders)
+                {
+                    reader.cancel();
+                }
+            }
+            finally
+            {
+                mReadersLock.unlock();
+            }
+        }
+
+
+        Exception error()
+        {
+            return mError;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient.multiget;
+
+import org.dmfs.dav.rfc4918.Response;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+
+import java.io.IOException;
+
+
+/**
+ * Receives the {@link Response}s of a multiget.
+ */
+public interface ResponseConsumer
+{
+    /**
+     * Called for every {@link Response}. Calls are never concurrent.
+     *
+     * @param response
+     *     A {@link Response}.
+     */
+    void accept(Response response) throws IOException, ProtocolError;
+}
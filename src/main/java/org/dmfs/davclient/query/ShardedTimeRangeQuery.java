@@ -0,0 +1,541 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient.query;
+
+import org.dmfs.dav.rfc4918.Response;
+import org.dmfs.davclient.DavContext;
+import org.dmfs.davclient.HostConcurrencyLimit;
+import org.dmfs.davclient.MultistatusResponseReader;
+import org.dmfs.davclient.SingleFlight;
+import org.dmfs.davclient.UncheckedProtocolException;
+import org.dmfs.davclient.async.DavThreads;
+import org.dmfs.davclient.multiget.ResponseConsumer;
+import org.dmfs.httpessentials.client.HttpRequestExecutor;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.httpessentials.exceptions.ProtocolException;
+import org.dmfs.httpessentials.exceptions.UnexpectedStatusException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * Runs a time-range query, like a calendar-query, as a number of queries over smaller windows, several of them at the same time.
+ * <p>
+ * The time range is split into consecutive windows. The size of each window adapts to the density of the results: after every window the size of the
+ * following windows is scaled, so they are expected to return about the target number of results. Windows are never smaller or larger than the configured
+ * limits.
+ * </p>
+ * <p>
+ * A window that fails with a timeout or a <code>507 Insufficient Storage</code> status is split in half and the halves are queried instead, down to the minimum
+ * window size. The size of the following windows is reduced accordingly.
+ * </p>
+ * <p>
+ * Resources that match several windows, like recurring events, are passed to the {@link ResponseConsumer} only once. The consumer is never called
+ * concurrently. The order of the {@link Response}s is undefined.
+ * </p>
+ * <p>
+ * To recognize such resources, the href of every delivered {@link Response} is kept until the query completes. A resource can match any later window, so
+ * none of them can be dropped earlier. That's roughly 100 to 200 bytes per resource, so a query over 100,000 resources holds about 10 to 20 MB of hrefs.
+ * Split such ranges into several queries if that's too much.
+ * </p>
+ */
+public final class ShardedTimeRangeQuery
+{
+    /**
+     * The default number of concurrent queries.
+     */
+    public final static int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * The default number of results a window should return.
+     */
+    public final static int DEFAULT_TARGET_RESULTS = 500;
+
+    /**
+     * The limit for scaling the window size after a single window.
+     */
+    private final static double MAX_SCALE = 4;
+
+    private final static int STATUS_INSUFFICIENT_STORAGE = 507;
+
+    private final HttpRequestExecutor mExecutor;
+    private final URI mCollection;
+    private final TimeRangeReport mReport;
+    private final long mStart;
+    private final long mEnd;
+    private final long mInitialWindow;
+    private final long mMinWindow;
+    private final long mMaxWindow;
+    private final int mTargetResults;
+    private final int mParallelism;
+    private final HostConcurrencyLimit mHostLimit;
+    private final Executor mThreads;
+
+
+    /**
+     * Creates a {@link ShardedTimeRangeQuery} that starts with windows of 30 days, runs up to {@link #DEFAULT_PARALLELISM} queries at a time on the
+     * {@link DavThreads#sharedExecutor() shared threads}, limited by the {@link HostConcurrencyLimit} of the given {@link DavContext}, and aims at
+     * {@link #DEFAULT_TARGET_RESULTS} results per window.
+     *
+     * @param executor
+     *     The {@link HttpRequestExecutor} to execute the reports, must be thread-safe.
+     * @param davContext
+     *     The {@link DavContext} that provides the {@link HostConcurrencyLimit}.
+     * @param collection
+     *     The {@link URI} of the collection to query.
+     * @param report
+     *     The {@link TimeRangeReport} that creates the report of each window.
+     * @param start
+     *     The inclusive start of the time range in milliseconds since the epoch.
+     * @param end
+     *     The exclusive end of the time range in milliseconds since the epoch.
+     */
+    public ShardedTimeRangeQuery(HttpRequestExecutor executor, DavContext davContext, URI collection, TimeRangeReport report, long start, long end)
+    {
+        this(executor, collection, report, start, end, TimeUnit.DAYS.toMillis(30), TimeUnit.DAYS.toMillis(1), TimeUnit.DAYS.toMillis(3650),
+            DEFAULT_TARGET_RESULTS, DEFAULT_PARALLELISM, davContext.getHostConcurrencyLimit(),
+            DavThreads.sharedExecutor());
+    }
+
+
+    /**
+     * Creates a {@link ShardedTimeRangeQuery}.
+     *
+     * @param executor
+     *     The {@link HttpRequestExecutor} to execute the reports, must be thread-safe.
+     * @param collection
+     *     The {@link URI} of the collection to query.
+     * @param report
+     *     The {@link TimeRangeReport} that creates the report of each window.
+     * @param start
+     *     The inclusive start of the time range in milliseconds since the epoch.
+     * @param end
+     *     The exclusive end of the time range in milliseconds since the epoch.
+     * @param initialWindow
+     *     The size of the first windows in milliseconds.
+     * @param minWindow
+     *     The minimum window size in milliseconds.
+     * @param maxWindow
+     *     The maximum window size in milliseconds.
+     * @param targetResults
+     *     The number of results a window should return.
+     * @param parallelism
+     *     The maximum number of concurrent queries.
+     * @param hostLimit
+     *     The {@link HostConcurrencyLimit} of the host of the collection.
+     * @param threads
+     *     The {@link Executor} to run the queries on. It must be able to run <code>parallelism</code> tasks at the same time.
+     */
+    public ShardedTimeRangeQuery(HttpRequestExecutor executor, URI collection, TimeRangeReport report, long start, long end, long initialWindow,
+                                 long minWindow, long maxWindow, int targetResults, int parallelism, HostConcurrencyLimit hostLimit, Executor threads)
+    {
+        if (end < start)
+        {
+            throw new IllegalArgumentException("End must not be before start");
+        }
+        if (minWindow < 1 || maxWindow < minWindow || initialWindow < minWindow || initialWindow > maxWindow)
+        {
+            throw new IllegalArgumentException("Invalid window sizes");
+        }
+        if (targetResults < 1 || parallelism < 1)
+        {
+            throw new IllegalArgumentException("Target results and parallelism must be positive");
+        }
+        mExecutor = executor;
+        mCollection = collection;
+        mReport = report;
+        mStart = start;
+        mEnd = end;
+        mInitialWindow = initialWindow;
+        mMinWindow = minWindow;
+        mMaxWindow = maxWindow;
+        mTargetResults = targetResults;
+        mParallelism = parallelism;
+        mHostLimit = hostLimit;
+        mThreads = threads;
+    }
+
+
+    /**
+     * Runs the query and passes all distinct {@link Response}s to the given {@link ResponseConsumer}. This blocks until all windows have been consumed or
+     * one of them failed. If a window fails no new windows are started and the error is thrown once the running windows have completed.
+     * <p>
+     * If the calling thread is interrupted, the running queries are cancelled and an {@link InterruptedIOException} is thrown once all workers have stopped.
+     * </p>
+     *
+     * @param consumer
+     *     The {@link ResponseConsumer} to receive the {@link Response}s.
+     *
+     * @throws UncheckedProtocolException
+     *     If the {@link HttpRequestExecutor} threw a checked exception other than the declared ones.
+     */
+    public void run(ResponseConsumer consumer) throws IOException, ProtocolError, ProtocolException
+    {
+        Run run = new Run(consumer);
+        CountDownLatch done = new CountDownLatch(mParallelism);
+        for (int i = 0; i < mParallelism; ++i)
+        {
+            mThreads.execute(() ->
+            {
+                try
+                {
+                    run.work();
+                }
+                finally
+                {
+                    done.countDown();
+                }
+            });
+        }
+
+        try
+        {
+            done.await();
+        }
+        catch (InterruptedException e)
+        {
+            run.fail(e);
+            run.cancel();
+            awaitUninterruptibly(done);
+            Thread.currentThread().interrupt();
+            InterruptedIOException exception = new InterruptedIOException("interrupted while waiting for the query to complete");
+            exception.initCause(e);
+            throw exception;
+        }
+
+        SingleFlight.rethrow(run.mError);
+    }
+
+
+    private static void awaitUninterruptibly(CountDownLatch latch)
+    {
+        boolean interrupted = false;
+        while (true)
+        {
+            try
+            {
+                latch.await();
+                break;
+            }
+            catch (InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * The state of a single call to {@link #run(ResponseConsumer)}.
+     */
+    private final class Run
+    {
+        private final ResponseConsumer mConsumer;
+        private final Set<URI> mSeen = ConcurrentHashMap.newKeySet();
+        private final Lock mLock = new ReentrantLock();
+        private final Lock mConsumerLock = new ReentrantLock();
+        private final Set<MultistatusResponseReader> mReaders = new HashSet<>();
+
+        private long mNextStart = mStart;
+        private long mWindow = mInitialWindow;
+        /**
+         * The number of times the window size has been reduced because of an overload. Windows that started before the last reduction must not grow the
+         * window size again.
+         */
+        private int mShrinks;
+        private volatile Exception mError;
+
+
+        Run(ResponseConsumer consumer)
+        {
+            mConsumer = consumer;
+        }
+
+
+        void work()
+        {
+            try
+            {
+                while (mError == null)
+                {
+                    long start;
+                    long end;
+                    int shrinks;
+                    mLock.lock();
+                    try
+                    {
+                        if (mNextStart >= mEnd)
+                        {
+                            return;
+                        }
+                        start = mNextStart;
+                        end = mWindow >= mEnd - start ? mEnd : start + mWindow;
+                        mNextStart = end;
+                        shrinks = mShrinks;
+                    }
+                    finally
+                    {
+                        mLock.unlock();
+                    }
+                    query(start, end, shrinks);
+                }
+            }
+            catch (Exception e)
+            {
+                fail(e);
+            }
+        }
+
+
+        /**
+         * Queries the given window, splitting it in half if the server is overloaded.
+         *
+         * @param shrinks
+         *     The value of {@link #mShrinks} when the window was sized.
+         */
+        private void query(long start, long end, int shrinks) throws Exception
+        {
+            try
+            {
+                queryWindow(start, end, shrinks);
+            }
+            catch (Exception e)
+            {
+                long half = (end - start) / 2;
+                if (mError != null || !isOverload(e) || half < mMinWindow)
+                {
+                    throw e;
+                }
+                int current = shrink(half);
+                // responses that have been delivered already are skipped, because they have been seen
+                query(start, start + half, current);
+                query(start + half, end, current);
+            }
+        }
+
+
+        private void queryWindow(long start, long end, int shrinks) throws Exception
+        {
+            int results = 0;
+            mHostLimit.acquire(mCollection);
+            try
+            {
+                MultistatusResponseReader reader = mExecutor.execute(mCollection, mReport.report(start, end));
+                try
+                {
+                    register(reader);
+                    while (mError == null && reader.hasNextResponse())
+                    {
+                        Response response = reader.getNextResponse(null);
+                        results += 1;
+                        URI href = response.getHref();
+                        if (href == null || mSeen.add(href))
+                        {
+                            mConsumerLock.lock();
+                            try
+                            {
+                                mConsumer.accept(response);
+                            }
+                            finally
+                            {
+                                mConsumerLock.unlock();
+                            }
+                        }
+                    }
+                }
+                finally
+                {
+                    try
+                    {
+                        if (mError != null)
+                        {
+                            // don't drain the remainder of a query that has failed
+                            reader.cancel();
+                        }
+                        reader.close();
+                    }
+                    finally
+                    {
+                        unregister(reader);
+                    }
+                }
+            }
+            finally
+            {
+                mHostLimit.release(mCollection);
+            }
+            if (mError == null)
+            {
+                adapt(end - start, results, shrinks);
+            }
+        }
+
+
+        /**
+         * Scales the window size towards the size that's expected to return the target number of results, judging by the density of the results of a
+         * completed window.
+         * <p>
+         * Other windows may have changed the window size since the completed window has been sized, so the current size is scaled and the completed window
+         * only provides the density. The size changes by no more than {@link #MAX_SCALE} at a time. A window that has been sized before the last overload
+         * can only reduce the size, otherwise it would undo the reduction.
+         * </p>
+         */
+        private void adapt(long window, int results, int shrinks)
+        {
+            mLock.lock();
+            try
+            {
+                double ideal = results == 0 ? Double.MAX_VALUE : (double) window * mTargetResults / results;
+                double scaled = Math.max(mWindow / MAX_SCALE, Math.min(mWindow * MAX_SCALE, ideal));
+                if (shrinks != mShrinks)
+                {
+                    scaled = Math.min(mWindow, scaled);
+                }
+                mWindow = Math.max(mMinWindow, Math.min(mMaxWindow, (long) scaled));
+            }
+            finally
+            {
+                mLock.unlock();
+            }
+        }
+
+
+        /**
+         * Makes sure the following windows are not larger than the given size.
+         *
+         * @return The new value of {@link #mShrinks}.
+         */
+        private int shrink(long window)
+        {
+            mLock.lock();
+            try
+            {
+                mWindow = Math.max(mMinWindow, Math.min(mWindow, window));
+                return ++mShrinks;
+            }
+            finally
+            {
+                mLock.unlock();
+            }
+        }
+
+
+        /**
+         * Registers a reader until it has been closed, so it can be cancelled. A reader that's registered after the query has failed is cancelled right
+         * away.
+         */
+        private void register(MultistatusResponseReader reader)
+        {
+            mLock.lock();
+            try
+            {
+                mReaders.add(reader);
+            }
+            finally
+            {
+                mLock.unlock();
+            }
+            if (mError != null)
+            {
+                reader.cancel();
+            }
+        }
+
+
+        private void unregister(MultistatusResponseReader reader)
+        {
+            mLock.lock();
+            try
+            {
+                mReaders.remove(reader);
+            }
+            finally
+            {
+                mLock.unlock();
+            }
+        }
+
+
+        /**
+         * Cancels all readers that are currently in use, which unblocks workers that wait for the server.
+         */
+        void cancel()
+        {
+            mLock.lock();
+            try
+            {
+                for (MultistatusResponseReader reader : mReaders)
+                {
+                    reader.cancel();
+                }
+            }
+            finally
+            {
+                mLock.unlock();
+            }
+        }
+
+
+        void fail(Exception e)
+        {
+            mLock.lock();
+            try
+            {
+                if (mError == null)
+                {
+                    mError = e;
+                }
+            }
+            finally
+            {
+                mLock.unlock();
+            }
+        }
+    }
+
+
+    /**
+     * Returns whether the given error indicates that the window was too large for the server.
+     */
+    private static boolean isOverload(Exception error)
+    {
+        if (error instanceof SocketTimeoutException)
+        {
+            return true;
+        }
+        return error instanceof UnexpectedStatusException
+            && ((UnexpectedStatusException) error).status().statusCode() == STATUS_INSUFFICIENT_STORAGE;
+    }
+}
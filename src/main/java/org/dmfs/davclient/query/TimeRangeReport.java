@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient.query;
+
+import org.dmfs.davclient.rfc3253.MultiStatusReport;
+
+
+/**
+ * Creates the report for a time-range window, usually a {@link org.dmfs.davclient.rfc4791.CalendarQueryReport} with a time-range filter.
+ */
+public interface TimeRangeReport
+{
+    /**
+     * Returns a new {@link MultiStatusReport} that queries the given time range.
+     *
+     * @param start
+     *     The inclusive start of the window in milliseconds since the epoch.
+     * @param end
+     *     The exclusive end of the window in milliseconds since the epoch.
+     *
+     * @return A {@link MultiStatusReport}.
+     */
+    MultiStatusReport report(long start, long end);
+}
@@ -23,6 +23,7 @@ import org.dmfs.dav.PropertyRequest;
 import org.dmfs.dav.rfc4918.Depth;
 import org.dmfs.dav.rfc4918.MultiStatus;
 import org.dmfs.davclient.DavContext;
+import org.dmfs.davclient.MultiStatusResponseHandler;
 import org.dmfs.davclient.MultistatusResponseReader;
 import org.dmfs.httpessentials.HttpStatus;
 import org.dmfs.httpessentials.client.HttpResponse;
@@ -33,6 +34,10 @@ import org.dmfs.httpessentials.responsehandlers.FailResponseHandler;
 import org.dmfs.xmlobjects.ElementDescriptor;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 
 /**
@@ -45,6 +50,16 @@ public abstract class MultiStatusReport extends Report<MultistatusResponseReader
      */
     protected PropertyRequest mRequest;
 
+    /**
+     * The properties that have been added to {@link #mRequest}.
+     */
+    protected final Set<ElementDescriptor<?>> mRequestedProperties = new HashSet<>();
+
+    /**
+     * The properties to parse or <code>null</code> to parse all properties.
+     */
+    private List<ElementDescriptor<?>> mParsedProperties;
+
 
     /**
      * Constructor of a {@link MultiStatusReport} using the given {@link DavContext} and {@link Depth}.
@@ -75,6 +90,7 @@ public abstract class MultiStatusReport extends Report<MultistatusResponseReader
             for (ElementDescriptor<?> property : properties)
             {
                 mRequest.addProperty(property);
+                mRequestedProperties.add(property);
             }
         }
         return this;
@@ -96,18 +112,41 @@ public abstract class MultiStatusReport extends Report<MultistatusResponseReader
             for (ElementDescriptor<?> property : properties)
             {
                 mRequest.removeProperty(property);
+                mRequestedProperties.remove(property);
             }
         }
         return this;
     }
 
 
+    /**
+     * Limits the properties that are parsed from the response to the given ones. Any other property returned by the server is skipped without being
+     * deserialized, which saves memory and CPU time with servers that return more properties than requested. Note that this does not change the request.
+     * <p>
+     * Properties with status {@link org.dmfs.httpessentials.HttpStatus#NOT_FOUND} are dropped by the default {@link org.dmfs.dav.DavParserContext} settings
+     * already.
+     * </p>
+     *
+     * @param properties
+     *     The {@link ElementDescriptor}s of the properties to parse.
+     *
+     * @return This instance.
+     */
+    public MultiStatusReport parseOnly(ElementDescriptor<?>... properties)
+    {
+        mParsedProperties = properties == null ? null : Arrays.asList(properties);
+        return this;
+    }
+
+
     @Override
     public HttpResponseHandler<MultistatusResponseReader> responseHandler(HttpResponse response) throws IOException, ProtocolError, ProtocolException
     {
         if (HttpStatus.MULTISTATUS.equals(response.status()))
         {
-            return mDavContext.getMultistatusResponseHandler();
+            return mParsedProperties == null
+                ? mDavContext.getMultistatusResponseHandler()
+                : new MultiStatusResponseHandler(mDavContext, mParsedProperties);
         }
 
         return new FailResponseHandler<>();
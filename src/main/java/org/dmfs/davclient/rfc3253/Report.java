@@ -72,7 +72,7 @@ public abstract class Report<T> extends BaseDavRequest<T>
     {
         if (mDepth != null)
         {
-            return new SingletonHeaders(new BasicSingletonHeaderType<>("Depth", new EntityConverter<Depth>()
+            return withPreferences(new SingletonHeaders(new BasicSingletonHeaderType<>("Depth", new EntityConverter<Depth>()
             {
                 @Override
                 public Depth value(String valueString)
@@ -86,8 +86,8 @@ public abstract class Report<T> extends BaseDavRequest<T>
                 {
                     return value.toString();
                 }
-            }).entity(mDepth));
+            }).entity(mDepth)));
         }
-        return EmptyHeaders.INSTANCE;
+        return withPreferences(EmptyHeaders.INSTANCE);
     }
 }
@@ -22,6 +22,7 @@ package org.dmfs.davclient.rfc4791;
 import org.dmfs.dav.rfc4791.CalDav;
 import org.dmfs.dav.rfc4791.CalendarMultiget;
 import org.dmfs.dav.rfc4918.Depth;
+import org.dmfs.davclient.BufferedRequestEntity;
 import org.dmfs.davclient.DavContext;
 import org.dmfs.davclient.XmlRequestEntity;
 import org.dmfs.davclient.rfc3253.MultiStatusReport;
@@ -166,7 +167,8 @@ public class CalendarMultigetReport extends MultiStatusReport
     @Override
     public HttpRequestEntity requestEntity()
     {
-        return new XmlRequestEntity<CalendarMultiget>(ElementDescriptor.DEFAULT_CONTEXT, CalDav.CALENDAR_MULTIGET, (CalendarMultiget) mRequest);
+        return new BufferedRequestEntity(
+            new XmlRequestEntity<CalendarMultiget>(ElementDescriptor.DEFAULT_CONTEXT, CalDav.CALENDAR_MULTIGET, (CalendarMultiget) mRequest));
     }
 
 }
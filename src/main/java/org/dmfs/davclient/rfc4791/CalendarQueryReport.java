@@ -23,18 +23,29 @@ import org.dmfs.dav.rfc4791.CalDav;
 import org.dmfs.dav.rfc4791.CalendarQuery;
 import org.dmfs.dav.rfc4791.filter.CompFilter;
 import org.dmfs.dav.rfc4918.Depth;
+import org.dmfs.davclient.BufferedRequestEntity;
 import org.dmfs.davclient.DavContext;
 import org.dmfs.davclient.XmlRequestEntity;
 import org.dmfs.davclient.rfc3253.MultiStatusReport;
 import org.dmfs.httpessentials.client.HttpRequestEntity;
 import org.dmfs.xmlobjects.ElementDescriptor;
 
+import java.util.Arrays;
+import java.util.HashSet;
+
 
 /**
  * Represents the calendar-query report as specified in <a href="https://tools.ietf.org/html/rfc4791#section-7.8">RFC 4791, section 7.8</a>.
  */
 public class CalendarQueryReport extends MultiStatusReport
 {
+    private final boolean mAllProp;
+    private final boolean mPropName;
+
+    /**
+     * A key that identifies the filter or <code>null</code> if the request body must not be cached.
+     */
+    private Object mFilterKey = Boolean.FALSE;
 
     /**
      * Creates a calendar-query allprop report.
@@ -115,6 +126,8 @@ public class CalendarQueryReport extends MultiStatusReport
     private CalendarQueryReport(DavContext davContext, Depth depth, boolean allProp, boolean propName)
     {
         super(davContext, depth);
+        mAllProp = allProp;
+        mPropName = propName;
 
         CalendarQuery request = new CalendarQuery();
         request.setAllProp(allProp);
@@ -134,6 +147,31 @@ public class CalendarQueryReport extends MultiStatusReport
     public CalendarQueryReport setFilter(CompFilter filter)
     {
         ((CalendarQuery) mRequest).setFilter(filter);
+        // we can't tell whether two filters are equal, so don't cache the body
+        mFilterKey = null;
+        return this;
+    }
+
+
+    /**
+     * Set a {@link CompFilter} to the request to filter the result on the server side. The request body is cached in the
+     * {@link org.dmfs.davclient.RequestBodyCache} of the {@link DavContext}, so other requests with the same properties and filter key don't have to render it
+     * again.
+     * <p>
+     * The caller must make sure that all filters with equal keys are equal and not modified afterwards.
+     * </p>
+     *
+     * @param filter
+     *     A {@link CompFilter}.
+     * @param filterKey
+     *     A key that identifies the filter.
+     *
+     * @return This instance.
+     */
+    public CalendarQueryReport setFilter(CompFilter filter, Object filterKey)
+    {
+        ((CalendarQuery) mRequest).setFilter(filter);
+        mFilterKey = filterKey;
         return this;
     }
 
@@ -141,7 +179,14 @@ public class CalendarQueryReport extends MultiStatusReport
     @Override
     public HttpRequestEntity requestEntity()
     {
-        return new XmlRequestEntity<CalendarQuery>(ElementDescriptor.DEFAULT_CONTEXT, CalDav.CALENDAR_QUERY, (CalendarQuery) mRequest);
+        HttpRequestEntity entity = new XmlRequestEntity<CalendarQuery>(ElementDescriptor.DEFAULT_CONTEXT, CalDav.CALENDAR_QUERY, (CalendarQuery) mRequest);
+        if (mFilterKey == null)
+        {
+            return new BufferedRequestEntity(entity);
+        }
+        return mDavContext.getRequestBodyCache().entity(
+            Arrays.asList(CalDav.CALENDAR_QUERY, mAllProp, mPropName, new HashSet<>(mRequestedProperties), mFilterKey),
+            entity);
     }
 
 }
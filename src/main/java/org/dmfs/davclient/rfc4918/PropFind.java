@@ -23,6 +23,7 @@ import org.dmfs.dav.rfc4918.Depth;
 import org.dmfs.dav.rfc4918.WebDav;
 import org.dmfs.davclient.BaseDavRequest;
 import org.dmfs.davclient.DavContext;
+import org.dmfs.davclient.MultiStatusResponseHandler;
 import org.dmfs.davclient.MultistatusResponseReader;
 import org.dmfs.davclient.XmlRequestEntity;
 import org.dmfs.httpessentials.HttpMethod;
@@ -42,6 +43,11 @@ import org.dmfs.httpessentials.typedentity.EntityConverter;
 import org.dmfs.xmlobjects.ElementDescriptor;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 
 
 /**
@@ -59,6 +65,16 @@ public final class PropFind extends BaseDavRequest<MultistatusResponseReader>
      */
     private final org.dmfs.dav.rfc4918.PropFind mRequest;
 
+    /**
+     * The allprop flag of the request.
+     */
+    private final boolean mAllProp;
+
+    /**
+     * The properties to parse or <code>null</code> to parse all properties.
+     */
+    private List<ElementDescriptor<?>> mParsedProperties;
+
 
     /**
      * Creates a PropFind allprop request with the given {@link Depth} and no include element.
@@ -133,6 +149,7 @@ public final class PropFind extends BaseDavRequest<MultistatusResponseReader>
     {
         super(davContext);
         mDepth = depth;
+        mAllProp = allProp;
         mRequest = new org.dmfs.dav.rfc4918.PropFind();
         mRequest.setAllProp(allProp);
         mRequest.setPropName(propName);
@@ -204,7 +221,7 @@ public final class PropFind extends BaseDavRequest<MultistatusResponseReader>
     {
         if (mDepth != null)
         {
-            return new SingletonHeaders(new BasicSingletonHeaderType<>("Depth", new EntityConverter<Depth>()
+            return withPreferences(new SingletonHeaders(new BasicSingletonHeaderType<>("Depth", new EntityConverter<Depth>()
             {
                 @Override
                 public Depth value(String valueString)
@@ -218,16 +235,41 @@ public final class PropFind extends BaseDavRequest<MultistatusResponseReader>
                 {
                     return value.toString();
                 }
-            }).entity(mDepth));
+            }).entity(mDepth)));
         }
-        return EmptyHeaders.INSTANCE;
+        return withPreferences(EmptyHeaders.INSTANCE);
     }
 
 
     @Override
     public HttpRequestEntity requestEntity()
     {
-        return new XmlRequestEntity<org.dmfs.dav.rfc4918.PropFind>(ElementDescriptor.DEFAULT_CONTEXT, WebDav.PROPFIND, mRequest, mRequest.getProperties());
+        Collection<ElementDescriptor<?>> properties = mRequest.getProperties();
+        // the body depends on the flags and the properties only, so all PropFinds with the same properties can share the same body
+        return mDavContext.getRequestBodyCache().entity(
+            Arrays.asList(WebDav.PROPFIND, mAllProp, mRequest.getPropName(),
+                properties == null ? Collections.emptySet() : new HashSet<ElementDescriptor<?>>(properties)),
+            new XmlRequestEntity<org.dmfs.dav.rfc4918.PropFind>(ElementDescriptor.DEFAULT_CONTEXT, WebDav.PROPFIND, mRequest, properties));
+    }
+
+
+    /**
+     * Limits the properties that are parsed from the response to the given ones. Any other property returned by the server is skipped without being
+     * deserialized, which saves memory and CPU time with servers that return more properties than requested. Note that this does not change the request.
+     * <p>
+     * Properties with status {@link org.dmfs.httpessentials.HttpStatus#NOT_FOUND} are dropped by the default {@link org.dmfs.dav.DavParserContext} settings
+     * already.
+     * </p>
+     *
+     * @param properties
+     *     The {@link ElementDescriptor}s of the properties to parse.
+     *
+     * @return This instance.
+     */
+    public PropFind parseOnly(ElementDescriptor<?>... properties)
+    {
+        mParsedProperties = properties == null ? null : Arrays.asList(properties);
+        return this;
     }
 
 
@@ -236,7 +278,9 @@ public final class PropFind extends BaseDavRequest<MultistatusResponseReader>
     {
         if (response.status().equals(HttpStatus.MULTISTATUS))
         {
-            return mDavContext.getMultistatusResponseHandler();
+            return mParsedProperties == null
+                ? mDavContext.getMultistatusResponseHandler()
+                : new MultiStatusResponseHandler(mDavContext, mParsedProperties);
         }
 
         return new FailResponseHandler<>();
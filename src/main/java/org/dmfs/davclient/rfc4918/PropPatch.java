@@ -22,6 +22,7 @@ package org.dmfs.davclient.rfc4918;
 import org.dmfs.dav.rfc4918.PropertyUpdate;
 import org.dmfs.dav.rfc4918.WebDav;
 import org.dmfs.davclient.BaseDavRequest;
+import org.dmfs.davclient.BufferedRequestEntity;
 import org.dmfs.davclient.DavContext;
 import org.dmfs.davclient.MultistatusResponseReader;
 import org.dmfs.davclient.XmlRequestEntity;
@@ -120,14 +121,15 @@ public final class PropPatch extends BaseDavRequest<MultistatusResponseReader>
     @Override
     public Headers headers()
     {
-        return EmptyHeaders.INSTANCE;
+        return withPreferences(EmptyHeaders.INSTANCE);
     }
 
 
     @Override
     public HttpRequestEntity requestEntity()
     {
-        return new XmlRequestEntity<PropertyUpdate>(ElementDescriptor.DEFAULT_CONTEXT, WebDav.PROPERTYUPDATE, mRequest);
+        return new BufferedRequestEntity(
+            new XmlRequestEntity<PropertyUpdate>(ElementDescriptor.DEFAULT_CONTEXT, WebDav.PROPERTYUPDATE, mRequest));
     }
 
 
@@ -22,6 +22,7 @@ package org.dmfs.davclient.rfc6352;
 import org.dmfs.dav.rfc4918.Depth;
 import org.dmfs.dav.rfc6352.AddressbookMultiget;
 import org.dmfs.dav.rfc6352.CardDav;
+import org.dmfs.davclient.BufferedRequestEntity;
 import org.dmfs.davclient.DavContext;
 import org.dmfs.davclient.XmlRequestEntity;
 import org.dmfs.davclient.rfc3253.MultiStatusReport;
@@ -173,7 +174,8 @@ public class AddressbookMultigetReport extends MultiStatusReport
     @Override
     public HttpRequestEntity requestEntity()
     {
-        return new XmlRequestEntity<AddressbookMultiget>(ElementDescriptor.DEFAULT_CONTEXT, CardDav.ADDRESSBOOK_MULTIGET, (AddressbookMultiget) mRequest);
+        return new BufferedRequestEntity(
+            new XmlRequestEntity<AddressbookMultiget>(ElementDescriptor.DEFAULT_CONTEXT, CardDav.ADDRESSBOOK_MULTIGET, (AddressbookMultiget) mRequest));
     }
 
 }
@@ -23,6 +23,7 @@ import org.dmfs.dav.rfc4918.Depth;
 import org.dmfs.dav.rfc6352.AddressbookQuery;
 import org.dmfs.dav.rfc6352.CardDav;
 import org.dmfs.dav.rfc6352.filter.PropFilter;
+import org.dmfs.davclient.BufferedRequestEntity;
 import org.dmfs.davclient.DavContext;
 import org.dmfs.davclient.XmlRequestEntity;
 import org.dmfs.davclient.rfc3253.MultiStatusReport;
@@ -156,7 +157,8 @@ public class AddressbookQueryReport extends MultiStatusReport
     @Override
     public HttpRequestEntity requestEntity()
     {
-        return new XmlRequestEntity<AddressbookQuery>(ElementDescriptor.DEFAULT_CONTEXT, CardDav.ADDRESSBOOK_QUERY, (AddressbookQuery) mRequest);
+        return new BufferedRequestEntity(
+            new XmlRequestEntity<AddressbookQuery>(ElementDescriptor.DEFAULT_CONTEXT, CardDav.ADDRESSBOOK_QUERY, (AddressbookQuery) mRequest));
     }
 
 }
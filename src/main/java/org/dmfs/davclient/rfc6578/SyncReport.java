@@ -23,20 +23,49 @@ import org.dmfs.dav.rfc4918.Depth;
 import org.dmfs.dav.rfc6578.SyncCollection;
 import org.dmfs.dav.rfc6578.SyncLevel;
 import org.dmfs.dav.rfc6578.WebDavSync;
+import org.dmfs.davclient.Constants;
 import org.dmfs.davclient.DavContext;
+import org.dmfs.davclient.MultistatusResponseReader;
 import org.dmfs.davclient.XmlRequestEntity;
 import org.dmfs.davclient.rfc3253.MultiStatusReport;
+import org.dmfs.httpessentials.HttpStatus;
 import org.dmfs.httpessentials.client.HttpRequestEntity;
+import org.dmfs.httpessentials.client.HttpResponse;
+import org.dmfs.httpessentials.client.HttpResponseHandler;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.httpessentials.exceptions.ProtocolException;
+import org.dmfs.httpessentials.types.MediaType;
+import org.dmfs.jems.optional.Optional;
+import org.dmfs.jems.optional.elementary.Present;
 import org.dmfs.xmlobjects.ElementDescriptor;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.dmfs.jems.optional.elementary.Absent.absent;
+
 
 /**
  * A sync-report as specified in <a href="http://tools.ietf.org/html/rfc6578">RFC 6578</a>. To perform an initial sync, use the
  * {@link #SyncReport(DavContext, SyncLevel)} constructor. To create an incremental sync request use the {@link #SyncReport(DavContext, SyncLevel, String)}
  * constructor, providing the sync-token returned in response to the previous sync report request.
+ * <p>
+ * If the server rejects the sync-token of an incremental sync, executing the request throws an {@link InvalidSyncTokenException}.
+ * </p>
  */
 public class SyncReport extends MultiStatusReport
 {
+    /**
+     * The text that marks the position of the sync-token in a cached request body. It must never be a valid sync-token.
+     */
+    private final static String SYNC_TOKEN_PLACEHOLDER = "org.dmfs.davclient.rfc6578.SyncReport:sync-token-placeholder";
+
+    private final SyncLevel mSyncLevel;
+    private final String mSyncToken;
+    private Integer mLimit;
 
     /**
      * Constructor for an initial sync-collection Report.
@@ -67,6 +96,8 @@ public class SyncReport extends MultiStatusReport
         // actually sync-report doesn't support the depth header, but sending 1 seems to work with all servers
         // on the other hand, some servers complain if we omit this header
         super(davContext, Depth.one);
+        mSyncLevel = syncLevel;
+        mSyncToken = syncToken;
         SyncCollection request = new SyncCollection();
         request.setSyncLevel(syncLevel);
         request.setSyncToken(syncToken);
@@ -88,6 +119,7 @@ public class SyncReport extends MultiStatusReport
     public SyncReport setResultLimit(int limit)
     {
         ((SyncCollection) mRequest).limitNumberOfResults(limit);
+        mLimit = limit;
         return this;
     }
 
@@ -95,7 +127,77 @@ public class SyncReport extends MultiStatusReport
     @Override
     public HttpRequestEntity requestEntity()
     {
-        return new XmlRequestEntity<SyncCollection>(ElementDescriptor.DEFAULT_CONTEXT, WebDavSync.SYNC_COLLECTION, (SyncCollection) mRequest);
+        // Only the sync-token differs between the sync reports of a collection, so we cache the body as a template with a placeholder in place of the
+        // sync-token. The template is only built and rendered if it's not in the cache yet.
+        Set<ElementDescriptor<?>> properties = new HashSet<>(mRequestedProperties);
+        return mDavContext.getRequestBodyCache().entity(
+            Arrays.asList(WebDavSync.SYNC_COLLECTION, mSyncLevel, mLimit, properties),
+            new Template(mSyncLevel, mLimit, properties),
+            SYNC_TOKEN_PLACEHOLDER,
+            mSyncToken);
+    }
+
+
+    @Override
+    public HttpResponseHandler<MultistatusResponseReader> responseHandler(HttpResponse response) throws IOException, ProtocolError, ProtocolException
+    {
+        if (mSyncToken != null && (HttpStatus.FORBIDDEN.equals(response.status()) || HttpStatus.CONFLICT.equals(response.status())))
+        {
+            // RFC 6578 section 3.2: an invalid sync-token is reported with the DAV:valid-sync-token precondition
+            return new SyncTokenErrorResponseHandler(mDavContext);
+        }
+        return super.responseHandler(response);
     }
 
+
+    /**
+     * The body of a sync-collection report with a placeholder in place of the sync-token. It's rendered from a new {@link SyncCollection}, so the request
+     * of the {@link SyncReport} remains untouched.
+     */
+    private final static class Template implements HttpRequestEntity
+    {
+        private final SyncLevel mSyncLevel;
+        private final Integer mLimit;
+        private final Set<ElementDescriptor<?>> mProperties;
+
+
+        private Template(SyncLevel syncLevel, Integer limit, Set<ElementDescriptor<?>> properties)
+        {
+            mSyncLevel = syncLevel;
+            mLimit = limit;
+            mProperties = properties;
+        }
+
+
+        @Override
+        public Optional<MediaType> contentType()
+        {
+            return new Present<>(Constants.CONTENT_TYPE_APPLICATION_XML);
+        }
+
+
+        @Override
+        public Optional<Long> contentLength()
+        {
+            return absent();
+        }
+
+
+        @Override
+        public void writeContent(OutputStream out) throws IOException
+        {
+            SyncCollection template = new SyncCollection();
+            template.setSyncLevel(mSyncLevel);
+            template.setSyncToken(SYNC_TOKEN_PLACEHOLDER);
+            if (mLimit != null)
+            {
+                template.limitNumberOfResults(mLimit);
+            }
+            for (ElementDescriptor<?> property : mProperties)
+            {
+                template.addProperty(property);
+            }
+            new XmlRequestEntity<SyncCollection>(ElementDescriptor.DEFAULT_CONTEXT, WebDavSync.SYNC_COLLECTION, template).writeContent(out);
+        }
+    }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient.rfc6578;
+
+import org.dmfs.dav.rfc4918.Error;
+import org.dmfs.dav.rfc6578.WebDavSync;
+import org.dmfs.davclient.DavContext;
+import org.dmfs.davclient.ErrorResponseHandler;
+import org.dmfs.davclient.MultistatusResponseReader;
+import org.dmfs.httpessentials.client.HttpResponse;
+import org.dmfs.httpessentials.client.HttpResponseHandler;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.httpessentials.exceptions.ProtocolException;
+import org.dmfs.httpessentials.responsehandlers.FailResponseHandler;
+
+import java.io.IOException;
+
+
+/**
+ * An {@link HttpResponseHandler} for error responses to a {@link SyncReport} with a sync-token. It throws an {@link InvalidSyncTokenException} if the error
+ * body contains the <code>DAV:valid-sync-token</code> precondition, otherwise it fails like a {@link FailResponseHandler}.
+ */
+final class SyncTokenErrorResponseHandler implements HttpResponseHandler<MultistatusResponseReader>
+{
+    private final DavContext mDavContext;
+
+
+    SyncTokenErrorResponseHandler(DavContext davContext)
+    {
+        mDavContext = davContext;
+    }
+
+
+    @Override
+    public MultistatusResponseReader handleResponse(HttpResponse response) throws IOException, ProtocolError, ProtocolException
+    {
+        if (isInvalidSyncToken(response))
+        {
+            throw new InvalidSyncTokenException("sync-token rejected by server with status " + response.status().statusCode());
+        }
+        return new FailResponseHandler<MultistatusResponseReader>().handleResponse(response);
+    }
+
+
+    private boolean isInvalidSyncToken(HttpResponse response) throws IOException
+    {
+        if (response.responseEntity() == null)
+        {
+            return false;
+        }
+        try
+        {
+            Error error = new ErrorResponseHandler(response, mDavContext).getError();
+            return error != null && error.hasElement(WebDavSync.VALID_SYNC_TOKEN);
+        }
+        catch (ProtocolError e)
+        {
+            // not a (valid) error body
+            return false;
+        }
+    }
+}
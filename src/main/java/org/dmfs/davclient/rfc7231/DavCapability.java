@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient.rfc7231;
+
+/**
+ * Well known DAV compliance classes, as returned in the <code>DAV</code> header of an OPTIONS response.
+ * <p>
+ * Note that support for sync-collection reports (RFC 6578) is not announced in the <code>DAV</code> header, it has to be discovered via the
+ * <code>DAV:supported-report-set</code> property of a collection.
+ * </p>
+ */
+public enum DavCapability
+{
+    /**
+     * WebDAV class 1, see <a href="https://tools.ietf.org/html/rfc4918#section-18.1">RFC 4918, section 18.1</a>.
+     */
+    CLASS_1("1"),
+
+    /**
+     * WebDAV class 2 (locking), see <a href="https://tools.ietf.org/html/rfc4918#section-18.2">RFC 4918, section 18.2</a>.
+     */
+    CLASS_2("2"),
+
+    /**
+     * WebDAV class 3, see <a href="https://tools.ietf.org/html/rfc4918#section-18.3">RFC 4918, section 18.3</a>.
+     */
+    CLASS_3("3"),
+
+    /**
+     * WebDAV access control, see <a href="https://tools.ietf.org/html/rfc3744">RFC 3744</a>.
+     */
+    ACCESS_CONTROL("access-control"),
+
+    /**
+     * CalDAV, see <a href="https://tools.ietf.org/html/rfc4791">RFC 4791</a>.
+     */
+    CALENDAR_ACCESS("calendar-access"),
+
+    /**
+     * CalDAV scheduling, see <a href="https://tools.ietf.org/html/rfc6638">RFC 6638</a>.
+     */
+    CALENDAR_AUTO_SCHEDULE("calendar-auto-schedule"),
+
+    /**
+     * CardDAV, see <a href="https://tools.ietf.org/html/rfc6352">RFC 6352</a>.
+     */
+    ADDRESSBOOK("addressbook"),
+
+    /**
+     * Extended MKCOL, see <a href="https://tools.ietf.org/html/rfc5689">RFC 5689</a>.
+     */
+    EXTENDED_MKCOL("extended-mkcol");
+
+    /**
+     * The token in the <code>DAV</code> header.
+     */
+    public final String token;
+
+
+    DavCapability(String token)
+    {
+        this.token = token;
+    }
+}
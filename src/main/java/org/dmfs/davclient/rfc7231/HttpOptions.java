@@ -20,11 +20,156 @@
 package org.dmfs.davclient.rfc7231;
 
 import org.dmfs.httpessentials.client.HttpResponse;
+import org.dmfs.httpessentials.headers.BasicListHeaderType;
+import org.dmfs.httpessentials.headers.Headers;
+import org.dmfs.httpessentials.headers.ListHeaderType;
+import org.dmfs.httpessentials.typedentity.EntityConverter;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
 
-public class HttpOptions
+
+/**
+ * The result of an OPTIONS request, i.e. the DAV compliance classes and the allowed methods of a resource.
+ */
+public final class HttpOptions
 {
+    private final static EntityConverter<String> TOKEN_CONVERTER = new EntityConverter<String>()
+    {
+        @Override
+        public String value(String valueString)
+        {
+            return valueString.trim();
+        }
+
+
+        @Override
+        public String valueString(String value)
+        {
+            return value;
+        }
+    };
+
+    private final static ListHeaderType<String> DAV = new BasicListHeaderType<>("DAV", TOKEN_CONVERTER);
+
+    private final static ListHeaderType<String> ALLOW = new BasicListHeaderType<>("Allow", TOKEN_CONVERTER);
+
+    private final Set<String> mDavClasses;
+    private final Set<String> mAllowedMethods;
+
+
     public HttpOptions(HttpResponse response)
     {
+        this(tokens(response.headers(), DAV), tokens(response.headers(), ALLOW));
+    }
+
+
+    /**
+     * Creates {@link HttpOptions} from the given values, e.g. to restore them from persistent storage.
+     *
+     * @param davClasses
+     *     The tokens of the <code>DAV</code> header.
+     * @param allowedMethods
+     *     The methods of the <code>Allow</code> header.
+     */
+    public HttpOptions(Collection<String> davClasses, Collection<String> allowedMethods)
+    {
+        Set<String> classes = new LinkedHashSet<>();
+        for (String davClass : davClasses)
+        {
+            if (!davClass.isEmpty())
+            {
+                classes.add(davClass.toLowerCase(Locale.ENGLISH));
+            }
+        }
+        Set<String> methods = new LinkedHashSet<>();
+        for (String method : allowedMethods)
+        {
+            if (!method.isEmpty())
+            {
+                methods.add(method.toUpperCase(Locale.ENGLISH));
+            }
+        }
+        mDavClasses = Collections.unmodifiableSet(classes);
+        mAllowedMethods = Collections.unmodifiableSet(methods);
+    }
+
+
+    /**
+     * Returns all tokens of the <code>DAV</code> header, in lower case. This includes compliance classes that are not covered by {@link DavCapability}.
+     *
+     * @return A {@link Set} of compliance class tokens.
+     */
+    public Set<String> davClasses()
+    {
+        return mDavClasses;
+    }
+
+
+    /**
+     * Returns the methods of the <code>Allow</code> header, in upper case.
+     *
+     * @return A {@link Set} of method names.
+     */
+    public Set<String> allowedMethods()
+    {
+        return mAllowedMethods;
+    }
+
+
+    /**
+     * Returns the well known {@link DavCapability}s announced by the server.
+     *
+     * @return A {@link Set} of {@link DavCapability}s.
+     */
+    public Set<DavCapability> capabilities()
+    {
+        Set<DavCapability> result = EnumSet.noneOf(DavCapability.class);
+        for (DavCapability capability : DavCapability.values())
+        {
+            if (mDavClasses.contains(capability.token))
+            {
+                result.add(capability);
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Returns whether the server announced the given {@link DavCapability}.
+     *
+     * @param capability
+     *     A {@link DavCapability}.
+     *
+     * @return <code>true</code> if the capability is supported.
+     */
+    public boolean supports(DavCapability capability)
+    {
+        return mDavClasses.contains(capability.token);
+    }
+
+
+    /**
+     * Returns whether the server allows the given method.
+     *
+     * @param method
+     *     The name of a method, like <code>REPORT</code>.
+     *
+     * @return <code>true</code> if the method is allowed.
+     */
+    public boolean allows(String method)
+    {
+        return mAllowedMethods.contains(method.toUpperCase(Locale.ENGLISH));
+    }
+
+
+    private static Collection<String> tokens(Headers headers, ListHeaderType<String> headerType)
+    {
+        return headers.contains(headerType) ? headers.header(headerType).value() : Collections.<String>emptyList();
     }
 }
@@ -24,23 +24,47 @@ import org.dmfs.httpessentials.HttpStatus;
 import org.dmfs.httpessentials.client.HttpRequest;
 import org.dmfs.httpessentials.client.HttpRequestEntity;
 import org.dmfs.httpessentials.client.HttpResponse;
+import org.dmfs.httpessentials.client.HttpResponseEntity;
 import org.dmfs.httpessentials.client.HttpResponseHandler;
 import org.dmfs.httpessentials.entities.EmptyHttpRequestEntity;
 import org.dmfs.httpessentials.headers.EmptyHeaders;
 import org.dmfs.httpessentials.headers.Headers;
 import org.dmfs.httpessentials.responsehandlers.FailResponseHandler;
 
+import java.io.InputStream;
+
 
 /**
- * An OPTIONS request.
- * <p>
- * TODO: at present this class doesn't return a response handler.
- * </p>
+ * An OPTIONS request. The result is an {@link HttpOptions} object that contains the DAV compliance classes and the allowed methods of the resource.
  */
 public class Options implements HttpRequest<HttpOptions>
 {
 
-    private final static HttpResponseHandler<HttpOptions> HANDLER = HttpOptions::new;
+    /**
+     * The maximum number of bytes of the response body to skip before the response is closed. OPTIONS responses rarely have a body, but reading a small one
+     * allows the connection to be reused.
+     */
+    private final static long DRAIN_LIMIT = 64 * 1024;
+
+    private final static HttpResponseHandler<HttpOptions> HANDLER = response ->
+    {
+        HttpOptions options = new HttpOptions(response);
+        HttpResponseEntity entity = response.responseEntity();
+        if (entity != null)
+        {
+            try (InputStream in = entity.contentStream())
+            {
+                byte[] buffer = new byte[4096];
+                long remaining = DRAIN_LIMIT;
+                int read;
+                while (remaining > 0 && (read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) >= 0)
+                {
+                    remaining -= read;
+                }
+            }
+        }
+        return options;
+    };
 
 
     @Override
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient.sync;
+
+import org.dmfs.dav.rfc4918.Response;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+
+import java.io.IOException;
+import java.net.URI;
+
+
+/**
+ * Receives the results of a {@link TwoPhaseSync}.
+ * <p>
+ * {@link #onChanged(Response)} is called on a fetch thread, all other methods are called on the thread that runs the sync. No method is called concurrently
+ * with itself, but {@link #onChanged(Response)} may be called concurrently with the other methods.
+ * </p>
+ */
+public interface ChangeConsumer
+{
+    /**
+     * Called when the server rejected the sync-token, right before a full resync starts. All members of the collection known so far must be considered
+     * unconfirmed. Members that are not reported by the following full sync have been removed.
+     */
+    void onReset() throws IOException, ProtocolError;
+
+    /**
+     * Called with the fetched {@link Response} of every new or changed member of the collection.
+     *
+     * @param response
+     *     The {@link Response} of the member.
+     */
+    void onChanged(Response response) throws IOException, ProtocolError;
+
+    /**
+     * Called for every listed member of the collection whose ETag matches the local one.
+     *
+     * @param href
+     *     The href of the member.
+     */
+    void onUnchanged(URI href) throws IOException, ProtocolError;
+
+    /**
+     * Called for every member of the collection that has been removed.
+     *
+     * @param href
+     *     The href of the member.
+     */
+    void onRemoved(URI href) throws IOException, ProtocolError;
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient.sync;
+
+import org.dmfs.dav.rfc4918.Depth;
+import org.dmfs.dav.rfc4918.Response;
+import org.dmfs.dav.rfc4918.WebDav;
+import org.dmfs.davclient.DavContext;
+import org.dmfs.davclient.MultistatusResponseReader;
+import org.dmfs.davclient.rfc4918.PropFind;
+import org.dmfs.davclient.utils.SameResource;
+import org.dmfs.httpessentials.client.HttpRequestExecutor;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.httpessentials.exceptions.ProtocolException;
+import org.dmfs.httpessentials.exceptions.RedirectionException;
+import org.dmfs.httpessentials.exceptions.UnexpectedStatusException;
+import org.dmfs.jems2.Function;
+import org.dmfs.jems2.Predicate;
+import org.dmfs.xmlobjects.ElementDescriptor;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Finds the changed collections of a home set, like a calendar-home-set or an addressbook-home-set, with a single <code>Depth: 1</code> PROPFIND.
+ * <p>
+ * The PROPFIND requests one or more marker properties that change whenever the content of a collection changes, like <code>DAV:sync-token</code> or
+ * <code>CS:getctag</code>. The values are compared with the stored ones and only collections with a different or no stored value are returned. The caller
+ * should store the new marker of a collection only after the collection has been synchronized successfully.
+ * </p>
+ */
+public final class CollectionSweep
+{
+    private final HttpRequestExecutor mExecutor;
+    private final DavContext mDavContext;
+    private final URI mHomeSet;
+    private final Predicate<URI> mIsHomeSet;
+    private final ElementDescriptor<?>[] mMarkers;
+    private final String mTypeNamespace;
+    private final String mTypeName;
+
+
+    /**
+     * Creates a {@link CollectionSweep}.
+     *
+     * @param executor
+     *     The {@link HttpRequestExecutor} to execute the request.
+     * @param davContext
+     *     A {@link DavContext}.
+     * @param homeSet
+     *     The {@link URI} of the home set.
+     * @param markers
+     *     The {@link ElementDescriptor}s of the properties that indicate changes of a collection.
+     */
+    public CollectionSweep(HttpRequestExecutor executor, DavContext davContext, URI homeSet, ElementDescriptor<?>... markers)
+    {
+        this(executor, davContext, homeSet, null, null, markers);
+    }
+
+
+    /**
+     * Creates a {@link CollectionSweep} that only considers collections of the given resource type, like <code>calendar</code> in the
+     * <code>urn:ietf:params:xml:ns:caldav</code> namespace.
+     *
+     * @param executor
+     *     The {@link HttpRequestExecutor} to execute the request.
+     * @param davContext
+     *     A {@link DavContext}.
+     * @param homeSet
+     *     The {@link URI} of the home set.
+     * @param typeNamespace
+     *     The namespace of the resource type of the collections.
+     * @param typeName
+     *     The local name of the resource type of the collections or <code>null</code> to consider all collections.
+     * @param markers
+     *     The {@link ElementDescriptor}s of the properties that indicate changes of a collection.
+     */
+    public CollectionSweep(HttpRequestExecutor executor, DavContext davContext, URI homeSet, String typeNamespace, String typeName,
+                           ElementDescriptor<?>... markers)
+    {
+        if (markers.length == 0)
+        {
+            throw new IllegalArgumentException("At least one marker property is required");
+        }
+        mExecutor = executor;
+        mDavContext = davContext;
+        mHomeSet = homeSet;
+        mIsHomeSet = new SameResource(homeSet);
+        mMarkers = markers.clone();
+        mTypeNamespace = typeNamespace;
+        mTypeName = typeName;
+    }
+
+
+    /**
+     * Returns the changed collections of the home set with their new markers.
+     * <p>
+     * Only members with a <code>DAV:resourcetype</code> of <code>DAV:collection</code> and, if given, of the collection type are considered. A collection
+     * that doesn't return any of the marker properties is only reported if it had a stored marker, since changes can't be detected otherwise. Collections
+     * that have been removed are not reported.
+     * </p>
+     *
+     * @param storedMarkers
+     *     A {@link Function} that returns the stored marker of a collection or <code>null</code> if there is none.
+     *
+     * @return A {@link Map} of the {@link URI}s of all changed collections to their current markers, which may be <code>null</code>.
+     */
+    public Map<URI, String> changed(Function<URI, String> storedMarkers)
+        throws IOException, ProtocolError, ProtocolException, RedirectionException, UnexpectedStatusException
+    {
+        Map<URI, String> result = new LinkedHashMap<>();
+        // the resource type is recorded by the reader, it doesn't need to be parsed
+        MultistatusResponseReader reader = mExecutor.execute(mHomeSet,
+            new PropFind(mDavContext, Depth.one, mMarkers).addProperties(WebDav.Properties.RESOURCETYPE).parseOnly(mMarkers));
+        try
+        {
+            Response response = null;
+            while (reader.hasNextResponse())
+            {
+                response = reader.getNextResponse(response);
+                URI href = response.getHref();
+                if (response.getStatus() != Response.STATUS_NONE || href == null || mIsHomeSet.satisfiedBy(href) || !isWanted(reader))
+                {
+                    continue;
+                }
+                String marker = marker(response);
+                String storedMarker = storedMarkers.value(href);
+                if (marker == null ? storedMarker != null : !marker.equals(storedMarker))
+                {
+                    result.put(href, marker);
+                }
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+        return result;
+    }
+
+
+    /**
+     * Returns whether the last {@link Response} of the given reader is a collection of the wanted type.
+     */
+    private boolean isWanted(MultistatusResponseReader reader)
+    {
+        return reader.isCollection() && (mTypeName == null || reader.hasResourceType(mTypeNamespace, mTypeName));
+    }
+
+
+    /**
+     * Returns the values of all marker properties of the given {@link Response}, separated by line feeds, or <code>null</code> if none of them is present.
+     */
+    private String marker(Response response)
+    {
+        StringBuilder result = new StringBuilder(64);
+        boolean present = false;
+        for (int i = 0; i < mMarkers.length; ++i)
+        {
+            Object value = response.getPropertyValue(mMarkers[i]);
+            if (i > 0)
+            {
+                result.append('\n');
+            }
+            if (value != null)
+            {
+                result.append(value);
+                present = true;
+            }
+        }
+        return present ? result.toString() : null;
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient.sync;
+
+import org.dmfs.dav.rfc4918.Response;
+import org.dmfs.dav.rfc6578.SyncLevel;
+import org.dmfs.davclient.DavContext;
+import org.dmfs.davclient.MultistatusResponseReader;
+import org.dmfs.davclient.rfc6578.InvalidSyncTokenException;
+import org.dmfs.davclient.rfc6578.SyncReport;
+import org.dmfs.davclient.utils.SameResource;
+import org.dmfs.httpessentials.client.HttpRequestExecutor;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.httpessentials.exceptions.ProtocolException;
+import org.dmfs.httpessentials.exceptions.RedirectionException;
+import org.dmfs.httpessentials.exceptions.UnexpectedStatusException;
+import org.dmfs.jems2.Predicate;
+import org.dmfs.xmlobjects.ElementDescriptor;
+
+import java.io.IOException;
+import java.net.URI;
+
+
+/**
+ * Synchronizes a collection with sync-collection reports, following continuation tokens until the server reports the result is complete.
+ * <p>
+ * A server may truncate the result of a sync-collection report. It indicates that by returning a <code>507 Insufficient Storage</code> response for the
+ * collection itself and a sync-token to continue with. This sends further reports with the new sync-token until the result is complete. If the server
+ * rejects a sync-token, the {@link SyncConsumer} is notified and a full resync is performed.
+ * </p>
+ */
+public final class CollectionSync
+{
+    private final static int STATUS_INSUFFICIENT_STORAGE = 507;
+
+    private final HttpRequestExecutor mExecutor;
+    private final DavContext mDavContext;
+    private final URI mCollection;
+    private final Predicate<URI> mIsCollection;
+    private final SyncLevel mSyncLevel;
+    private final int mLimit;
+    private final ElementDescriptor<?>[] mProperties;
+
+
+    /**
+     * Creates a {@link CollectionSync} that leaves the chunk size to the server.
+     *
+     * @param executor
+     *     The {@link HttpRequestExecutor} to execute the reports.
+     * @param davContext
+     *     A {@link DavContext}.
+     * @param collection
+     *     The {@link URI} of the collection to synchronize.
+     * @param syncLevel
+     *     The {@link SyncLevel}.
+     * @param properties
+     *     The properties to request for each changed member.
+     */
+    public CollectionSync(HttpRequestExecutor executor, DavContext davContext, URI collection, SyncLevel syncLevel, ElementDescriptor<?>... properties)
+    {
+        this(executor, davContext, collection, syncLevel, 0, properties);
+    }
+
+
+    /**
+     * Creates a {@link CollectionSync} that asks the server to return at most the given number of results per chunk.
+     * <p>
+     * <strong>Note:</strong> Many servers ignore the limit or handle it incorrectly, see {@link SyncReport#setResultLimit(int)}.
+     * </p>
+     *
+     * @param executor
+     *     The {@link HttpRequestExecutor} to execute the reports.
+     * @param davContext
+     *     A {@link DavContext}.
+     * @param collection
+     *     The {@link URI} of the collection to synchronize.
+     * @param syncLevel
+     *     The {@link SyncLevel}.
+     * @param limit
+     *     The maximum number of results per report or <code>0</code> to not send a limit.
+     * @param properties
+     *     The properties to request for each changed member.
+     */
+    public CollectionSync(HttpRequestExecutor executor, DavContext davContext, URI collection, SyncLevel syncLevel, int limit,
+                          ElementDescriptor<?>... properties)
+    {
+        if (limit < 0)
+        {
+            throw new IllegalArgumentException("Limit must not be negative");
+        }
+        mExecutor = executor;
+        mDavContext = davContext;
+        mCollection = collection;
+        mIsCollection = new SameResource(collection);
+        mSyncLevel = syncLevel;
+        mLimit = limit;
+        mProperties = properties.clone();
+    }
+
+
+    /**
+     * Synchronizes the collection, starting at the given sync-token, and passes all changes to the given {@link SyncConsumer}.
+     *
+     * @param syncToken
+     *     The sync-token of the previous sync or <code>null</code> to perform an initial sync.
+     * @param consumer
+     *     The {@link SyncConsumer} to receive the results.
+     *
+     * @return The new sync-token.
+     */
+    public String sync(String syncToken, SyncConsumer consumer)
+        throws IOException, ProtocolError, ProtocolException, RedirectionException, UnexpectedStatusException
+    {
+        String token = syncToken;
+        boolean reset = false;
+        while (true)
+        {
+            MultistatusResponseReader reader;
+            try
+            {
+                reader = mExecutor.execute(mCollection, report(token));
+            }
+            catch (InvalidSyncTokenException e)
+            {
+                if (reset)
+                {
+                    // not even a token the server just returned is accepted, give up
+                    throw e;
+                }
+                reset = true;
+                consumer.onReset();
+                token = null;
+                continue;
+            }
+
+            boolean truncated = false;
+            String newToken;
+            try
+            {
+                while (reader.hasNextResponse())
+                {
+                    Response response = reader.getNextResponse(null);
+                    if (response.getStatus() == STATUS_INSUFFICIENT_STORAGE && mIsCollection.satisfiedBy(response.getHref()))
+                    {
+                        truncated = true;
+                    }
+                    else
+                    {
+                        consumer.onResponse(response);
+                    }
+                }
+                newToken = reader.syncToken();
+            }
+            finally
+            {
+                reader.close();
+            }
+
+            if (newToken == null || newToken.isEmpty())
+            {
+                throw new ProtocolError("sync-collection response without sync-token");
+            }
+            consumer.onSyncToken(newToken, !truncated);
+            if (!truncated)
+            {
+                return newToken;
+            }
+            if (newToken.equals(token))
+            {
+                throw new ProtocolError("truncated sync-collection response without progress");
+            }
+            token = newToken;
+        }
+    }
+
+
+    private SyncReport report(String syncToken)
+    {
+        SyncReport report = new SyncReport(mDavContext, mSyncLevel, syncToken);
+        if (mLimit > 0)
+        {
+            report.setResultLimit(mLimit);
+        }
+        report.addProperties(mProperties);
+        return report;
+    }
+}
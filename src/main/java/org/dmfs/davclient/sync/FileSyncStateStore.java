@@ -0,0 +1,522 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient.sync;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+
+/**
+ * A {@link SyncStateStore} that keeps the state in memory and persists all changes to an append-only log file.
+ * <p>
+ * Reads never touch the file and never block, they're served from concurrent maps. Every change is appended to the log as a single record with a checksum.
+ * When the file is opened, the log is replayed up to the first incomplete or corrupt record, which is the result of a crash during a write, and the remainder
+ * is discarded.
+ * </p>
+ * <p>
+ * Once the log contains considerably more records than live entries, it's compacted. The current state is written to a temporary file, which then replaces
+ * the log atomically, so a crash during the compaction leaves either the old or the new log.
+ * </p>
+ * <p>
+ * Changes are written to the operating system right away, call {@link #flush()} to force them to the storage device. Writers are serialized with a lock
+ * rather than a monitor, so a writer on a virtual thread doesn't pin its carrier thread while it waits for the file system.
+ * </p>
+ */
+public final class FileSyncStateStore implements SyncStateStore
+{
+    private final static int MAGIC = 0x4a445353; // "JDSS"
+    private final static int VERSION = 1;
+    private final static int HEADER_SIZE = 8;
+    private final static int MAX_RECORD_SIZE = 1024 * 1024;
+
+    /**
+     * The minimum number of records before a log is compacted.
+     */
+    private final static long COMPACTION_THRESHOLD = 16 * 1024;
+
+    private final static byte RECORD_SYNC_TOKEN = 1;
+    private final static byte RECORD_REMOVE_SYNC_TOKEN = 2;
+    private final static byte RECORD_ETAG = 3;
+    private final static byte RECORD_REMOVE = 4;
+    private final static byte RECORD_CLEAR = 5;
+
+    private final Path mFile;
+    private final ConcurrentMap<URI, String> mSyncTokens = new ConcurrentHashMap<>();
+    private final ConcurrentMap<URI, ConcurrentMap<URI, String>> mEtags = new ConcurrentHashMap<>();
+    private final ByteArrayOutputStream mRecordBuffer = new ByteArrayOutputStream(256);
+    private final DataOutputStream mRecordOut = new DataOutputStream(mRecordBuffer);
+    private final CRC32 mCrc = new CRC32();
+    private final Lock mLock = new ReentrantLock();
+
+    private FileChannel mChannel;
+    private long mRecords;
+    private long mLiveEntries;
+
+
+    /**
+     * Opens the {@link FileSyncStateStore} in the given file. The file is created if it doesn't exist.
+     *
+     * @param file
+     *     The {@link Path} of the log file.
+     */
+    public FileSyncStateStore(Path file) throws IOException
+    {
+        mFile = file;
+        long validLength = load();
+        mChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (validLength < HEADER_SIZE)
+        {
+            // new or unreadable file, start over
+            mChannel.truncate(0);
+            write(mChannel, header());
+        }
+        else
+        {
+            // drop an incomplete or corrupt tail
+            mChannel.truncate(validLength);
+            mChannel.position(validLength);
+        }
+    }
+
+
+    @Override
+    public String syncToken(URI collection)
+    {
+        return mSyncTokens.get(collection);
+    }
+
+
+    @Override
+    public String etag(URI collection, URI href)
+    {
+        Map<URI, String> etags = mEtags.get(collection);
+        return etags == null ? null : etags.get(href);
+    }
+
+
+    @Override
+    public Map<URI, String> etags(URI collection)
+    {
+        Map<URI, String> etags = mEtags.get(collection);
+        return etags == null ? Collections.<URI, String>emptyMap() : Collections.unmodifiableMap(etags);
+    }
+
+
+    @Override
+    public void putSyncToken(URI collection, String syncToken) throws IOException
+    {
+        mLock.lock();
+        try
+        {
+            if (syncToken == null)
+            {
+                append(RECORD_REMOVE_SYNC_TOKEN, collection.toString());
+            }
+            else
+            {
+                append(RECORD_SYNC_TOKEN, collection.toString(), syncToken);
+            }
+            applySyncToken(collection, syncToken);
+            compactIfNecessary();
+        }
+        finally
+        {
+            mLock.unlock();
+        }
+    }
+
+
+    @Override
+    public void putEtag(URI collection, URI href, String etag) throws IOException
+    {
+        mLock.lock();
+        try
+        {
+            append(RECORD_ETAG, collection.toString(), href.toString(), etag);
+            applyEtag(collection, href, etag);
+            compactIfNecessary();
+        }
+        finally
+        {
+            mLock.unlock();
+        }
+    }
+
+
+    @Override
+    public void remove(URI collection, URI href) throws IOException
+    {
+        mLock.lock();
+        try
+        {
+            append(RECORD_REMOVE, collection.toString(), href.toString());
+            applyEtag(collection, href, null);
+            compactIfNecessary();
+        }
+        finally
+        {
+            mLock.unlock();
+        }
+    }
+
+
+    @Override
+    public void clear(URI collection) throws IOException
+    {
+        mLock.lock();
+        try
+        {
+            append(RECORD_CLEAR, collection.toString());
+            applyClear(collection);
+            compactIfNecessary();
+        }
+        finally
+        {
+            mLock.unlock();
+        }
+    }
+
+
+    @Override
+    public void flush() throws IOException
+    {
+        mLock.lock();
+        try
+        {
+            mChannel.force(false);
+        }
+        finally
+        {
+            mLock.unlock();
+        }
+    }
+
+
+    /**
+     * Rewrites the log, so it contains only the live entries.
+     */
+    public void compact() throws IOException
+    {
+        mLock.lock();
+        try
+        {
+            Path temp = mFile.resolveSibling(mFile.getFileName() + ".compact");
+            long records = 0;
+            // the channel of the new log is kept open, it follows the file when it's moved, so there is nothing to reopen after the move
+            FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            try
+            {
+                write(channel, header());
+                for (Map.Entry<URI, String> token : mSyncTokens.entrySet())
+                {
+                    write(channel, record(RECORD_SYNC_TOKEN, token.getKey().toString(), token.getValue()));
+                    records += 1;
+                }
+                for (Map.Entry<URI, ConcurrentMap<URI, String>> collection : mEtags.entrySet())
+                {
+                    String collectionUri = collection.getKey().toString();
+                    for (Map.Entry<URI, String> etag : collection.getValue().entrySet())
+                    {
+                        write(channel, record(RECORD_ETAG, collectionUri, etag.getKey().toString(), etag.getValue()));
+                        records += 1;
+                    }
+                }
+                channel.force(true);
+                Files.move(temp, mFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (IOException | RuntimeException e)
+            {
+                // keep using the old log
+                channel.close();
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+
+            FileChannel old = mChannel;
+            mChannel = channel;
+            try
+            {
+                old.close();
+            }
+            catch (IOException e)
+            {
+                // the old log has been replaced already
+            }
+            syncDirectory(mFile);
+            mRecords = records;
+        }
+        finally
+        {
+            mLock.unlock();
+        }
+    }
+
+
+    @Override
+    public void close() throws IOException
+    {
+        mLock.lock();
+        try
+        {
+            mChannel.close();
+        }
+        finally
+        {
+            mLock.unlock();
+        }
+    }
+
+
+    /**
+     * Forces the directory entry of the given file to the storage device, so a rename survives a crash.
+     */
+    private static void syncDirectory(Path file)
+    {
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory == null)
+        {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ))
+        {
+            channel.force(true);
+        }
+        catch (IOException e)
+        {
+            // some platforms, like Windows, can't open or sync directories
+        }
+    }
+
+
+    /**
+     * Replays the log and returns the length of the valid part of the file.
+     */
+    private long load() throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(mFile), 64 * 1024)))
+        {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            {
+                throw new IOException("Not a sync state file: " + mFile);
+            }
+            long valid = HEADER_SIZE;
+            CRC32 crc = new CRC32();
+            while (true)
+            {
+                byte[] body;
+                try
+                {
+                    int length = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_SIZE)
+                    {
+                        return valid;
+                    }
+                    body = new byte[length];
+                    in.readFully(body);
+                    crc.reset();
+                    crc.update(body, 0, length);
+                    if (in.readInt() != (int) crc.getValue())
+                    {
+                        return valid;
+                    }
+                }
+                catch (EOFException e)
+                {
+                    return valid;
+                }
+                apply(ByteBuffer.wrap(body));
+                mRecords += 1;
+                valid += body.length + 8;
+            }
+        }
+        catch (NoSuchFileException e)
+        {
+            return 0;
+        }
+        catch (EOFException e)
+        {
+            // incomplete header
+            return 0;
+        }
+    }
+
+
+    private void apply(ByteBuffer record) throws IOException
+    {
+        byte type = record.get();
+        URI collection = URI.create(string(record));
+        switch (type)
+        {
+            case RECORD_SYNC_TOKEN:
+                applySyncToken(collection, string(record));
+                break;
+            case RECORD_REMOVE_SYNC_TOKEN:
+                applySyncToken(collection, null);
+                break;
+            case RECORD_ETAG:
+                applyEtag(collection, URI.create(string(record)), string(record));
+                break;
+            case RECORD_REMOVE:
+                applyEtag(collection, URI.create(string(record)), null);
+                break;
+            case RECORD_CLEAR:
+                applyClear(collection);
+                break;
+            default:
+                throw new IOException("Unknown record type " + type + " in " + mFile);
+        }
+    }
+
+
+    private void applySyncToken(URI collection, String syncToken)
+    {
+        String previous = syncToken == null ? mSyncTokens.remove(collection) : mSyncTokens.put(collection, syncToken);
+        mLiveEntries += (syncToken == null ? 0 : 1) - (previous == null ? 0 : 1);
+    }
+
+
+    private void applyEtag(URI collection, URI href, String etag)
+    {
+        String previous;
+        if (etag == null)
+        {
+            Map<URI, String> etags = mEtags.get(collection);
+            previous = etags == null ? null : etags.remove(href);
+        }
+        else
+        {
+            previous = mEtags.computeIfAbsent(collection, key -> new ConcurrentHashMap<>()).put(href, etag);
+        }
+        mLiveEntries += (etag == null ? 0 : 1) - (previous == null ? 0 : 1);
+    }
+
+
+    private void applyClear(URI collection)
+    {
+        Map<URI, String> etags = mEtags.remove(collection);
+        if (etags != null)
+        {
+            mLiveEntries -= etags.size();
+        }
+        applySyncToken(collection, null);
+    }
+
+
+    /**
+     * Compacts the log if more than half of its records are obsolete. The record that triggers this has been written already, so a failed compaction
+     * doesn't fail the write. The old log stays in use and the compaction is retried with the next write.
+     */
+    private void compactIfNecessary()
+    {
+        if (mRecords > COMPACTION_THRESHOLD && mRecords > 2 * mLiveEntries)
+        {
+            try
+            {
+                compact();
+            }
+            catch (IOException e)
+            {
+                // retried with the next write
+            }
+        }
+    }
+
+
+    private void append(byte type, String... values) throws IOException
+    {
+        write(mChannel, record(type, values));
+        mRecords += 1;
+    }
+
+
+    private ByteBuffer record(byte type, String... values) throws IOException
+    {
+        mRecordBuffer.reset();
+        DataOutputStream out = mRecordOut;
+        // placeholder for the length
+        out.writeInt(0);
+        out.writeByte(type);
+        for (String value : values)
+        {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        int length = mRecordBuffer.size() - 4;
+        if (length > MAX_RECORD_SIZE)
+        {
+            throw new IOException("Record too large");
+        }
+        mCrc.reset();
+        byte[] data = mRecordBuffer.toByteArray();
+        mCrc.update(data, 4, length);
+        ByteBuffer result = ByteBuffer.allocate(data.length + 4);
+        result.put(data).putInt(0, length).putInt((int) mCrc.getValue());
+        result.flip();
+        return result;
+    }
+
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+    }
+
+
+    private static String string(ByteBuffer record)
+    {
+        int length = record.getInt();
+        String result = new String(record.array(), record.arrayOffset() + record.position(), length, StandardCharsets.UTF_8);
+        record.position(record.position() + length);
+        return result;
+    }
+
+
+    private static ByteBuffer header()
+    {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION);
+        header.flip();
+        return header;
+    }
+}
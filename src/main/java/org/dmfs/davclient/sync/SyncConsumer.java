@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient.sync;
+
+import org.dmfs.dav.rfc4918.Response;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+
+import java.io.IOException;
+
+
+/**
+ * Receives the results of a {@link CollectionSync}.
+ */
+public interface SyncConsumer
+{
+    /**
+     * Called when the server rejected the sync-token, right before a full resync starts. All members of the collection known so far must be considered
+     * unconfirmed. Members that are not reported by the following full sync have been removed.
+     */
+    void onReset() throws IOException, ProtocolError;
+
+    /**
+     * Called for every changed or removed member of the collection. Removed members have the status <code>404</code>.
+     *
+     * @param response
+     *     The {@link Response} of the member.
+     */
+    void onResponse(Response response) throws IOException, ProtocolError;
+
+    /**
+     * Called after every chunk of results with the sync-token of that chunk. The sync-token can be stored to resume an interrupted sync.
+     *
+     * @param syncToken
+     *     The sync-token returned by the server.
+     * @param complete
+     *     <code>true</code> if this is the last chunk, <code>false</code> if the server truncated the result and more changes follow.
+     */
+    void onSyncToken(String syncToken, boolean complete) throws IOException, ProtocolError;
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient.sync;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+
+
+/**
+ * Stores the local sync state of collections, i.e. the sync-token of each collection and the ETags of its members.
+ * <p>
+ * Implementations must be thread-safe. Reads should be cheap enough to be called for every member of a sync.
+ * </p>
+ */
+public interface SyncStateStore extends Closeable
+{
+    /**
+     * Returns the sync-token of the given collection.
+     *
+     * @param collection
+     *     The {@link URI} of the collection.
+     *
+     * @return The sync-token or <code>null</code> if the collection has not been synchronized yet.
+     */
+    String syncToken(URI collection);
+
+    /**
+     * Returns the ETag of a member of the given collection.
+     *
+     * @param collection
+     *     The {@link URI} of the collection.
+     * @param href
+     *     The href of the member.
+     *
+     * @return The ETag or <code>null</code> if the member is not known.
+     */
+    String etag(URI collection, URI href);
+
+    /**
+     * Returns an unmodifiable view of the ETags of all known members of the given collection, by href.
+     *
+     * @param collection
+     *     The {@link URI} of the collection.
+     *
+     * @return A {@link Map} of hrefs to ETags.
+     */
+    Map<URI, String> etags(URI collection);
+
+    /**
+     * Stores the sync-token of the given collection.
+     *
+     * @param collection
+     *     The {@link URI} of the collection.
+     * @param syncToken
+     *     The sync-token or <code>null</code> to remove it.
+     */
+    void putSyncToken(URI collection, String syncToken) throws IOException;
+
+    /**
+     * Stores the ETag of a member of the given collection.
+     *
+     * @param collection
+     *     The {@link URI} of the collection.
+     * @param href
+     *     The href of the member.
+     * @param etag
+     *     The ETag of the member.
+     */
+    void putEtag(URI collection, URI href, String etag) throws IOException;
+
+    /**
+     * Removes a member of the given collection.
+     *
+     * @param collection
+     *     The {@link URI} of the collection.
+     * @param href
+     *     The href of the member.
+     */
+    void remove(URI collection, URI href) throws IOException;
+
+    /**
+     * Removes the sync-token and all members of the given collection.
+     *
+     * @param collection
+     *     The {@link URI} of the collection.
+     */
+    void clear(URI collection) throws IOException;
+
+    /**
+     * Makes sure all changes have been written to persistent storage.
+     */
+    void flush() throws IOException;
+}
@@ -0,0 +1,459 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient.sync;
+
+import org.dmfs.dav.rfc4918.Response;
+import org.dmfs.dav.rfc4918.WebDav;
+import org.dmfs.dav.rfc6578.SyncLevel;
+import org.dmfs.davclient.DavContext;
+import org.dmfs.davclient.HostConcurrencyLimit;
+import org.dmfs.davclient.SingleFlight;
+import org.dmfs.davclient.async.DavThreads;
+import org.dmfs.davclient.multiget.AdaptiveBatchSize;
+import org.dmfs.davclient.multiget.IncrementalHrefs;
+import org.dmfs.davclient.multiget.MultigetBatch;
+import org.dmfs.davclient.multiget.ParallelMultiget;
+import org.dmfs.httpessentials.HttpStatus;
+import org.dmfs.httpessentials.client.HttpRequestExecutor;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.httpessentials.exceptions.ProtocolException;
+import org.dmfs.httpessentials.exceptions.RedirectionException;
+import org.dmfs.httpessentials.exceptions.UnexpectedStatusException;
+import org.dmfs.jems2.Function;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * Synchronizes a collection in two overlapping phases.
+ * <p>
+ * The first phase lists the changes with sync-collection reports that request the ETags only (see {@link CollectionSync}). Members with an ETag that differs
+ * from the local one are fetched with multiget reports in the second phase. The multiget batches start while the sync-collection response is still being
+ * read, so fetching overlaps with listing.
+ * </p>
+ * <p>
+ * Members that have been removed are reported separately, this includes members that have been removed after they have been listed.
+ * </p>
+ */
+public final class TwoPhaseSync
+{
+    /**
+     * Marks the end of the href queue.
+     */
+    private final static URI END = URI.create("urn:x-end");
+
+    private final HttpRequestExecutor mExecutor;
+    private final DavContext mDavContext;
+    private final URI mCollection;
+    private final SyncLevel mSyncLevel;
+    private final MultigetBatch mMultiget;
+    private final AdaptiveBatchSize mBatchSize;
+    private final int mParallelism;
+    private final HostConcurrencyLimit mHostLimit;
+    private final Executor mThreads;
+
+
+    /**
+     * Creates a {@link TwoPhaseSync} that fetches up to {@link ParallelMultiget#DEFAULT_PARALLELISM} batches at a time on the
+     * {@link DavThreads#sharedExecutor() shared threads}, within the {@link HostConcurrencyLimit} of the given {@link DavContext}.
+     *
+     * @param executor
+     *     The {@link HttpRequestExecutor} to execute the requests, must be thread-safe.
+     * @param davContext
+     *     A {@link DavContext}.
+     * @param collection
+     *     The {@link URI} of the collection to synchronize.
+     * @param syncLevel
+     *     The {@link SyncLevel}.
+     * @param multiget
+     *     The {@link MultigetBatch} that creates the multiget reports for the changed members.
+     */
+    public TwoPhaseSync(HttpRequestExecutor executor, DavContext davContext, URI collection, SyncLevel syncLevel, MultigetBatch multiget)
+    {
+        this(executor, davContext, collection, syncLevel, multiget, new AdaptiveBatchSize(), ParallelMultiget.DEFAULT_PARALLELISM,
+            davContext.getHostConcurrencyLimit(),
+            DavThreads.sharedExecutor());
+    }
+
+
+    /**
+     * Creates a {@link TwoPhaseSync}.
+     *
+     * @param executor
+     *     The {@link HttpRequestExecutor} to execute the requests, must be thread-safe.
+     * @param davContext
+     *     A {@link DavContext}.
+     * @param collection
+     *     The {@link URI} of the collection to synchronize.
+     * @param syncLevel
+     *     The {@link SyncLevel}.
+     * @param multiget
+     *     The {@link MultigetBatch} that creates the multiget reports for the changed members.
+     * @param batchSize
+     *     The {@link AdaptiveBatchSize} that determines the number of hrefs per multiget.
+     * @param parallelism
+     *     The maximum number of concurrent multiget reports.
+     * @param hostLimit
+     *     The {@link HostConcurrencyLimit} of the host of the collection.
+     * @param threads
+     *     The {@link Executor} to fetch on. It must be able to run <code>parallelism + 1</code> tasks at the same time.
+     */
+    public TwoPhaseSync(HttpRequestExecutor executor, DavContext davContext, URI collection, SyncLevel syncLevel, MultigetBatch multiget,
+                        AdaptiveBatchSize batchSize, int parallelism, HostConcurrencyLimit hostLimit, Executor threads)
+    {
+        mExecutor = executor;
+        mDavContext = davContext;
+        mCollection = collection;
+        mSyncLevel = syncLevel;
+        mMultiget = multiget;
+        mBatchSize = batchSize;
+        mParallelism = parallelism;
+        mHostLimit = hostLimit;
+        mThreads = threads;
+    }
+
+
+    /**
+     * Synchronizes the collection, starting at the given sync-token. This returns when all changed members have been fetched.
+     * <p>
+     * The new sync-token is returned only after all changes have been passed to the {@link ChangeConsumer}, so it's safe to store it right away.
+     * </p>
+     *
+     * @param syncToken
+     *     The sync-token of the previous sync or <code>null</code> to perform an initial sync.
+     * @param localEtags
+     *     A {@link Function} that returns the local ETag of a member or <code>null</code> if there is no local version.
+     * @param consumer
+     *     The {@link ChangeConsumer} to receive the results.
+     *
+     * @return The new sync-token.
+     */
+    public String sync(String syncToken, Function<URI, String> localEtags, ChangeConsumer consumer)
+        throws IOException, ProtocolError, ProtocolException, RedirectionException, UnexpectedStatusException
+    {
+        BlockingQueue<URI> changed = new LinkedBlockingQueue<>();
+        Fetch fetch = new Fetch(changed, consumer);
+        mThreads.execute(fetch);
+
+        String result;
+        try
+        {
+            result = new CollectionSync(mExecutor, mDavContext, mCollection, mSyncLevel, WebDav.Properties.GETETAG).sync(syncToken,
+                new SyncConsumer()
+                {
+                    @Override
+                    public void onReset() throws IOException, ProtocolError
+                    {
+                        consumer.onReset();
+                    }
+
+
+                    @Override
+                    public void onResponse(Response response) throws IOException, ProtocolError
+                    {
+                        fetch.check();
+                        URI href = response.getHref();
+                        if (response.getStatus() == HttpStatus.NOT_FOUND.statusCode())
+                        {
+                            consumer.onRemoved(href);
+                            return;
+                        }
+                        Object etag = response.getPropertyValue(WebDav.Properties.GETETAG);
+                        String localEtag = localEtags.value(href);
+                        if (etag != null && localEtag != null && localEtag.equals(etag.toString()))
+                        {
+                            consumer.onUnchanged(href);
+                        }
+                        else
+                        {
+                            changed.add(href);
+                        }
+                    }
+
+
+                    @Override
+                    public void onSyncToken(String syncToken, boolean complete)
+                    {
+                        // the sync-token is returned once all changes have been fetched
+                    }
+                });
+        }
+        catch (FetchFailedException e)
+        {
+            // the fetch error is thrown below
+            result = null;
+        }
+        catch (Exception e)
+        {
+            // the listing failed, stop fetching
+            fetch.cancel();
+            fetch.awaitQuietly();
+            throw e;
+        }
+
+        changed.add(END);
+        fetch.await();
+        if (result == null)
+        {
+            throw new ProtocolError("sync failed without error");
+        }
+        return result;
+    }
+
+
+    /**
+     * Thrown on the listing thread to abort the listing after the fetch failed.
+     */
+    private final static class FetchFailedException extends IOException
+    {
+        FetchFailedException()
+        {
+            super("fetch failed");
+        }
+    }
+
+
+    /**
+     * Fetches the queued hrefs.
+     */
+    private final class Fetch implements Runnable
+    {
+        private final BlockingQueue<URI> mHrefs;
+        private final ChangeConsumer mConsumer;
+        private final CountDownLatch mDone = new CountDownLatch(1);
+        private final Lock mThreadLock = new ReentrantLock();
+        private volatile Exception mError;
+        private Thread mThread;
+
+
+        Fetch(BlockingQueue<URI> hrefs, ChangeConsumer consumer)
+        {
+            mHrefs = hrefs;
+            mConsumer = consumer;
+        }
+
+
+        @Override
+        public void run()
+        {
+            mThreadLock.lock();
+            try
+            {
+                mThread = Thread.currentThread();
+            }
+            finally
+            {
+                mThreadLock.unlock();
+            }
+            try
+            {
+                new ParallelMultiget(mExecutor, mCollection, mMultiget, QueueIterator::new, mBatchSize, mParallelism, mHostLimit, mThreads).run(
+                    response ->
+                    {
+                        if (response.getStatus() == HttpStatus.NOT_FOUND.statusCode())
+                        {
+                            // removed after it has been listed
+                            mConsumer.onRemoved(response.getHref());
+                        }
+                        else
+                        {
+                            mConsumer.onChanged(response);
+                        }
+                    },
+                    false,
+                    this::failed);
+            }
+            catch (Exception e)
+            {
+                failed(e);
+            }
+            finally
+            {
+                mThreadLock.lock();
+                try
+                {
+                    mThread = null;
+                    // don't leave a cancellation to the next task of the thread
+                    Thread.interrupted();
+                }
+                finally
+                {
+                    mThreadLock.unlock();
+                }
+                mDone.countDown();
+            }
+        }
+
+
+        /**
+         * Records the first error, so the listing stops with the next response, and ends the queue, so waiting multiget workers return.
+         */
+        private void failed(Exception error)
+        {
+            if (mError == null)
+            {
+                mError = error;
+            }
+            mHrefs.clear();
+            mHrefs.offer(END);
+        }
+
+
+        /**
+         * Stops fetching. The queued hrefs are dropped and the running multiget reports are cancelled by interrupting the fetch thread.
+         */
+        void cancel()
+        {
+            mHrefs.clear();
+            mHrefs.offer(END);
+            mThreadLock.lock();
+            try
+            {
+                if (mThread != null)
+                {
+                    mThread.interrupt();
+                }
+            }
+            finally
+            {
+                mThreadLock.unlock();
+            }
+        }
+
+
+        /**
+         * Throws a {@link FetchFailedException} if the fetch failed.
+         */
+        void check() throws FetchFailedException
+        {
+            if (mError != null)
+            {
+                throw new FetchFailedException();
+            }
+        }
+
+
+        /**
+         * Waits for the fetch to complete, ignoring its error. An interrupt is kept for the caller.
+         */
+        void awaitQuietly()
+        {
+            boolean interrupted = false;
+            while (true)
+            {
+                try
+                {
+                    mDone.await();
+                    break;
+                }
+                catch (InterruptedException e)
+                {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+
+        /**
+         * Waits for the fetch to complete and throws its error, if any.
+         */
+        void await() throws IOException, ProtocolError, ProtocolException
+        {
+            try
+            {
+                mDone.await();
+            }
+            catch (InterruptedException e)
+            {
+                // don't leave any workers behind
+                cancel();
+                awaitQuietly();
+                Thread.currentThread().interrupt();
+                InterruptedIOException exception = new InterruptedIOException("interrupted while waiting for the fetch to complete");
+                exception.initCause(e);
+                throw exception;
+            }
+
+            SingleFlight.rethrow(mError);
+        }
+
+
+        /**
+         * {@link IncrementalHrefs} that take the hrefs from the queue, blocking until the next href or the end of the queue is available. A batch is sent as
+         * soon as the queue runs empty, so the hrefs don't wait for further changes to be listed.
+         */
+        private final class QueueIterator implements IncrementalHrefs
+        {
+            private URI mNext;
+
+
+            @Override
+            public boolean hasNext()
+            {
+                if (mNext == null)
+                {
+                    try
+                    {
+                        mNext = mHrefs.take();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                        mNext = END;
+                    }
+                }
+                return mNext != END;
+            }
+
+
+            @Override
+            public boolean available()
+            {
+                return mNext != null || !mHrefs.isEmpty();
+            }
+
+
+            @Override
+            public URI next()
+            {
+                if (!hasNext())
+                {
+                    throw new NoSuchElementException("No more hrefs");
+                }
+                URI result = mNext;
+                mNext = null;
+                return result;
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.dmfs.davclient.utils;
+
+import org.dmfs.jems2.Predicate;
+
+import java.net.URI;
+
+
+/**
+ * A {@link Predicate} that is satisfied by hrefs referring to the given resource. Relative hrefs are resolved against the resource and a trailing slash is
+ * ignored, so a collection matches with and without it.
+ */
+public final class SameResource implements Predicate<URI>
+{
+    private final URI mResource;
+    private final String mPath;
+
+
+    public SameResource(URI resource)
+    {
+        mResource = resource;
+        mPath = trimmedPath(resource);
+    }
+
+
+    @Override
+    public boolean satisfiedBy(URI testedInstance)
+    {
+        return testedInstance != null && mPath.equals(trimmedPath(mResource.resolve(testedInstance)));
+    }
+
+
+    private static String trimmedPath(URI uri)
+    {
+        String path = uri.getRawPath();
+        if (path == null)
+        {
+            return "";
+        }
+        return path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    }
+}
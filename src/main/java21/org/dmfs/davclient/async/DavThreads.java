@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2026 Marten Gajda <marten@dmfs.org>
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+
+package org.dmfs.davclient.async;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+/**
+ * Creates {@link ExecutorService}s that run each task on a thread of its own, which suits the blocking request execution of this library.
+ * <p>
+ * This is the Java 21 variant of this class, which runs the tasks on virtual threads, so thousands of concurrent requests, like one sync per account, are
+ * cheap.
+ * </p>
+ */
+public final class DavThreads
+{
+    /**
+     * Returns a new {@link ExecutorService} that runs every task on a new virtual thread. The number of threads is not bounded, so limit the number of
+     * concurrent requests elsewhere, for instance with a {@link org.dmfs.davclient.HostConcurrencyLimit}.
+     * <p>
+     * The caller is responsible for shutting down the result.
+     * </p>
+     *
+     * @return A new {@link ExecutorService}.
+     */
+    public static ExecutorService newPerRequestExecutor()
+    {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("dav-request-", 1).factory());
+    }
+
+
+    /**
+     * Returns the {@link Executor} that the convenience constructors of this library share. Like the result of {@link #newPerRequestExecutor()}, it runs
+     * every task on a thread of its own. It's created when it's used for the first time and must not be shut down.
+     *
+     * @return The shared {@link Executor}.
+     */
+    public static Executor sharedExecutor()
+    {
+        return Shared.INSTANCE;
+    }
+
+
+    /**
+     * Returns whether the {@link ExecutorService}s returned by {@link #newPerRequestExecutor()} use virtual threads.
+     *
+     * @return <code>true</code> if tasks run on virtual threads.
+     */
+    public static boolean virtual()
+    {
+        return true;
+    }
+
+
+    private DavThreads()
+    {
+        // no instances
+    }
+
+
+    /**
+     * Holds the shared {@link Executor}, so it's only created when it's used for the first time.
+     */
+    private final static class Shared
+    {
+        final static Executor INSTANCE = newPerRequestExecutor();
+    }
+}
@@ -0,0 +1,100 @@
+package org.dmfs.davclient;
+
+import org.dmfs.dav.rfc4918.Depth;
+import org.dmfs.dav.rfc4918.WebDav;
+import org.dmfs.dav.rfc6578.SyncLevel;
+import org.dmfs.davclient.rfc4918.PropFind;
+import org.dmfs.davclient.rfc4918.PropPatch;
+import org.dmfs.davclient.rfc6578.SyncReport;
+import org.dmfs.httpessentials.headers.BasicSingletonHeaderType;
+import org.dmfs.httpessentials.headers.Headers;
+import org.dmfs.httpessentials.headers.SingletonHeaderType;
+import org.dmfs.httpessentials.typedentity.EntityConverter;
+import org.saynotobugs.confidence.Quality;
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.allOf;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+import static org.saynotobugs.confidence.quality.Core.has;
+
+
+@Confidence
+class BaseDavRequestTest
+{
+    private final static EntityConverter<String> STRING_CONVERTER = new EntityConverter<String>()
+    {
+        @Override
+        public String value(String valueString)
+        {
+            return valueString;
+        }
+
+
+        @Override
+        public String valueString(String value)
+        {
+            return value;
+        }
+    };
+
+    private final static SingletonHeaderType<String> PREFER = new BasicSingletonHeaderType<>("Prefer", STRING_CONVERTER);
+    private final static SingletonHeaderType<String> BRIEF = new BasicSingletonHeaderType<>("Brief", STRING_CONVERTER);
+    private final static SingletonHeaderType<String> DEPTH = new BasicSingletonHeaderType<>("Depth", STRING_CONVERTER);
+
+    Verifiable propFindIsNotMinimalByDefault = assertThat(new PropFind(new DavContext(), Depth.one, WebDav.Properties.GETETAG).headers(), notMinimal());
+
+    Verifiable propFindPrefersMinimalIfRequested = assertThat(minimal(new PropFind(new DavContext(), Depth.one, WebDav.Properties.GETETAG)).headers(),
+        allOf(preferMinimal(), has("contains Depth", headers -> headers.contains(DEPTH), equalTo(true))));
+
+    Verifiable propFindUsesTheSettingOfTheContext = assertThat(new PropFind(minimalContext(), Depth.one, WebDav.Properties.GETETAG).headers(),
+        preferMinimal());
+
+    Verifiable requestSettingOverridesTheContext = assertThat(notMinimal(new PropFind(minimalContext(), Depth.one, WebDav.Properties.GETETAG)).headers(),
+        notMinimal());
+
+    Verifiable propPatchPrefersMinimalIfRequested = assertThat(minimal(new PropPatch(new DavContext())).headers(), preferMinimal());
+
+    Verifiable reportPrefersMinimalIfRequested = assertThat(new SyncReport(minimalContext(), SyncLevel.one).headers(), preferMinimal());
+
+    Verifiable reportIsNotMinimalByDefault = assertThat(new SyncReport(new DavContext(), SyncLevel.one).headers(), notMinimal());
+
+
+    private static DavContext minimalContext()
+    {
+        DavContext davContext = new DavContext();
+        davContext.setPreferMinimal(true);
+        return davContext;
+    }
+
+
+    private static <T extends BaseDavRequest<?>> T minimal(T request)
+    {
+        request.setPreferMinimal(true);
+        return request;
+    }
+
+
+    private static <T extends BaseDavRequest<?>> T notMinimal(T request)
+    {
+        request.setPreferMinimal(false);
+        return request;
+    }
+
+
+    private static Quality<Headers> preferMinimal()
+    {
+        return allOf(
+            has("Prefer", headers -> headers.header(PREFER).value(), equalTo("return=minimal")),
+            has("Brief", headers -> headers.header(BRIEF).value(), equalTo("t")));
+    }
+
+
+    private static Quality<Headers> notMinimal()
+    {
+        return allOf(
+            has("contains Prefer", headers -> headers.contains(PREFER), equalTo(false)),
+            has("contains Brief", headers -> headers.contains(BRIEF), equalTo(false)));
+    }
+}
@@ -0,0 +1,147 @@
+package org.dmfs.davclient;
+
+import org.dmfs.httpessentials.client.HttpRequestEntity;
+import org.dmfs.httpessentials.types.MediaType;
+import org.dmfs.jems.optional.Optional;
+import org.dmfs.jems.optional.elementary.Absent;
+import org.dmfs.jems.optional.elementary.Present;
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+import static org.saynotobugs.confidence.quality.Core.has;
+import static org.saynotobugs.confidence.quality.Core.iterates;
+import static org.saynotobugs.confidence.quality.Core.sameAs;
+import static org.saynotobugs.confidence.quality.Core.throwing;
+
+
+@Confidence
+class BufferedRequestEntityTest
+{
+    private final static String CONTENT = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+        + "<d:propfind xmlns:d=\"DAV:\"><d:prop><d:displayname>K\u00e4se</d:displayname></d:prop></d:propfind>";
+
+    Verifiable contentLengthIsExact = assertThat(new BufferedRequestEntity(new CountingEntity(CONTENT)),
+        has("content length", entity -> entity.contentLength().value(), equalTo((long) CONTENT.getBytes(StandardCharsets.UTF_8).length)));
+
+    Verifiable contentIsWrittenUnchanged = assertThat(new BufferedRequestEntity(new CountingEntity(CONTENT)),
+        has("content", BufferedRequestEntityTest::written, equalTo(CONTENT)));
+
+    Verifiable repeatedWritesWriteTheSameContent = assertThat(new BufferedRequestEntity(new CountingEntity(CONTENT)),
+        has("content", BufferedRequestEntityTest::writtenTwice, iterates(CONTENT, CONTENT)));
+
+    Verifiable entityIsRenderedOnce = assertThat(retried(), has("render count", entity -> entity.mRenderCount, equalTo(1)));
+
+    Verifiable contentTypeIsDelegated = assertThat(new BufferedRequestEntity(new CountingEntity(CONTENT)),
+        has("content type", entity -> entity.contentType().value(), sameAs(Constants.CONTENT_TYPE_APPLICATION_XML)));
+
+    Verifiable renderErrorsAreThrownOnWrite = assertThat(() -> written(new BufferedRequestEntity(new FailingEntity())), throwing(IOException.class));
+
+
+    /**
+     * Asks for the length and writes the content twice, like a client that retries a request, and returns the delegate.
+     */
+    private static CountingEntity retried()
+    {
+        try
+        {
+            CountingEntity delegate = new CountingEntity(CONTENT);
+            BufferedRequestEntity entity = new BufferedRequestEntity(delegate);
+            entity.contentLength();
+            written(entity);
+            written(entity);
+            return delegate;
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    private static List<String> writtenTwice(HttpRequestEntity entity) throws IOException
+    {
+        return Arrays.asList(written(entity), written(entity));
+    }
+
+
+    private static String written(HttpRequestEntity entity) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entity.writeContent(out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * An {@link HttpRequestEntity} that counts how often it's rendered and doesn't know its length.
+     */
+    private final static class CountingEntity implements HttpRequestEntity
+    {
+        private final String mContent;
+        private int mRenderCount;
+
+
+        CountingEntity(String content)
+        {
+            mContent = content;
+        }
+
+
+        @Override
+        public Optional<MediaType> contentType()
+        {
+            return new Present<>(Constants.CONTENT_TYPE_APPLICATION_XML);
+        }
+
+
+        @Override
+        public Optional<Long> contentLength()
+        {
+            return Absent.absent();
+        }
+
+
+        @Override
+        public void writeContent(OutputStream out) throws IOException
+        {
+            mRenderCount += 1;
+            out.write(mContent.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+
+    /**
+     * An {@link HttpRequestEntity} that can't be rendered.
+     */
+    private final static class FailingEntity implements HttpRequestEntity
+    {
+        @Override
+        public Optional<MediaType> contentType()
+        {
+            return new Present<>(Constants.CONTENT_TYPE_APPLICATION_XML);
+        }
+
+
+        @Override
+        public Optional<Long> contentLength()
+        {
+            return Absent.absent();
+        }
+
+
+        @Override
+        public void writeContent(OutputStream out) throws IOException
+        {
+            throw new IOException("can't render");
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package org.dmfs.davclient;
+
+import org.dmfs.davclient.rfc7231.HttpOptions;
+import org.dmfs.httpessentials.HttpStatus;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.httpessentials.exceptions.ProtocolException;
+import org.dmfs.httpessentials.headers.BasicListHeaderType;
+import org.dmfs.httpessentials.headers.EmptyHeaders;
+import org.dmfs.httpessentials.headers.ListHeaderType;
+import org.dmfs.httpessentials.typedentity.EntityConverter;
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+
+
+@Confidence
+class CapabilityCacheTest
+{
+    private final static URI RESOURCE = URI.create("https://Example.com/cal/");
+
+    private final static URI SAME_ORIGIN = URI.create("https://example.com:443/card/");
+
+    private final static URI OTHER_ORIGIN = URI.create("http://example.com/cal/");
+
+    private final static int THREADS = 8;
+
+    private final static ListHeaderType<String> DAV = new BasicListHeaderType<>("DAV", new EntityConverter<String>()
+    {
+        @Override
+        public String value(String valueString)
+        {
+            return valueString;
+        }
+
+
+        @Override
+        public String valueString(String value)
+        {
+            return value;
+        }
+    });
+
+    private final static HttpOptions OPTIONS = new HttpOptions(Arrays.asList("1", "calendar-access"), Arrays.asList("PROPFIND", "REPORT"));
+
+    Verifiable entriesAreSharedByOrigin = assertThat(cached(TimeUnit.HOURS.toMillis(1)), equalTo("[1, calendar-access] [1, calendar-access] null"));
+
+    Verifiable expiredEntriesAreDropped = assertThat(cached(0), equalTo("null null null"));
+
+    Verifiable entriesSurviveStoreAndLoad = assertThat(restored(TimeUnit.HOURS.toMillis(1)), equalTo("[1, calendar-access] [PROPFIND, REPORT]"));
+
+    Verifiable expiredEntriesAreNotStored = assertThat(restored(0), equalTo("null"));
+
+    Verifiable optionsAreRequestedOnce = assertThat(requested(), equalTo(Arrays.asList("OPTIONS https://Example.com/cal/ ")));
+
+    Verifiable concurrentCallersShareOneRequest = assertThat(concurrent(), equalTo("1 " + Collections.nCopies(THREADS, "[1, calendar-access]")));
+
+    Verifiable failedRequestsAreNotCached = assertThat(failedFirst(), equalTo("server down, 2 requests, [1, calendar-access]"));
+
+
+    /**
+     * Puts {@link #OPTIONS} into a cache with the given TTL and returns the DAV classes cached for the same resource, the same origin and another origin.
+     */
+    private static String cached(long ttlMillis)
+    {
+        CapabilityCache cache = new CapabilityCache(ttlMillis, TimeUnit.MILLISECONDS);
+        cache.put(RESOURCE, OPTIONS);
+        return classes(cache.get(RESOURCE)) + " " + classes(cache.get(SAME_ORIGIN)) + " " + classes(cache.get(OTHER_ORIGIN));
+    }
+
+
+    /**
+     * Stores a cache with the given TTL and returns the options a new cache has after loading it.
+     */
+    private static String restored(long ttlMillis)
+    {
+        try
+        {
+            CapabilityCache cache = new CapabilityCache(ttlMillis, TimeUnit.MILLISECONDS);
+            cache.put(RESOURCE, OPTIONS);
+            StringWriter writer = new StringWriter();
+            cache.store(writer);
+
+            CapabilityCache restored = new CapabilityCache();
+            restored.load(new StringReader("garbage\n" + writer));
+            HttpOptions options = restored.get(SAME_ORIGIN);
+            return options == null ? "null" : options.davClasses() + " " + options.allowedMethods();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    private static List<String> requested()
+    {
+        FakeExecutor executor = new FakeExecutor((uri, method, body) -> response(uri));
+        CapabilityCache cache = new CapabilityCache();
+        try
+        {
+            cache.options(executor, RESOURCE);
+            cache.options(executor, SAME_ORIGIN);
+        }
+        catch (IOException | ProtocolError | ProtocolException e)
+        {
+            throw new RuntimeException(e);
+        }
+        return executor.requests();
+    }
+
+
+    /**
+     * Requests the options from {@link #THREADS} threads at once and returns the number of requests and the results.
+     */
+    private static String concurrent()
+    {
+        FakeExecutor executor = new FakeExecutor((uri, method, body) ->
+        {
+            try
+            {
+                // keep the request in flight long enough for the other threads to arrive
+                Thread.sleep(100);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            return response(uri);
+        });
+        CapabilityCache cache = new CapabilityCache();
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+        try
+        {
+            List<Callable<HttpOptions>> tasks = new ArrayList<>();
+            for (int i = 0; i < THREADS; ++i)
+            {
+                tasks.add(() -> cache.options(executor, RESOURCE));
+            }
+            List<String> results = new ArrayList<>();
+            for (Future<HttpOptions> result : threads.invokeAll(tasks))
+            {
+                results.add(classes(result.get()));
+            }
+            return executor.requests().size() + " " + results;
+        }
+        catch (InterruptedException | ExecutionException e)
+        {
+            throw new RuntimeException(e);
+        }
+        finally
+        {
+            threads.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Requests the options from a server that fails the first request and returns the error, the number of requests and the result of a second attempt.
+     */
+    private static String failedFirst()
+    {
+        AtomicInteger count = new AtomicInteger();
+        FakeExecutor executor = new FakeExecutor((uri, method, body) ->
+        {
+            if (count.getAndIncrement() == 0)
+            {
+                throw new IOException("server down");
+            }
+            return response(uri);
+        });
+        CapabilityCache cache = new CapabilityCache();
+        String error;
+        try
+        {
+            cache.options(executor, RESOURCE);
+            error = "no error";
+        }
+        catch (IOException e)
+        {
+            error = e.getMessage();
+        }
+        catch (ProtocolError | ProtocolException e)
+        {
+            throw new RuntimeException(e);
+        }
+        try
+        {
+            String retried = classes(cache.options(executor, RESOURCE));
+            return error + ", " + executor.requests().size() + " requests, " + retried;
+        }
+        catch (IOException | ProtocolError | ProtocolException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    private static FakeResponse response(URI uri)
+    {
+        return new FakeResponse(uri, HttpStatus.OK, EmptyHeaders.INSTANCE.withHeader(DAV.entity(Arrays.asList("1", "calendar-access"))), null);
+    }
+
+
+    private static String classes(HttpOptions options)
+    {
+        return options == null ? "null" : options.davClasses().toString();
+    }
+}
@@ -0,0 +1,263 @@
+package org.dmfs.davclient;
+
+import org.dmfs.dav.DavParserContext;
+import org.dmfs.dav.rfc4918.Response;
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.QualifiedName;
+import org.dmfs.xmlobjects.builder.StringObjectBuilder;
+import org.saynotobugs.confidence.Quality;
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.allOf;
+import static org.saynotobugs.confidence.quality.Core.emptyIterable;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+import static org.saynotobugs.confidence.quality.Core.has;
+import static org.saynotobugs.confidence.quality.Core.iterates;
+import static org.saynotobugs.confidence.quality.Core.lessThanOrEqualTo;
+import static org.saynotobugs.confidence.quality.Core.sameAs;
+
+
+@Confidence
+class DavContextTest
+{
+    private final static int THREADS = 8;
+    private final static int ROUNDS = 10000;
+    private final static int PARSE_ROUNDS = 50;
+    private final static int RESPONSES = 20;
+
+    private final static ElementDescriptor<String> VALUE = ElementDescriptor.register(QualifiedName.get("urn:dmfs:test", "context-value"),
+        StringObjectBuilder.INSTANCE);
+
+    private final static URI COLLECTION = URI.create("https://example.com/cal/");
+
+    Verifiable defaultContextNeverSharesParserContexts = assertThat(sharedAcquisitions(new DavContext()), emptyIterable());
+
+    Verifiable generatedContextNeverSharesParserContexts = assertThat(sharedAcquisitions(new DavContext(DavParserContext::new)), emptyIterable());
+
+    Verifiable generatedContextsAreReused = assertThat(createdWhileAcquiring(), lessThanOrEqualTo(THREADS));
+
+    Verifiable defaultContextParsesConcurrently = assertThat(parsedConcurrently(new DavContext()), iterates(parsedByEachThread()));
+
+    Verifiable generatedContextParsesConcurrently = assertThat(parsedConcurrently(new DavContext(() ->
+    {
+        DavParserContext parserContext = new DavParserContext();
+        parserContext.setStrict(true);
+        return parserContext;
+    })), iterates(parsedByEachThread()));
+
+    Verifiable generatedContextsAreReusedByParsers = assertThat(createdWhileParsing(), lessThanOrEqualTo(THREADS));
+
+    Verifiable sharedContextIsAlwaysReturned = sharedContextIsAlwaysReturned();
+
+
+    /**
+     * Acquires and releases {@link DavParserContext}s on {@link #THREADS} threads at the same time and returns the {@link DavParserContext}s that were handed
+     * out while they were still in use by another thread.
+     */
+    private static List<DavParserContext> sharedAcquisitions(DavContext davContext)
+    {
+        Set<DavParserContext> inUse = ConcurrentHashMap.newKeySet();
+        List<DavParserContext> shared = new CopyOnWriteArrayList<>();
+        concurrently(thread ->
+        {
+            for (int round = 0; round < ROUNDS; ++round)
+            {
+                DavParserContext context = davContext.acquireParserContext();
+                if (!inUse.add(context))
+                {
+                    shared.add(context);
+                }
+                inUse.remove(context);
+                davContext.releaseParserContext(context);
+            }
+        });
+        return shared;
+    }
+
+
+    /**
+     * Returns the number of {@link DavParserContext}s a {@link DavContext} creates while they are acquired and released on {@link #THREADS} threads.
+     */
+    private static int createdWhileAcquiring()
+    {
+        AtomicInteger created = new AtomicInteger();
+        sharedAcquisitions(new DavContext(() ->
+        {
+            created.incrementAndGet();
+            return new DavParserContext();
+        }));
+        return created.get();
+    }
+
+
+    /**
+     * Returns the number of {@link DavParserContext}s a {@link DavContext} creates while responses are parsed on {@link #THREADS} threads.
+     */
+    private static int createdWhileParsing()
+    {
+        AtomicInteger created = new AtomicInteger();
+        parsedConcurrently(new DavContext(() ->
+        {
+            created.incrementAndGet();
+            DavParserContext parserContext = new DavParserContext();
+            parserContext.setStrict(true);
+            return parserContext;
+        }));
+        return created.get();
+    }
+
+
+    /**
+     * Parses multistatus responses with the {@link MultiStatusResponseHandler} of the given {@link DavContext} on {@link #THREADS} threads at the same time
+     * and returns the {@link Response}s each thread has read.
+     */
+    private static List<List<Response>> parsedConcurrently(DavContext davContext)
+    {
+        MultiStatusResponseHandler handler = davContext.getMultistatusResponseHandler();
+        List<List<Response>> result = new ArrayList<>();
+        for (int i = 0; i < THREADS; ++i)
+        {
+            result.add(new ArrayList<>());
+        }
+        concurrently(thread ->
+        {
+            List<Response> responses = result.get(thread);
+            for (int round = 0; round < PARSE_ROUNDS; ++round)
+            {
+                MultistatusResponseReader reader = handler.handleResponse(new FakeResponse(COLLECTION, multistatus(prefix(thread, round))));
+                try
+                {
+                    while (reader.hasNextResponse())
+                    {
+                        responses.add(reader.getNextResponse(null));
+                    }
+                }
+                finally
+                {
+                    reader.close();
+                }
+            }
+        });
+        return result;
+    }
+
+
+    /**
+     * Returns the {@link Quality}s of the {@link Response}s read by each thread in {@link #parsedConcurrently(DavContext)}.
+     */
+    private static List<Quality<? super List<Response>>> parsedByEachThread()
+    {
+        List<Quality<? super List<Response>>> result = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; ++thread)
+        {
+            List<Quality<? super Response>> responses = new ArrayList<>();
+            for (int round = 0; round < PARSE_ROUNDS; ++round)
+            {
+                for (int i = 0; i < RESPONSES; ++i)
+                {
+                    String value = prefix(thread, round) + i;
+                    responses.add(allOf(
+                        has("href", response -> response.getHref().getPath(), equalTo("/cal/" + value + ".ics")),
+                        has("value", response -> response.getPropertyValue(VALUE), equalTo(value))));
+                }
+            }
+            result.add(iterates(responses));
+        }
+        return result;
+    }
+
+
+    private static Verifiable sharedContextIsAlwaysReturned()
+    {
+        DavParserContext parserContext = new DavParserContext();
+        DavContext davContext = new DavContext(parserContext);
+        return assertThat(Arrays.asList(davContext.acquireParserContext(), davContext.acquireParserContext()),
+            iterates(sameAs(parserContext), sameAs(parserContext)));
+    }
+
+
+    /**
+     * Runs the given {@link Task} on {@link #THREADS} threads, which start at the same time, and waits for all of them. The first error of a task is rethrown.
+     */
+    private static void concurrently(Task task)
+    {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Exception> error = new AtomicReference<>();
+        Thread[] threads = new Thread[THREADS];
+        for (int i = 0; i < THREADS; ++i)
+        {
+            int thread = i;
+            threads[i] = new Thread(() ->
+            {
+                try
+                {
+                    start.await();
+                    task.run(thread);
+                }
+                catch (Exception e)
+                {
+                    error.compareAndSet(null, e);
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        try
+        {
+            for (Thread thread : threads)
+            {
+                thread.join();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            throw new RuntimeException(e);
+        }
+        if (error.get() != null)
+        {
+            throw new RuntimeException(error.get());
+        }
+    }
+
+
+    private static String prefix(int thread, int round)
+    {
+        return "t" + thread + "-" + round + "-";
+    }
+
+
+    private static String multistatus(String prefix)
+    {
+        StringBuilder result = new StringBuilder(4096);
+        result.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<d:multistatus xmlns:d=\"DAV:\" xmlns:t=\"urn:dmfs:test\">\n");
+        for (int i = 0; i < RESPONSES; ++i)
+        {
+            result.append("<d:response><d:href>/cal/").append(prefix).append(i).append(".ics</d:href><d:propstat><d:prop><t:context-value>")
+                .append(prefix).append(i)
+                .append("</t:context-value></d:prop><d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>\n");
+        }
+        return result.append("</d:multistatus>\n").toString();
+    }
+
+
+    /**
+     * A task of a single thread.
+     */
+    private interface Task
+    {
+        void run(int thread) throws Exception;
+    }
+}
@@ -0,0 +1,75 @@
+package org.dmfs.davclient;
+
+import org.dmfs.httpessentials.client.HttpRequest;
+import org.dmfs.httpessentials.client.HttpRequestExecutor;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.httpessentials.exceptions.ProtocolException;
+import org.dmfs.httpessentials.exceptions.RedirectionException;
+import org.dmfs.httpessentials.exceptions.UnexpectedStatusException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+
+/**
+ * An {@link HttpRequestExecutor} that hands every request to a {@link Server} and passes the {@link FakeResponse} to the response handler of the request,
+ * like a real client would. It records the method, the {@link URI} and the body of every request.
+ */
+public final class FakeExecutor implements HttpRequestExecutor
+{
+    /**
+     * Creates the response to a request.
+     */
+    public interface Server
+    {
+        FakeResponse respond(URI uri, String method, String body) throws IOException;
+    }
+
+
+    private final Server mServer;
+    private final List<String> mRequests = new CopyOnWriteArrayList<>();
+    private final List<FakeResponse> mResponses = new CopyOnWriteArrayList<>();
+
+
+    public FakeExecutor(Server server)
+    {
+        mServer = server;
+    }
+
+
+    @Override
+    public <T> T execute(URI uri, HttpRequest<T> request)
+        throws IOException, ProtocolError, ProtocolException, RedirectionException, UnexpectedStatusException
+    {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        request.requestEntity().writeContent(body);
+        String method = request.method().verb();
+        String content = new String(body.toByteArray(), StandardCharsets.UTF_8);
+        mRequests.add(method + " " + uri + " " + content);
+        FakeResponse response = mServer.respond(uri, method, content);
+        mResponses.add(response);
+        return request.responseHandler(response).handleResponse(response);
+    }
+
+
+    /**
+     * Returns the method, the {@link URI} and the body of every request executed so far.
+     */
+    public List<String> requests()
+    {
+        return mRequests;
+    }
+
+
+    /**
+     * Returns all responses returned so far.
+     */
+    public List<FakeResponse> responses()
+    {
+        return mResponses;
+    }
+}
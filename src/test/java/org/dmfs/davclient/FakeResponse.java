@@ -0,0 +1,249 @@
+package org.dmfs.davclient;
+
+import org.dmfs.httpessentials.HttpStatus;
+import org.dmfs.httpessentials.client.HttpResponse;
+import org.dmfs.httpessentials.client.HttpResponseEntity;
+import org.dmfs.httpessentials.headers.EmptyHeaders;
+import org.dmfs.httpessentials.headers.Headers;
+import org.dmfs.httpessentials.types.MediaType;
+import org.dmfs.httpessentials.types.StructuredMediaType;
+import org.dmfs.jems.optional.Optional;
+import org.dmfs.jems.optional.elementary.Present;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * An {@link HttpResponse} with a canned XML body. It records how much of the body has been read and whether the body has been closed.
+ */
+public final class FakeResponse implements HttpResponse
+{
+    private final URI mUri;
+    private final HttpStatus mStatus;
+    private final Headers mHeaders;
+    private final Body mBody;
+
+
+    /**
+     * Creates a <code>207 Multi-Status</code> response with the given body.
+     */
+    public FakeResponse(URI uri, String body)
+    {
+        this(uri, HttpStatus.MULTISTATUS, EmptyHeaders.INSTANCE, body);
+    }
+
+
+    /**
+     * Creates a <code>207 Multi-Status</code> response with the given body, which throws the given {@link IOException} when the given offset is reached, like
+     * a connection that fails.
+     */
+    public FakeResponse(URI uri, String body, int failAt, IOException failure)
+    {
+        this(uri, HttpStatus.MULTISTATUS, EmptyHeaders.INSTANCE, body, failAt, failure);
+    }
+
+
+    /**
+     * Creates a <code>207 Multi-Status</code> response with the given body, which stalls when the given offset is reached, like a connection that doesn't
+     * deliver any more data. A read at that offset blocks until the body is closed.
+     */
+    public FakeResponse(URI uri, String body, int stallAt)
+    {
+        this(uri, HttpStatus.MULTISTATUS, EmptyHeaders.INSTANCE, body, stallAt, null);
+    }
+
+
+    /**
+     * Creates a response with the given status, headers and body. A <code>null</code> body results in a response without entity.
+     */
+    public FakeResponse(URI uri, HttpStatus status, Headers headers, String body)
+    {
+        this(uri, status, headers, body, Integer.MAX_VALUE, null);
+    }
+
+
+    private FakeResponse(URI uri, HttpStatus status, Headers headers, String body, int breakAt, IOException failure)
+    {
+        mUri = uri;
+        mStatus = status;
+        mHeaders = headers;
+        mBody = body == null ? null : new Body(body.getBytes(StandardCharsets.UTF_8), breakAt, failure);
+    }
+
+
+    @Override
+    public HttpStatus status()
+    {
+        return mStatus;
+    }
+
+
+    @Override
+    public Headers headers()
+    {
+        return mHeaders;
+    }
+
+
+    @Override
+    public HttpResponseEntity responseEntity()
+    {
+        if (mBody == null)
+        {
+            return null;
+        }
+        return new HttpResponseEntity()
+        {
+            @Override
+            public Optional<MediaType> contentType()
+            {
+                return new Present<>(new StructuredMediaType("application", "xml", "utf-8"));
+            }
+
+
+            @Override
+            public Optional<Long> contentLength()
+            {
+                return new Present<>((long) mBody.length());
+            }
+
+
+            @Override
+            public InputStream contentStream()
+            {
+                return mBody;
+            }
+        };
+    }
+
+
+    @Override
+    public URI requestUri()
+    {
+        return mUri;
+    }
+
+
+    @Override
+    public URI responseUri()
+    {
+        return mUri;
+    }
+
+
+    /**
+     * Returns the number of bytes of the body that have not been read.
+     */
+    public int remaining()
+    {
+        return mBody == null ? 0 : mBody.remaining();
+    }
+
+
+    /**
+     * Returns whether the body has been closed.
+     */
+    public boolean closed()
+    {
+        return mBody != null && mBody.closed();
+    }
+
+
+    /**
+     * The body of the response. Like a network stream, it can't be read after it has been closed.
+     */
+    private final static class Body extends InputStream
+    {
+        private final byte[] mContent;
+        private final int mBreakAt;
+        private final IOException mFailure;
+        private int mPosition;
+        private boolean mClosed;
+
+
+        /**
+         * Creates a body that breaks at the given offset. It throws the given {@link IOException} or, if that's <code>null</code>, blocks until it's
+         * closed.
+         */
+        private Body(byte[] content, int breakAt, IOException failure)
+        {
+            mContent = content;
+            mBreakAt = breakAt;
+            mFailure = failure;
+        }
+
+
+        @Override
+        public int read() throws IOException
+        {
+            byte[] buffer = new byte[1];
+            return read(buffer, 0, 1) < 0 ? -1 : buffer[0] & 0xff;
+        }
+
+
+        @Override
+        public synchronized int read(byte[] buffer, int offset, int length) throws IOException
+        {
+            if (mPosition >= mBreakAt && mPosition < mContent.length)
+            {
+                if (mFailure != null)
+                {
+                    throw mFailure;
+                }
+                while (!mClosed)
+                {
+                    try
+                    {
+                        wait();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        throw new InterruptedIOException();
+                    }
+                }
+            }
+            if (mClosed)
+            {
+                throw new IOException("stream closed");
+            }
+            if (mPosition >= mContent.length)
+            {
+                return -1;
+            }
+            int count = Math.min(length, Math.min(mContent.length, mBreakAt) - mPosition);
+            System.arraycopy(mContent, mPosition, buffer, offset, count);
+            mPosition += count;
+            return count;
+        }
+
+
+        @Override
+        public synchronized void close()
+        {
+            mClosed = true;
+            notifyAll();
+        }
+
+
+        synchronized boolean closed()
+        {
+            return mClosed;
+        }
+
+
+        synchronized int remaining()
+        {
+            return mContent.length - mPosition;
+        }
+
+
+        int length()
+        {
+            return mContent.length;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package org.dmfs.davclient;
+
+import org.dmfs.dav.rfc4918.Response;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.QualifiedName;
+import org.dmfs.xmlobjects.builder.StringObjectBuilder;
+import org.saynotobugs.confidence.Quality;
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.allOf;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+import static org.saynotobugs.confidence.quality.Core.has;
+import static org.saynotobugs.confidence.quality.Core.iterates;
+import static org.saynotobugs.confidence.quality.Core.nullValue;
+import static org.saynotobugs.confidence.quality.Core.sameAs;
+
+
+@Confidence
+class MultistatusXmlPullParserTest
+{
+    private final static String NAMESPACE = "urn:dmfs:test";
+
+    private final static String CALDAV = "urn:ietf:params:xml:ns:caldav";
+
+    private final static ElementDescriptor<String> KEPT = ElementDescriptor.register(QualifiedName.get(NAMESPACE, "kept"), StringObjectBuilder.INSTANCE);
+
+    private final static ElementDescriptor<String> SKIPPED = ElementDescriptor.register(QualifiedName.get(NAMESPACE, "skipped"),
+        StringObjectBuilder.INSTANCE);
+
+    private final static URI COLLECTION = URI.create("https://example.com/cal/");
+
+    private final static String MULTISTATUS = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+        + "<d:multistatus xmlns:d=\"DAV:\" xmlns:t=\"" + NAMESPACE + "\">\n"
+        + "<d:response><d:href>/cal/</d:href><d:propstat><d:prop>"
+        + "<t:skipped>s1</t:skipped><t:kept>k1</t:kept>"
+        + "</d:prop><d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>\n"
+        + "<d:response><d:href>/cal/a.ics</d:href><d:propstat><d:prop>"
+        + "<t:other><t:nested>o2</t:nested></t:other><t:kept>k2</t:kept><t:skipped>s2</t:skipped>"
+        + "</d:prop><d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>\n"
+        + "<d:response><d:href>/cal/b.ics</d:href><d:propstat><d:prop>"
+        + "<t:kept>k3</t:kept>"
+        + "</d:prop><d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>\n"
+        + "<d:sync-token>http://example.com/sync/5</d:sync-token>\n"
+        + "</d:multistatus>\n";
+
+    /**
+     * A PROPFIND result with the home set, a calendar, a scheduling inbox and a plain resource. The resource type of the plain resource precedes a nested
+     * element with a <code>collection</code> child, which must not count as its resource type.
+     */
+    private final static String RESOURCETYPES = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+        + "<d:multistatus xmlns:d=\"DAV:\" xmlns:c=\"" + CALDAV + "\" xmlns:t=\"" + NAMESPACE + "\">\n"
+        + "<d:response><d:href>/cal/</d:href><d:propstat><d:prop>"
+        + "<d:resourcetype><d:collection/></d:resourcetype><t:kept>k1</t:kept>"
+        + "</d:prop><d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>\n"
+        + "<d:response><d:href>/cal/home/</d:href><d:propstat><d:prop>"
+        + "<t:kept>k2</t:kept><d:resourcetype><d:collection/><c:calendar/></d:resourcetype>"
+        + "</d:prop><d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>\n"
+        + "<d:response><d:href>/cal/inbox/</d:href><d:propstat><d:prop>"
+        + "<d:resourcetype><d:collection/><c:schedule-inbox/></d:resourcetype>"
+        + "</d:prop><d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>\n"
+        + "<d:response><d:href>/cal/a.ics</d:href><d:propstat><d:prop>"
+        + "<d:resourcetype/><t:other><d:collection/></t:other>"
+        + "</d:prop><d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>\n"
+        + "</d:multistatus>\n";
+
+    Verifiable allPropertiesAreParsedByDefault = assertThat(responses(null),
+        iterates(
+            response("/cal/", equalTo("k1"), equalTo("s1")),
+            response("/cal/a.ics", equalTo("k2"), equalTo("s2")),
+            response("/cal/b.ics", equalTo("k3"), nullValue())));
+
+    Verifiable unwantedPropertiesAreSkipped = assertThat(responses(Collections.<ElementDescriptor<?>>singletonList(KEPT)),
+        iterates(
+            response("/cal/", equalTo("k1"), nullValue()),
+            response("/cal/a.ics", equalTo("k2"), nullValue()),
+            response("/cal/b.ics", equalTo("k3"), nullValue())));
+
+    Verifiable noPropertiesAreParsedForEmptySet = assertThat(responses(Collections.<ElementDescriptor<?>>emptyList()),
+        iterates(
+            response("/cal/", nullValue(), nullValue()),
+            response("/cal/a.ics", nullValue(), nullValue()),
+            response("/cal/b.ics", nullValue(), nullValue())));
+
+    Verifiable repeatedTextIsShared = repeatedTextIsShared();
+
+    Verifiable syncTokenIsUnknownBeforeTheResponses = assertThat(reader(null), has("sync-token", MultistatusResponseReader::syncToken, nullValue()));
+
+    Verifiable syncTokenIsCaptured = assertThat(readCompletely(null),
+        has("sync-token", MultistatusResponseReader::syncToken, equalTo("http://example.com/sync/5")));
+
+    Verifiable syncTokenIsCapturedWhenPropertiesAreSkipped = assertThat(readCompletely(Collections.<ElementDescriptor<?>>singletonList(KEPT)),
+        has("sync-token", MultistatusResponseReader::syncToken, equalTo("http://example.com/sync/5")));
+
+    Verifiable syncTokenIsCapturedByGetMultistatus = assertThat(readMultistatus(),
+        has("sync-token", MultistatusResponseReader::syncToken, equalTo("http://example.com/sync/5")));
+
+    Verifiable collectionsAreRecognized = assertThat(typed(null, "DAV:", "collection"), iterates("/cal/", "/cal/home/", "/cal/inbox/"));
+
+    Verifiable resourceTypesAreRecognized = assertThat(typed(null, CALDAV, "calendar"), iterates("/cal/home/"));
+
+    Verifiable collectionsAreRecognizedWhenResourceTypeIsSkipped = assertThat(
+        typed(Collections.<ElementDescriptor<?>>singletonList(KEPT), "DAV:", "collection"),
+        iterates("/cal/", "/cal/home/", "/cal/inbox/"));
+
+    Verifiable resourceTypesAreRecognizedWhenResourceTypeIsSkipped = assertThat(typed(Collections.<ElementDescriptor<?>>emptyList(), CALDAV, "schedule-inbox"),
+        iterates("/cal/inbox/"));
+
+
+    /**
+     * Reads all responses, parsing only the given properties or all properties if <code>properties</code> is <code>null</code>.
+     */
+    private static List<Response> responses(Collection<ElementDescriptor<?>> properties)
+    {
+        List<Response> result = new ArrayList<>();
+        try
+        {
+            FakeResponse response = new FakeResponse(COLLECTION, MULTISTATUS);
+            MultistatusResponseReader reader = properties == null
+                ? new MultistatusResponseReader(response, new DavContext())
+                : new MultistatusResponseReader(response, new DavContext(), properties);
+            try
+            {
+                while (reader.hasNextResponse())
+                {
+                    result.add(reader.getNextResponse(null));
+                }
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+        catch (IOException | ProtocolError e)
+        {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
+
+    /**
+     * Reads the text of all <code>DAV:status</code> elements through a {@link MultistatusXmlPullParser}, using both {@link XmlPullParser#getText()} and
+     * {@link XmlPullParser#nextText()}. All of them are the same instance.
+     */
+    private static Verifiable repeatedTextIsShared()
+    {
+        try
+        {
+            XmlPullParser parser = new XmlPullParserPool().acquire();
+            parser.setInput(new StringReader(MULTISTATUS));
+            XmlPullParser multistatusParser = new MultistatusXmlPullParser(parser, new TextCache(16));
+            List<String> statusLines = new ArrayList<>();
+            int eventType;
+            while ((eventType = multistatusParser.next()) != XmlPullParser.END_DOCUMENT)
+            {
+                if (eventType == XmlPullParser.START_TAG && "status".equals(multistatusParser.getName()))
+                {
+                    if (statusLines.isEmpty())
+                    {
+                        multistatusParser.next();
+                        statusLines.add(multistatusParser.getText());
+                    }
+                    else
+                    {
+                        statusLines.add(multistatusParser.nextText());
+                    }
+                }
+            }
+            return assertThat(statusLines,
+                iterates(equalTo("HTTP/1.1 200 OK"), sameAs(statusLines.get(0)), sameAs(statusLines.get(0))));
+        }
+        catch (IOException | XmlPullParserException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    /**
+     * Reads {@link #RESOURCETYPES}, parsing only the given properties or all properties if <code>properties</code> is <code>null</code>, and returns the
+     * paths of the responses with the given resource type. {@link MultistatusResponseReader#isCollection()} is used for <code>DAV:collection</code>.
+     */
+    private static List<String> typed(Collection<ElementDescriptor<?>> properties, String namespace, String name)
+    {
+        List<String> result = new ArrayList<>();
+        try
+        {
+            FakeResponse response = new FakeResponse(COLLECTION, RESOURCETYPES);
+            MultistatusResponseReader reader = properties == null
+                ? new MultistatusResponseReader(response, new DavContext())
+                : new MultistatusResponseReader(response, new DavContext(), properties);
+            try
+            {
+                Response next = null;
+                while (reader.hasNextResponse())
+                {
+                    next = reader.getNextResponse(next);
+                    if ("DAV:".equals(namespace) && "collection".equals(name) ? reader.isCollection() : reader.hasResourceType(namespace, name))
+                    {
+                        result.add(next.getHref().getPath());
+                    }
+                }
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+        catch (IOException | ProtocolError e)
+        {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
+
+    private static Quality<Response> response(String href, Quality<? super String> kept, Quality<? super String> skipped)
+    {
+        return allOf(
+            has("href", response -> response.getHref().getPath(), equalTo(href)),
+            has("kept", response -> response.getPropertyValue(KEPT), kept),
+            has("skipped", response -> response.getPropertyValue(SKIPPED), skipped));
+    }
+
+
+    /**
+     * Returns a new reader of {@link #MULTISTATUS}, parsing only the given properties or all properties if <code>properties</code> is <code>null</code>.
+     */
+    private static MultistatusResponseReader reader(Collection<ElementDescriptor<?>> properties)
+    {
+        try
+        {
+            FakeResponse response = new FakeResponse(COLLECTION, MULTISTATUS);
+            return properties == null
+                ? new MultistatusResponseReader(response, new DavContext())
+                : new MultistatusResponseReader(response, new DavContext(), properties);
+        }
+        catch (IOException | ProtocolError e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    /**
+     * Reads all responses with a {@link #reader(Collection)} and returns the closed reader.
+     */
+    private static MultistatusResponseReader readCompletely(Collection<ElementDescriptor<?>> properties)
+    {
+        MultistatusResponseReader reader = reader(properties);
+        try
+        {
+            try
+            {
+                while (reader.hasNextResponse())
+                {
+                    reader.getNextResponse(null);
+                }
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+        catch (IOException | ProtocolError e)
+        {
+            throw new RuntimeException(e);
+        }
+        return reader;
+    }
+
+
+    /**
+     * Reads the multistatus with {@link MultistatusResponseReader#getMultistatus()} and returns the closed reader.
+     */
+    private static MultistatusResponseReader readMultistatus()
+    {
+        MultistatusResponseReader reader = reader(null);
+        try
+        {
+            try
+            {
+                reader.getMultistatus();
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+        catch (IOException | ProtocolError e)
+        {
+            throw new RuntimeException(e);
+        }
+        return reader;
+    }
+}
@@ -0,0 +1,147 @@
+package org.dmfs.davclient;
+
+import org.dmfs.dav.rfc4918.Response;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.dmfs.davclient.ResponseDrainTest.aborted;
+import static org.dmfs.davclient.ResponseDrainTest.drained;
+import static org.dmfs.davclient.ResponseDrainTest.multistatus;
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.allOf;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+import static org.saynotobugs.confidence.quality.Core.has;
+import static org.saynotobugs.confidence.quality.Core.instanceOf;
+import static org.saynotobugs.confidence.quality.Core.iterates;
+import static org.saynotobugs.confidence.quality.Core.throwing;
+
+
+@Confidence
+class PipelinedResponseReaderTest
+{
+    private final static URI COLLECTION = URI.create("https://example.com/cal/");
+
+    private final static String MALFORMED = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+        + "<d:multistatus xmlns:d=\"DAV:\">\n"
+        + "<d:response><d:href>/cal/a.ics</d:href></d:multistatus>\n";
+
+    /**
+     * Runs each task on a new daemon thread.
+     */
+    private final static Executor THREADS = runnable ->
+    {
+        Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        thread.start();
+    };
+
+    Verifiable responsesAreReturnedInOrder = assertThat(new FakeResponse(COLLECTION, multistatus(16)),
+        has("hrefs", response -> hrefs(response, 1), iterates("/cal/a.ics", "/cal/b.ics", "/cal/c.ics")));
+
+    Verifiable largeResponsesAreReturnedInOrder = assertThat(new FakeResponse(COLLECTION, multistatus(128 * 1024)),
+        has("hrefs", response -> hrefs(response, 64), iterates("/cal/a.ics", "/cal/b.ics", "/cal/c.ics")));
+
+    Verifiable ioExceptionsAreRethrownAsTheyAre = assertThat(
+        () -> hrefs(new FakeResponse(COLLECTION, multistatus(128 * 1024), 64 * 1024, new SocketTimeoutException("timeout")), 1),
+        throwing(allOf(instanceOf(SocketTimeoutException.class), has("message", Throwable::getMessage, equalTo("timeout")))));
+
+    Verifiable protocolErrorsAreRethrownAsTheyAre = assertThat(() -> hrefs(new FakeResponse(COLLECTION, MALFORMED), 1),
+        throwing(instanceOf(ProtocolError.class)));
+
+    Verifiable closeAfterLastResponseDrainsResponse = assertThat(closedAfterLast(), drained());
+
+    Verifiable closeAbortsStalledResponse = assertThat(closedWhileStalled(), aborted());
+
+
+    /**
+     * Reads all responses through a {@link PipelinedResponseReader} with the given capacity and returns their hrefs. Errors of the parser are thrown.
+     */
+    private static List<String> hrefs(FakeResponse response, int capacity) throws IOException, ProtocolError
+    {
+        List<String> result = new ArrayList<>();
+        PipelinedResponseReader reader = new PipelinedResponseReader(new MultistatusResponseReader(response, new DavContext()), capacity, THREADS);
+        try
+        {
+            Response recycle = null;
+            while (reader.hasNextResponse())
+            {
+                Response next = reader.getNextResponse(recycle);
+                result.add(next.getHref().getPath());
+                recycle = next;
+            }
+        }
+        finally
+        {
+            try
+            {
+                reader.close();
+            }
+            catch (IOException e)
+            {
+                // draining a failed response fails as well
+            }
+        }
+        return result;
+    }
+
+
+    private static FakeResponse closedAfterLast()
+    {
+        try
+        {
+            FakeResponse response = new FakeResponse(COLLECTION, multistatus(128 * 1024));
+            hrefs(response, 1);
+            return response;
+        }
+        catch (IOException | ProtocolError e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    /**
+     * Reads the first response of a response that stalls in the middle and closes the reader while the parser is blocked. Fails if closing doesn't return.
+     */
+    private static FakeResponse closedWhileStalled()
+    {
+        try
+        {
+            FakeResponse response = new FakeResponse(COLLECTION, multistatus(128 * 1024), 64 * 1024);
+            PipelinedResponseReader reader = new PipelinedResponseReader(new MultistatusResponseReader(response, new DavContext()), 1, THREADS);
+            reader.getNextResponse(null);
+            Thread closer = new Thread(() ->
+            {
+                try
+                {
+                    reader.close();
+                }
+                catch (IOException e)
+                {
+                    // the response has been aborted
+                }
+            });
+            closer.setDaemon(true);
+            closer.start();
+            closer.join(TimeUnit.SECONDS.toMillis(10));
+            if (closer.isAlive())
+            {
+                throw new AssertionError("close() didn't return");
+            }
+            return response;
+        }
+        catch (IOException | ProtocolError | InterruptedException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+}
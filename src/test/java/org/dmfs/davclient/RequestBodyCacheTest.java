@@ -0,0 +1,200 @@
+package org.dmfs.davclient;
+
+import org.dmfs.httpessentials.client.HttpRequestEntity;
+import org.dmfs.httpessentials.types.MediaType;
+import org.dmfs.httpessentials.types.StructuredMediaType;
+import org.dmfs.jems.optional.Optional;
+import org.dmfs.jems.optional.elementary.Present;
+import org.saynotobugs.confidence.Quality;
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.allOf;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+import static org.saynotobugs.confidence.quality.Core.has;
+import static org.saynotobugs.confidence.quality.Core.iterates;
+import static org.saynotobugs.confidence.quality.Core.throwing;
+
+
+@Confidence
+class RequestBodyCacheTest
+{
+    private final static String PLACEHOLDER = "@@sync-token@@";
+    private final static String TEMPLATE = "<sync-collection><sync-token>" + PLACEHOLDER + "</sync-token></sync-collection>";
+
+    Verifiable bodyIsRenderedOnce = assertThat(rendered(new Body("<propfind/>"), "propfind", "propfind"), renderedOnce("<propfind/>", "<propfind/>"));
+
+    Verifiable contentLengthIsKnown = assertThat(new RequestBodyCache().entity("propfind", new Body("<propfind/>")),
+        has("content length", entity -> entity.contentLength().value(), equalTo(11L)));
+
+    Verifiable valueIsSplicedIntoTemplate = assertThat(new RequestBodyCache().entity("sync", new Body(TEMPLATE), PLACEHOLDER, "token-1"),
+        body("<sync-collection><sync-token>token-1</sync-token></sync-collection>"));
+
+    Verifiable valueIsEscaped = assertThat(new RequestBodyCache().entity("sync", new Body(TEMPLATE), PLACEHOLDER, "a&b<c>d"),
+        body("<sync-collection><sync-token>a&amp;b&lt;c&gt;d</sync-token></sync-collection>"));
+
+    Verifiable nullValueIsOmitted = assertThat(new RequestBodyCache().entity("sync", new Body(TEMPLATE), PLACEHOLDER, null),
+        body("<sync-collection><sync-token></sync-token></sync-collection>"));
+
+    Verifiable contentLengthCountsEscapedValue = assertThat(new RequestBodyCache().entity("sync", new Body(TEMPLATE), PLACEHOLDER, "<"),
+        has("content length", entity -> entity.contentLength().value(),
+            equalTo((long) "<sync-collection><sync-token>&lt;</sync-token></sync-collection>".length())));
+
+    Verifiable templateIsRenderedOnce = assertThat(renderedTemplate(new Body(TEMPLATE), "token-1", "token-2"),
+        renderedOnce(
+            "<sync-collection><sync-token>token-1</sync-token></sync-collection>",
+            "<sync-collection><sync-token>token-2</sync-token></sync-collection>"));
+
+    Verifiable missingPlaceholderFails = assertThat(() -> written(new RequestBodyCache().entity("sync", new Body("<sync-collection/>"), PLACEHOLDER, "token")),
+        throwing(has("message", Throwable::getMessage, equalTo("placeholder not found in template"))));
+
+    Verifiable recentlyUsedBodyIsKept = assertThat(evicted("a"), has("renderings", body -> body.mRenderings, equalTo(1)));
+
+    Verifiable leastRecentlyUsedBodyIsEvicted = assertThat(evicted("b"), has("renderings", body -> body.mRenderings, equalTo(2)));
+
+
+    /**
+     * Writes the bodies cached under the given keys, rendering the given {@link Body} on a cache miss.
+     */
+    private static Rendered rendered(Body body, String... keys)
+    {
+        RequestBodyCache cache = new RequestBodyCache();
+        Rendered result = new Rendered(body);
+        for (String key : keys)
+        {
+            result.mWritten.add(writtenUnchecked(cache.entity(key, body)));
+        }
+        return result;
+    }
+
+
+    /**
+     * Writes the given template with each of the given values.
+     */
+    private static Rendered renderedTemplate(Body template, String... values)
+    {
+        RequestBodyCache cache = new RequestBodyCache();
+        Rendered result = new Rendered(template);
+        for (String value : values)
+        {
+            result.mWritten.add(writtenUnchecked(cache.entity("sync", template, PLACEHOLDER, value)));
+        }
+        return result;
+    }
+
+
+    /**
+     * Uses a cache with two entries. Writes "a" and "b", touches "a", adds "c", which evicts "b", and writes "a" and "b" again. Returns the {@link Body} of
+     * the given key.
+     */
+    private static Body evicted(String key)
+    {
+        RequestBodyCache cache = new RequestBodyCache(2);
+        Body a = new Body("a");
+        Body b = new Body("b");
+        Body c = new Body("c");
+        for (Body body : Arrays.asList(a, b, a, c, a, b))
+        {
+            writtenUnchecked(cache.entity(body.mContent, body));
+        }
+        return "a".equals(key) ? a : b;
+    }
+
+
+    private static Quality<Rendered> renderedOnce(String... bodies)
+    {
+        return allOf(
+            has("written", rendered -> rendered.mWritten, iterates(bodies)),
+            has("renderings", rendered -> rendered.mBody.mRenderings, equalTo(1)));
+    }
+
+
+    private static Quality<HttpRequestEntity> body(String body)
+    {
+        return has("body", RequestBodyCacheTest::written, equalTo(body));
+    }
+
+
+    private static String written(HttpRequestEntity entity) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entity.writeContent(out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+
+    private static String writtenUnchecked(HttpRequestEntity entity)
+    {
+        try
+        {
+            return written(entity);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    /**
+     * The bodies that have been written and the {@link Body} they have been rendered from.
+     */
+    private final static class Rendered
+    {
+        private final Body mBody;
+        private final List<String> mWritten = new ArrayList<>();
+
+
+        private Rendered(Body body)
+        {
+            mBody = body;
+        }
+    }
+
+
+    /**
+     * An {@link HttpRequestEntity} that counts how often it has been rendered.
+     */
+    private final static class Body implements HttpRequestEntity
+    {
+        private final String mContent;
+        private int mRenderings;
+
+
+        private Body(String content)
+        {
+            mContent = content;
+        }
+
+
+        @Override
+        public Optional<MediaType> contentType()
+        {
+            return new Present<>(new StructuredMediaType("application", "xml"));
+        }
+
+
+        @Override
+        public Optional<Long> contentLength()
+        {
+            return new Present<>((long) mContent.length());
+        }
+
+
+        @Override
+        public void writeContent(OutputStream out) throws IOException
+        {
+            mRenderings += 1;
+            out.write(mContent.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package org.dmfs.davclient;
+
+import org.dmfs.dav.rfc4918.Depth;
+import org.dmfs.davclient.rfc4918.PropFind;
+import org.dmfs.davclient.rfc4918.PropPatch;
+import org.dmfs.httpessentials.client.HttpRequest;
+import org.saynotobugs.confidence.Quality;
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.allOf;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+import static org.saynotobugs.confidence.quality.Core.has;
+import static org.saynotobugs.confidence.quality.Core.hasNumberOfElements;
+import static org.saynotobugs.confidence.quality.Core.instanceOf;
+import static org.saynotobugs.confidence.quality.Core.not;
+import static org.saynotobugs.confidence.quality.Core.nullValue;
+import static org.saynotobugs.confidence.quality.Core.sameAs;
+
+
+@Confidence
+class RequestCoalescerTest
+{
+    private final static URI COLLECTION = URI.create("https://example.com/cal/");
+
+    private final static String MULTISTATUS = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+        + "<d:multistatus xmlns:d=\"DAV:\">\n"
+        + "<d:response><d:href>/cal/a.ics</d:href><d:propstat><d:prop><d:getetag>\"a\"</d:getetag></d:prop>"
+        + "<d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>\n"
+        + "</d:multistatus>\n";
+
+    Verifiable concurrentRequestsShareOneResult = concurrentRequestsShareOneResult();
+
+    Verifiable failuresArePassedToAllCallers = assertThat(concurrent(true, RequestCoalescerTest::propFind),
+        allOf(
+            has("requests", Calls::requests, hasNumberOfElements(1)),
+            has("first error", Calls::firstError, serverDown()),
+            has("second error", Calls::secondError, serverDown())));
+
+    Verifiable unsafeRequestsAreNotCoalesced = assertThat(concurrent(false, () -> new PropPatch(new DavContext())),
+        has("requests", Calls::requests, hasNumberOfElements(2)));
+
+    Verifiable completedRequestsAreNotCached = completedRequestsAreNotCached();
+
+
+    private static Verifiable concurrentRequestsShareOneResult()
+    {
+        Calls calls = concurrent(false, RequestCoalescerTest::propFind);
+        return assertThat(calls,
+            allOf(
+                has("requests", Calls::requests, hasNumberOfElements(1)),
+                has("first result", Calls::firstResult, not(nullValue())),
+                has("second result", Calls::secondResult, sameAs(calls.firstResult()))));
+    }
+
+
+    private static Verifiable completedRequestsAreNotCached()
+    {
+        Calls calls = sequential();
+        return assertThat(calls,
+            allOf(
+                has("requests", Calls::requests, hasNumberOfElements(2)),
+                has("second result", Calls::secondResult, allOf(not(nullValue()), not(sameAs(calls.firstResult()))))));
+    }
+
+
+    private static HttpRequest<MultistatusResponseReader> propFind()
+    {
+        return PropFind.PropFindAllProp(new DavContext(), Depth.one);
+    }
+
+
+    private static Quality<Exception> serverDown()
+    {
+        return allOf(instanceOf(IOException.class), has("message", Throwable::getMessage, equalTo("server down")));
+    }
+
+
+    /**
+     * Sends a request and, while it's in flight, an identical one.
+     */
+    private static Calls concurrent(boolean fail, Supplier<HttpRequest<MultistatusResponseReader>> request)
+    {
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch respond = new CountDownLatch(1);
+        FakeExecutor executor = new FakeExecutor((uri, method, body) ->
+        {
+            inFlight.countDown();
+            try
+            {
+                respond.await();
+            }
+            catch (InterruptedException e)
+            {
+                throw new InterruptedIOException();
+            }
+            if (fail)
+            {
+                throw new IOException("server down");
+            }
+            return new FakeResponse(uri, MULTISTATUS);
+        });
+        RequestCoalescer coalescer = new RequestCoalescer(executor);
+        try
+        {
+            Caller first = new Caller(coalescer, request.get());
+            first.start();
+            inFlight.await();
+
+            Caller second = new Caller(coalescer, request.get());
+            second.start();
+            // wait until the second caller blocks, either on the first request or on a request of its own
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+            while (second.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline)
+            {
+                Thread.sleep(1);
+            }
+            respond.countDown();
+            first.join();
+            second.join();
+            return new Calls(executor.requests(), first, second);
+        }
+        catch (InterruptedException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    /**
+     * Sends two identical requests, one after the other.
+     */
+    private static Calls sequential()
+    {
+        FakeExecutor executor = new FakeExecutor((uri, method, body) -> new FakeResponse(uri, MULTISTATUS));
+        RequestCoalescer coalescer = new RequestCoalescer(executor);
+        Caller first = new Caller(coalescer, propFind());
+        first.run();
+        Caller second = new Caller(coalescer, propFind());
+        second.run();
+        return new Calls(executor.requests(), first, second);
+    }
+
+
+    /**
+     * The outcome of two calls.
+     */
+    private final static class Calls
+    {
+        private final List<String> mRequests;
+        private final Caller mFirst;
+        private final Caller mSecond;
+
+
+        private Calls(List<String> requests, Caller first, Caller second)
+        {
+            mRequests = requests;
+            mFirst = first;
+            mSecond = second;
+        }
+
+
+        /**
+         * Returns the requests that have been sent to the server.
+         */
+        List<String> requests()
+        {
+            return mRequests;
+        }
+
+
+        Object firstResult()
+        {
+            return mFirst.mResult;
+        }
+
+
+        Object secondResult()
+        {
+            return mSecond.mResult;
+        }
+
+
+        Exception firstError()
+        {
+            return mFirst.mError;
+        }
+
+
+        Exception secondError()
+        {
+            return mSecond.mError;
+        }
+    }
+
+
+    /**
+     * A thread that sends a request through a {@link RequestCoalescer} and keeps the result or the error.
+     */
+    private final static class Caller extends Thread
+    {
+        private final RequestCoalescer mCoalescer;
+        private final HttpRequest<MultistatusResponseReader> mRequest;
+        private volatile Object mResult;
+        private volatile Exception mError;
+
+
+        Caller(RequestCoalescer coalescer, HttpRequest<MultistatusResponseReader> request)
+        {
+            mCoalescer = coalescer;
+            mRequest = request;
+            setDaemon(true);
+        }
+
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                mResult = mCoalescer.multistatus(COLLECTION, mRequest);
+            }
+            catch (Exception e)
+            {
+                mError = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.dmfs.davclient;
+
+import org.dmfs.httpessentials.HttpStatus;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.httpessentials.headers.EmptyHeaders;
+import org.saynotobugs.confidence.Quality;
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.allOf;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+import static org.saynotobugs.confidence.quality.Core.greaterThan;
+import static org.saynotobugs.confidence.quality.Core.has;
+import static org.saynotobugs.confidence.quality.Core.not;
+import static org.saynotobugs.confidence.quality.Core.throwing;
+
+
+@Confidence
+class ResponseDrainTest
+{
+    private final static URI COLLECTION = URI.create("https://example.com/cal/");
+
+    /**
+     * The size of a comment between the first and the second response, large enough to exceed the buffer of any parser.
+     */
+    private final static int PADDING = 128 * 1024;
+
+    Verifiable closeConsumesLargeResponse = assertThat(closedAfterFirst(MultistatusResponseReader::close), drained());
+
+    Verifiable unlimitedDrainConsumesResponse = assertThat(closedAfterFirst(reader -> reader.close(Long.MAX_VALUE)), drained());
+
+    Verifiable drainWithinLimitConsumesResponse = assertThat(closedAfterFirst(reader -> reader.close(2 * PADDING)), drained());
+
+    Verifiable drainBeyondLimitAbortsResponse = assertThat(closedAfterFirst(reader -> reader.close(PADDING / 4)), aborted());
+
+    Verifiable zeroLimitAbortsResponse = assertThat(closedAfterFirst(reader -> reader.close(0)), aborted());
+
+    Verifiable repeatedCloseIsIgnored = assertThat(closedAfterFirst(reader ->
+    {
+        reader.close(0);
+        reader.close();
+    }), aborted());
+
+    Verifiable cancelledReaderIsNotDrained = assertThat(closedAfterFirst(reader ->
+    {
+        reader.cancel();
+        reader.close();
+    }), aborted());
+
+    Verifiable readerWithoutContentCanBeClosed = assertThat(
+        () -> new MultistatusResponseReader(new FakeResponse(COLLECTION, HttpStatus.MULTISTATUS, EmptyHeaders.INSTANCE, null), new DavContext()).close(),
+        not(throwing(Throwable.class)));
+
+
+    static String multistatus(int padding)
+    {
+        char[] comment = new char[padding];
+        Arrays.fill(comment, 'x');
+        return "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+            + "<d:multistatus xmlns:d=\"DAV:\">\n"
+            + response("a")
+            + "<!--" + new String(comment) + "-->\n"
+            + response("b")
+            + response("c")
+            + "</d:multistatus>\n";
+    }
+
+
+    private static String response(String name)
+    {
+        return "<d:response><d:href>/cal/" + name + ".ics</d:href><d:propstat><d:prop><d:getetag>\"" + name
+            + "\"</d:getetag></d:prop><d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>\n";
+    }
+
+
+    /**
+     * Reads the first response, closes the reader with the given {@link Closing} and returns the {@link FakeResponse}.
+     */
+    private static FakeResponse closedAfterFirst(Closing closing)
+    {
+        try
+        {
+            FakeResponse response = new FakeResponse(COLLECTION, multistatus(PADDING));
+            MultistatusResponseReader reader = new MultistatusResponseReader(response, new DavContext());
+            reader.hasNextResponse();
+            reader.getNextResponse(null);
+            closing.close(reader);
+            return response;
+        }
+        catch (IOException | ProtocolError e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    /**
+     * A {@link Quality} of a {@link FakeResponse} that has been read completely and closed.
+     */
+    static Quality<FakeResponse> drained()
+    {
+        return allOf(has("remaining bytes", FakeResponse::remaining, equalTo(0)), has("closed", FakeResponse::closed, equalTo(true)));
+    }
+
+
+    /**
+     * A {@link Quality} of a {@link FakeResponse} that has been closed before it has been read completely.
+     */
+    static Quality<FakeResponse> aborted()
+    {
+        return allOf(has("remaining bytes", FakeResponse::remaining, greaterThan(0)), has("closed", FakeResponse::closed, equalTo(true)));
+    }
+
+
+    /**
+     * Closes a {@link MultistatusResponseReader}.
+     */
+    private interface Closing
+    {
+        void close(MultistatusResponseReader reader) throws IOException;
+    }
+}
@@ -0,0 +1,165 @@
+package org.dmfs.davclient;
+
+import org.dmfs.dav.rfc4918.Response;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.allOf;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+import static org.saynotobugs.confidence.quality.Core.has;
+import static org.saynotobugs.confidence.quality.Core.instanceOf;
+import static org.saynotobugs.confidence.quality.Core.iterates;
+import static org.saynotobugs.confidence.quality.Core.throwing;
+
+
+@Confidence
+class ResponseIteratorTest
+{
+    private final static URI COLLECTION = URI.create("https://example.com/cal/");
+
+    private final static String MULTISTATUS = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+        + "<d:multistatus xmlns:d=\"DAV:\">\n"
+        + response("a")
+        + response("b")
+        + response("c")
+        + "</d:multistatus>\n";
+
+    private final static String MALFORMED = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+        + "<d:multistatus xmlns:d=\"DAV:\">\n"
+        + response("a")
+        + "<d:response><d:href>/cal/b.ics</d:href></d:multistatus>\n";
+
+    Verifiable streamReturnsAllResponses = assertThat(streamed(false), iterates("/cal/a.ics", "/cal/b.ics", "/cal/c.ics"));
+
+    Verifiable flyweightStreamReturnsAllResponses = assertThat(streamed(true), iterates("/cal/a.ics", "/cal/b.ics", "/cal/c.ics"));
+
+    Verifiable iteratorReturnsNewResponses = assertThat(iterated(),
+        iterates(
+            has("href", response -> response.getHref().getPath(), equalTo("/cal/a.ics")),
+            has("href", response -> response.getHref().getPath(), equalTo("/cal/b.ics")),
+            has("href", response -> response.getHref().getPath(), equalTo("/cal/c.ics"))));
+
+    Verifiable repeatedHasNextDoesNotSkip = assertThat(repeatedHasNext(), iterates("/cal/a.ics", "/cal/b.ics", "/cal/c.ics"));
+
+    Verifiable exhaustedIteratorThrows = exhaustedIteratorThrows();
+
+    Verifiable closingStreamClosesResponse = closingStreamClosesResponse();
+
+    Verifiable parseErrorsAreUnchecked = assertThat(() ->
+        {
+            try (Stream<Response> responses = reader(new FakeResponse(COLLECTION, MALFORMED)).responses())
+            {
+                responses.count();
+            }
+        },
+        throwing(allOf(instanceOf(UncheckedProtocolException.class), has("cause", Throwable::getCause, instanceOf(ProtocolError.class)))));
+
+
+    private static String response(String name)
+    {
+        return "<d:response><d:href>/cal/" + name + ".ics</d:href><d:propstat><d:prop><d:getetag>\"" + name
+            + "\"</d:getetag></d:prop><d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>\n";
+    }
+
+
+    /**
+     * Returns the hrefs of the {@link Response}s of a stream. Flyweight {@link Response}s are only valid until the next one is read, so the hrefs are taken
+     * while streaming.
+     */
+    private static List<String> streamed(boolean flyweight)
+    {
+        try (Stream<Response> responses = reader(new FakeResponse(COLLECTION, MULTISTATUS)).responses(flyweight))
+        {
+            return responses
+                .map(response -> response.getHref().getPath())
+                .collect(Collectors.toList());
+        }
+    }
+
+
+    private static List<Response> iterated()
+    {
+        MultistatusResponseReader reader = reader(new FakeResponse(COLLECTION, MULTISTATUS));
+        List<Response> result = new ArrayList<>();
+        reader.responseIterator(false).forEachRemaining(result::add);
+        close(reader);
+        return result;
+    }
+
+
+    private static List<String> repeatedHasNext()
+    {
+        MultistatusResponseReader reader = reader(new FakeResponse(COLLECTION, MULTISTATUS));
+        Iterator<Response> iterator = reader.responseIterator(false);
+        List<String> result = new ArrayList<>();
+        while (iterator.hasNext() && iterator.hasNext())
+        {
+            iterator.hasNext();
+            result.add(iterator.next().getHref().getPath());
+        }
+        close(reader);
+        return result;
+    }
+
+
+    private static Verifiable exhaustedIteratorThrows()
+    {
+        MultistatusResponseReader reader = reader(new FakeResponse(COLLECTION, MULTISTATUS));
+        Iterator<Response> iterator = reader.responseIterator(false);
+        iterator.forEachRemaining(response ->
+        {
+            // skip all responses
+        });
+        close(reader);
+        return assertThat(iterator::next, throwing(NoSuchElementException.class));
+    }
+
+
+    private static Verifiable closingStreamClosesResponse()
+    {
+        FakeResponse response = new FakeResponse(COLLECTION, MULTISTATUS);
+        try (Stream<Response> responses = reader(response).responses())
+        {
+            responses.findFirst();
+        }
+        return assertThat(response, has("closed", FakeResponse::closed, equalTo(true)));
+    }
+
+
+    private static MultistatusResponseReader reader(FakeResponse response)
+    {
+        try
+        {
+            return new MultistatusResponseReader(response, new DavContext());
+        }
+        catch (IOException | ProtocolError e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    private static void close(MultistatusResponseReader reader)
+    {
+        try
+        {
+            reader.close();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package org.dmfs.davclient;
+
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.httpessentials.exceptions.ProtocolException;
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.allOf;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+import static org.saynotobugs.confidence.quality.Core.has;
+import static org.saynotobugs.confidence.quality.Core.instanceOf;
+import static org.saynotobugs.confidence.quality.Core.iterates;
+import static org.saynotobugs.confidence.quality.Core.sameAs;
+import static org.saynotobugs.confidence.quality.Core.throwing;
+
+
+@Confidence
+class SingleFlightTest
+{
+    private final static int CALLERS = 4;
+
+    private final static SocketTimeoutException TIMEOUT = new SocketTimeoutException("timeout");
+
+    Verifiable concurrentCallersShareTheCall = assertThat(concurrent(() -> "result"),
+        allOf(
+            has("calls", Flight::calls, equalTo(1)),
+            has("results", Flight::results, iterates("result", "result", "result", "result"))));
+
+    Verifiable concurrentCallersGetTheError = assertThat(concurrent(() ->
+        {
+            throw TIMEOUT;
+        }),
+        allOf(
+            has("calls", Flight::calls, equalTo(1)),
+            has("errors", Flight::errors, iterates(sameAs(TIMEOUT), sameAs(TIMEOUT), sameAs(TIMEOUT), sameAs(TIMEOUT)))));
+
+    Verifiable completedCallsAreNotReused = assertThat(sequential(), equalTo(2));
+
+    Verifiable ioExceptionsAreRethrownAsTheyAre = assertThat(() -> SingleFlight.rethrow(TIMEOUT), throwing(sameAs(TIMEOUT)));
+
+    Verifiable runtimeExceptionsAreRethrownAsTheyAre = assertThat(() -> SingleFlight.rethrow(new IllegalStateException("state")),
+        throwing(allOf(instanceOf(IllegalStateException.class), has("message", Throwable::getMessage, equalTo("state")))));
+
+    Verifiable protocolExceptionsAreRethrownAsTheyAre = assertThat(() -> SingleFlight.rethrow(new ProtocolException("protocol")),
+        throwing(instanceOf(ProtocolException.class)));
+
+    Verifiable otherCheckedExceptionsAreWrapped = assertThat(() -> SingleFlight.rethrow(new InterruptedException()),
+        throwing(allOf(instanceOf(UncheckedProtocolException.class), has("cause", Throwable::getCause, instanceOf(InterruptedException.class)))));
+
+
+    /**
+     * Calls a {@link SingleFlight} from {@link #CALLERS} threads with the same key. The call takes a while, so the other callers can join it.
+     */
+    private static Flight concurrent(SingleFlight.Call<String> call)
+    {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        Flight flight = new Flight();
+        CountDownLatch done = new CountDownLatch(CALLERS);
+        for (int i = 0; i < CALLERS; ++i)
+        {
+            Thread thread = new Thread(() ->
+            {
+                try
+                {
+                    flight.mResults.add(singleFlight.value("key", () ->
+                    {
+                        flight.mCalls.incrementAndGet();
+                        pause();
+                        return call.value();
+                    }));
+                }
+                catch (Exception e)
+                {
+                    flight.mErrors.add(e);
+                }
+                finally
+                {
+                    done.countDown();
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+        try
+        {
+            if (!done.await(10, TimeUnit.SECONDS))
+            {
+                throw new AssertionError("callers didn't return");
+            }
+        }
+        catch (InterruptedException e)
+        {
+            throw new RuntimeException(e);
+        }
+        return flight;
+    }
+
+
+    private static void pause()
+    {
+        try
+        {
+            Thread.sleep(200);
+        }
+        catch (InterruptedException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    /**
+     * Calls a {@link SingleFlight} twice in a row with the same key and returns the number of calls made.
+     */
+    private static int sequential()
+    {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        try
+        {
+            singleFlight.value("key", () -> "result-" + calls.incrementAndGet());
+            singleFlight.value("key", () -> "result-" + calls.incrementAndGet());
+        }
+        catch (IOException | ProtocolError | ProtocolException e)
+        {
+            throw new RuntimeException(e);
+        }
+        return calls.get();
+    }
+
+
+    /**
+     * The outcome of concurrent calls.
+     */
+    private final static class Flight
+    {
+        private final AtomicInteger mCalls = new AtomicInteger();
+        private final List<String> mResults = new CopyOnWriteArrayList<>();
+        private final List<Exception> mErrors = new CopyOnWriteArrayList<>();
+
+
+        int calls()
+        {
+            return mCalls.get();
+        }
+
+
+        List<String> results()
+        {
+            return mResults;
+        }
+
+
+        List<Exception> errors()
+        {
+            return mErrors;
+        }
+    }
+}
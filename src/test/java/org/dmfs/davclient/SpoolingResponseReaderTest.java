@@ -0,0 +1,191 @@
+package org.dmfs.davclient;
+
+import org.dmfs.dav.rfc4918.Response;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.QualifiedName;
+import org.dmfs.xmlobjects.builder.StringObjectBuilder;
+import org.saynotobugs.confidence.Quality;
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.dmfs.davclient.ResponseDrainTest.drained;
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.allOf;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+import static org.saynotobugs.confidence.quality.Core.has;
+import static org.saynotobugs.confidence.quality.Core.iterates;
+import static org.saynotobugs.confidence.quality.Core.nullValue;
+
+
+@Confidence
+class SpoolingResponseReaderTest
+{
+    private final static String NAMESPACE = "urn:dmfs:test";
+
+    private final static ElementDescriptor<String> PAYLOAD = ElementDescriptor.register(QualifiedName.get(NAMESPACE, "payload"), StringObjectBuilder.INSTANCE);
+
+    private final static URI COLLECTION = URI.create("https://example.com/cal/");
+
+    private final static String LARGE = repeated('x', 1000);
+
+    Verifiable payloadsAreHandedToConsumer = assertThat(spooled(Long.MAX_VALUE), iterates(handed("/cal/a.ics", "short"), handed("/cal/b.ics", LARGE)));
+
+    Verifiable spilledPayloadsKeepTheirContent = assertThat(spooled(16), iterates(handed("/cal/a.ics", "short"), handed("/cal/b.ics", LARGE)));
+
+    Verifiable payloadsAreNotAddedToResponses = assertThat(responses(),
+        iterates(withoutPayload("/cal/a.ics"), withoutPayload("/cal/b.ics"), withoutPayload("/cal/c.ics")));
+
+    Verifiable closeDrainsResponse = assertThat(closedAfterFirst(), drained());
+
+
+    private static String multistatus(int padding)
+    {
+        return "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+            + "<d:multistatus xmlns:d=\"DAV:\" xmlns:t=\"" + NAMESPACE + "\">\n"
+            + "<d:response><d:href>/cal/a.ics</d:href>"
+            + "<d:propstat><d:prop><d:getetag>\"a\"</d:getetag><t:payload>short</t:payload></d:prop><d:status>HTTP/1.1 200 OK</d:status></d:propstat>"
+            + "</d:response>\n"
+            + "<!--" + repeated('x', padding) + "-->\n"
+            + "<d:response><d:href>/cal/b.ics</d:href>"
+            + "<d:propstat><d:prop><t:payload>" + LARGE + "</t:payload></d:prop><d:status>HTTP/1.1 200 OK</d:status></d:propstat>"
+            + "</d:response>\n"
+            + "<d:response><d:href>/cal/c.ics</d:href>"
+            + "<d:propstat><d:prop><t:payload/></d:prop><d:status>HTTP/1.1 404 Not Found</d:status></d:propstat>"
+            + "</d:response>\n"
+            + "</d:multistatus>\n";
+    }
+
+
+    /**
+     * Reads all responses with the given spill threshold and returns what has been handed to the {@link PayloadConsumer}.
+     */
+    private static List<Handed> spooled(long spillThreshold)
+    {
+        List<Handed> result = new ArrayList<>();
+        read(spillThreshold, (response, property, payload) ->
+        {
+            try
+            {
+                result.add(new Handed(response, payload));
+            }
+            finally
+            {
+                payload.close();
+            }
+        });
+        return result;
+    }
+
+
+    /**
+     * Reads all responses and returns them.
+     */
+    private static List<Response> responses()
+    {
+        return read(Long.MAX_VALUE, (response, property, payload) -> payload.close());
+    }
+
+
+    private static List<Response> read(long spillThreshold, PayloadConsumer consumer)
+    {
+        List<Response> result = new ArrayList<>();
+        try
+        {
+            SpoolingResponseReader reader = new SpoolingResponseReader(
+                new MultistatusResponseReader(new FakeResponse(COLLECTION, multistatus(0)), new DavContext()),
+                consumer,
+                spillThreshold,
+                PAYLOAD);
+            try
+            {
+                while (reader.hasNextResponse())
+                {
+                    result.add(reader.getNextResponse(null));
+                }
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+        catch (IOException | ProtocolError e)
+        {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
+
+    private static FakeResponse closedAfterFirst()
+    {
+        try
+        {
+            FakeResponse response = new FakeResponse(COLLECTION, multistatus(128 * 1024));
+            SpoolingResponseReader reader = new SpoolingResponseReader(new MultistatusResponseReader(response, new DavContext()),
+                (r, property, payload) -> payload.close(),
+                PAYLOAD);
+            reader.hasNextResponse();
+            reader.getNextResponse(null);
+            reader.close();
+            return response;
+        }
+        catch (IOException | ProtocolError e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    private static Quality<Handed> handed(String href, String content)
+    {
+        return allOf(
+            has("href", handed -> handed.href, equalTo(href)),
+            has("length", handed -> handed.length, equalTo((long) content.length())),
+            has("content", handed -> handed.content, equalTo(content)),
+            has("property value", handed -> handed.propertyValue, nullValue()));
+    }
+
+
+    private static Quality<Response> withoutPayload(String href)
+    {
+        return allOf(
+            has("href", response -> response.getHref().getPath(), equalTo(href)),
+            has("payload", response -> response.getPropertyValue(PAYLOAD), nullValue()));
+    }
+
+
+    private static String repeated(char c, int count)
+    {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+
+    /**
+     * The state of a {@link Response} and a {@link Payload} at the time they have been handed to the {@link PayloadConsumer}.
+     */
+    private final static class Handed
+    {
+        final String href;
+        final long length;
+        final String content;
+        final String propertyValue;
+
+
+        Handed(Response response, Payload payload) throws IOException
+        {
+            href = response.getHref().getPath();
+            length = payload.length();
+            content = payload.content().toString();
+            propertyValue = response.getPropertyValue(PAYLOAD);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.dmfs.davclient;
+
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.allOf;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+import static org.saynotobugs.confidence.quality.Core.iterates;
+import static org.saynotobugs.confidence.quality.Core.not;
+import static org.saynotobugs.confidence.quality.Core.sameAs;
+import static org.saynotobugs.confidence.quality.Core.throwing;
+
+
+@Confidence
+class TextCacheTest
+{
+    private final static String STATUS = "HTTP/1.1 200 OK";
+    private final static String LONG = "a text that is longer than sixty-four characters is never going to be cached";
+
+    Verifiable returnsTheGivenRange = assertThat(new TextCache(16).text(("<x>" + STATUS + "</x>").toCharArray(), 3, STATUS.length()), equalTo(STATUS));
+
+    Verifiable repeatedTextIsShared = repeatedTextIsShared();
+
+    Verifiable longTextIsNotShared = longTextIsNotShared();
+
+    Verifiable collidingTextReplacesEntry = collidingTextReplacesEntry();
+
+    Verifiable sizeMustNotBeZero = assertThat(() -> new TextCache(0), throwing(IllegalArgumentException.class));
+
+    Verifiable sizeMustBePowerOfTwo = assertThat(() -> new TextCache(3), throwing(IllegalArgumentException.class));
+
+
+    private static Verifiable repeatedTextIsShared()
+    {
+        List<String> texts = lookups(new TextCache(16), STATUS, STATUS);
+        return assertThat(texts, iterates(equalTo(STATUS), allOf(equalTo(STATUS), sameAs(texts.get(0)))));
+    }
+
+
+    private static Verifiable longTextIsNotShared()
+    {
+        List<String> texts = lookups(new TextCache(16), LONG, LONG);
+        return assertThat(texts, iterates(equalTo(LONG), allOf(equalTo(LONG), not(sameAs(texts.get(0))))));
+    }
+
+
+    /**
+     * Looks up two values in a cache with a single slot. Each value replaces the other one, but a repeated value is taken from the cache.
+     */
+    private static Verifiable collidingTextReplacesEntry()
+    {
+        List<String> texts = lookups(new TextCache(1), "a", "b", "a", "a");
+        return assertThat(texts,
+            iterates(
+                equalTo("a"),
+                equalTo("b"),
+                allOf(equalTo("a"), not(sameAs(texts.get(0)))),
+                allOf(equalTo("a"), sameAs(texts.get(2)))));
+    }
+
+
+    /**
+     * Looks up the given values, each from a new char array, and returns the results.
+     */
+    private static List<String> lookups(TextCache cache, String... values)
+    {
+        List<String> result = new ArrayList<>();
+        for (String value : values)
+        {
+            result.add(cache.text(value.toCharArray(), 0, value.length()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,85 @@
+package org.dmfs.davclient;
+
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.util.Arrays;
+
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.anyOf;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+import static org.saynotobugs.confidence.quality.Core.has;
+import static org.saynotobugs.confidence.quality.Core.iterates;
+import static org.saynotobugs.confidence.quality.Core.not;
+import static org.saynotobugs.confidence.quality.Core.sameAs;
+import static org.saynotobugs.confidence.quality.Core.throwing;
+
+
+@Confidence
+class XmlPullParserPoolTest
+{
+    Verifiable releasedParserIsReused = releasedParserIsReused();
+
+    Verifiable parsersInUseAreNotShared = parsersInUseAreNotShared();
+
+    Verifiable parsersBeyondCapacityAreDropped = parsersBeyondCapacityAreDropped();
+
+    Verifiable parsersAreNamespaceAware = assertThat(new XmlPullParserPool(),
+        has("namespace processing", pool -> pool.acquire().getFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES), equalTo(true)));
+
+    Verifiable capacityMustBePositive = assertThat(() -> new XmlPullParserPool(0), throwing(IllegalArgumentException.class));
+
+
+    private static Verifiable releasedParserIsReused()
+    {
+        try
+        {
+            XmlPullParserPool pool = new XmlPullParserPool();
+            XmlPullParser parser = pool.acquire();
+            pool.release(parser);
+            return assertThat(pool.acquire(), sameAs(parser));
+        }
+        catch (XmlPullParserException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    private static Verifiable parsersInUseAreNotShared()
+    {
+        try
+        {
+            XmlPullParserPool pool = new XmlPullParserPool();
+            XmlPullParser parser = pool.acquire();
+            return assertThat(pool.acquire(), not(sameAs(parser)));
+        }
+        catch (XmlPullParserException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    /**
+     * Releases two parsers to a pool that keeps one and acquires two parsers again. Only the first one is reused, the second one is new.
+     */
+    private static Verifiable parsersBeyondCapacityAreDropped()
+    {
+        try
+        {
+            XmlPullParserPool pool = new XmlPullParserPool(1);
+            XmlPullParser first = pool.acquire();
+            XmlPullParser second = pool.acquire();
+            pool.release(first);
+            pool.release(second);
+            return assertThat(Arrays.asList(pool.acquire(), pool.acquire()), iterates(sameAs(first), not(anyOf(sameAs(first), sameAs(second)))));
+        }
+        catch (XmlPullParserException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+}
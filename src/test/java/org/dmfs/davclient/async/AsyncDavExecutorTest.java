@@ -0,0 +1,255 @@
+package org.dmfs.davclient.async;
+
+import org.dmfs.dav.rfc4918.Depth;
+import org.dmfs.dav.rfc4918.WebDav;
+import org.dmfs.davclient.DavContext;
+import org.dmfs.davclient.FakeExecutor;
+import org.dmfs.davclient.FakeResponse;
+import org.dmfs.davclient.MultistatusResponseReader;
+import org.dmfs.davclient.rfc4918.PropFind;
+import org.dmfs.httpessentials.client.HttpRequest;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.saynotobugs.confidence.Quality;
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.allOf;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+import static org.saynotobugs.confidence.quality.Core.greaterThan;
+import static org.saynotobugs.confidence.quality.Core.has;
+import static org.saynotobugs.confidence.quality.Core.instanceOf;
+
+
+@Confidence
+class AsyncDavExecutorTest
+{
+    private final static URI COLLECTION = URI.create("https://example.com/cal/");
+
+    /**
+     * The part of {@link #MULTISTATUS} that's delivered before the response stalls.
+     */
+    private final static String HEAD = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+        + "<d:multistatus xmlns:d=\"DAV:\">\n"
+        + response("a");
+
+    private final static String MULTISTATUS = HEAD + response("b") + "</d:multistatus>\n";
+
+    /**
+     * Runs each task on a new daemon thread.
+     */
+    private final static Executor THREADS = runnable ->
+    {
+        Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        thread.start();
+    };
+
+    Verifiable timeoutFailsTheResult = assertThat(timedOut(), has("error", Outcome::error, instanceOf(TimeoutException.class)));
+
+    Verifiable timeoutCancelsTheReader = assertThat(timedOut(),
+        allOf(
+            has("reader error", Outcome::readerError, instanceOf(InterruptedIOException.class)),
+            has("response", Outcome::response, aborted())));
+
+    Verifiable cancellationCancelsTheReader = assertThat(cancelled(),
+        allOf(
+            has("reader error", Outcome::readerError, instanceOf(InterruptedIOException.class)),
+            has("response", Outcome::response, aborted())));
+
+
+    /**
+     * Reads a response with a timeout of 200 ms.
+     */
+    private static Outcome timedOut()
+    {
+        return stalled((async, request, function) -> async.read(COLLECTION, request, function, 200, TimeUnit.MILLISECONDS), future ->
+        {
+            // the timeout does the job
+        });
+    }
+
+
+    /**
+     * Reads a response and cancels the result once the reader has been handed over.
+     */
+    private static Outcome cancelled()
+    {
+        return stalled((async, request, function) -> async.read(COLLECTION, request, function), future -> future.cancel(false));
+    }
+
+
+    private static Outcome stalled(Read read, Action action)
+    {
+        FakeExecutor executor = new FakeExecutor((uri, method, body) -> new FakeResponse(uri, MULTISTATUS, HEAD.length()));
+        AtomicReference<Exception> readerError = new AtomicReference<>();
+        CountDownLatch closed = new CountDownLatch(1);
+        CountDownLatch reading = new CountDownLatch(1);
+        CompletableFuture<Integer> future = read.read(new AsyncDavExecutor(executor, THREADS),
+            new PropFind(new DavContext(), Depth.one, WebDav.Properties.GETETAG),
+            reader ->
+            {
+                try
+                {
+                    return readAfterCancellation(reader, reading);
+                }
+                catch (IOException e)
+                {
+                    readerError.set(e);
+                    throw e;
+                }
+                finally
+                {
+                    closed.countDown();
+                }
+            });
+        try
+        {
+            if (!reading.await(10, TimeUnit.SECONDS))
+            {
+                throw new AssertionError("reader didn't start");
+            }
+            action.apply(future);
+            Throwable error = future.handle((result, e) -> e).get(10, TimeUnit.SECONDS);
+            if (!closed.await(10, TimeUnit.SECONDS))
+            {
+                throw new AssertionError("reader didn't return");
+            }
+            // give the worker the chance to close the reader
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+            while (!executor.responses().get(0).closed() && System.currentTimeMillis() < deadline)
+            {
+                pause();
+            }
+            return new Outcome(error, readerError.get(), executor.responses().get(0));
+        }
+        catch (Exception e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    /**
+     * Counts down the given latch, waits until the reader has been cancelled and tries to read the next {@link org.dmfs.dav.rfc4918.Response}. Fails if the
+     * reader isn't cancelled within 10 seconds.
+     */
+    private static int readAfterCancellation(MultistatusResponseReader reader, CountDownLatch reading) throws IOException
+    {
+        reading.countDown();
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (!reader.isCancelled())
+        {
+            if (System.currentTimeMillis() > deadline)
+            {
+                throw new AssertionError("reader hasn't been cancelled");
+            }
+            pause();
+        }
+        try
+        {
+            return reader.hasNextResponse() ? 1 : 0;
+        }
+        catch (ProtocolError e)
+        {
+            throw new IOException(e);
+        }
+    }
+
+
+    private static void pause()
+    {
+        try
+        {
+            Thread.sleep(10);
+        }
+        catch (InterruptedException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    private static Quality<FakeResponse> aborted()
+    {
+        return allOf(has("remaining bytes", FakeResponse::remaining, greaterThan(0)), has("closed", FakeResponse::closed, equalTo(true)));
+    }
+
+
+    private static String response(String name)
+    {
+        return "<d:response><d:href>/cal/" + name + ".ics</d:href><d:propstat><d:prop><d:getetag>\"" + name
+            + "\"</d:getetag></d:prop><d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>\n";
+    }
+
+
+    /**
+     * Starts a read.
+     */
+    private interface Read
+    {
+        CompletableFuture<Integer> read(AsyncDavExecutor async, HttpRequest<MultistatusResponseReader> request, ReaderFunction<Integer> function);
+    }
+
+
+    /**
+     * Acts on the result of a running read.
+     */
+    private interface Action
+    {
+        void apply(CompletableFuture<?> future);
+    }
+
+
+    /**
+     * The outcome of a read.
+     */
+    private final static class Outcome
+    {
+        private final Throwable mError;
+        private final Exception mReaderError;
+        private final FakeResponse mResponse;
+
+
+        private Outcome(Throwable error, Exception readerError, FakeResponse response)
+        {
+            mError = error;
+            mReaderError = readerError;
+            mResponse = response;
+        }
+
+
+        /**
+         * Returns the error of the future.
+         */
+        Throwable error()
+        {
+            return mError;
+        }
+
+
+        /**
+         * Returns the error thrown by the reader.
+         */
+        Exception readerError()
+        {
+            return mReaderError;
+        }
+
+
+        FakeResponse response()
+        {
+            return mResponse;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.dmfs.davclient.async;
+
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+import static org.saynotobugs.confidence.quality.Core.sameAs;
+
+
+@Confidence
+class DavThreadsTest
+{
+    /**
+     * Set by the java21Test task, which runs the tests against the multi-release JAR on Java 21.
+     */
+    Verifiable variantMatchesRuntime = assertThat(DavThreads.virtual(), equalTo(Boolean.getBoolean("org.dmfs.davclient.expectVirtualThreads")));
+
+    Verifiable tasksRunOnAnnouncedThreads = assertThat(runsOnVirtualThreads(), equalTo(DavThreads.virtual()));
+
+    Verifiable sharedTasksRunOnAnnouncedThreads = assertThat(runsOnVirtualThread(DavThreads.sharedExecutor()), equalTo(DavThreads.virtual()));
+
+    Verifiable sharedExecutorIsShared = assertThat(DavThreads.sharedExecutor(), sameAs(DavThreads.sharedExecutor()));
+
+
+    private static boolean runsOnVirtualThreads()
+    {
+        ExecutorService executor = DavThreads.newPerRequestExecutor();
+        try
+        {
+            return runsOnVirtualThread(executor);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+
+    private static boolean runsOnVirtualThread(Executor executor)
+    {
+        try
+        {
+            return CompletableFuture.supplyAsync(() ->
+            {
+                try
+                {
+                    // Thread.isVirtual() doesn't exist before Java 21
+                    return (Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread());
+                }
+                catch (NoSuchMethodException e)
+                {
+                    return false;
+                }
+                catch (ReflectiveOperationException e)
+                {
+                    throw new RuntimeException(e);
+                }
+            }, executor).get();
+        }
+        catch (InterruptedException | ExecutionException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+}
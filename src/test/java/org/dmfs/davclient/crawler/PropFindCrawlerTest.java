@@ -0,0 +1,275 @@
+package org.dmfs.davclient.crawler;
+
+import org.dmfs.dav.rfc4918.WebDav;
+import org.dmfs.davclient.DavContext;
+import org.dmfs.davclient.FakeExecutor;
+import org.dmfs.davclient.FakeResponse;
+import org.dmfs.davclient.HostConcurrencyLimit;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.httpessentials.exceptions.ProtocolException;
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.allOf;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+import static org.saynotobugs.confidence.quality.Core.greaterThan;
+import static org.saynotobugs.confidence.quality.Core.has;
+import static org.saynotobugs.confidence.quality.Core.instanceOf;
+import static org.saynotobugs.confidence.quality.Core.iterates;
+import static org.saynotobugs.confidence.quality.Core.iteratesInAnyOrder;
+import static org.saynotobugs.confidence.quality.Core.throwing;
+
+
+@Confidence
+class PropFindCrawlerTest
+{
+    private final static URI ROOT = URI.create("https://example.com/dav/");
+
+    /**
+     * Runs each task on a new daemon thread.
+     */
+    private final static Executor THREADS = runnable ->
+    {
+        Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        thread.start();
+    };
+
+    Verifiable wholeTreeIsCrawled = assertThat(crawled(Integer.MAX_VALUE, Integer.MAX_VALUE, 2),
+        allOf(
+            has("resources", Crawled::resources,
+                iteratesInAnyOrder("/dav/", "/dav/a/", "/dav/b/", "/dav/x.ics", "/dav/a/c/", "/dav/a/y.ics", "/dav/b/z.ics", "/dav/a/c/w.ics")),
+            has("listed", Crawled::listed, iteratesInAnyOrder("/dav/", "/dav/a/", "/dav/b/", "/dav/a/c/")),
+            has("complete", Crawled::complete, equalTo(true))));
+
+    Verifiable depthIsLimited = assertThat(crawled(1, Integer.MAX_VALUE, 2),
+        allOf(
+            has("resources", Crawled::resources, iteratesInAnyOrder("/dav/", "/dav/a/", "/dav/b/", "/dav/x.ics")),
+            has("listed", Crawled::listed, iterates("/dav/")),
+            has("complete", Crawled::complete, equalTo(false))));
+
+    Verifiable depthOfTwoListsTheMembersOfTheRoot = assertThat(crawled(2, Integer.MAX_VALUE, 2),
+        allOf(
+            has("resources", Crawled::resources,
+                iteratesInAnyOrder("/dav/", "/dav/a/", "/dav/b/", "/dav/x.ics", "/dav/a/c/", "/dav/a/y.ics", "/dav/b/z.ics")),
+            has("listed", Crawled::listed, iteratesInAnyOrder("/dav/", "/dav/a/", "/dav/b/")),
+            has("complete", Crawled::complete, equalTo(false))));
+
+    Verifiable numberOfResourcesIsLimited = assertThat(crawled(Integer.MAX_VALUE, 3, 1),
+        allOf(
+            has("resources", Crawled::resources, iterates("/dav/", "/dav/a/", "/dav/b/")),
+            has("complete", Crawled::complete, equalTo(false))));
+
+    Verifiable interruptThrowsInterruptedIOException = assertThat(interrupted(new FakeExecutor(stalling())), instanceOf(InterruptedIOException.class));
+
+    Verifiable interruptCancelsRunningListings = interruptCancelsRunningListings();
+
+    Verifiable limitsMustNotBeNegative = assertThat(
+        () -> new PropFindCrawler(new FakeExecutor(tree()), new DavContext(), ROOT, null, -1, 10, 1, new HostConcurrencyLimit(1), THREADS),
+        throwing(IllegalArgumentException.class));
+
+
+    /**
+     * Returns a server with the following tree. The collection <code>a</code> also lists <code>b</code>, without trailing slash.
+     * <pre>
+     * /dav/
+     *   a/
+     *     c/
+     *       w.ics
+     *     y.ics
+     *     b
+     *   b/
+     *     z.ics
+     *   x.ics
+     * </pre>
+     */
+    private static FakeExecutor.Server tree()
+    {
+        return (uri, method, body) ->
+        {
+            switch (uri.getPath())
+            {
+                case "/dav/":
+                    return listing(uri, collection("/dav/") + collection("/dav/a/") + collection("/dav/b/") + resource("/dav/x.ics"));
+                case "/dav/a/":
+                    return listing(uri, collection("/dav/a/") + collection("/dav/a/c/") + resource("/dav/a/y.ics") + collection("/dav/b"));
+                case "/dav/b/":
+                    return listing(uri, collection("/dav/b/") + resource("/dav/b/z.ics"));
+                case "/dav/a/c/":
+                    return listing(uri, collection("/dav/a/c/") + resource("/dav/a/c/w.ics"));
+                default:
+                    throw new IOException("Unexpected request to " + uri);
+            }
+        };
+    }
+
+
+    /**
+     * Returns a server that stalls the listing of the root after the first member.
+     */
+    private static FakeExecutor.Server stalling()
+    {
+        return (uri, method, body) ->
+        {
+            String head = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<d:multistatus xmlns:d=\"DAV:\">\n" + collection("/dav/") + collection("/dav/a/");
+            return new FakeResponse(uri, head + resource("/dav/stalled.ics") + "</d:multistatus>\n", head.length());
+        };
+    }
+
+
+    private static Crawled crawled(int maxDepth, int maxResources, int parallelism)
+    {
+        FakeExecutor executor = new FakeExecutor(tree());
+        List<String> resources = Collections.synchronizedList(new ArrayList<>());
+        try
+        {
+            boolean complete = new PropFindCrawler(executor, new DavContext(), ROOT, null, maxDepth, maxResources, parallelism,
+                new HostConcurrencyLimit(parallelism), THREADS, WebDav.Properties.GETETAG)
+                .crawl(response -> resources.add(response.getHref().getPath()));
+            List<String> listed = new ArrayList<>();
+            for (String request : executor.requests())
+            {
+                listed.add(URI.create(request.split(" ")[1]).getPath());
+            }
+            return new Crawled(resources, listed, complete);
+        }
+        catch (IOException | ProtocolError | ProtocolException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    private static Verifiable interruptCancelsRunningListings()
+    {
+        FakeExecutor executor = new FakeExecutor(stalling());
+        interrupted(executor);
+        return assertThat(executor.responses(),
+            iterates(allOf(has("closed", FakeResponse::closed, equalTo(true)), has("remaining bytes", FakeResponse::remaining, greaterThan(0)))));
+    }
+
+
+    /**
+     * Crawls with two workers on a new thread and interrupts that thread once the listing of the root has been received. Returns the exception thrown by the
+     * crawl. Fails if the crawl doesn't return.
+     */
+    private static Exception interrupted(FakeExecutor executor)
+    {
+        AtomicReference<Exception> error = new AtomicReference<>();
+        Thread thread = new Thread(() ->
+        {
+            try
+            {
+                new PropFindCrawler(executor, new DavContext(), ROOT, null, Integer.MAX_VALUE, Integer.MAX_VALUE, 2, new HostConcurrencyLimit(2), THREADS)
+                    .crawl(response -> {});
+            }
+            catch (IOException | ProtocolError | ProtocolException | RuntimeException e)
+            {
+                error.set(e);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        try
+        {
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+            while (executor.responses().isEmpty() && System.currentTimeMillis() < deadline)
+            {
+                Thread.sleep(10);
+            }
+            thread.interrupt();
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        catch (InterruptedException e)
+        {
+            throw new RuntimeException(e);
+        }
+        if (thread.isAlive())
+        {
+            throw new AssertionError("crawl() didn't return");
+        }
+        return error.get();
+    }
+
+
+    private static FakeResponse listing(URI uri, String responses)
+    {
+        return new FakeResponse(uri, "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+            + "<d:multistatus xmlns:d=\"DAV:\">\n"
+            + responses
+            + "</d:multistatus>\n");
+    }
+
+
+    private static String collection(String path)
+    {
+        return member(path, "<d:collection/>");
+    }
+
+
+    private static String resource(String path)
+    {
+        return member(path, "");
+    }
+
+
+    private static String member(String path, String resourceType)
+    {
+        return "<d:response><d:href>" + path + "</d:href><d:propstat><d:prop><d:resourcetype>" + resourceType
+            + "</d:resourcetype><d:getetag>\"1\"</d:getetag></d:prop><d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>\n";
+    }
+
+
+    /**
+     * The result of a crawl.
+     */
+    private final static class Crawled
+    {
+        private final List<String> mResources;
+        private final List<String> mListed;
+        private final boolean mComplete;
+
+
+        private Crawled(List<String> resources, List<String> listed, boolean complete)
+        {
+            mResources = resources;
+            mListed = listed;
+            mComplete = complete;
+        }
+
+
+        /**
+         * Returns the paths of the resources that have been passed to the consumer.
+         */
+        List<String> resources()
+        {
+            return mResources;
+        }
+
+
+        /**
+         * Returns the paths of the collections that have been listed.
+         */
+        List<String> listed()
+        {
+            return mListed;
+        }
+
+
+        boolean complete()
+        {
+            return mComplete;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package org.dmfs.davclient.multiget;
+
+import org.dmfs.davclient.multiget.AdaptiveBatchSize.Reason;
+import org.saynotobugs.confidence.Quality;
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.allOf;
+import static org.saynotobugs.confidence.quality.Core.emptyIterable;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+import static org.saynotobugs.confidence.quality.Core.has;
+import static org.saynotobugs.confidence.quality.Core.iterates;
+
+
+@Confidence
+class AdaptiveBatchSizeTest
+{
+    private final static long FAST = TimeUnit.MILLISECONDS.toNanos(100);
+    private final static long SLOW = TimeUnit.SECONDS.toNanos(2);
+
+    Verifiable startsAtMinimum = assertThat(new AdaptiveBatchSize().next(), equalTo(AdaptiveBatchSize.DEFAULT_MIN_SIZE));
+
+    Verifiable growsAfterFastBatches = assertThat(changes(size ->
+    {
+        size.succeeded(10, FAST, 1000);
+        size.succeeded(20, FAST, 1000);
+    }), iterates(change(10, 20, Reason.FAST), change(20, 30, Reason.FAST)));
+
+    Verifiable doesNotGrowAfterPartialBatches = assertThat(changes(size -> size.succeeded(5, FAST, 1000)), emptyIterable());
+
+    Verifiable keepsSizeAfterPartialBatches = assertThat(resized(size -> size.succeeded(5, FAST, 1000)),
+        has("batch size", AdaptiveBatchSize::batchSize, equalTo(10)));
+
+    Verifiable doesNotGrowBeyondMaximum = assertThat(changes(size ->
+        {
+            for (int i = 0; i < 20; ++i)
+            {
+                size.succeeded(size.next(), FAST, 1000);
+            }
+        }),
+        iterates(change(10, 20, Reason.FAST), change(20, 30, Reason.FAST), change(30, 40, Reason.FAST), change(40, 50, Reason.FAST)));
+
+    Verifiable shrinksAfterSlowBatch = assertThat(changes(size ->
+    {
+        size.succeeded(10, FAST, 1000);
+        size.succeeded(20, FAST, 1000);
+        size.succeeded(30, SLOW, 1000);
+    }), iterates(change(10, 20, Reason.FAST), change(20, 30, Reason.FAST), change(30, 22, Reason.SLOW)));
+
+    Verifiable halvesFailedBatchOnOverload = assertThat(changes(size ->
+        {
+            size.succeeded(10, FAST, 1000);
+            size.succeeded(20, FAST, 1000);
+            size.succeeded(30, FAST, 1000);
+            size.succeeded(40, FAST, 1000);
+            size.failed(40, new SocketTimeoutException());
+        }),
+        iterates(change(10, 20, Reason.FAST), change(20, 30, Reason.FAST), change(30, 40, Reason.FAST), change(40, 50, Reason.FAST),
+            change(50, 20, Reason.OVERLOAD)));
+
+    Verifiable overloadAsksForRetry = assertThat(grownTo(40), has("retry", size -> size.failed(40, new SocketTimeoutException()), equalTo(true)));
+
+    Verifiable overloadIsCounted = assertThat(failed(grownTo(40), 40, new SocketTimeoutException()),
+        allOf(
+            has("batch size", AdaptiveBatchSize::batchSize, equalTo(20)),
+            has("failures", AdaptiveBatchSize::failures, equalTo(1L)),
+            has("overloads", AdaptiveBatchSize::overloads, equalTo(1L))));
+
+    Verifiable overloadAtMinimumDoesNotAskForRetry = assertThat(grownTo(10),
+        has("retry", size -> size.failed(10, new SocketTimeoutException()), equalTo(false)));
+
+    Verifiable otherErrorsAreNotRetried = assertThat(grownTo(40), has("retry", size -> size.failed(40, new IOException()), equalTo(false)));
+
+    Verifiable otherErrorsKeepTheSize = assertThat(failed(grownTo(40), 40, new IOException()),
+        allOf(
+            has("batch size", AdaptiveBatchSize::batchSize, equalTo(40)),
+            has("failures", AdaptiveBatchSize::failures, equalTo(1L)),
+            has("overloads", AdaptiveBatchSize::overloads, equalTo(0L))));
+
+    Verifiable countersAreUpdated = assertThat(resized(new AdaptiveBatchSize(10), size ->
+        {
+            size.succeeded(10, FAST, 1000);
+            size.succeeded(20, FAST, 2000);
+        }),
+        allOf(
+            has("batches", AdaptiveBatchSize::batches, equalTo(2L)),
+            has("hrefs", AdaptiveBatchSize::hrefs, equalTo(30L)),
+            has("bytes", AdaptiveBatchSize::bytes, equalTo(3000L))));
+
+    Verifiable fixedSizeIgnoresSuccess = assertThat(resized(new AdaptiveBatchSize(25), size -> size.succeeded(25, FAST, 1000)),
+        has("batch size", AdaptiveBatchSize::batchSize, equalTo(25)));
+
+    Verifiable fixedSizeIgnoresOverload = assertThat(failed(new AdaptiveBatchSize(25), 25, new SocketTimeoutException()),
+        has("batch size", AdaptiveBatchSize::batchSize, equalTo(25)));
+
+
+    /**
+     * Applies the given changes to a batch size of 10 to 50 that grows in steps of 10 and returns the reported changes.
+     */
+    private static List<Change> changes(Changes changes)
+    {
+        List<Change> reported = new ArrayList<>();
+        changes.apply(
+            new AdaptiveBatchSize(10, 50, 10, 1, TimeUnit.SECONDS, (previous, current, reason) -> reported.add(new Change(previous, current, reason))));
+        return reported;
+    }
+
+
+    /**
+     * Applies the given changes to a batch size of 10 to 50 that grows in steps of 10 and returns it.
+     */
+    private static AdaptiveBatchSize resized(Changes changes)
+    {
+        return resized(new AdaptiveBatchSize(10, 50, 10, 1, TimeUnit.SECONDS, (previous, current, reason) ->
+        {
+        }), changes);
+    }
+
+
+    private static AdaptiveBatchSize resized(AdaptiveBatchSize size, Changes changes)
+    {
+        changes.apply(size);
+        return size;
+    }
+
+
+    /**
+     * Returns a batch size of 10 to 100 that has been grown to the given size by fast batches.
+     */
+    private static AdaptiveBatchSize grownTo(int hrefs)
+    {
+        AdaptiveBatchSize size = new AdaptiveBatchSize(10, 100, 10, 1, TimeUnit.SECONDS, (previous, current, reason) ->
+        {
+        });
+        while (size.batchSize() < hrefs)
+        {
+            size.succeeded(size.batchSize(), FAST, 1000);
+        }
+        return size;
+    }
+
+
+    private static AdaptiveBatchSize failed(AdaptiveBatchSize size, int hrefs, Exception error)
+    {
+        size.failed(hrefs, error);
+        return size;
+    }
+
+
+    private static Quality<Change> change(int previous, int current, Reason reason)
+    {
+        return allOf(
+            has("previous", change -> change.mPrevious, equalTo(previous)),
+            has("current", change -> change.mCurrent, equalTo(current)),
+            has("reason", change -> change.mReason, equalTo(reason)));
+    }
+
+
+    /**
+     * A change reported to the {@link AdaptiveBatchSize.Listener}.
+     */
+    private final static class Change
+    {
+        private final int mPrevious;
+        private final int mCurrent;
+        private final Reason mReason;
+
+
+        private Change(int previous, int current, Reason reason)
+        {
+            mPrevious = previous;
+            mCurrent = current;
+            mReason = reason;
+        }
+    }
+
+
+    private interface Changes
+    {
+        void apply(AdaptiveBatchSize size);
+    }
+}
@@ -0,0 +1,143 @@
+package org.dmfs.davclient.multiget;
+
+import org.dmfs.dav.rfc4918.Response;
+import org.dmfs.dav.rfc4918.WebDav;
+import org.dmfs.davclient.DavContext;
+import org.dmfs.davclient.FakeExecutor;
+import org.dmfs.davclient.FakeResponse;
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.allOf;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+import static org.saynotobugs.confidence.quality.Core.has;
+import static org.saynotobugs.confidence.quality.Core.instanceOf;
+import static org.saynotobugs.confidence.quality.Core.iterates;
+import static org.saynotobugs.confidence.quality.Core.throwing;
+
+
+@Confidence
+class BatchedMultigetTest
+{
+    private final static URI COLLECTION = URI.create("https://example.com/cal/");
+
+    Verifiable responsesOfAllBatchesAreReturnedInOrder = assertThat(
+        new BatchedMultiget(new FakeExecutor(new MultigetServer()), COLLECTION, batch(), hrefs("a", "b", "a", "c", "d", "e"), 2),
+        has("hrefs", multiget -> paths(multiget.responses()), iterates("/cal/a.ics", "/cal/b.ics", "/cal/c.ics", "/cal/d.ics", "/cal/e.ics")));
+
+    Verifiable hrefsAreFetchedInBatches = assertThat(fetched(new MultigetServer(), 2),
+        has("batches", MultigetServer::batches,
+            iterates(
+                iterates("/cal/a.ics", "/cal/b.ics"),
+                iterates("/cal/c.ics", "/cal/d.ics"),
+                iterates("/cal/e.ics"))));
+
+    Verifiable defaultBatchSizeFetchesAllAtOnce = assertThat(fetched(new MultigetServer(), BatchedMultiget.DEFAULT_BATCH_SIZE),
+        has("batches", MultigetServer::batches, iterates(iterates("/cal/a.ics", "/cal/b.ics", "/cal/c.ics", "/cal/d.ics", "/cal/e.ics"))));
+
+    Verifiable overloadedBatchesAreRetriedInSmallerBatches = assertThat(overloaded(new MultigetServer(2)),
+        has("batches", MultigetServer::batches,
+            iterates(
+                iterates("/cal/a.ics"),
+                iterates("/cal/b.ics", "/cal/c.ics", "/cal/d.ics", "/cal/e.ics"),
+                iterates("/cal/b.ics", "/cal/c.ics"),
+                iterates("/cal/d.ics", "/cal/e.ics"))));
+
+    Verifiable overloadedBatchesAreReturnedOnce = assertThat(
+        new BatchedMultiget(new FakeExecutor(new MultigetServer(2)), COLLECTION, batch(), hrefs("a", "b", "c", "d", "e"), growing()),
+        has("hrefs", multiget -> paths(multiget.responses()), iterates("/cal/a.ics", "/cal/b.ics", "/cal/c.ics", "/cal/d.ics", "/cal/e.ics")));
+
+    Verifiable nextBatchIsFetchedWhenPreviousIsConsumed = assertThat(firstOnly(),
+        has("responses", FakeExecutor::responses, iterates(has("closed", FakeResponse::closed, equalTo(true)))));
+
+    Verifiable ioExceptionsAreUnchecked = assertThat(
+        () -> paths(new BatchedMultiget(new FakeExecutor((uri, method, body) ->
+        {
+            throw new SocketTimeoutException("timeout");
+        }), COLLECTION, batch(), hrefs("a"), 2).responses()),
+        throwing(allOf(instanceOf(UncheckedIOException.class), has("cause", Throwable::getCause, instanceOf(SocketTimeoutException.class)))));
+
+    Verifiable batchSizeMustBePositive = assertThat(() -> new BatchedMultiget(new FakeExecutor(new MultigetServer()), COLLECTION, batch(), hrefs("a"), 0),
+        throwing(IllegalArgumentException.class));
+
+
+    /**
+     * Fetches a, b, c, d and e with the given batch size and returns the {@link MultigetServer}.
+     */
+    private static MultigetServer fetched(MultigetServer server, int batchSize)
+    {
+        paths(new BatchedMultiget(new FakeExecutor(server), COLLECTION, batch(), hrefs("a", "b", "c", "d", "e"), batchSize).responses());
+        return server;
+    }
+
+
+    /**
+     * Fetches a, b, c, d and e with a batch size that grows from 1 to 4 after the first batch and returns the {@link MultigetServer}.
+     */
+    private static MultigetServer overloaded(MultigetServer server)
+    {
+        paths(new BatchedMultiget(new FakeExecutor(server), COLLECTION, batch(), hrefs("a", "b", "c", "d", "e"), growing()).responses());
+        return server;
+    }
+
+
+    /**
+     * Returns an {@link AdaptiveBatchSize} that starts at 1 and grows by 3 after each full batch.
+     */
+    private static AdaptiveBatchSize growing()
+    {
+        return new AdaptiveBatchSize(1, 8, 3, 1, TimeUnit.MINUTES, (previous, current, reason) ->
+        {
+        });
+    }
+
+
+    /**
+     * Takes the first response of a multiget of two batches and closes the stream. Returns the {@link FakeExecutor}, which must have sent a single report.
+     */
+    private static FakeExecutor firstOnly()
+    {
+        FakeExecutor executor = new FakeExecutor(new MultigetServer());
+        try (Stream<Response> responses = new BatchedMultiget(executor, COLLECTION, batch(), hrefs("a", "b", "c"), 2).responses())
+        {
+            responses.findFirst();
+        }
+        return executor;
+    }
+
+
+    private static MultigetBatch batch()
+    {
+        return new CalendarMultigetBatch(new DavContext(), WebDav.Properties.GETETAG);
+    }
+
+
+    private static List<URI> hrefs(String... names)
+    {
+        List<URI> result = new ArrayList<>(names.length);
+        for (String name : names)
+        {
+            result.add(COLLECTION.resolve(name + ".ics"));
+        }
+        return result;
+    }
+
+
+    private static List<String> paths(Stream<Response> responses)
+    {
+        try (Stream<Response> stream = responses)
+        {
+            return stream.map(response -> response.getHref().getPath()).collect(Collectors.toList());
+        }
+    }
+}
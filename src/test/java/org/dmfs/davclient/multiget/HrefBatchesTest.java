@@ -0,0 +1,161 @@
+package org.dmfs.davclient.multiget;
+
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.emptyIterable;
+import static org.saynotobugs.confidence.quality.Core.iterates;
+import static org.saynotobugs.confidence.quality.Core.throwing;
+
+
+@Confidence
+class HrefBatchesTest
+{
+    private final static URI COLLECTION = URI.create("https://example.com/calendars/user/home/");
+
+    /**
+     * Marks the point where an {@link Arriving} iterator has no href available.
+     */
+    private final static String PAUSE = "|";
+
+    Verifiable hrefsAreSplitIntoBatches = assertThat(batches(new HrefBatches(hrefs("a", "b", "c", "d", "e"), 2)),
+        iterates(iterates("a", "b"), iterates("c", "d"), iterates("e")));
+
+    Verifiable duplicatesAreDropped = assertThat(batches(new HrefBatches(hrefs("a", "b", "a", "c", "b", "d", "e"), 2)),
+        iterates(iterates("a", "b"), iterates("c", "d"), iterates("e")));
+
+    Verifiable emptyInputHasNoBatches = assertThat(batches(new HrefBatches(hrefs(), 2)), emptyIterable());
+
+    Verifiable exhaustedBatchesThrow = assertThat(() -> new HrefBatches(hrefs(), 2).next(), throwing(NoSuchElementException.class));
+
+    Verifiable sizeIsTakenPerBatch = assertThat(batches(new HrefBatches(hrefs("a", "b", "c", "d", "e", "f", "g"), new AtomicInteger()::incrementAndGet)),
+        iterates(iterates("a"), iterates("b", "c"), iterates("d", "e", "f"), iterates("g")));
+
+    Verifiable nonPositiveSizesFetchOneHref = assertThat(batches(new HrefBatches(hrefs("a", "b"), () -> 0)), iterates(iterates("a"), iterates("b")));
+
+    Verifiable retriesComeFirst = assertThat(retried(false), iterates(iterates("a", "b"), iterates("a", "b"), iterates("c", "d"), iterates("e")));
+
+    Verifiable retriesComeBeforePrefetchedBatch = assertThat(retried(true),
+        iterates(iterates("a", "b"), iterates("a", "b"), iterates("c", "d"), iterates("e")));
+
+    Verifiable incrementalHrefsAreSentWhenNoneAreAvailable = assertThat(batches(new HrefBatches(new Arriving("a", "b", PAUSE, "c", PAUSE, "d", "e"), 4)),
+        iterates(iterates("a", "b"), iterates("c"), iterates("d", "e")));
+
+    Verifiable incrementalHrefsFillTheBatch = assertThat(batches(new HrefBatches(new Arriving("a", "b", "c", PAUSE, "d"), 2)),
+        iterates(iterates("a", "b"), iterates("c"), iterates("d")));
+
+    Verifiable batchSizeMustBePositive = assertThat(() -> new HrefBatches(hrefs("a"), 0), throwing(IllegalArgumentException.class));
+
+
+    /**
+     * Takes the first batch, optionally pre-fetches the next one, returns the first batch for a retry and returns all batches taken.
+     */
+    private static List<List<String>> retried(boolean prefetch)
+    {
+        HrefBatches batches = new HrefBatches(hrefs("a", "b", "c", "d", "e"), 2);
+        List<URI> first = batches.next();
+        if (prefetch)
+        {
+            batches.hasNext();
+        }
+        batches.retry(first);
+        List<List<String>> result = new ArrayList<>();
+        result.add(names(first));
+        result.addAll(batches(batches));
+        return result;
+    }
+
+
+    private static Iterator<URI> hrefs(String... names)
+    {
+        List<URI> result = new ArrayList<>(names.length);
+        for (String name : names)
+        {
+            result.add(COLLECTION.resolve(name));
+        }
+        return result.iterator();
+    }
+
+
+    /**
+     * Returns the names of the hrefs of all batches.
+     */
+    private static List<List<String>> batches(Iterator<List<URI>> batches)
+    {
+        List<List<String>> result = new ArrayList<>();
+        while (batches.hasNext())
+        {
+            result.add(names(batches.next()));
+        }
+        return result;
+    }
+
+
+    private static List<String> names(List<URI> batch)
+    {
+        List<String> result = new ArrayList<>(batch.size());
+        for (URI href : batch)
+        {
+            result.add(COLLECTION.relativize(href).toString());
+        }
+        return result;
+    }
+
+
+    /**
+     * {@link IncrementalHrefs} of the given names. At a {@link #PAUSE} no href is available until {@link #hasNext()} is called, like with a listing that's
+     * still being read.
+     */
+    private final static class Arriving implements IncrementalHrefs
+    {
+        private final Iterator<String> mNames;
+        private String mNext;
+
+
+        private Arriving(String... names)
+        {
+            mNames = Arrays.asList(names).iterator();
+            mNext = mNames.hasNext() ? mNames.next() : null;
+        }
+
+
+        @Override
+        public boolean available()
+        {
+            return !PAUSE.equals(mNext);
+        }
+
+
+        @Override
+        public boolean hasNext()
+        {
+            while (PAUSE.equals(mNext))
+            {
+                mNext = mNames.hasNext() ? mNames.next() : null;
+            }
+            return mNext != null;
+        }
+
+
+        @Override
+        public URI next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            URI result = COLLECTION.resolve(mNext);
+            mNext = mNames.hasNext() ? mNames.next() : null;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.dmfs.davclient.multiget;
+
+import org.dmfs.davclient.FakeExecutor;
+import org.dmfs.davclient.FakeResponse;
+import org.dmfs.httpessentials.HttpStatus;
+import org.dmfs.httpessentials.headers.EmptyHeaders;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * A {@link FakeExecutor.Server} that answers every multiget report with a multistatus that contains a response with an etag for each requested href. Reports
+ * with more hrefs than a given maximum are answered with <code>413 Payload Too Large</code>, like an overloaded server does. It records the paths of the
+ * hrefs of every report it receives.
+ */
+final class MultigetServer implements FakeExecutor.Server
+{
+    private final static Pattern HREF = Pattern.compile("<(?:[\\w-]+:)?href(?:\\s[^>]*)?>([^<]*)</(?:[\\w-]+:)?href>");
+
+    private final int mMaxBatchSize;
+    private final List<List<String>> mBatches = new CopyOnWriteArrayList<>();
+
+
+    /**
+     * Creates a {@link MultigetServer} that answers reports of any size.
+     */
+    MultigetServer()
+    {
+        this(Integer.MAX_VALUE);
+    }
+
+
+    /**
+     * Creates a {@link MultigetServer} that answers reports with more than the given number of hrefs with <code>413 Payload Too Large</code>.
+     */
+    MultigetServer(int maxBatchSize)
+    {
+        mMaxBatchSize = maxBatchSize;
+    }
+
+
+    @Override
+    public FakeResponse respond(URI uri, String method, String body)
+    {
+        List<String> paths = new ArrayList<>();
+        Matcher matcher = HREF.matcher(body);
+        while (matcher.find())
+        {
+            paths.add(uri.resolve(matcher.group(1)).getPath());
+        }
+        mBatches.add(paths);
+        if (paths.size() > mMaxBatchSize)
+        {
+            return new FakeResponse(uri, HttpStatus.PAYLOAD_TOO_LARGE, EmptyHeaders.INSTANCE, null);
+        }
+
+        StringBuilder multistatus = new StringBuilder(256).append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<d:multistatus xmlns:d=\"DAV:\">\n");
+        for (String path : paths)
+        {
+            multistatus.append("<d:response><d:href>").append(path).append("</d:href><d:propstat><d:prop><d:getetag>\"")
+                .append(path.hashCode())
+                .append("\"</d:getetag></d:prop><d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>\n");
+        }
+        return new FakeResponse(uri, HttpStatus.MULTISTATUS, EmptyHeaders.INSTANCE, multistatus.append("</d:multistatus>\n").toString());
+    }
+
+
+    /**
+     * Returns the paths of the hrefs of every report received so far.
+     */
+    List<List<String>> batches()
+    {
+        return mBatches;
+    }
+}
@@ -0,0 +1,335 @@
+package org.dmfs.davclient.multiget;
+
+import org.dmfs.dav.rfc4918.WebDav;
+import org.dmfs.davclient.DavContext;
+import org.dmfs.davclient.FakeExecutor;
+import org.dmfs.davclient.FakeResponse;
+import org.dmfs.davclient.HostConcurrencyLimit;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.httpessentials.exceptions.ProtocolException;
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.allOf;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+import static org.saynotobugs.confidence.quality.Core.greaterThan;
+import static org.saynotobugs.confidence.quality.Core.has;
+import static org.saynotobugs.confidence.quality.Core.instanceOf;
+import static org.saynotobugs.confidence.quality.Core.iterates;
+import static org.saynotobugs.confidence.quality.Core.iteratesInAnyOrder;
+import static org.saynotobugs.confidence.quality.Core.throwing;
+
+
+@Confidence
+class ParallelMultigetTest
+{
+    private final static URI COLLECTION = URI.create("https://example.com/cal/");
+
+    /**
+     * A multistatus that stalls after the first response, see {@link #STALL_AT}.
+     */
+    private final static String STALLING = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+        + "<d:multistatus xmlns:d=\"DAV:\">\n"
+        + "<d:response><d:href>/cal/x.ics</d:href><d:propstat><d:prop><d:getetag>\"x\"</d:getetag></d:prop>"
+        + "<d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>\n"
+        + "<d:response><d:href>/cal/y.ics</d:href><d:propstat><d:prop><d:getetag>\"y\"</d:getetag></d:prop>"
+        + "<d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>\n"
+        + "</d:multistatus>\n";
+
+    private final static int STALL_AT = STALLING.indexOf("<d:response><d:href>/cal/y.ics");
+
+    /**
+     * Runs each task on a new daemon thread.
+     */
+    private final static Executor THREADS = runnable ->
+    {
+        Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        thread.start();
+    };
+
+    Verifiable orderedResponsesFollowTheHrefs = assertThat(delivered(true, firstBatchLast(new MultigetServer())),
+        iterates("/cal/a.ics", "/cal/b.ics", "/cal/c.ics", "/cal/d.ics", "/cal/e.ics", "/cal/f.ics"));
+
+    Verifiable unorderedResponsesArriveAsSoonAsTheyAreParsed = unorderedResponsesArriveAsSoonAsTheyAreParsed();
+
+    Verifiable hrefsAreDeduplicated = assertThat(fetched(new MultigetServer(), hrefs("a", "b", "a", "c", "b", "d")),
+        has("batches", MultigetServer::batches,
+            iteratesInAnyOrder(
+                iterates("/cal/a.ics", "/cal/b.ics"),
+                iterates("/cal/c.ics", "/cal/d.ics"))));
+
+    Verifiable overloadedBatchesAreRetriedInSmallerBatches = assertThat(overloaded(new MultigetServer(2), response -> {}),
+        has("batches", MultigetServer::batches,
+            iterates(
+                iterates("/cal/a.ics"),
+                iterates("/cal/b.ics", "/cal/c.ics", "/cal/d.ics", "/cal/e.ics"),
+                iterates("/cal/b.ics", "/cal/c.ics"),
+                iterates("/cal/d.ics", "/cal/e.ics"))));
+
+    Verifiable overloadedBatchesAreDeliveredOnce = overloadedBatchesAreDeliveredOnce();
+
+    Verifiable errorsOfABatchAreRethrown = assertThat(
+        () -> new ParallelMultiget(new FakeExecutor((uri, method, body) ->
+        {
+            if (body.contains("c.ics"))
+            {
+                throw new SocketTimeoutException("timeout");
+            }
+            return new MultigetServer().respond(uri, method, body);
+        }), COLLECTION, batch(), hrefs("a", "b", "c", "d"), 2, 2, new HostConcurrencyLimit(2), THREADS).run(response -> {}, false),
+        throwing(allOf(instanceOf(SocketTimeoutException.class), has("message", Throwable::getMessage, equalTo("timeout")))));
+
+    Verifiable firstErrorIsPassedToTheFailureCallback = assertThat(reportedFailures(),
+        iterates(allOf(instanceOf(SocketTimeoutException.class), has("message", Throwable::getMessage, equalTo("timeout")))));
+
+    Verifiable interruptThrowsInterruptedIOException = assertThat(interrupted(stalling()), instanceOf(InterruptedIOException.class));
+
+    Verifiable interruptCancelsRunningReports = interruptCancelsRunningReports();
+
+    Verifiable parallelismMustBePositive = assertThat(
+        () -> new ParallelMultiget(new FakeExecutor(new MultigetServer()), COLLECTION, batch(), hrefs("a"), 2, 0, new HostConcurrencyLimit(2), THREADS),
+        throwing(IllegalArgumentException.class));
+
+
+    /**
+     * Fetches a to f in batches of two, while the report of the first batch is answered after the other two. The first batch is delivered to an unordered
+     * consumer last.
+     */
+    private static Verifiable unorderedResponsesArriveAsSoonAsTheyAreParsed()
+    {
+        CountDownLatch othersConsumed = new CountDownLatch(4);
+        List<String> result = Collections.synchronizedList(new ArrayList<>());
+        run(new FakeExecutor((uri, method, body) ->
+        {
+            if (body.contains("a.ics"))
+            {
+                await(othersConsumed);
+            }
+            return new MultigetServer().respond(uri, method, body);
+        }), hrefs("a", "b", "c", "d", "e", "f"), response ->
+        {
+            result.add(response.getHref().getPath());
+            othersConsumed.countDown();
+        }, false);
+        return assertThat(result,
+            allOf(
+                iteratesInAnyOrder("/cal/a.ics", "/cal/b.ics", "/cal/c.ics", "/cal/d.ics", "/cal/e.ics", "/cal/f.ics"),
+                has("last responses", list -> list.subList(4, 6), iterates("/cal/a.ics", "/cal/b.ics"))));
+    }
+
+
+    /**
+     * Fetches a to d in batches of one, while all reports fail, and returns the errors passed to the failure callback.
+     */
+    private static List<Exception> reportedFailures()
+    {
+        List<Exception> result = Collections.synchronizedList(new ArrayList<>());
+        try
+        {
+            new ParallelMultiget(new FakeExecutor((uri, method, body) ->
+            {
+                throw new SocketTimeoutException("timeout");
+            }), COLLECTION, batch(), hrefs("a", "b", "c", "d"), 1, 2, new HostConcurrencyLimit(2), THREADS).run(response -> {}, false, result::add);
+        }
+        catch (SocketTimeoutException e)
+        {
+            return result;
+        }
+        catch (IOException | ProtocolError | ProtocolException e)
+        {
+            throw new RuntimeException(e);
+        }
+        throw new AssertionError("multiget didn't fail");
+    }
+
+
+    private static Verifiable overloadedBatchesAreDeliveredOnce()
+    {
+        List<String> result = new ArrayList<>();
+        overloaded(new MultigetServer(2), response -> result.add(response.getHref().getPath()));
+        return assertThat(result, iterates("/cal/a.ics", "/cal/b.ics", "/cal/c.ics", "/cal/d.ics", "/cal/e.ics"));
+    }
+
+
+    /**
+     * Fetches a, b, c, d and e in order with a single worker and a batch size that grows from 1 to 4 after the first batch. Returns the
+     * {@link MultigetServer}.
+     */
+    private static MultigetServer overloaded(MultigetServer server, ResponseConsumer consumer)
+    {
+        try
+        {
+            new ParallelMultiget(new FakeExecutor(server), COLLECTION, batch(), hrefs("a", "b", "c", "d", "e"),
+                new AdaptiveBatchSize(1, 8, 3, 1, TimeUnit.MINUTES, (previous, current, reason) ->
+                {
+                }), 1, new HostConcurrencyLimit(1), THREADS).run(consumer, true);
+        }
+        catch (Exception e)
+        {
+            throw new RuntimeException(e);
+        }
+        return server;
+    }
+
+
+    /**
+     * Returns a {@link FakeExecutor.Server} that answers the report of the batch with a.ics after the reports of two other batches.
+     */
+    private static FakeExecutor.Server firstBatchLast(MultigetServer server)
+    {
+        CountDownLatch others = new CountDownLatch(2);
+        return (uri, method, body) ->
+        {
+            if (body.contains("a.ics"))
+            {
+                await(others);
+                return server.respond(uri, method, body);
+            }
+            FakeResponse response = server.respond(uri, method, body);
+            others.countDown();
+            return response;
+        };
+    }
+
+
+    /**
+     * Fetches a to f in batches of two with three workers and returns the paths in the order they have been passed to the consumer.
+     */
+    private static List<String> delivered(boolean ordered, FakeExecutor.Server server)
+    {
+        List<String> result = Collections.synchronizedList(new ArrayList<>());
+        run(new FakeExecutor(server), hrefs("a", "b", "c", "d", "e", "f"), response -> result.add(response.getHref().getPath()), ordered);
+        return result;
+    }
+
+
+    private static MultigetServer fetched(MultigetServer server, List<URI> hrefs)
+    {
+        run(new FakeExecutor(server), hrefs, response -> {}, false);
+        return server;
+    }
+
+
+    private static void run(FakeExecutor executor, List<URI> hrefs, ResponseConsumer consumer, boolean ordered)
+    {
+        try
+        {
+            new ParallelMultiget(executor, COLLECTION, batch(), hrefs, 2, 3, new HostConcurrencyLimit(3), THREADS).run(consumer, ordered);
+        }
+        catch (Exception e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    /**
+     * Interrupts a multiget whose reports stall and returns the {@link FakeExecutor}. All responses must have been closed without reading them completely by
+     * the time the multiget returns.
+     */
+    private static Verifiable interruptCancelsRunningReports()
+    {
+        FakeExecutor executor = stalling();
+        interrupted(executor);
+        return assertThat(executor, has("responses", FakeExecutor::responses,
+            iterates(
+                allOf(has("closed", FakeResponse::closed, equalTo(true)), has("remaining bytes", FakeResponse::remaining, greaterThan(0))),
+                allOf(has("closed", FakeResponse::closed, equalTo(true)), has("remaining bytes", FakeResponse::remaining, greaterThan(0))))));
+    }
+
+
+    private static FakeExecutor stalling()
+    {
+        return new FakeExecutor((uri, method, body) -> new FakeResponse(uri, STALLING, STALL_AT));
+    }
+
+
+    /**
+     * Fetches a, b and c in batches of one with two workers on a new thread and interrupts that thread once both workers have received a response. Returns
+     * the exception thrown by the multiget. Fails if the multiget doesn't return.
+     */
+    private static Exception interrupted(FakeExecutor executor)
+    {
+        AtomicReference<Exception> error = new AtomicReference<>();
+        Thread thread = new Thread(() ->
+        {
+            try
+            {
+                new ParallelMultiget(executor, COLLECTION, batch(), hrefs("a", "b", "c"), 1, 2, new HostConcurrencyLimit(2), THREADS)
+                    .run(response -> {}, false);
+            }
+            catch (IOException | ProtocolError | ProtocolException | RuntimeException e)
+            {
+                error.set(e);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        try
+        {
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+            while (executor.responses().size() < 2 && System.currentTimeMillis() < deadline)
+            {
+                Thread.sleep(10);
+            }
+            thread.interrupt();
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        catch (InterruptedException e)
+        {
+            throw new RuntimeException(e);
+        }
+        if (thread.isAlive())
+        {
+            throw new AssertionError("run() didn't return");
+        }
+        return error.get();
+    }
+
+
+    private static void await(CountDownLatch latch) throws IOException
+    {
+        try
+        {
+            if (!latch.await(10, TimeUnit.SECONDS))
+            {
+                throw new IOException("timeout");
+            }
+        }
+        catch (InterruptedException e)
+        {
+            throw new InterruptedIOException();
+        }
+    }
+
+
+    private static MultigetBatch batch()
+    {
+        return new CalendarMultigetBatch(new DavContext(), WebDav.Properties.GETETAG);
+    }
+
+
+    private static List<URI> hrefs(String... names)
+    {
+        List<URI> result = new ArrayList<>(names.length);
+        for (String name : names)
+        {
+            result.add(COLLECTION.resolve(name + ".ics"));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,381 @@
+package org.dmfs.davclient.query;
+
+import org.dmfs.dav.rfc4918.Depth;
+import org.dmfs.davclient.Constants;
+import org.dmfs.davclient.DavContext;
+import org.dmfs.davclient.FakeExecutor;
+import org.dmfs.davclient.FakeResponse;
+import org.dmfs.davclient.HostConcurrencyLimit;
+import org.dmfs.davclient.rfc3253.MultiStatusReport;
+import org.dmfs.httpessentials.HttpStatus;
+import org.dmfs.httpessentials.client.HttpRequestEntity;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.httpessentials.exceptions.ProtocolException;
+import org.dmfs.httpessentials.exceptions.UnexpectedStatusException;
+import org.dmfs.httpessentials.headers.EmptyHeaders;
+import org.dmfs.httpessentials.types.MediaType;
+import org.dmfs.jems.optional.Optional;
+import org.dmfs.jems.optional.elementary.Absent;
+import org.dmfs.jems.optional.elementary.Present;
+import org.saynotobugs.confidence.Quality;
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.allOf;
+import static org.saynotobugs.confidence.quality.Core.each;
+import static org.saynotobugs.confidence.quality.Core.emptyIterable;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+import static org.saynotobugs.confidence.quality.Core.greaterThan;
+import static org.saynotobugs.confidence.quality.Core.has;
+import static org.saynotobugs.confidence.quality.Core.instanceOf;
+import static org.saynotobugs.confidence.quality.Core.iterates;
+import static org.saynotobugs.confidence.quality.Core.lessThanOrEqualTo;
+import static org.saynotobugs.confidence.quality.Core.throwing;
+
+
+@Confidence
+class ShardedTimeRangeQueryTest
+{
+    private final static URI COLLECTION = URI.create("https://example.com/cal/");
+
+    /**
+     * Runs each task on a new daemon thread.
+     */
+    private final static Executor THREADS = runnable ->
+    {
+        Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        thread.start();
+    };
+
+    Verifiable sparseWindowsGrow = assertThat(new Calendar(),
+        has("windows", calendar -> calendar.queried(0, 1000, 10, 100, 1), iterates(window(0, 10), window(10, 50), window(50, 210), window(210, 850),
+            window(850, 1000))));
+
+    Verifiable denseWindowsShrink = assertThat(new Calendar().withEvents(0, 100),
+        has("first windows", calendar -> calendar.queried(0, 100, 40, 5, 1).subList(0, 3), iterates(window(0, 40), window(40, 50), window(50, 54))));
+
+    Verifiable recurringEventsAreDeliveredOnce = assertThat(new Calendar().withEvents(0, 100),
+        has("delivered", calendar -> calendar.delivered(0, 100, 10, 5, 3), allOf(
+            has("recurring event", hrefs -> Collections.frequency(hrefs, "/cal/recurring.ics"), equalTo(1)),
+            has("number of events", List::size, equalTo(101)))));
+
+    Verifiable overloadedWindowsAreSplit = assertThat(new Calendar().withEvents(0, 100).overloadedAbove(20),
+        has("answered windows", calendar ->
+            {
+                calendar.queried(0, 100, 80, 1000, 1);
+                return calendar.answered();
+            },
+            allOf(
+                each(has("size", window -> window.mEnd - window.mStart, lessThanOrEqualTo(20L))),
+                has("gaps", ShardedTimeRangeQueryTest::gaps, emptyIterable()))));
+
+    Verifiable eventsOfSplitWindowsAreDeliveredOnce = assertThat(new Calendar().withEvents(0, 100).overloadedAbove(20),
+        has("delivered", calendar -> calendar.delivered(0, 100, 80, 1000, 2), allOf(
+            has("recurring event", hrefs -> Collections.frequency(hrefs, "/cal/recurring.ics"), equalTo(1)),
+            has("number of events", List::size, equalTo(101)))));
+
+    Verifiable overloadBelowMinimumWindowFails = assertThat(() -> new Calendar().overloadedAbove(20).delivered(0, 100, 80, 1000, 1, 50),
+        throwing(allOf(instanceOf(UnexpectedStatusException.class), has("status", e -> ((UnexpectedStatusException) e).status().statusCode(), equalTo(507)))));
+
+    Verifiable interruptThrowsInterruptedIOException = assertThat(interrupted(new FakeExecutor(new Calendar().stalling())),
+        instanceOf(InterruptedIOException.class));
+
+    Verifiable interruptCancelsRunningQueries = interruptCancelsRunningQueries();
+
+    Verifiable endMustNotBeBeforeStart = assertThat(
+        () -> new ShardedTimeRangeQuery(new FakeExecutor(new Calendar()), new DavContext(), COLLECTION, WindowReport::new, 10, 0),
+        throwing(IllegalArgumentException.class));
+
+    Verifiable initialWindowMustBeWithinLimits = assertThat(
+        () -> new ShardedTimeRangeQuery(new FakeExecutor(new Calendar()), COLLECTION, WindowReport::new, 0, 100, 5, 10, 100, 10, 1, new HostConcurrencyLimit(1),
+            THREADS),
+        throwing(IllegalArgumentException.class));
+
+
+    /**
+     * Returns the ranges between 0 and 100 that are not covered by the given windows.
+     */
+    private static List<Window> gaps(List<Window> windows)
+    {
+        List<Window> sorted = new ArrayList<>(windows);
+        sorted.sort((left, right) -> Long.compare(left.mStart, right.mStart));
+        List<Window> result = new ArrayList<>();
+        long covered = 0;
+        for (Window window : sorted)
+        {
+            if (window.mStart > covered)
+            {
+                result.add(new Window(covered, window.mStart));
+            }
+            covered = Math.max(covered, window.mEnd);
+        }
+        if (covered < 100)
+        {
+            result.add(new Window(covered, 100));
+        }
+        return result;
+    }
+
+
+    private static Verifiable interruptCancelsRunningQueries()
+    {
+        FakeExecutor executor = new FakeExecutor(new Calendar().stalling());
+        interrupted(executor);
+        return assertThat(executor.responses(),
+            iterates(
+                allOf(has("closed", FakeResponse::closed, equalTo(true)), has("remaining bytes", FakeResponse::remaining, greaterThan(0))),
+                allOf(has("closed", FakeResponse::closed, equalTo(true)), has("remaining bytes", FakeResponse::remaining, greaterThan(0)))));
+    }
+
+
+    /**
+     * Queries a calendar with two workers on a new thread and interrupts that thread once both workers have received a response. Returns the exception
+     * thrown by the query. Fails if the query doesn't return.
+     */
+    private static Exception interrupted(FakeExecutor executor)
+    {
+        AtomicReference<Exception> error = new AtomicReference<>();
+        Thread thread = new Thread(() ->
+        {
+            try
+            {
+                new ShardedTimeRangeQuery(executor, COLLECTION, WindowReport::new, 0, 100, 10, 10, 10, 10, 2, new HostConcurrencyLimit(2), THREADS)
+                    .run(response -> {});
+            }
+            catch (IOException | ProtocolError | ProtocolException | RuntimeException e)
+            {
+                error.set(e);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        try
+        {
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+            while (executor.responses().size() < 2 && System.currentTimeMillis() < deadline)
+            {
+                Thread.sleep(10);
+            }
+            thread.interrupt();
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        catch (InterruptedException e)
+        {
+            throw new RuntimeException(e);
+        }
+        if (thread.isAlive())
+        {
+            throw new AssertionError("run() didn't return");
+        }
+        return error.get();
+    }
+
+
+    private static Quality<Window> window(long start, long end)
+    {
+        return allOf(has("start", window -> window.mStart, equalTo(start)), has("end", window -> window.mEnd, equalTo(end)));
+    }
+
+
+    /**
+     * A time range window.
+     */
+    private final static class Window
+    {
+        private final long mStart;
+        private final long mEnd;
+
+
+        private Window(long start, long end)
+        {
+            mStart = start;
+            mEnd = end;
+        }
+
+
+        @Override
+        public String toString()
+        {
+            return "[" + mStart + ", " + mEnd + ")";
+        }
+    }
+
+
+    /**
+     * A {@link FakeExecutor.Server} with a calendar of single events and one recurring event that occurs in every window. It answers the reports of a
+     * {@link WindowReport} and records the windows it has been asked for.
+     */
+    private final static class Calendar implements FakeExecutor.Server
+    {
+        private final List<Window> mQueried = new CopyOnWriteArrayList<>();
+        private final List<Window> mAnswered = new CopyOnWriteArrayList<>();
+        private long mEventsStart;
+        private long mEventsEnd;
+        private long mMaxWindow = Long.MAX_VALUE;
+        private boolean mStalling;
+
+
+        /**
+         * Adds an event at every point of time of the given range.
+         */
+        Calendar withEvents(long start, long end)
+        {
+            mEventsStart = start;
+            mEventsEnd = end;
+            return this;
+        }
+
+
+        /**
+         * Answers windows larger than the given size with <code>507 Insufficient Storage</code>.
+         */
+        Calendar overloadedAbove(long maxWindow)
+        {
+            mMaxWindow = maxWindow;
+            return this;
+        }
+
+
+        /**
+         * Stalls every response after the recurring event.
+         */
+        Calendar stalling()
+        {
+            mStalling = true;
+            return this;
+        }
+
+
+        @Override
+        public FakeResponse respond(URI uri, String method, String body)
+        {
+            String[] range = body.split(" ");
+            Window window = new Window(Long.parseLong(range[0]), Long.parseLong(range[1]));
+            mQueried.add(window);
+            if (window.mEnd - window.mStart > mMaxWindow)
+            {
+                return new FakeResponse(uri, HttpStatus.INSUFFICIENT_STORAGE, EmptyHeaders.INSTANCE, "");
+            }
+            mAnswered.add(window);
+            StringBuilder multistatus = new StringBuilder(256).append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<d:multistatus xmlns:d=\"DAV:\">\n")
+                .append(event("recurring"));
+            int stallAt = multistatus.length();
+            for (long time = Math.max(window.mStart, mEventsStart); time < Math.min(window.mEnd, mEventsEnd); ++time)
+            {
+                multistatus.append(event("event-" + time));
+            }
+            if (mStalling)
+            {
+                multistatus.append(event("stalled"));
+            }
+            multistatus.append("</d:multistatus>\n");
+            return mStalling ? new FakeResponse(uri, multistatus.toString(), stallAt) : new FakeResponse(uri, multistatus.toString());
+        }
+
+
+        /**
+         * Runs a query and returns the windows the server has been asked for.
+         */
+        List<Window> queried(long start, long end, long initialWindow, int targetResults, int parallelism) throws Exception
+        {
+            delivered(start, end, initialWindow, targetResults, parallelism);
+            return mQueried;
+        }
+
+
+        /**
+         * Returns the windows that have been answered without overload.
+         */
+        List<Window> answered()
+        {
+            return mAnswered;
+        }
+
+
+        /**
+         * Runs a query with windows of at least one and at most 1000 and returns the paths of the delivered events.
+         */
+        List<String> delivered(long start, long end, long initialWindow, int targetResults, int parallelism) throws Exception
+        {
+            return delivered(start, end, initialWindow, targetResults, parallelism, 1);
+        }
+
+
+        List<String> delivered(long start, long end, long initialWindow, int targetResults, int parallelism, long minWindow) throws Exception
+        {
+            List<String> result = Collections.synchronizedList(new ArrayList<>());
+            new ShardedTimeRangeQuery(new FakeExecutor(this), COLLECTION, WindowReport::new, start, end, initialWindow, minWindow, 1000, targetResults,
+                parallelism, new HostConcurrencyLimit(parallelism), THREADS)
+                .run(response -> result.add(response.getHref().getPath()));
+            return result;
+        }
+
+
+        private static String event(String name)
+        {
+            return "<d:response><d:href>/cal/" + name + ".ics</d:href><d:propstat><d:prop><d:getetag>\"" + name
+                + "\"</d:getetag></d:prop><d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>\n";
+        }
+    }
+
+
+    /**
+     * A report with the window as its body, like <code>"0 100"</code>.
+     */
+    private final static class WindowReport extends MultiStatusReport
+    {
+        private final long mStart;
+        private final long mEnd;
+
+
+        WindowReport(long start, long end)
+        {
+            super(new DavContext(), Depth.one);
+            mStart = start;
+            mEnd = end;
+        }
+
+
+        @Override
+        public HttpRequestEntity requestEntity()
+        {
+            return new HttpRequestEntity()
+            {
+                @Override
+                public Optional<MediaType> contentType()
+                {
+                    return new Present<>(Constants.CONTENT_TYPE_APPLICATION_XML);
+                }
+
+
+                @Override
+                public Optional<Long> contentLength()
+                {
+                    return Absent.absent();
+                }
+
+
+                @Override
+                public void writeContent(OutputStream out) throws IOException
+                {
+                    out.write((mStart + " " + mEnd).getBytes(StandardCharsets.UTF_8));
+                }
+            };
+        }
+    }
+}
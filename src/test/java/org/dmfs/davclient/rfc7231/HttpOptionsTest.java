@@ -0,0 +1,102 @@
+package org.dmfs.davclient.rfc7231;
+
+import org.dmfs.davclient.FakeExecutor;
+import org.dmfs.davclient.FakeResponse;
+import org.dmfs.httpessentials.HttpStatus;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.httpessentials.exceptions.ProtocolException;
+import org.dmfs.httpessentials.headers.BasicListHeaderType;
+import org.dmfs.httpessentials.headers.EmptyHeaders;
+import org.dmfs.httpessentials.headers.Headers;
+import org.dmfs.httpessentials.headers.ListHeaderType;
+import org.dmfs.httpessentials.typedentity.EntityConverter;
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+
+
+@Confidence
+class HttpOptionsTest
+{
+    private final static URI COLLECTION = URI.create("https://example.com/cal/");
+
+    private final static EntityConverter<String> CONVERTER = new EntityConverter<String>()
+    {
+        @Override
+        public String value(String valueString)
+        {
+            return valueString;
+        }
+
+
+        @Override
+        public String valueString(String value)
+        {
+            return value;
+        }
+    };
+
+    private final static ListHeaderType<String> DAV = new BasicListHeaderType<>("DAV", CONVERTER);
+
+    private final static ListHeaderType<String> ALLOW = new BasicListHeaderType<>("Allow", CONVERTER);
+
+    private final static HttpOptions OPTIONS = new HttpOptions(Arrays.asList("1", "", "Calendar-Access", "addressbook", "x-custom"),
+        Arrays.asList("get", "Report", ""));
+
+    Verifiable davClassesAreNormalized = assertThat(new ArrayList<>(OPTIONS.davClasses()),
+        equalTo(Arrays.asList("1", "calendar-access", "addressbook", "x-custom")));
+
+    Verifiable allowedMethodsAreNormalized = assertThat(new ArrayList<>(OPTIONS.allowedMethods()), equalTo(Arrays.asList("GET", "REPORT")));
+
+    Verifiable knownCapabilitiesAreRecognized = assertThat(new ArrayList<>(OPTIONS.capabilities()),
+        equalTo(Arrays.asList(DavCapability.CLASS_1, DavCapability.CALENDAR_ACCESS, DavCapability.ADDRESSBOOK)));
+
+    Verifiable capabilitiesCanBeTested = assertThat(Arrays.asList(OPTIONS.supports(DavCapability.CALENDAR_ACCESS), OPTIONS.supports(DavCapability.CLASS_2)),
+        equalTo(Arrays.asList(true, false)));
+
+    Verifiable methodsAreTestedIgnoringCase = assertThat(Arrays.asList(OPTIONS.allows("report"), OPTIONS.allows("PUT")), equalTo(Arrays.asList(true, false)));
+
+    Verifiable headersAreParsed = assertThat(fromHeaders(EmptyHeaders.INSTANCE
+            .withHeader(DAV.entity(Arrays.asList("1", "2", "calendar-access")))
+            .withHeader(ALLOW.entity(Arrays.asList("OPTIONS", "PROPFIND", "REPORT")))),
+        equalTo("[1, 2, calendar-access] [OPTIONS, PROPFIND, REPORT]"));
+
+    Verifiable missingHeadersResultInNoOptions = assertThat(fromHeaders(EmptyHeaders.INSTANCE), equalTo("[] []"));
+
+    Verifiable responseBodyIsConsumedAndClosed = assertThat(bodyAfterRequest("<html>not a DAV server</html>"), equalTo("drained, closed"));
+
+
+    private static String fromHeaders(Headers headers)
+    {
+        HttpOptions options = new HttpOptions(new FakeResponse(COLLECTION, HttpStatus.OK, headers, null));
+        return options.davClasses() + " " + options.allowedMethods();
+    }
+
+
+    /**
+     * Sends an OPTIONS request that's answered with the given body and returns whether the body has been consumed and closed.
+     */
+    private static String bodyAfterRequest(String body)
+    {
+        FakeExecutor executor = new FakeExecutor(
+            (uri, method, content) -> new FakeResponse(uri, HttpStatus.OK, EmptyHeaders.INSTANCE.withHeader(DAV.entity(Collections.singletonList("1"))), body));
+        try
+        {
+            executor.execute(COLLECTION, new Options());
+        }
+        catch (IOException | ProtocolError | ProtocolException e)
+        {
+            throw new RuntimeException(e);
+        }
+        FakeResponse response = executor.responses().get(0);
+        return (response.remaining() == 0 ? "drained" : "aborted") + ", " + (response.closed() ? "closed" : "open");
+    }
+}
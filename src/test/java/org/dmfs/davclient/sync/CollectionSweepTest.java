@@ -0,0 +1,171 @@
+package org.dmfs.davclient.sync;
+
+import org.dmfs.davclient.DavContext;
+import org.dmfs.davclient.FakeExecutor;
+import org.dmfs.davclient.FakeResponse;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.httpessentials.exceptions.ProtocolException;
+import org.dmfs.jems2.Function;
+import org.dmfs.xmlobjects.ElementDescriptor;
+import org.dmfs.xmlobjects.QualifiedName;
+import org.dmfs.xmlobjects.builder.StringObjectBuilder;
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.allOf;
+import static org.saynotobugs.confidence.quality.Core.emptyIterable;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+import static org.saynotobugs.confidence.quality.Core.has;
+import static org.saynotobugs.confidence.quality.Core.iterates;
+import static org.saynotobugs.confidence.quality.Core.nullValue;
+import static org.saynotobugs.confidence.quality.Core.throwing;
+
+
+@Confidence
+class CollectionSweepTest
+{
+    private final static String NAMESPACE = "urn:dmfs:test";
+
+    private final static String CALDAV = "urn:ietf:params:xml:ns:caldav";
+
+    private final static ElementDescriptor<String> CTAG = ElementDescriptor.register(QualifiedName.get(NAMESPACE, "ctag"), StringObjectBuilder.INSTANCE);
+
+    private final static URI HOME_SET = URI.create("https://example.com/cal/");
+
+    /**
+     * A home set with the calendars a, b and c, a scheduling inbox, a removed calendar and a plain resource.
+     */
+    private final static String HOME = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+        + "<d:multistatus xmlns:d=\"DAV:\" xmlns:c=\"" + CALDAV + "\" xmlns:t=\"" + NAMESPACE + "\">\n"
+        + member("/cal/", "<d:collection/>", "home")
+        + member("/cal/a/", "<d:collection/><c:calendar/>", "a2")
+        + member("/cal/b/", "<d:collection/><c:calendar/>", "b1")
+        + member("/cal/c/", "<d:collection/><c:calendar/>", "c1")
+        + member("/cal/inbox/", "<d:collection/><c:schedule-inbox/>", "i2")
+        + member("/cal/d/", "<d:collection/><c:calendar/>", null)
+        + "<d:response><d:href>/cal/removed/</d:href><d:status>HTTP/1.1 404 Not Found</d:status></d:response>\n"
+        + member("/cal/file.ics", "", "f2")
+        + "</d:multistatus>\n";
+
+    /**
+     * The stored markers: a, the inbox and the plain resource have changed, b hasn't changed, c is new, d has lost its marker and the removed calendar is
+     * gone.
+     */
+    private final static Function<URI, String> STORED = href ->
+    {
+        switch (href.getPath())
+        {
+            case "/cal/":
+                return "home-old";
+            case "/cal/a/":
+                return "a1";
+            case "/cal/b/":
+                return "b1";
+            case "/cal/inbox/":
+                return "i1";
+            case "/cal/d/":
+                return "d1";
+            case "/cal/removed/":
+                return "r1";
+            case "/cal/file.ics":
+                return "f1";
+            default:
+                return null;
+        }
+    };
+
+    Verifiable changedCalendarsAreReported = assertThat(swept("calendar", STORED), iterates("/cal/a/", "/cal/c/", "/cal/d/"));
+
+    Verifiable changedCollectionsOfAnyTypeAreReported = assertThat(swept(null, STORED), iterates("/cal/a/", "/cal/c/", "/cal/inbox/", "/cal/d/"));
+
+    Verifiable newMarkersAreReturned = assertThat(markers(null, STORED),
+        allOf(
+            has("marker of a", markers -> markers.get("/cal/a/"), equalTo("a2")),
+            has("marker of c", markers -> markers.get("/cal/c/"), equalTo("c1")),
+            has("marker of d", markers -> markers.get("/cal/d/"), nullValue())));
+
+    Verifiable collectionsWithoutMarkerAreOnlyReportedIfOneIsStored = assertThat(swept("calendar", href -> null), iterates("/cal/a/", "/cal/b/", "/cal/c/"));
+
+    Verifiable unchangedHomeSetHasNoChanges = assertThat(
+        swept(null, href ->
+        {
+            switch (href.getPath())
+            {
+                case "/cal/a/":
+                    return "a2";
+                case "/cal/b/":
+                    return "b1";
+                case "/cal/c/":
+                    return "c1";
+                case "/cal/inbox/":
+                    return "i2";
+                default:
+                    return null;
+            }
+        }),
+        emptyIterable());
+
+    Verifiable markersAreRequired = assertThat(() -> new CollectionSweep(new FakeExecutor(home()), new DavContext(), HOME_SET),
+        throwing(IllegalArgumentException.class));
+
+
+    private static FakeExecutor.Server home()
+    {
+        return (uri, method, body) -> new FakeResponse(HOME_SET, HOME);
+    }
+
+
+    /**
+     * Sweeps {@link #HOME} for changed collections of the given CalDAV type or of any type if <code>typeName</code> is <code>null</code> and returns the new
+     * markers by path, in the order of the multistatus.
+     */
+    private static Map<String, String> markers(String typeName, Function<URI, String> storedMarkers)
+    {
+        Map<String, String> result = new LinkedHashMap<>();
+        try
+        {
+            for (Map.Entry<URI, String> changed : new CollectionSweep(new FakeExecutor(home()), new DavContext(), HOME_SET, CALDAV, typeName, CTAG)
+                .changed(href -> storedMarkers.value(HOME_SET.resolve(href)))
+                .entrySet())
+            {
+                result.put(changed.getKey().getPath(), changed.getValue());
+            }
+        }
+        catch (IOException | ProtocolError | ProtocolException e)
+        {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
+
+    /**
+     * Returns the paths of the changed collections, see {@link #markers(String, Function)}.
+     */
+    private static List<String> swept(String typeName, Function<URI, String> storedMarkers)
+    {
+        return new ArrayList<>(markers(typeName, storedMarkers).keySet());
+    }
+
+
+    /**
+     * Returns the response of a member with the given resource type and marker. A <code>null</code> marker is reported as not found.
+     */
+    private static String member(String path, String resourceType, String marker)
+    {
+        return "<d:response><d:href>" + path + "</d:href>"
+            + "<d:propstat><d:prop><d:resourcetype>" + resourceType + "</d:resourcetype>"
+            + (marker == null ? "" : "<t:ctag>" + marker + "</t:ctag>")
+            + "</d:prop><d:status>HTTP/1.1 200 OK</d:status></d:propstat>"
+            + (marker == null ? "<d:propstat><d:prop><t:ctag/></d:prop><d:status>HTTP/1.1 404 Not Found</d:status></d:propstat>" : "")
+            + "</d:response>\n";
+    }
+}
@@ -0,0 +1,329 @@
+package org.dmfs.davclient.sync;
+
+import org.dmfs.dav.rfc4918.Response;
+import org.dmfs.dav.rfc6578.SyncLevel;
+import org.dmfs.davclient.DavContext;
+import org.dmfs.davclient.FakeExecutor;
+import org.dmfs.davclient.FakeResponse;
+import org.dmfs.davclient.rfc6578.InvalidSyncTokenException;
+import org.dmfs.httpessentials.HttpStatus;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.httpessentials.exceptions.ProtocolException;
+import org.dmfs.httpessentials.exceptions.UnexpectedStatusException;
+import org.dmfs.httpessentials.headers.EmptyHeaders;
+import org.saynotobugs.confidence.Quality;
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.allOf;
+import static org.saynotobugs.confidence.quality.Core.emptyIterable;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+import static org.saynotobugs.confidence.quality.Core.has;
+import static org.saynotobugs.confidence.quality.Core.instanceOf;
+import static org.saynotobugs.confidence.quality.Core.iterates;
+import static org.saynotobugs.confidence.quality.Core.not;
+import static org.saynotobugs.confidence.quality.Core.nullValue;
+import static org.saynotobugs.confidence.quality.Core.throwing;
+
+
+@Confidence
+class CollectionSyncTest
+{
+    private final static URI COLLECTION = URI.create("https://example.com/cal/");
+
+    private final static Pattern SYNC_TOKEN = Pattern.compile("sync-token>([^<]*)<");
+
+    private final static String INVALID_SYNC_TOKEN = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+        + "<d:error xmlns:d=\"DAV:\"><d:valid-sync-token/></d:error>\n";
+
+    private final static String NEED_PRIVILEGES = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+        + "<d:error xmlns:d=\"DAV:\"><d:need-privileges/></d:error>\n";
+
+    /**
+     * A server that returns the complete result at once.
+     */
+    private final static FakeExecutor.Server COMPLETE = (uri, method, body) ->
+        multistatus(changed("a") + removed("c"), "t2");
+
+    /**
+     * A server that truncates the result after the first member.
+     */
+    private final static FakeExecutor.Server TRUNCATED = (uri, method, body) ->
+        "t1".equals(token(body))
+            ? multistatus(changed("a") + truncated(), "t2")
+            : multistatus(changed("b"), "t3");
+
+    /**
+     * A server that only accepts an initial sync.
+     */
+    private final static FakeExecutor.Server INVALID = rejecting(HttpStatus.FORBIDDEN, INVALID_SYNC_TOKEN);
+
+    /**
+     * A server that only accepts an initial sync and reports invalid sync-tokens with <code>409 Conflict</code>.
+     */
+    private final static FakeExecutor.Server CONFLICTING = rejecting(HttpStatus.CONFLICT, INVALID_SYNC_TOKEN);
+
+    /**
+     * A server that denies all incremental syncs for a reason other than the sync-token.
+     */
+    private final static FakeExecutor.Server FORBIDDEN = rejecting(HttpStatus.FORBIDDEN, NEED_PRIVILEGES);
+
+    /**
+     * A server that truncates the result of an initial sync and rejects all sync-tokens, including the one it just returned.
+     */
+    private final static FakeExecutor.Server FORGETFUL = (uri, method, body) ->
+        token(body).isEmpty()
+            ? multistatus(changed("a") + truncated(), "t2")
+            : new FakeResponse(uri, HttpStatus.FORBIDDEN, EmptyHeaders.INSTANCE, INVALID_SYNC_TOKEN);
+
+    Verifiable completeResultIsReportedOnce = assertThat(synced("t1", COMPLETE),
+        has("calls", Recorder::calls, iterates(isChanged("/cal/a.ics"), isRemoved("/cal/c.ics"), isSyncToken("t2", true))));
+
+    Verifiable completeSyncReturnsNewToken = assertThat(synced("t1", COMPLETE), has("result", Recorder::result, equalTo("t2")));
+
+    Verifiable truncatedResultIsContinued = assertThat(synced("t1", TRUNCATED),
+        has("calls", Recorder::calls, iterates(isChanged("/cal/a.ics"), isSyncToken("t2", false), isChanged("/cal/b.ics"), isSyncToken("t3", true))));
+
+    Verifiable truncatedSyncReturnsLastToken = assertThat(synced("t1", TRUNCATED), has("result", Recorder::result, equalTo("t3")));
+
+    Verifiable invalidSyncTokenResultsInFullSync = assertThat(synced("stale", INVALID),
+        allOf(
+            has("calls", Recorder::calls, iterates(isReset(), isChanged("/cal/a.ics"), isChanged("/cal/b.ics"), isSyncToken("t9", true))),
+            has("result", Recorder::result, equalTo("t9"))));
+
+    Verifiable conflictWithPreconditionResultsInFullSync = assertThat(synced("stale", CONFLICTING),
+        has("calls", Recorder::calls, iterates(isReset(), isChanged("/cal/a.ics"), isChanged("/cal/b.ics"), isSyncToken("t9", true))));
+
+    Verifiable forbiddenWithoutPreconditionFails = assertThat(() -> new CollectionSync(new FakeExecutor(FORBIDDEN), new DavContext(), COLLECTION,
+            SyncLevel.one).sync("t1", new Recorder()),
+        throwing(allOf(instanceOf(UnexpectedStatusException.class), not(instanceOf(InvalidSyncTokenException.class)))));
+
+    Verifiable forbiddenWithoutPreconditionDoesNotReset = assertThat(failed("t1", FORBIDDEN), has("calls", Recorder::calls, emptyIterable()));
+
+    Verifiable continuationTokensAreSent = assertThat(sentTokens("t1", TRUNCATED), iterates("t1", "t2"));
+
+    Verifiable fullSyncIsSentWithoutToken = assertThat(sentTokens("stale", INVALID), iterates("stale", ""));
+
+    Verifiable rejectedTokenAfterResetFails = assertThat(() -> new CollectionSync(new FakeExecutor(FORGETFUL), new DavContext(), COLLECTION,
+            SyncLevel.one).sync("stale", new Recorder()),
+        throwing(InvalidSyncTokenException.class));
+
+    Verifiable rejectedTokenAfterResetReportsPartialResult = assertThat(failed("stale", FORGETFUL),
+        allOf(
+            has("calls", Recorder::calls, iterates(isReset(), isChanged("/cal/a.ics"), isSyncToken("t2", false))),
+            has("result", Recorder::result, nullValue())));
+
+
+    /**
+     * Synchronizes {@link #COLLECTION} with the given server and returns the {@link Recorder} that received the results.
+     */
+    private static Recorder synced(String syncToken, FakeExecutor.Server server)
+    {
+        Recorder recorder = new Recorder();
+        try
+        {
+            recorder.mResult = new CollectionSync(new FakeExecutor(server), new DavContext(), COLLECTION, SyncLevel.one).sync(syncToken, recorder);
+        }
+        catch (IOException | ProtocolError | ProtocolException e)
+        {
+            throw new RuntimeException(e);
+        }
+        return recorder;
+    }
+
+
+    /**
+     * Synchronizes {@link #COLLECTION} with the given server, which must fail, and returns the {@link Recorder} that received the results up to the failure.
+     */
+    private static Recorder failed(String syncToken, FakeExecutor.Server server)
+    {
+        Recorder recorder = new Recorder();
+        try
+        {
+            new CollectionSync(new FakeExecutor(server), new DavContext(), COLLECTION, SyncLevel.one).sync(syncToken, recorder);
+        }
+        catch (ProtocolException e)
+        {
+            return recorder;
+        }
+        catch (IOException | ProtocolError e)
+        {
+            throw new RuntimeException(e);
+        }
+        throw new AssertionError("sync didn't fail");
+    }
+
+
+    /**
+     * Synchronizes {@link #COLLECTION} with the given server and returns the sync-tokens of all requests.
+     */
+    private static List<String> sentTokens(String syncToken, FakeExecutor.Server server)
+    {
+        FakeExecutor executor = new FakeExecutor(server);
+        try
+        {
+            new CollectionSync(executor, new DavContext(), COLLECTION, SyncLevel.one).sync(syncToken, new Recorder());
+        }
+        catch (IOException | ProtocolError | ProtocolException e)
+        {
+            throw new RuntimeException(e);
+        }
+        List<String> result = new ArrayList<>();
+        for (String request : executor.requests())
+        {
+            result.add(token(request));
+        }
+        return result;
+    }
+
+
+    /**
+     * Returns a server that answers an initial sync with a and b and rejects all sync-tokens with the given status and error body.
+     */
+    private static FakeExecutor.Server rejecting(HttpStatus status, String error)
+    {
+        return (uri, method, body) ->
+            token(body).isEmpty()
+                ? multistatus(changed("a") + changed("b"), "t9")
+                : new FakeResponse(uri, status, EmptyHeaders.INSTANCE, error);
+    }
+
+
+    private static String token(String body)
+    {
+        Matcher matcher = SYNC_TOKEN.matcher(body);
+        return matcher.find() ? matcher.group(1) : "";
+    }
+
+
+    private static FakeResponse multistatus(String responses, String syncToken)
+    {
+        return new FakeResponse(COLLECTION, "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+            + "<d:multistatus xmlns:d=\"DAV:\">\n"
+            + responses
+            + "<d:sync-token>" + syncToken + "</d:sync-token>\n"
+            + "</d:multistatus>\n");
+    }
+
+
+    private static String changed(String name)
+    {
+        return "<d:response><d:href>/cal/" + name + ".ics</d:href><d:propstat><d:prop><d:getetag>\"" + name
+            + "\"</d:getetag></d:prop><d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>\n";
+    }
+
+
+    private static String removed(String name)
+    {
+        return "<d:response><d:href>/cal/" + name + ".ics</d:href><d:status>HTTP/1.1 404 Not Found</d:status></d:response>\n";
+    }
+
+
+    private static String truncated()
+    {
+        return "<d:response><d:href>/cal/</d:href><d:status>HTTP/1.1 507 Insufficient Storage</d:status></d:response>\n";
+    }
+
+
+    private static Quality<Call> isReset()
+    {
+        return has("kind", call -> call.mKind, equalTo(Kind.RESET));
+    }
+
+
+    private static Quality<Call> isChanged(String path)
+    {
+        return allOf(has("kind", call -> call.mKind, equalTo(Kind.CHANGED)), has("href", call -> call.mValue, equalTo(path)));
+    }
+
+
+    private static Quality<Call> isRemoved(String path)
+    {
+        return allOf(has("kind", call -> call.mKind, equalTo(Kind.REMOVED)), has("href", call -> call.mValue, equalTo(path)));
+    }
+
+
+    private static Quality<Call> isSyncToken(String token, boolean complete)
+    {
+        return allOf(
+            has("kind", call -> call.mKind, equalTo(Kind.SYNC_TOKEN)),
+            has("sync-token", call -> call.mValue, equalTo(token)),
+            has("complete", call -> call.mComplete, equalTo(complete)));
+    }
+
+
+    private enum Kind
+    {
+        RESET, CHANGED, REMOVED, SYNC_TOKEN
+    }
+
+
+    /**
+     * A call to a {@link SyncConsumer}.
+     */
+    private final static class Call
+    {
+        private final Kind mKind;
+        private final String mValue;
+        private final boolean mComplete;
+
+
+        private Call(Kind kind, String value, boolean complete)
+        {
+            mKind = kind;
+            mValue = value;
+            mComplete = complete;
+        }
+    }
+
+
+    /**
+     * A {@link SyncConsumer} that records all calls and the sync-token returned by the sync.
+     */
+    private final static class Recorder implements SyncConsumer
+    {
+        private final List<Call> mCalls = new ArrayList<>();
+        private String mResult;
+
+
+        @Override
+        public void onReset()
+        {
+            mCalls.add(new Call(Kind.RESET, null, false));
+        }
+
+
+        @Override
+        public void onResponse(Response response)
+        {
+            mCalls.add(new Call(response.getStatus() == HttpStatus.NOT_FOUND.statusCode() ? Kind.REMOVED : Kind.CHANGED, response.getHref().getPath(), false));
+        }
+
+
+        @Override
+        public void onSyncToken(String token, boolean complete)
+        {
+            mCalls.add(new Call(Kind.SYNC_TOKEN, token, complete));
+        }
+
+
+        List<Call> calls()
+        {
+            return mCalls;
+        }
+
+
+        String result()
+        {
+            return mResult;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package org.dmfs.davclient.sync;
+
+import org.saynotobugs.confidence.Quality;
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.allOf;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+import static org.saynotobugs.confidence.quality.Core.has;
+import static org.saynotobugs.confidence.quality.Core.lessThan;
+import static org.saynotobugs.confidence.quality.Core.nullValue;
+
+
+@Confidence
+class FileSyncStateStoreTest
+{
+    private final static URI COLLECTION = URI.create("https://example.com/calendars/user/home/");
+    private final static URI HREF = URI.create("https://example.com/calendars/user/home/event.ics");
+    private final static URI REMOVED = URI.create("https://example.com/calendars/user/home/removed.ics");
+
+    /**
+     * More records than the compaction threshold of {@link FileSyncStateStore}.
+     */
+    private final static int MANY = 20 * 1024;
+
+    Verifiable stateSurvivesReopening = assertThat(reopened(file -> written(file).close()), hasWrittenState());
+
+    Verifiable corruptTailIsDiscarded = assertThat(reopened(file ->
+    {
+        written(file).close();
+        Files.write(file, new byte[] { 0, 0, 0, 12, 1, 2, 3 }, StandardOpenOption.APPEND);
+    }), hasWrittenState());
+
+    Verifiable compactionKeepsState = assertThat(reopened(file ->
+    {
+        try (FileSyncStateStore store = written(file))
+        {
+            store.compact();
+        }
+    }), hasWrittenState());
+
+    Verifiable storeIsWritableAfterCompaction = assertThat(reopened(file ->
+        {
+            try (FileSyncStateStore store = new FileSyncStateStore(file))
+            {
+                store.putSyncToken(COLLECTION, "token-1");
+                store.putEtag(COLLECTION, HREF, "etag-1");
+                store.compact();
+                store.putEtag(COLLECTION, HREF, "etag-4");
+                store.putSyncToken(COLLECTION, "token-3");
+                store.flush();
+            }
+        }),
+        allOf(
+            has("sync-token", store -> store.syncToken(COLLECTION), equalTo("token-3")),
+            has("etag", store -> store.etag(COLLECTION, HREF), equalTo("etag-4"))));
+
+    Verifiable storeIsWritableAfterFailedCompaction = assertThat(reopened(file ->
+    {
+        blockCompaction(file);
+        try (FileSyncStateStore store = written(file))
+        {
+            try
+            {
+                store.compact();
+                throw new AssertionError("compaction didn't fail");
+            }
+            catch (IOException e)
+            {
+                // the old log is still in use
+            }
+            store.putEtag(COLLECTION, REMOVED, "etag-5");
+        }
+    }), has("etag", store -> store.etag(COLLECTION, REMOVED), equalTo("etag-5")));
+
+    Verifiable failedAutomaticCompactionDoesNotFailWrites = assertThat(reopened(file ->
+    {
+        blockCompaction(file);
+        try (FileSyncStateStore store = new FileSyncStateStore(file))
+        {
+            rewritten(store, MANY);
+        }
+    }), has("etag", store -> store.etag(COLLECTION, HREF), equalTo("etag-" + (MANY - 1))));
+
+    Verifiable failedAutomaticCompactionIsRetried = assertThat(compactedAfterFailure(), lessThan(1024L * 1024L));
+
+
+    /**
+     * Writes a sync-token and the ETag of {@link #HREF}, which have been replaced once, and the ETag of {@link #REMOVED}, which has been removed, and
+     * returns the open store.
+     */
+    private static FileSyncStateStore written(Path file) throws IOException
+    {
+        FileSyncStateStore store = new FileSyncStateStore(file);
+        store.putSyncToken(COLLECTION, "token-1");
+        store.putEtag(COLLECTION, HREF, "etag-1");
+        store.putEtag(COLLECTION, REMOVED, "etag-3");
+        store.putEtag(COLLECTION, HREF, "etag-2");
+        store.remove(COLLECTION, REMOVED);
+        store.putSyncToken(COLLECTION, "token-2");
+        return store;
+    }
+
+
+    private static Quality<SyncStateStore> hasWrittenState()
+    {
+        return allOf(
+            has("sync-token", store -> store.syncToken(COLLECTION), equalTo("token-2")),
+            has("etag", store -> store.etag(COLLECTION, HREF), equalTo("etag-2")),
+            has("removed etag", store -> store.etag(COLLECTION, REMOVED), nullValue()));
+    }
+
+
+    /**
+     * Writes the ETag of {@link #HREF} the given number of times.
+     */
+    private static void rewritten(FileSyncStateStore store, int count) throws IOException
+    {
+        for (int i = 0; i < count; ++i)
+        {
+            store.putEtag(COLLECTION, HREF, "etag-" + i);
+        }
+    }
+
+
+    /**
+     * Makes the compaction of the given log fail by putting a directory where the compacted log is written.
+     */
+    private static void blockCompaction(Path file) throws IOException
+    {
+        Files.createDirectory(compacted(file));
+    }
+
+
+    private static Path compacted(Path file)
+    {
+        return file.resolveSibling(file.getFileName() + ".compact");
+    }
+
+
+    /**
+     * Writes enough records to trigger a compaction while the compaction fails, then unblocks the compaction, writes another record and returns the size of
+     * the log.
+     */
+    private static long compactedAfterFailure()
+    {
+        long[] size = new long[1];
+        withFile(file ->
+        {
+            blockCompaction(file);
+            try (FileSyncStateStore store = new FileSyncStateStore(file))
+            {
+                rewritten(store, MANY);
+                Files.delete(compacted(file));
+                rewritten(store, 1);
+            }
+            size[0] = Files.size(file);
+        });
+        return size[0];
+    }
+
+
+    /**
+     * Runs the given {@link Changes} on a new log file, then opens the log again and returns the store. The store is closed, but it can be read.
+     */
+    private static SyncStateStore reopened(Changes changes)
+    {
+        SyncStateStore[] result = new SyncStateStore[1];
+        withFile(file ->
+        {
+            changes.apply(file);
+            try (FileSyncStateStore store = new FileSyncStateStore(file))
+            {
+                result[0] = store;
+            }
+        });
+        return result[0];
+    }
+
+
+    /**
+     * Runs the given {@link Changes} on a new log file and deletes the file and its compacted version afterwards.
+     */
+    private static void withFile(Changes changes)
+    {
+        try
+        {
+            Path file = Files.createTempFile("sync-state", ".log");
+            try
+            {
+                changes.apply(file);
+            }
+            finally
+            {
+                Files.deleteIfExists(compacted(file));
+                Files.deleteIfExists(file);
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    private interface Changes
+    {
+        void apply(Path file) throws IOException;
+    }
+}
@@ -0,0 +1,339 @@
+package org.dmfs.davclient.sync;
+
+import org.dmfs.dav.rfc4918.Response;
+import org.dmfs.dav.rfc4918.WebDav;
+import org.dmfs.dav.rfc6578.SyncLevel;
+import org.dmfs.davclient.DavContext;
+import org.dmfs.davclient.FakeExecutor;
+import org.dmfs.davclient.FakeResponse;
+import org.dmfs.davclient.HostConcurrencyLimit;
+import org.dmfs.davclient.multiget.AdaptiveBatchSize;
+import org.dmfs.davclient.multiget.CalendarMultigetBatch;
+import org.dmfs.httpessentials.exceptions.ProtocolError;
+import org.dmfs.httpessentials.exceptions.ProtocolException;
+import org.dmfs.jems2.Function;
+import org.saynotobugs.confidence.junit5.engine.Confidence;
+import org.saynotobugs.confidence.junit5.engine.Verifiable;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.saynotobugs.confidence.junit5.engine.ConfidenceEngine.assertThat;
+import static org.saynotobugs.confidence.quality.Core.allOf;
+import static org.saynotobugs.confidence.quality.Core.equalTo;
+import static org.saynotobugs.confidence.quality.Core.greaterThan;
+import static org.saynotobugs.confidence.quality.Core.has;
+import static org.saynotobugs.confidence.quality.Core.instanceOf;
+import static org.saynotobugs.confidence.quality.Core.iterates;
+import static org.saynotobugs.confidence.quality.Core.iteratesInAnyOrder;
+import static org.saynotobugs.confidence.quality.Core.throwing;
+
+
+@Confidence
+class TwoPhaseSyncTest
+{
+    private final static URI COLLECTION = URI.create("https://example.com/cal/");
+
+    /**
+     * The number of unchanged members that follow the changed one in the listing of {@link #fetchFailureAbortsTheListing}.
+     */
+    private final static int UNCHANGED = 5000;
+
+    /**
+     * Runs each task on a new daemon thread.
+     */
+    private final static Executor THREADS = runnable ->
+    {
+        Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        thread.start();
+    };
+
+    Verifiable changedMembersAreFetched = assertThat(synced(listing(changed("a") + unchanged("b") + changed("c") + removed("d")), name -> "\"b\""),
+        allOf(
+            has("changed", Recorder::changed, iteratesInAnyOrder("/cal/a.ics", "/cal/c.ics")),
+            has("unchanged", Recorder::unchanged, iterates("/cal/b.ics")),
+            has("removed", Recorder::removed, iterates("/cal/d.ics")),
+            has("result", Recorder::result, equalTo("t2"))));
+
+    Verifiable membersWithoutLocalVersionAreFetched = assertThat(synced(listing(unchanged("a")), name -> null),
+        has("changed", Recorder::changed, iterates("/cal/a.ics")));
+
+    Verifiable membersRemovedAfterListingAreReported = assertThat(synced(listing(changed("a") + changed("gone")), name -> null),
+        allOf(
+            has("changed", Recorder::changed, iterates("/cal/a.ics")),
+            has("removed", Recorder::removed, iterates("/cal/gone.ics"))));
+
+    Verifiable partialBatchesAreFetchedWhileListing = assertThat(fetchedWhileListing(),
+        allOf(
+            has("changed", Recorder::changed, iteratesInAnyOrder("/cal/a.ics", "/cal/b.ics")),
+            has("result", Recorder::result, equalTo("t2"))));
+
+    Verifiable fetchFailureIsThrown = assertThat(() -> sync(new FakeExecutor(failingMultiget()), name -> null, new Recorder()),
+        throwing(allOf(instanceOf(SocketTimeoutException.class), has("message", Throwable::getMessage, equalTo("timeout")))));
+
+    Verifiable fetchFailureAbortsTheListing = fetchFailureAbortsTheListing();
+
+
+    /**
+     * Synchronizes {@link #COLLECTION} with a server that answers the sync-collection report with the given listing and the multiget reports with the
+     * requested members, unless they are named "gone". Returns the {@link Recorder} that received the results.
+     */
+    private static Recorder synced(FakeResponse listing, Function<String, String> localEtags)
+    {
+        Recorder recorder = new Recorder();
+        try
+        {
+            recorder.mResult = sync(new FakeExecutor((uri, method, body) -> body.contains("sync-collection") ? listing : multistatus(body)), localEtags,
+                recorder);
+        }
+        catch (IOException | ProtocolError | ProtocolException e)
+        {
+            throw new RuntimeException(e);
+        }
+        return recorder;
+    }
+
+
+    /**
+     * Synchronizes a listing of two changed members followed by an unchanged member. The ETag of the unchanged member is only looked up once the first
+     * multiget has been received, so the sync fails if the changed members wait for the end of the listing.
+     */
+    private static Recorder fetchedWhileListing()
+    {
+        CountDownLatch fetching = new CountDownLatch(1);
+        FakeResponse listing = listing(changed("a") + changed("b") + unchanged("c"));
+        Recorder recorder = new Recorder();
+        try
+        {
+            recorder.mResult = sync(new FakeExecutor((uri, method, body) ->
+            {
+                if (body.contains("sync-collection"))
+                {
+                    return listing;
+                }
+                fetching.countDown();
+                return multistatus(body);
+            }), name ->
+            {
+                if ("c".equals(name))
+                {
+                    await(fetching);
+                    return "\"c\"";
+                }
+                return null;
+            }, recorder);
+        }
+        catch (IOException | ProtocolError | ProtocolException e)
+        {
+            throw new RuntimeException(e);
+        }
+        return recorder;
+    }
+
+
+    /**
+     * Synchronizes a listing of a changed member followed by many unchanged ones, while the multiget fails. The listing must stop before it has been read
+     * completely.
+     */
+    private static Verifiable fetchFailureAbortsTheListing()
+    {
+        FakeExecutor executor = new FakeExecutor(failingMultiget());
+        try
+        {
+            sync(executor, name -> "a".equals(name) ? null : "\"" + name + "\"", new Recorder());
+        }
+        catch (SocketTimeoutException e)
+        {
+            return assertThat(executor.responses().get(0),
+                allOf(has("closed", FakeResponse::closed, equalTo(true)), has("remaining bytes", FakeResponse::remaining, greaterThan(0))));
+        }
+        catch (IOException | ProtocolError | ProtocolException e)
+        {
+            throw new RuntimeException(e);
+        }
+        throw new AssertionError("sync didn't fail");
+    }
+
+
+    /**
+     * Returns a server that lists a changed member followed by {@link #UNCHANGED} unchanged members and fails every multiget with a {@link
+     * SocketTimeoutException}.
+     */
+    private static FakeExecutor.Server failingMultiget()
+    {
+        StringBuilder members = new StringBuilder(changed("a"));
+        for (int i = 0; i < UNCHANGED; ++i)
+        {
+            members.append(unchanged("m" + i));
+        }
+        FakeResponse listing = listing(members.toString());
+        return (uri, method, body) ->
+        {
+            if (body.contains("sync-collection"))
+            {
+                return listing;
+            }
+            throw new SocketTimeoutException("timeout");
+        };
+    }
+
+
+    private static String sync(FakeExecutor executor, Function<String, String> localEtags, Recorder recorder)
+        throws IOException, ProtocolError, ProtocolException
+    {
+        return new TwoPhaseSync(executor, new DavContext(), COLLECTION, SyncLevel.one, new CalendarMultigetBatch(new DavContext(), WebDav.Properties.GETETAG),
+            new AdaptiveBatchSize(10), 2, new HostConcurrencyLimit(2), THREADS)
+            .sync("t1", href -> localEtags.value(name(href)), recorder);
+    }
+
+
+    private static String name(URI href)
+    {
+        String path = href.getPath();
+        return path.substring(path.lastIndexOf('/') + 1, path.length() - ".ics".length());
+    }
+
+
+    /**
+     * Answers a multiget report with a response for each requested member. Members named "gone" have been removed.
+     */
+    private static FakeResponse multistatus(String body)
+    {
+        StringBuilder responses = new StringBuilder();
+        int start = 0;
+        while ((start = body.indexOf("/cal/", start)) >= 0)
+        {
+            String name = body.substring(start + "/cal/".length(), body.indexOf(".ics", start));
+            responses.append("gone".equals(name) ? removed(name) : changed(name));
+            start += "/cal/".length();
+        }
+        return new FakeResponse(COLLECTION, "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+            + "<d:multistatus xmlns:d=\"DAV:\">\n"
+            + responses
+            + "</d:multistatus>\n");
+    }
+
+
+    private static FakeResponse listing(String responses)
+    {
+        return new FakeResponse(COLLECTION, "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+            + "<d:multistatus xmlns:d=\"DAV:\">\n"
+            + responses
+            + "<d:sync-token>t2</d:sync-token>\n"
+            + "</d:multistatus>\n");
+    }
+
+
+    /**
+     * Returns a response of a member with an ETag that differs from the local one.
+     */
+    private static String changed(String name)
+    {
+        return "<d:response><d:href>/cal/" + name + ".ics</d:href><d:propstat><d:prop><d:getetag>\"" + name
+            + "-2\"</d:getetag></d:prop><d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>\n";
+    }
+
+
+    /**
+     * Returns a response of a member with an ETag that equals its quoted name.
+     */
+    private static String unchanged(String name)
+    {
+        return "<d:response><d:href>/cal/" + name + ".ics</d:href><d:propstat><d:prop><d:getetag>\"" + name
+            + "\"</d:getetag></d:prop><d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>\n";
+    }
+
+
+    private static String removed(String name)
+    {
+        return "<d:response><d:href>/cal/" + name + ".ics</d:href><d:status>HTTP/1.1 404 Not Found</d:status></d:response>\n";
+    }
+
+
+    private static void await(CountDownLatch latch)
+    {
+        try
+        {
+            if (!latch.await(10, TimeUnit.SECONDS))
+            {
+                throw new IllegalStateException("timeout");
+            }
+        }
+        catch (InterruptedException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    /**
+     * A {@link ChangeConsumer} that records the paths of the hrefs it receives and the sync-token returned by the sync.
+     */
+    private final static class Recorder implements ChangeConsumer
+    {
+        private final List<String> mChanged = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> mUnchanged = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> mRemoved = Collections.synchronizedList(new ArrayList<>());
+        private String mResult;
+
+
+        @Override
+        public void onReset()
+        {
+            // not expected
+        }
+
+
+        @Override
+        public void onChanged(Response response)
+        {
+            mChanged.add(response.getHref().getPath());
+        }
+
+
+        @Override
+        public void onUnchanged(URI href)
+        {
+            mUnchanged.add(href.getPath());
+        }
+
+
+        @Override
+        public void onRemoved(URI href)
+        {
+            mRemoved.add(href.getPath());
+        }
+
+
+        List<String> changed()
+        {
+            return mChanged;
+        }
+
+
+        List<String> unchanged()
+        {
+            return mUnchanged;
+        }
+
+
+        List<String> removed()
+        {
+            return mRemoved;
+        }
+
+
+        String result()
+        {
+            return mResult;
+        }
+    }
+}